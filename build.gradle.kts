@@ -23,18 +23,24 @@ dependencies {
     
     // Database - Connection Pools
     implementation("com.zaxxer:HikariCP:5.1.0")
-    implementation("org.hibernate:hibernate-c3p0:6.4.1.Final")
     implementation("org.hibernate:hibernate-hikaricp:6.4.1.Final")
     
+    // Database - Second-level Cache
+    implementation("org.hibernate.orm:hibernate-jcache:6.4.1.Final")
+    implementation("javax.cache:cache-api:1.1.1")
+    implementation("org.ehcache:ehcache:3.10.8:jakarta")
+    
     // SQLite Dialect
-    implementation("com.github.gwenn:sqlite-dialect:0.1.2")
+    implementation("org.hibernate.orm:hibernate-community-dialects:6.4.1.Final")
     
     // Logging
     implementation("org.jboss.logging:jboss-logging:3.4.3.Final")
     implementation("org.jboss.logging:jboss-logging-annotations:2.2.1.Final")
     
-    // Add any additional dependencies here
-    // testImplementation("org.junit.jupiter:junit-jupiter:5.10.0")
+    // Testing
+    testImplementation("org.junit.jupiter:junit-jupiter:5.10.0")
+    testImplementation("org.mockito:mockito-core:5.8.0")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
 }
 
 java {
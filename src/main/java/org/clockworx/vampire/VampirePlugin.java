@@ -1,22 +1,49 @@
 package org.clockworx.vampire;
 
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.IllegalPluginAccessException;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.clockworx.vampire.altar.AltarManager;
+import org.clockworx.vampire.altar.RitualSessionManager;
 import org.clockworx.vampire.cmd.*;
+import org.clockworx.vampire.combat.CombatService;
 import org.clockworx.vampire.config.LanguageConfig;
 import org.clockworx.vampire.config.VampireConfig;
+import org.clockworx.vampire.database.BootstrapDatabaseManager;
+import org.clockworx.vampire.database.ChangeLogDatabaseManager;
+import org.clockworx.vampire.database.DataTransfer;
 import org.clockworx.vampire.database.DatabaseManager;
-import org.clockworx.vampire.database.HibernateDatabaseManager;
+import org.clockworx.vampire.database.DatabaseManagerFactory;
+import org.clockworx.vampire.database.LeaseDatabaseManager;
+import org.clockworx.vampire.database.PlayerJournal;
+import org.clockworx.vampire.database.PlayerRecord;
+import org.clockworx.vampire.database.ShutdownFlusher;
 import org.clockworx.vampire.entity.VampirePlayer;
+import org.clockworx.vampire.entity.VampireStatusIndex;
 import org.clockworx.vampire.listener.VampireListener;
+import org.clockworx.vampire.listener.AltarListener;
+import org.clockworx.vampire.listener.AltarBlockListener;
+import org.clockworx.vampire.listener.DatabaseAdmissionListener;
+import org.clockworx.vampire.listener.PlayerLeaseListener;
+import org.clockworx.vampire.listener.RitualListener;
+import org.clockworx.vampire.listener.SpatialIndexListener;
+import org.clockworx.vampire.spatial.PlayerSpatialIndex;
+import org.clockworx.vampire.task.OfferReaperTask;
 import org.clockworx.vampire.task.VampireTask;
 import org.clockworx.vampire.util.BloodFlaskUtil;
 import org.clockworx.vampire.util.HolyWaterUtil;
+import org.clockworx.vampire.util.StartupTimer;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 
 /**
@@ -30,34 +57,55 @@ public class VampirePlugin extends JavaPlugin {
     private LanguageConfig language;
     private DatabaseManager databaseManager;
     private VampireTask task;
+    private OfferReaperTask offerReaper;
     private VampireListener listener;
+    private PlayerLeaseListener leaseListener;
+    private CombatService combatService;
+    private PlayerSpatialIndex spatialIndex;
+    private final VampireStatusIndex statusIndex = new VampireStatusIndex();
     private BloodFlaskUtil bloodFlaskUtil;
     private HolyWaterUtil holyWaterUtil;
     private VampireCommand vampireCommand;
     private AltarManager altarManager;
+    private RitualSessionManager ritualSessions;
+    private StartupTimer startupTimer;
+    private PlayerJournal recoveryJournal;
+    private DataTransfer dataTransfer;
     
     // Cache of online vampire players
-    private final Map<UUID, VampirePlayer> playerCache = new HashMap<>();
+    // Read synchronously by damage events and filled by database callbacks
+    private final Map<UUID, VampirePlayer> playerCache = new ConcurrentHashMap<>();
+    // Advanced whenever a player is dropped from the cache, so loads started before are not cached
+    private final AtomicLong cacheEpoch = new AtomicLong();
     
     @Override
     public void onEnable() {
         instance = this;
         
+        startupTimer = new StartupTimer();
+        
         // Save default config if it doesn't exist
         saveDefaultConfig();
         
         // Initialize configs
-        initializeConfigs();
+        startupTimer.time("config", this::initializeConfigs);
+        
+        // Initialize database in the background
+        startupTimer.time("database setup", this::initializeDatabase);
+        
+        // Register listeners
+        startupTimer.time("listeners", this::initializeListeners);
         
-        // Initialize database
-        initializeDatabase();
+        // Register altars
+        startupTimer.time("altars", this::initializeAltars);
         
         // Register commands
-        registerCommands();
+        startupTimer.time("commands", this::registerCommands);
         
         // Start tasks
-        startTasks();
+        startupTimer.time("tasks", this::startTasks);
         
+        startupTimer.log(getLogger(), "Enable timings");
         getLogger().info("Vampire plugin enabled!");
     }
     
@@ -68,10 +116,23 @@ public class VampirePlugin extends JavaPlugin {
             task.shutdown();
         }
         
+        if (offerReaper != null) {
+            offerReaper.shutdown();
+        }
+        
+        // Rituals in progress are abandoned
+        if (ritualSessions != null) {
+            ritualSessions.clear();
+        }
+        
+        // A cancelled transfer resumes from its checkpoint next time
+        if (dataTransfer != null) {
+            dataTransfer.cancel();
+        }
+        
         if (databaseManager != null) {
-            databaseManager.shutdown().join();
+            shutdownDatabase();
         }
-
         
         // Clear player cache
         playerCache.clear();
@@ -114,8 +175,16 @@ public class VampirePlugin extends JavaPlugin {
      * Initialize event listeners
      */
     private void initializeListeners() {
-        listener = new VampireListener(this);
+        combatService = new CombatService(this);
+        listener = new VampireListener(this, combatService);
         getServer().getPluginManager().registerEvents(listener, this);
+        
+        // Index players already online after a reload; the listener tracks the rest
+        spatialIndex = new PlayerSpatialIndex();
+        for (Player player : getServer().getOnlinePlayers()) {
+            spatialIndex.update(player, player.getLocation());
+        }
+        getServer().getPluginManager().registerEvents(new SpatialIndexListener(spatialIndex), this);
     }
     
     /**
@@ -130,55 +199,185 @@ public class VampirePlugin extends JavaPlugin {
      * Initialize altar manager
      */
     private void initializeAltars() {
+        ritualSessions = new RitualSessionManager(this);
+        if (!config.isAltarsEnabled()) {
+            return;
+        }
         altarManager = new AltarManager();
+        getServer().getPluginManager().registerEvents(new AltarListener(), this);
+        getServer().getPluginManager().registerEvents(new AltarBlockListener(altarManager), this);
+        getServer().getPluginManager().registerEvents(new RitualListener(ritualSessions), this);
     }
     
     /**
      * Initialize database
      */
     private void initializeDatabase() {
-        databaseManager = new HibernateDatabaseManager(this);
-        databaseManager.initialize().join();
+        // Operations and logins arriving before the database is ready wait for it
+        recoveryJournal = new PlayerJournal(getDataFolder().toPath().resolve(config.getShutdownRecoveryFile()), getLogger());
+        BootstrapDatabaseManager bootstrap = new BootstrapDatabaseManager(DatabaseManagerFactory.create(this),
+            recoveryJournal, getLogger());
+        databaseManager = bootstrap;
+        getServer().getPluginManager().registerEvents(new DatabaseAdmissionListener(this, bootstrap), this);
+        
+        long bootstrapStart = System.nanoTime();
+        bootstrap.initialize().whenComplete((ignored, error) -> {
+            startupTimer.record("database bootstrap", System.nanoTime() - bootstrapStart);
+            if (error != null) {
+                error("Failed to initialize database, disabling plugin", error);
+                getServer().getScheduler().runTask(this, () -> getServer().getPluginManager().disablePlugin(this));
+                return;
+            }
+            startupTimer.log(getLogger(), "Database ready, startup timings");
+        });
+        
+        // Drop players another server changed; the cache is only touched on the main thread
+        databaseManager.unwrap(ChangeLogDatabaseManager.class).ifPresent(changeLog ->
+            changeLog.addListener(uuid -> getServer().getScheduler().runTask(this, () -> removeFromCache(uuid))));
+        
+        // Hand players over between servers through leases
+        databaseManager.unwrap(LeaseDatabaseManager.class).ifPresent(leases -> {
+            leaseListener = new PlayerLeaseListener(this, leases);
+            getServer().getPluginManager().registerEvents(leaseListener, this);
+        });
+    }
+    
+    /**
+     * Save every online player within the shutdown deadline, then close the database.
+     * Players that left were saved on quit, and offline players are saved by the
+     * commands that change them. Players that cannot be saved in time are spilled
+     * to the recovery journal.
+     */
+    private void shutdownDatabase() {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.getShutdownDeadline());
+        List<PlayerRecord> players = new ArrayList<>();
+        for (Player online : getServer().getOnlinePlayers()) {
+            VampirePlayer player = playerCache.get(online.getUniqueId());
+            if (player != null) {
+                players.add(PlayerRecord.from(player));
+            }
+        }
+        new ShutdownFlusher(databaseManager, recoveryJournal, getLogger()).flush(players, deadline);
+        
+        // Closing connections gets a short grace period even if the flush used up the deadline
+        long remaining = Math.max(deadline - System.nanoTime(), TimeUnit.SECONDS.toNanos(1));
+        try {
+            databaseManager.shutdown().get(remaining, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            getLogger().warning("Database did not shut down within the deadline");
+        } catch (ExecutionException e) {
+            error("Failed to shut down database", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
     
     /**
-     * Get a player's vampire data, loading it from the database if necessary
+     * Get a player's vampire data, loading it from the database if necessary.
+     * A loaded player is cached on the main thread, and the future completes there,
+     * so callbacks may use the Bukkit API.
      * 
      * @param uuid The player's UUID
      * @return A CompletableFuture that will complete with the player's vampire data
      */
     public CompletableFuture<VampirePlayer> getVampirePlayer(UUID uuid) {
         // Check cache first
-        if (playerCache.containsKey(uuid)) {
-            return CompletableFuture.completedFuture(playerCache.get(uuid));
+        VampirePlayer cached = playerCache.get(uuid);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
         }
         
         // Load from database
-        return databaseManager.getPlayer(uuid).thenApply(player -> {
-            if (player != null) {
-                playerCache.put(uuid, player);
+        long epoch = cacheEpoch.get();
+        CompletableFuture<VampirePlayer> result = new CompletableFuture<>();
+        databaseManager.getPlayer(uuid).whenComplete((player, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+                return;
             }
-            return player;
+            runOnMainThread(() -> result.complete(cache(uuid, player, epoch)),
+                () -> result.complete(player));
         });
+        return result;
     }
     
     /**
-     * Save a player's vampire data to the database
+     * Cache a loaded player, unless another load cached the player first.
+     * Only online players are cached, which keeps the status index to online players.
+     * A load that started before a player was dropped from the cache, for example one
+     * that finishes after the player quit and rejoined, may hold data from before the
+     * quit save and is not cached. Must be called on the main thread.
+     * 
+     * @param uuid The player's UUID
+     * @param loaded The loaded player, or null if the player has no data
+     * @param epoch The cache epoch when the load started
+     * @return The cached player, or the loaded one if it was not cached
+     */
+    private VampirePlayer cache(UUID uuid, VampirePlayer loaded, long epoch) {
+        if (loaded == null || epoch != cacheEpoch.get() || getServer().getPlayer(uuid) == null) {
+            return loaded;
+        }
+        VampirePlayer existing = playerCache.putIfAbsent(uuid, loaded);
+        if (existing != null) {
+            return existing;
+        }
+        statusIndex.update(loaded);
+        return loaded;
+    }
+    
+    /**
+     * Run a task on the main thread, directly if already on it.
+     * 
+     * @param task The task to run
+     * @param disabled The task to run instead if the plugin is being disabled
+     */
+    private void runOnMainThread(Runnable task, Runnable disabled) {
+        if (getServer().isPrimaryThread()) {
+            task.run();
+            return;
+        }
+        try {
+            getServer().getScheduler().runTask(this, task);
+        } catch (IllegalPluginAccessException e) {
+            // The scheduler refuses tasks once disabling has started
+            disabled.run();
+        }
+    }
+    
+    /**
+     * Save a player's vampire data to the database.
+     * A failed save is logged, so callers that ignore the result do not lose it silently.
      * 
      * @param player The player to save
      * @return A CompletableFuture that will complete when the save is done
      */
     public CompletableFuture<Void> saveVampirePlayer(VampirePlayer player) {
-        return databaseManager.savePlayer(player);
+        return databaseManager.savePlayer(player).whenComplete((ignored, error) -> {
+            if (error != null) {
+                getLogger().log(Level.SEVERE, "Failed to save player " + player.getUuid(), error);
+            }
+        });
     }
     
     /**
-     * Remove a player from the cache
+     * Remove a player from the cache. Loads still running when this is called are not cached.
      * 
      * @param uuid The player's UUID
      */
     public void removeFromCache(UUID uuid) {
+        cacheEpoch.incrementAndGet();
         playerCache.remove(uuid);
+        statusIndex.remove(uuid);
+    }
+    
+    /**
+     * Get a player's vampire data only if it is cached
+     * 
+     * @param uuid The player's UUID
+     * @return The cached vampire data, or null if the player is not cached
+     */
+    public VampirePlayer getCachedVampirePlayer(UUID uuid) {
+        return playerCache.get(uuid);
     }
     
     /**
@@ -235,6 +434,38 @@ public class VampirePlugin extends JavaPlugin {
         return holyWaterUtil;
     }
     
+    /**
+     * Get the combat service
+     * @return The combat service
+     */
+    public CombatService getCombatService() {
+        return combatService;
+    }
+    
+    /**
+     * Get the index of which online players are vampires or infected
+     * @return The status index
+     */
+    public VampireStatusIndex getStatusIndex() {
+        return statusIndex;
+    }
+    
+    /**
+     * Get the listener that hands players over between servers
+     * @return The lease listener, or null if player leases are not used
+     */
+    public PlayerLeaseListener getLeaseListener() {
+        return leaseListener;
+    }
+    
+    /**
+     * Get the spatial index of online players
+     * @return The spatial index
+     */
+    public PlayerSpatialIndex getSpatialIndex() {
+        return spatialIndex;
+    }
+    
     /**
      * Get the altar manager
      * @return The altar manager
@@ -243,6 +474,54 @@ public class VampirePlugin extends JavaPlugin {
         return altarManager;
     }
     
+    /**
+     * Get the altar rituals in progress
+     * @return The ritual session manager
+     */
+    public RitualSessionManager getRitualSessions() {
+        return ritualSessions;
+    }
+    
+    /**
+     * Get the blood offer reaper
+     * @return The offer reaper, or null if it is disabled
+     */
+    public OfferReaperTask getOfferReaper() {
+        return offerReaper;
+    }
+    
+    /**
+     * Start a data transfer on its own thread, unless one is already running
+     * @param transfer The transfer to start
+     * @return true if the transfer was started
+     */
+    public synchronized boolean startDataTransfer(DataTransfer transfer) {
+        if (dataTransfer != null && dataTransfer.isRunning()) {
+            return false;
+        }
+        dataTransfer = transfer;
+        Thread thread = new Thread(transfer, "Vampire-Data-Transfer");
+        thread.setDaemon(true);
+        thread.start();
+        return true;
+    }
+    
+    /**
+     * Get the most recent data transfer
+     * @return The transfer, or null if none was started
+     */
+    public synchronized DataTransfer getDataTransfer() {
+        return dataTransfer;
+    }
+    
+    /**
+     * Get the startup phase timings
+     * @return The startup timer
+     */
+    public StartupTimer getStartupTimer() {
+        return startupTimer;
+    }
+    
     /**
      * Log a debug message
      * 
@@ -268,6 +547,12 @@ public class VampirePlugin extends JavaPlugin {
         // Start vampire task
         VampireTask vampireTask = new VampireTask(this);
         vampireTask.start();
+        
+        // Start blood offer reaper
+        if (config.isOfferReaperEnabled()) {
+            offerReaper = new OfferReaperTask(this);
+            offerReaper.start();
+        }
     }
 
     private void registerCommands() {
@@ -1,27 +1,23 @@
 package org.clockworx.vampire.altar;
 
-import org.bukkit.Location;
 import org.bukkit.Particle;
 import org.bukkit.Sound;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
-import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.inventory.ItemStack;
 import org.clockworx.vampire.VampirePlugin;
 import org.clockworx.vampire.entity.VampirePlayer;
 import org.clockworx.vampire.event.EventAltarUse;
+import org.clockworx.vampire.util.ResourceTransaction;
 import org.clockworx.vampire.util.TextUtil;
 import org.clockworx.vampire.util.VampireMessages;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Map.Entry;
-import java.util.Set;
-import java.util.UUID;
 
 /**
  * Abstract base class for all altars in the Vampire plugin.
@@ -56,44 +52,72 @@ public abstract class AltarAbstract {
     protected List<ItemStack> resources;
     
     /**
-     * Map of player UUIDs to their initial locations when using altars.
+     * The exact layout the altar must be built in, or null if only the material counts matter.
+     * When set, the material counts are taken from it.
      */
-    private static final Map<UUID, Location> playerLocations = new HashMap<>();
+    protected AltarBlueprint blueprint;
     
     /**
-     * Registers a player's location for movement tracking.
+     * The compiled material requirements, rebuilt when the search radius changes.
+     */
+    private AltarPattern pattern;
+    
+    /**
+     * Gets this altar's compiled material requirements.
+     * The core material is always required at least once.
      * 
-     * @param player The player to track
+     * @param radius The configured search radius
+     * @return The compiled pattern
      */
-    protected void registerPlayerLocation(Player player) {
-        playerLocations.put(player.getUniqueId(), player.getLocation());
+    protected AltarPattern getPattern(int radius) {
+        int reach = getReach(radius);
+        if (pattern == null || pattern.getRadius() != reach) {
+            Map<Material, Integer> required = new HashMap<>(this.materialCounts);
+            required.putIfAbsent(this.coreMaterial, 1);
+            pattern = new AltarPattern(required, reach);
+        }
+        return pattern;
     }
     
     /**
-     * Unregisters a player's location from movement tracking.
+     * Gets how far from the core a block can be and still be part of the altar.
+     * This is the search radius, or the blueprint's extent if that is larger.
      * 
-     * @param player The player to stop tracking
+     * @param radius The configured search radius
+     * @return The reach in blocks
      */
-    protected void unregisterPlayerLocation(Player player) {
-        playerLocations.remove(player.getUniqueId());
+    protected int getReach(int radius) {
+        return blueprint == null ? radius : Math.max(radius, blueprint.getReach());
     }
     
     /**
-     * Checks if a player has moved from their initial location.
-     * Only checks for position changes, not rotation changes.
+     * Gets a fingerprint of everything a validated altar was checked against.
      * 
-     * @param player The player to check
-     * @return true if the player has moved, false otherwise
+     * @param radius The configured search radius
+     * @return The fingerprint
      */
-    protected boolean hasPlayerMoved(Player player) {
-        Location initialLocation = playerLocations.get(player.getUniqueId());
-        if (initialLocation == null) return false;
-        
-        Location currentLocation = player.getLocation();
-        return !initialLocation.getWorld().equals(currentLocation.getWorld()) ||
-               initialLocation.getX() != currentLocation.getX() ||
-               initialLocation.getY() != currentLocation.getY() ||
-               initialLocation.getZ() != currentLocation.getZ();
+    protected int getFingerprint(int radius) {
+        int fingerprint = getPattern(radius).getFingerprint();
+        return blueprint == null ? fingerprint : fingerprint * 31 + blueprint.getFingerprint();
+    }
+    
+    /**
+     * Gets what has been built around a core block, scanning it only if no up to date
+     * result is cached.
+     * 
+     * @param coreBlock The core block
+     * @return The scan result
+     */
+    protected AltarScan getScan(Block coreBlock) {
+        VampirePlugin plugin = VampirePlugin.getInstance();
+        AltarPattern pattern = getPattern(plugin.getVampireConfig().getAltarSearchRadius());
+        AltarScanCache cache = plugin.getAltarManager().getScanCache();
+        AltarScan scan = cache.get(coreBlock, pattern);
+        if (scan == null) {
+            scan = pattern.scan(coreBlock);
+            cache.put(coreBlock, scan);
+        }
+        return scan;
     }
     
     /**
@@ -115,45 +139,53 @@ public abstract class AltarAbstract {
         // Check if the core block is the correct material
         if (coreBlock.getType() != coreMaterial) return false;
         
-        // Get the player's configuration
-        VampirePlayer vampirePlayer = VampirePlayer.get(player);
-        VampirePlugin plugin = VampirePlugin.getInstance();
-        
-        // Make sure we include the coreBlock material in the wanted ones
-        if (!this.materialCounts.containsKey(this.coreMaterial)) {
-            this.materialCounts.put(this.coreMaterial, 1);
+        // One ritual at a time
+        if (VampirePlugin.getInstance().getRitualSessions().isActive(player.getUniqueId())) {
+            VampireMessages.send(player, "You are already performing a ritual.");
+            return false;
         }
         
-        // Get all blocks in the altar's area
-        ArrayList<Block> blocks = getCubeBlocks(coreBlock, plugin.getVampireConfig().getAltarSearchRadius());
-        
-        // Count the materials in the altar's area
-        Map<Material, Integer> nearbyMaterialCounts = countMaterials(blocks, this.materialCounts.keySet());
-        
-        // Calculate the total required and nearby material counts
-        int requiredMaterialCountSum = sumCollection(this.materialCounts.values());
-        int nearbyMaterialCountSum = sumCollection(nearbyMaterialCounts.values());
-        
-        // If the blocks are too far from looking anything like an altar, skip
-        if (nearbyMaterialCountSum < requiredMaterialCountSum * plugin.getVampireConfig().getAltarMinRatio()) return false;
-        
-        // What altar blocks are missing?
-        Map<Material, Integer> missingMaterialCounts = getMissingMaterialCounts(nearbyMaterialCounts);
+        VampirePlugin plugin = VampirePlugin.getInstance();
         
-        // Is the altar complete?
-        if (sumCollection(missingMaterialCounts.values()) > 0) {
-            // Send info on what to do to finish the altar
-            player.sendMessage(TextUtil.parse("The altar is incomplete. You need:"));
+        // Altars validated since their blocks last changed need no scan
+        AltarManager manager = plugin.getAltarManager();
+        if (manager.getRegistry().get(coreBlock) != this) {
+            // The scan is kept up to date as blocks around the core are placed and broken
+            AltarScan scan = getScan(coreBlock);
+            AltarPattern pattern = scan.getPattern();
+            
+            // If the blocks are too far from looking anything like an altar, skip
+            if (!scan.isRecognizable(plugin.getVampireConfig().getAltarMinRatio())) return false;
             
-            for (Entry<Material, Integer> entry : missingMaterialCounts.entrySet()) {
-                Material material = entry.getKey();
-                int count = entry.getValue();
-                player.sendMessage(TextUtil.parse("%d %s", count, TextUtil.getMaterialName(material)));
+            // Is the altar complete?
+            if (!scan.isComplete()) {
+                // Send info on what to do to finish the altar
+                player.sendMessage(TextUtil.parse("The altar is incomplete. You need:"));
+                
+                for (int slot = 0; slot < pattern.getSlots(); slot++) {
+                    int count = scan.getMissing(slot);
+                    if (count > 0) {
+                        player.sendMessage(TextUtil.parse("%d %s", count, TextUtil.getMaterialName(pattern.getMaterial(slot))));
+                    }
+                }
+                
+                return false;
             }
             
-            return false;
+            // Shaped altars also need every block in its place
+            if (blueprint != null && !blueprint.matches(coreBlock)) {
+                player.sendMessage(TextUtil.parse("The altar has every block it needs, but %d are out of place.",
+                    blueprint.countMismatches(coreBlock)));
+                return false;
+            }
+            
+            manager.getRegistry().register(coreBlock, this);
         }
         
+        // Get the player's configuration; it is cached from when they joined
+        VampirePlayer vampirePlayer = plugin.getCachedVampirePlayer(player.getUniqueId());
+        if (vampirePlayer == null) return false;
+        
         // Fire the altar use event
         EventAltarUse event = new EventAltarUse(this, vampirePlayer, player);
         plugin.getServer().getPluginManager().callEvent(event);
@@ -186,29 +218,31 @@ public abstract class AltarAbstract {
             return false;
         }
         
-        // Register player location for movement tracking
-        registerPlayerLocation(player);
-        
-        try {
-            // Check if player has moved
-            if (hasPlayerMoved(player)) {
-                VampireMessages.send(vampirePlayer, "You moved! The ritual has been interrupted.");
-                return false;
-            }
-            
-            // Consume resources
-            for (ItemStack resource : resources) {
-                player.getInventory().removeItem(resource);
-            }
-            
-            // Apply effects
-            applyEffects(vampirePlayer, player, block);
-            
-            return true;
-        } finally {
-            // Always unregister the player's location
-            unregisterPlayerLocation(player);
+        // Consume resources, all of them or none
+        if (!ResourceTransaction.begin(player, resources).commit()) {
+            VampireMessages.send(vampirePlayer, "You don't have the required resources.");
+            return false;
         }
+        player.updateInventory();
+        
+        // Apply effects
+        applyEffects(vampirePlayer, player, block);
+        
+        return true;
+    }
+    
+    /**
+     * Starts the ritual that completes this altar's use once the player has stood still
+     * for the configured duration. Moving off the block, being hurt or quitting
+     * interrupts it; see {@link RitualSessionManager}.
+     * 
+     * @param player The player performing the ritual
+     * @param onComplete What to do when the ritual completes
+     * @return true if the ritual started, false if the player already has one in progress
+     */
+    protected boolean startRitual(Player player, Runnable onComplete) {
+        VampirePlugin plugin = VampirePlugin.getInstance();
+        return plugin.getRitualSessions().start(player, plugin.getVampireConfig().getAltarRitualDuration(), onComplete);
     }
     
     /**
@@ -240,6 +274,15 @@ public abstract class AltarAbstract {
         return this.name;
     }
     
+    /**
+     * Gets the identifier the altar is stored under, derived from its name.
+     * 
+     * @return The altar's identifier, for example dark_altar
+     */
+    public String getId() {
+        return this.name.toLowerCase(Locale.ROOT).replace(' ', '_');
+    }
+    
     /**
      * Gets the description of the altar.
      * 
@@ -275,77 +318,4 @@ public abstract class AltarAbstract {
     public List<ItemStack> getResources() {
         return new ArrayList<>(this.resources);
     }
-    
-    /**
-     * Sums the values in a collection of integers.
-     * 
-     * @param collection The collection to sum
-     * @return The sum of the values in the collection
-     */
-    protected int sumCollection(Collection<Integer> collection) {
-        int ret = 0;
-        for (Integer i : collection) ret += i;
-        return ret;
-    }
-    
-    /**
-     * Gets the missing material counts for an altar.
-     * 
-     * @param nearbyMaterialCounts The material counts nearby
-     * @return The missing material counts
-     */
-    protected Map<Material, Integer> getMissingMaterialCounts(Map<Material, Integer> nearbyMaterialCounts) {
-        Map<Material, Integer> ret = new HashMap<>();
-        
-        for (Entry<Material, Integer> entry : materialCounts.entrySet()) {
-            Material material = entry.getKey();
-            int required = entry.getValue();
-            int nearby = nearbyMaterialCounts.getOrDefault(material, 0);
-            int missing = Math.max(0, required - nearby);
-            ret.put(material, missing);
-        }
-        
-        return ret;
-    }
-    
-    /**
-     * Counts the materials in a collection of blocks.
-     * 
-     * @param blocks The blocks to count
-     * @param materialsToCount The materials to count
-     * @return The material counts
-     */
-    protected static Map<Material, Integer> countMaterials(Collection<Block> blocks, Set<Material> materialsToCount) {
-        Map<Material, Integer> ret = new HashMap<>();
-        
-        for (Block block : blocks) {
-            Material material = block.getType();
-            if (!materialsToCount.contains(material)) continue;
-            
-            ret.merge(material, 1, Integer::sum);
-        }
-        
-        return ret;
-    }
-    
-    /**
-     * Gets all blocks in a cube around a center block.
-     * 
-     * @param centerBlock The center block
-     * @param radius The radius of the cube
-     * @return The blocks in the cube
-     */
-    protected static ArrayList<Block> getCubeBlocks(Block centerBlock, int radius) {
-        ArrayList<Block> blocks = new ArrayList<>();
-        
-        for (int y = -radius; y <= radius; y++) {
-            for (int z = -radius; z <= radius; z++) {
-                for (int x = -radius; x <= radius; x++) {
-                    blocks.add(centerBlock.getRelative(x, y, z));
-                }
-            }
-        }
-        
-        return blocks;
-    }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,265 @@
+package org.clockworx.vampire.altar;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * The exact layout of a shaped altar, compiled for matching.
+ * A blueprint is read from an altar's config section:
+ * <pre>
+ * blueprint:
+ *   core: C            # the character marking the core block
+ *   key:
+ *     O: OBSIDIAN
+ *     C: OBSIDIAN
+ *   layers:            # bottom layer first; rows run north to south, characters west to east
+ *     - ["OOO", "OCO", "OOO"]
+ *     - ["O O", "   ", "O O"]
+ * </pre>
+ * Spaces and dots match any block; a key entry of AIR requires the cell to be empty. The layout is compiled at load into four grids,
+ * one per quarter turn around the core, each holding the offset from the core and the
+ * expected material ordinal of every fixed cell. Matching walks a grid in a single
+ * pass reading block types from the world and stops at the first mismatch.
+ */
+public class AltarBlueprint {
+
+    private final int[][] offsetX = new int[4][];
+    private final int[][] offsetY = new int[4][];
+    private final int[][] offsetZ = new int[4][];
+    private final int[] expected;
+    private final boolean[] air;
+    private final Map<Material, Integer> materialCounts;
+    private final int reach;
+    private final int fingerprint;
+
+    private AltarBlueprint(List<int[]> cells, Map<Material, Integer> materialCounts, int fingerprint) {
+        this.expected = new int[cells.size()];
+        this.air = new boolean[cells.size()];
+        Material[] materials = Material.values();
+        for (int rotation = 0; rotation < 4; rotation++) {
+            offsetX[rotation] = new int[cells.size()];
+            offsetY[rotation] = new int[cells.size()];
+            offsetZ[rotation] = new int[cells.size()];
+        }
+        int maxReach = 0;
+        for (int i = 0; i < cells.size(); i++) {
+            int[] cell = cells.get(i);
+            int x = cell[0];
+            int z = cell[2];
+            for (int rotation = 0; rotation < 4; rotation++) {
+                offsetX[rotation][i] = x;
+                offsetY[rotation][i] = cell[1];
+                offsetZ[rotation][i] = z;
+                // A quarter turn clockwise seen from above
+                int turned = -z;
+                z = x;
+                x = turned;
+            }
+            expected[i] = cell[3];
+            air[i] = materials[cell[3]].isAir();
+            maxReach = Math.max(maxReach, Math.max(Math.abs(cell[0]), Math.max(Math.abs(cell[1]), Math.abs(cell[2]))));
+        }
+        this.materialCounts = materialCounts;
+        this.reach = maxReach;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Reads a blueprint from an altar's config.
+     *
+     * @param value The blueprint section, either a ConfigurationSection or a map
+     * @param coreMaterial The altar's core material, used for the core character if the key leaves it out
+     * @param logger Where to report an invalid blueprint
+     * @return The compiled blueprint, or null if there is none or it is invalid
+     */
+    public static AltarBlueprint parse(Object value, Material coreMaterial, Logger logger) {
+        Map<String, Object> section = asMap(value);
+        if (section == null) {
+            return null;
+        }
+
+        String coreString = String.valueOf(section.getOrDefault("core", "C"));
+        if (coreString.length() != 1) {
+            logger.warning("Invalid altar blueprint: core must be a single character");
+            return null;
+        }
+        char core = coreString.charAt(0);
+
+        Map<Character, Material> key = new HashMap<>();
+        Map<String, Object> keySection = asMap(section.get("key"));
+        if (keySection != null) {
+            for (Map.Entry<String, Object> entry : keySection.entrySet()) {
+                Material material = Material.matchMaterial(String.valueOf(entry.getValue()));
+                if (entry.getKey().length() != 1 || material == null || !material.isBlock()) {
+                    logger.warning("Invalid altar blueprint key: " + entry.getKey() + ": " + entry.getValue());
+                    return null;
+                }
+                key.put(entry.getKey().charAt(0), material);
+            }
+        }
+        key.putIfAbsent(core, coreMaterial);
+
+        // Collect the fixed cells by absolute position first, then make them relative to the core
+        List<int[]> cells = new ArrayList<>();
+        int[] corePosition = null;
+        Object layers = section.get("layers");
+        if (!(layers instanceof List<?> layerList) || layerList.isEmpty()) {
+            logger.warning("Invalid altar blueprint: layers must be a list of layers");
+            return null;
+        }
+        for (int y = 0; y < layerList.size(); y++) {
+            if (!(layerList.get(y) instanceof List<?> rows)) {
+                logger.warning("Invalid altar blueprint: layer " + (y + 1) + " must be a list of rows");
+                return null;
+            }
+            for (int z = 0; z < rows.size(); z++) {
+                String row = String.valueOf(rows.get(z));
+                for (int x = 0; x < row.length(); x++) {
+                    char symbol = row.charAt(x);
+                    if (symbol == ' ' || symbol == '.') {
+                        continue;
+                    }
+                    Material material = key.get(symbol);
+                    if (material == null) {
+                        logger.warning("Invalid altar blueprint: '" + symbol + "' is not in the key");
+                        return null;
+                    }
+                    if (symbol == core) {
+                        if (corePosition != null) {
+                            logger.warning("Invalid altar blueprint: the core '" + core + "' appears more than once");
+                            return null;
+                        }
+                        corePosition = new int[] {x, y, z};
+                    }
+                    cells.add(new int[] {x, y, z, material.ordinal()});
+                }
+            }
+        }
+        if (corePosition == null) {
+            logger.warning("Invalid altar blueprint: the core '" + core + "' does not appear in the layers");
+            return null;
+        }
+
+        Map<Material, Integer> materialCounts = new EnumMap<>(Material.class);
+        Material[] materials = Material.values();
+        int hash = 0;
+        for (int[] cell : cells) {
+            cell[0] -= corePosition[0];
+            cell[1] -= corePosition[1];
+            cell[2] -= corePosition[2];
+            Material material = materials[cell[3]];
+            // Empty cells are checked by the blueprint but not counted as building progress
+            if (!material.isAir()) {
+                materialCounts.merge(material, 1, Integer::sum);
+            }
+            hash = hash * 31 + ((cell[0] * 31 + cell[1]) * 31 + cell[2]) * 31 + material.name().hashCode();
+        }
+        return new AltarBlueprint(cells, materialCounts, hash);
+    }
+
+    /**
+     * Checks whether the blocks around a core match the blueprint in any rotation.
+     *
+     * @param core The core block
+     * @return true if the blocks match
+     */
+    public boolean matches(Block core) {
+        for (int rotation = 0; rotation < 4; rotation++) {
+            if (mismatches(core, rotation, 1) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Counts the cells that do not match in the rotation closest to the blueprint.
+     *
+     * @param core The core block
+     * @return The fewest mismatched cells over all rotations
+     */
+    public int countMismatches(Block core) {
+        int fewest = expected.length;
+        for (int rotation = 0; rotation < 4 && fewest > 0; rotation++) {
+            fewest = Math.min(fewest, mismatches(core, rotation, fewest));
+        }
+        return fewest;
+    }
+
+    /**
+     * Gets the materials the blueprint uses and how many cells use each, not counting air.
+     *
+     * @return The material counts
+     */
+    public Map<Material, Integer> getMaterialCounts() {
+        return new EnumMap<>(materialCounts);
+    }
+
+    /**
+     * Gets how far the blueprint extends from the core along any axis.
+     *
+     * @return The reach in blocks
+     */
+    public int getReach() {
+        return reach;
+    }
+
+    /**
+     * Gets a fingerprint of the layout that stays the same across restarts.
+     *
+     * @return The fingerprint
+     */
+    public int getFingerprint() {
+        return fingerprint;
+    }
+
+    private int mismatches(Block core, int rotation, int limit) {
+        World world = core.getWorld();
+        int coreX = core.getX();
+        int coreY = core.getY();
+        int coreZ = core.getZ();
+        int minY = world.getMinHeight();
+        int maxY = world.getMaxHeight();
+        int[] xs = offsetX[rotation];
+        int[] ys = offsetY[rotation];
+        int[] zs = offsetZ[rotation];
+
+        int mismatches = 0;
+        for (int i = 0; i < expected.length && mismatches < limit; i++) {
+            int y = coreY + ys[i];
+            if (y < minY || y >= maxY) {
+                mismatches++;
+                continue;
+            }
+            Material type = world.getType(coreX + xs[i], y, coreZ + zs[i]);
+            // Air cells accept cave and void air too
+            if (type.ordinal() != expected[i] && !(air[i] && type.isAir())) {
+                mismatches++;
+            }
+        }
+        return mismatches;
+    }
+
+    private static Map<String, Object> asMap(Object value) {
+        if (value instanceof ConfigurationSection section) {
+            return section.getValues(false);
+        }
+        if (value instanceof Map<?, ?> map) {
+            Map<String, Object> result = new HashMap<>();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                result.put(String.valueOf(entry.getKey()), entry.getValue());
+            }
+            return result;
+        }
+        return null;
+    }
+}
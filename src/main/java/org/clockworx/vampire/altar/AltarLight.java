@@ -73,6 +73,12 @@ public class AltarLight extends AltarAbstract {
             }
         }
         
+        // A blueprint replaces the material counts with an exact layout
+        this.blueprint = AltarBlueprint.parse(config.get("blueprint"), this.coreMaterial, plugin.getLogger());
+        if (this.blueprint != null) {
+            this.materialCounts = this.blueprint.getMaterialCounts();
+        }
+        
         // Set resources
         @SuppressWarnings("unchecked")
         List<String> resourceStrings = (List<String>) config.getOrDefault("resources", List.of());
@@ -132,14 +138,9 @@ public class AltarLight extends AltarAbstract {
             return false;
         }
         
-        // Schedule the effect
-        VampirePlugin.getInstance().getServer().getScheduler().scheduleSyncDelayedTask(
-            VampirePlugin.getInstance(),
-            () -> super.use(vampirePlayer, player, block),
-            20 // 1 second delay
-        );
-        
-        return true;
+        // Complete the ritual once the player has stood still long enough; the resources
+        // were taken above, so only the effects are left
+        return startRitual(player, () -> applyEffects(vampirePlayer, player, block));
     }
 
     @Override
@@ -1,12 +1,19 @@
 package org.clockworx.vampire.altar;
 
+import net.kyori.adventure.text.serializer.legacy.LegacyComponentSerializer;
+import org.bukkit.Chunk;
+import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
 import org.clockworx.vampire.VampirePlugin;
-import org.clockworx.vampire.entity.VampirePlayer;
+import org.clockworx.vampire.util.TextUtil;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 
 /**
  * Manages all altars in the Vampire plugin.
@@ -19,6 +26,26 @@ public class AltarManager {
      */
     private final List<AltarAbstract> altars;
     
+    /**
+     * The altars by core material, so clicks on any other block are rejected at once.
+     */
+    private final Map<Material, List<AltarAbstract>> altarsByCore = new EnumMap<>(Material.class);
+    
+    /**
+     * The last altar core each player clicked, to ignore repeated clicks.
+     */
+    private final Map<UUID, Click> lastClicks = new HashMap<>();
+    
+    /**
+     * Scan results for altar cores, kept until the blocks around them change.
+     */
+    private final AltarScanCache scanCache = new AltarScanCache();
+    
+    /**
+     * Where validated altars are, persisted in chunk data.
+     */
+    private final AltarRegistry registry;
+    
     /**
      * Creates a new AltarManager and registers all altars.
      */
@@ -30,6 +57,8 @@ public class AltarManager {
         registerAltar(new AltarLight());
         
         VampirePlugin.getInstance().getLogger().info("Registered " + altars.size() + " altars");
+        
+        this.registry = new AltarRegistry(VampirePlugin.getInstance(), altars);
     }
     
     /**
@@ -39,21 +68,34 @@ public class AltarManager {
      */
     public void registerAltar(AltarAbstract altar) {
         altars.add(altar);
+        altarsByCore.computeIfAbsent(altar.getCoreMaterial(), material -> new ArrayList<>()).add(altar);
     }
     
     /**
      * Handles a player interacting with a block.
+     * Blocks that are not the core material of any altar are rejected with one lookup.
+     * Clicking the same core again within the debounce window is ignored, but still
+     * counts as using the altar so the block's normal use stays blocked.
      * 
      * @param block The block the player interacted with
      * @param player The player who interacted with the block
      * @return true if an altar was used, false otherwise
      */
     public boolean handleBlockInteract(Block block, Player player) {
-        VampirePlayer vampirePlayer = VampirePlayer.get(player);
-        if (vampirePlayer == null) return false;
+        List<AltarAbstract> candidates = altarsByCore.get(block.getType());
+        if (candidates == null) return false;
         
-        // Check if the block is part of an altar
-        for (AltarAbstract altar : altars) {
+        // Ignore repeated clicks on the same core
+        long now = System.currentTimeMillis();
+        long debounce = VampirePlugin.getInstance().getVampireConfig().getAltarClickDebounce();
+        Click last = lastClicks.get(player.getUniqueId());
+        if (last != null && last.isSameBlock(block) && now - last.time < debounce) {
+            return true;
+        }
+        lastClicks.put(player.getUniqueId(), new Click(block, now));
+        
+        // Check if the block is the core of an altar
+        for (AltarAbstract altar : candidates) {
             if (altar.evalBlockUse(block, player)) {
                 return true;
             }
@@ -62,6 +104,118 @@ public class AltarManager {
         return false;
     }
     
+    /**
+     * Forgets a player's last click, for example when they quit.
+     * 
+     * @param uuid The player's UUID
+     */
+    public void handleQuit(UUID uuid) {
+        lastClicks.remove(uuid);
+    }
+    
+    /**
+     * Gets the cached altar scan results.
+     * 
+     * @return The scan cache
+     */
+    public AltarScanCache getScanCache() {
+        return scanCache;
+    }
+    
+    /**
+     * Gets the registry of validated altars.
+     * 
+     * @return The altar registry
+     */
+    public AltarRegistry getRegistry() {
+        return registry;
+    }
+    
+    /**
+     * Updates the altars around a block a player placed. Placing a core block starts
+     * tracking what is still missing around it.
+     * 
+     * @param player The player who placed the block
+     * @param block The placed block
+     * @param replaced The material the block replaced
+     */
+    public void handleBlockPlace(Player player, Block block, Material replaced) {
+        Material placed = block.getType();
+        AltarScan progress = scanCache.adjust(block, replaced, placed);
+        registry.invalidate(block);
+        
+        List<AltarAbstract> candidates = altarsByCore.get(placed);
+        if (candidates != null) {
+            progress = candidates.get(0).getScan(block);
+        }
+        showProgress(player, progress);
+    }
+    
+    /**
+     * Updates the altars around a block a player is breaking.
+     * 
+     * @param player The player breaking the block
+     * @param block The block, which still has its material
+     */
+    public void handleBlockBreak(Player player, Block block) {
+        AltarScan progress = scanCache.adjust(block, block.getType(), Material.AIR);
+        registry.invalidate(block);
+        showProgress(player, progress);
+    }
+    
+    /**
+     * Shows a builder how far along the altar they are working on is.
+     * 
+     * @param player The builder
+     * @param scan The altar's scan, or null if they are not working on one
+     */
+    private void showProgress(Player player, AltarScan scan) {
+        if (scan == null || !VampirePlugin.getInstance().getVampireConfig().isAltarShowProgress()) return;
+        
+        String name = "Altar";
+        int radius = VampirePlugin.getInstance().getVampireConfig().getAltarSearchRadius();
+        for (AltarAbstract altar : altars) {
+            if (altar.getPattern(radius) == scan.getPattern()) {
+                name = altar.getName();
+                break;
+            }
+        }
+        AltarPattern pattern = scan.getPattern();
+        String progress = scan.isComplete()
+            ? TextUtil.parse("&5%s &7- &acomplete", name)
+            : TextUtil.parse("&5%s &7- &f%d/%d &7blocks", name, scan.getFound(), pattern.getRequiredTotal());
+        player.sendActionBar(LegacyComponentSerializer.legacySection().deserialize(progress));
+    }
+    
+    /**
+     * Forgets what is known about altars whose area contains a block, because it changed.
+     * 
+     * @param block The block that changed
+     */
+    public void handleBlockChange(Block block) {
+        scanCache.invalidate(block);
+        registry.invalidate(block);
+    }
+    
+    /**
+     * Reads the validated altars in a chunk that loaded.
+     * 
+     * @param chunk The loaded chunk
+     */
+    public void handleChunkLoad(Chunk chunk) {
+        registry.loadChunk(chunk);
+    }
+    
+    /**
+     * Forgets what is known about altars in a chunk that is unloading.
+     * 
+     * @param chunk The unloading chunk
+     */
+    public void handleChunkUnload(Chunk chunk) {
+        scanCache.invalidateChunk(chunk.getWorld().getUID(), chunk.getX(), chunk.getZ());
+        registry.unloadChunk(chunk);
+    }
+    
     /**
      * Gets all registered altars.
      * 
@@ -70,4 +224,29 @@ public class AltarManager {
     public List<AltarAbstract> getAltars() {
         return altars;
     }
-} 
\ No newline at end of file
+    
+    /**
+     * A click on an altar core.
+     */
+    private static final class Click {
+        
+        private final UUID world;
+        private final int x;
+        private final int y;
+        private final int z;
+        private final long time;
+        
+        private Click(Block block, long time) {
+            this.world = block.getWorld().getUID();
+            this.x = block.getX();
+            this.y = block.getY();
+            this.z = block.getZ();
+            this.time = time;
+        }
+        
+        private boolean isSameBlock(Block block) {
+            return block.getX() == x && block.getY() == y && block.getZ() == z
+                && block.getWorld().getUID().equals(world);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,170 @@
+package org.clockworx.vampire.altar;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * An altar's material requirements compiled for scanning.
+ * Each required material gets a slot; a table indexed by material ordinal maps block
+ * types to slots, and the cube around the core is walked along precomputed offsets
+ * reading block types straight from the world, so a scan creates no Block objects or
+ * maps.
+ */
+public class AltarPattern {
+
+    private static final Material[] MATERIALS = Material.values();
+
+    private final int radius;
+    private final Material[] materials;
+    private final int[] required;
+    private final int requiredTotal;
+    private final int fingerprint;
+    private final int[] slotByOrdinal;
+    private final int[] offsetX;
+    private final int[] offsetY;
+    private final int[] offsetZ;
+
+    /**
+     * Compiles an altar's requirements.
+     *
+     * @param materialCounts The materials required and how many of each
+     * @param radius The radius of the cube around the core that is searched
+     */
+    public AltarPattern(Map<Material, Integer> materialCounts, int radius) {
+        this.radius = radius;
+        this.materials = new Material[materialCounts.size()];
+        this.required = new int[materialCounts.size()];
+        this.slotByOrdinal = new int[MATERIALS.length];
+        Arrays.fill(slotByOrdinal, -1);
+
+        int slot = 0;
+        int total = 0;
+        int hash = 0;
+        for (Map.Entry<Material, Integer> entry : materialCounts.entrySet()) {
+            materials[slot] = entry.getKey();
+            required[slot] = entry.getValue();
+            slotByOrdinal[entry.getKey().ordinal()] = slot;
+            total += entry.getValue();
+            // Summed so the slot order, which varies between runs, does not matter
+            hash += entry.getKey().name().hashCode() * 31 + entry.getValue();
+            slot++;
+        }
+        this.requiredTotal = total;
+        this.fingerprint = hash * 31 + radius;
+
+        int side = 2 * radius + 1;
+        this.offsetX = new int[side * side * side];
+        this.offsetY = new int[offsetX.length];
+        this.offsetZ = new int[offsetX.length];
+        int i = 0;
+        for (int y = -radius; y <= radius; y++) {
+            for (int z = -radius; z <= radius; z++) {
+                for (int x = -radius; x <= radius; x++) {
+                    offsetX[i] = x;
+                    offsetY[i] = y;
+                    offsetZ[i] = z;
+                    i++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Counts the required materials in the cube around a core block.
+     *
+     * @param core The core block
+     * @return What was found and what is missing
+     */
+    public AltarScan scan(Block core) {
+        World world = core.getWorld();
+        int coreX = core.getX();
+        int coreY = core.getY();
+        int coreZ = core.getZ();
+        int minY = world.getMinHeight();
+        int maxY = world.getMaxHeight();
+
+        int[] counts = new int[materials.length];
+        for (int i = 0; i < offsetX.length; i++) {
+            int y = coreY + offsetY[i];
+            if (y < minY || y >= maxY) {
+                continue;
+            }
+            int slot = slotByOrdinal[world.getType(coreX + offsetX[i], y, coreZ + offsetZ[i]).ordinal()];
+            if (slot >= 0) {
+                counts[slot]++;
+            }
+        }
+        return new AltarScan(this, counts);
+    }
+
+    /**
+     * Gets the radius of the searched cube.
+     *
+     * @return The radius in blocks
+     */
+    public int getRadius() {
+        return radius;
+    }
+
+    /**
+     * Gets a fingerprint of the requirements that stays the same across restarts, so
+     * altars validated against different requirements can be told apart.
+     *
+     * @return The fingerprint
+     */
+    public int getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Gets the number of required materials.
+     *
+     * @return The number of slots
+     */
+    public int getSlots() {
+        return materials.length;
+    }
+
+    /**
+     * Gets the slot a material is counted in.
+     *
+     * @param material The material
+     * @return The slot, or -1 if the material is not required
+     */
+    public int getSlot(Material material) {
+        return slotByOrdinal[material.ordinal()];
+    }
+
+    /**
+     * Gets the material in a slot.
+     *
+     * @param slot The slot
+     * @return The material
+     */
+    public Material getMaterial(int slot) {
+        return materials[slot];
+    }
+
+    /**
+     * Gets how many of a slot's material are required.
+     *
+     * @param slot The slot
+     * @return The required count
+     */
+    public int getRequired(int slot) {
+        return required[slot];
+    }
+
+    /**
+     * Gets the total number of required blocks.
+     *
+     * @return The sum of every required count
+     */
+    public int getRequiredTotal() {
+        return requiredTotal;
+    }
+}
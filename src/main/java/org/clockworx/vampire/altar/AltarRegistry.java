@@ -0,0 +1,267 @@
+package org.clockworx.vampire.altar;
+
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.persistence.PersistentDataAdapterContext;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.clockworx.vampire.VampirePlugin;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Where validated altars are, stored in the persistent data of the chunk their core is in.
+ * A chunk's altars are read when it loads and kept in memory until it unloads, so
+ * checking whether a core block belongs to a validated altar is a map lookup. An altar
+ * is forgotten as soon as a block within its reach changes; it is validated
+ * again by scanning the next time it is used.
+ * <p>
+ * Each chunk stores, per altar type, the block keys of its cores and a fingerprint of
+ * the requirements they were validated against. Cores validated against requirements
+ * that have since been changed in the config are dropped when their chunk loads.
+ * <p>
+ * The registry is not thread-safe; it is used on the main thread.
+ */
+public class AltarRegistry {
+
+    private final VampirePlugin plugin;
+    private final List<AltarAbstract> altars;
+    private final NamespacedKey rootKey;
+    private final Map<String, NamespacedKey> coreKeys = new HashMap<>();
+    private final Map<String, NamespacedKey> fingerprintKeys = new HashMap<>();
+    private final Map<UUID, Map<Long, Map<Long, AltarAbstract>>> worlds = new HashMap<>();
+    private int size;
+
+    /**
+     * Creates a new registry and loads the altars in chunks that are already loaded.
+     *
+     * @param plugin The plugin instance
+     * @param altars The registered altar types
+     */
+    public AltarRegistry(VampirePlugin plugin, List<AltarAbstract> altars) {
+        this.plugin = plugin;
+        this.altars = altars;
+        this.rootKey = new NamespacedKey(plugin, "altars");
+        for (World world : plugin.getServer().getWorlds()) {
+            for (Chunk chunk : world.getLoadedChunks()) {
+                loadChunk(chunk);
+            }
+        }
+    }
+
+    /**
+     * Gets the validated altar a core block belongs to.
+     *
+     * @param core The core block
+     * @return The altar, or null if the block is not the core of a validated altar
+     */
+    public AltarAbstract get(Block core) {
+        if (size == 0) {
+            return null;
+        }
+        Map<Long, Map<Long, AltarAbstract>> chunks = worlds.get(core.getWorld().getUID());
+        if (chunks == null) {
+            return null;
+        }
+        Map<Long, AltarAbstract> cores = chunks.get(AltarScanCache.chunkKey(core.getX() >> 4, core.getZ() >> 4));
+        return cores == null ? null : cores.get(AltarScanCache.blockKey(core.getX(), core.getY(), core.getZ()));
+    }
+
+    /**
+     * Records a validated altar and saves its chunk.
+     *
+     * @param core The altar's core block
+     * @param altar The altar type
+     */
+    public void register(Block core, AltarAbstract altar) {
+        Long chunk = AltarScanCache.chunkKey(core.getX() >> 4, core.getZ() >> 4);
+        Map<Long, AltarAbstract> cores = worlds.computeIfAbsent(core.getWorld().getUID(), id -> new HashMap<>())
+            .computeIfAbsent(chunk, key -> new HashMap<>());
+        AltarAbstract previous = cores.put(AltarScanCache.blockKey(core.getX(), core.getY(), core.getZ()), altar);
+        if (previous == null) {
+            size++;
+        }
+        if (previous != altar) {
+            save(core.getChunk(), cores);
+        }
+    }
+
+    /**
+     * Forgets the altars whose reach contains a block, and saves the chunks they
+     * were in.
+     *
+     * @param block The block that changed
+     */
+    public void invalidate(Block block) {
+        if (size == 0) {
+            return;
+        }
+        Map<Long, Map<Long, AltarAbstract>> chunks = worlds.get(block.getWorld().getUID());
+        if (chunks == null) {
+            return;
+        }
+        int radius = plugin.getVampireConfig().getAltarSearchRadius();
+        int maxReach = radius;
+        for (AltarAbstract altar : altars) {
+            maxReach = Math.max(maxReach, altar.getReach(radius));
+        }
+        int x = block.getX();
+        int y = block.getY();
+        int z = block.getZ();
+        for (int chunkX = (x - maxReach) >> 4; chunkX <= (x + maxReach) >> 4; chunkX++) {
+            for (int chunkZ = (z - maxReach) >> 4; chunkZ <= (z + maxReach) >> 4; chunkZ++) {
+                Long chunk = AltarScanCache.chunkKey(chunkX, chunkZ);
+                Map<Long, AltarAbstract> cores = chunks.get(chunk);
+                if (cores == null) {
+                    continue;
+                }
+                boolean changed = false;
+                Iterator<Map.Entry<Long, AltarAbstract>> it = cores.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<Long, AltarAbstract> core = it.next();
+                    long key = core.getKey();
+                    int reach = core.getValue().getReach(radius);
+                    if (Math.abs(AltarScanCache.blockX(key) - x) <= reach
+                            && Math.abs(AltarScanCache.blockY(key) - y) <= reach
+                            && Math.abs(AltarScanCache.blockZ(key) - z) <= reach) {
+                        it.remove();
+                        size--;
+                        changed = true;
+                    }
+                }
+                if (changed) {
+                    save(block.getWorld().getChunkAt(chunkX, chunkZ), cores);
+                }
+                if (cores.isEmpty()) {
+                    chunks.remove(chunk);
+                }
+            }
+        }
+        if (chunks.isEmpty()) {
+            worlds.remove(block.getWorld().getUID());
+        }
+    }
+
+    /**
+     * Reads a chunk's altars from its persistent data.
+     *
+     * @param chunk The chunk that loaded
+     */
+    public void loadChunk(Chunk chunk) {
+        PersistentDataContainer root = chunk.getPersistentDataContainer()
+            .get(rootKey, PersistentDataType.TAG_CONTAINER);
+        if (root == null) {
+            return;
+        }
+        int radius = plugin.getVampireConfig().getAltarSearchRadius();
+        Map<Long, AltarAbstract> cores = new HashMap<>();
+        for (AltarAbstract altar : altars) {
+            long[] keys = root.get(coreKey(altar), PersistentDataType.LONG_ARRAY);
+            Integer fingerprint = root.get(fingerprintKey(altar), PersistentDataType.INTEGER);
+            if (keys == null || fingerprint == null || fingerprint != altar.getFingerprint(radius)) {
+                continue;
+            }
+            for (long key : keys) {
+                cores.put(key, altar);
+            }
+        }
+        unloadChunk(chunk);
+        if (!cores.isEmpty()) {
+            worlds.computeIfAbsent(chunk.getWorld().getUID(), id -> new HashMap<>())
+                .put(AltarScanCache.chunkKey(chunk.getX(), chunk.getZ()), cores);
+            size += cores.size();
+        }
+    }
+
+    /**
+     * Forgets a chunk's altars from memory. They stay in its persistent data.
+     *
+     * @param chunk The chunk that is unloading
+     */
+    public void unloadChunk(Chunk chunk) {
+        Map<Long, Map<Long, AltarAbstract>> chunks = worlds.get(chunk.getWorld().getUID());
+        if (chunks == null) {
+            return;
+        }
+        Map<Long, AltarAbstract> cores = chunks.remove(AltarScanCache.chunkKey(chunk.getX(), chunk.getZ()));
+        if (cores != null) {
+            size -= cores.size();
+        }
+        if (chunks.isEmpty()) {
+            worlds.remove(chunk.getWorld().getUID());
+        }
+    }
+
+    /**
+     * Gets the validated altars in loaded chunks.
+     *
+     * @return The altars by core location
+     */
+    public Map<Location, AltarAbstract> getLoadedAltars() {
+        Map<Location, AltarAbstract> result = new LinkedHashMap<>();
+        for (Map.Entry<UUID, Map<Long, Map<Long, AltarAbstract>>> world : worlds.entrySet()) {
+            World bukkitWorld = plugin.getServer().getWorld(world.getKey());
+            for (Map<Long, AltarAbstract> cores : world.getValue().values()) {
+                for (Map.Entry<Long, AltarAbstract> core : cores.entrySet()) {
+                    long key = core.getKey();
+                    result.put(new Location(bukkitWorld, AltarScanCache.blockX(key), AltarScanCache.blockY(key),
+                        AltarScanCache.blockZ(key)), core.getValue());
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the number of validated altars in loaded chunks.
+     *
+     * @return The number of altars
+     */
+    public int size() {
+        return size;
+    }
+
+    private void save(Chunk chunk, Map<Long, AltarAbstract> cores) {
+        PersistentDataContainer data = chunk.getPersistentDataContainer();
+        if (cores.isEmpty()) {
+            data.remove(rootKey);
+            return;
+        }
+        int radius = plugin.getVampireConfig().getAltarSearchRadius();
+        PersistentDataAdapterContext context = data.getAdapterContext();
+        PersistentDataContainer root = context.newPersistentDataContainer();
+        for (AltarAbstract altar : altars) {
+            List<Long> keys = new ArrayList<>();
+            for (Map.Entry<Long, AltarAbstract> core : cores.entrySet()) {
+                if (core.getValue() == altar) {
+                    keys.add(core.getKey());
+                }
+            }
+            if (keys.isEmpty()) {
+                continue;
+            }
+            root.set(coreKey(altar), PersistentDataType.LONG_ARRAY,
+                keys.stream().mapToLong(Long::longValue).toArray());
+            root.set(fingerprintKey(altar), PersistentDataType.INTEGER,
+                altar.getFingerprint(radius));
+        }
+        data.set(rootKey, PersistentDataType.TAG_CONTAINER, root);
+    }
+
+    private NamespacedKey coreKey(AltarAbstract altar) {
+        return coreKeys.computeIfAbsent(altar.getId(), id -> new NamespacedKey(plugin, id));
+    }
+
+    private NamespacedKey fingerprintKey(AltarAbstract altar) {
+        return fingerprintKeys.computeIfAbsent(altar.getId(), id -> new NamespacedKey(plugin, id + ".fingerprint"));
+    }
+}
@@ -0,0 +1,117 @@
+package org.clockworx.vampire.altar;
+
+import org.bukkit.Material;
+
+/**
+ * The blocks found around an altar core by an {@link AltarPattern}, and what is missing.
+ * A scan is kept up to date as blocks are placed and broken around its core, each
+ * change adjusting one material's count, so builders get feedback without the cube
+ * being scanned again.
+ * <p>
+ * Scans are not thread-safe; they are used on the main thread.
+ */
+public class AltarScan {
+
+    private final AltarPattern pattern;
+    private final int[] counts;
+    private int found;
+    private int missingTotal;
+
+    /**
+     * Creates a new scan result.
+     *
+     * @param pattern The pattern that was scanned for
+     * @param counts How many blocks of each slot's material were found
+     */
+    AltarScan(AltarPattern pattern, int[] counts) {
+        this.pattern = pattern;
+        this.counts = counts;
+        for (int slot = 0; slot < counts.length; slot++) {
+            // Surplus blocks of one material do not make up for another
+            found += useful(slot);
+            missingTotal += pattern.getRequired(slot) - useful(slot);
+        }
+    }
+
+    /**
+     * Updates the counts for a block around the core changing from one material to another.
+     *
+     * @param from The block's previous material
+     * @param to The block's new material
+     */
+    public void adjust(Material from, Material to) {
+        adjust(pattern.getSlot(from), -1);
+        adjust(pattern.getSlot(to), 1);
+    }
+
+    /**
+     * Gets the pattern that was scanned for.
+     *
+     * @return The pattern
+     */
+    public AltarPattern getPattern() {
+        return pattern;
+    }
+
+    /**
+     * Checks whether every required block was found.
+     *
+     * @return true if the altar is complete
+     */
+    public boolean isComplete() {
+        return missingTotal == 0;
+    }
+
+    /**
+     * Checks whether enough of the altar was found for it to count as an attempt at one.
+     *
+     * @param minRatio The fraction of required blocks that must be present
+     * @return true if at least that fraction was found
+     */
+    public boolean isRecognizable(double minRatio) {
+        return found >= pattern.getRequiredTotal() * minRatio;
+    }
+
+    /**
+     * Gets how many blocks of a slot's material are missing.
+     *
+     * @param slot The slot, see {@link AltarPattern#getMaterial(int)}
+     * @return The missing count
+     */
+    public int getMissing(int slot) {
+        return pattern.getRequired(slot) - useful(slot);
+    }
+
+    /**
+     * Gets the number of required blocks that were found, not counting surplus ones.
+     *
+     * @return The number of blocks found
+     */
+    public int getFound() {
+        return found;
+    }
+
+    /**
+     * Gets the total number of missing blocks.
+     *
+     * @return The sum of every missing count
+     */
+    public int getMissingTotal() {
+        return missingTotal;
+    }
+
+    private void adjust(int slot, int delta) {
+        if (slot < 0) {
+            return;
+        }
+        int before = useful(slot);
+        counts[slot] = Math.max(0, counts[slot] + delta);
+        int change = useful(slot) - before;
+        found += change;
+        missingTotal -= change;
+    }
+
+    private int useful(int slot) {
+        return Math.min(counts[slot], pattern.getRequired(slot));
+    }
+}
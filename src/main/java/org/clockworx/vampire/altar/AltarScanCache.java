@@ -0,0 +1,198 @@
+package org.clockworx.vampire.altar;
+
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Scan results for altar cores. Placing and breaking blocks within a core's cube
+ * adjusts its result in place; other changes, such as explosions, drop it until the
+ * core is scanned again. Results are grouped by the chunk their core is in, so a block
+ * change only looks at the cores in the chunks its cube can reach, and a chunk's
+ * results are dropped when it unloads.
+ * <p>
+ * The cache is not thread-safe; it is used on the main thread.
+ */
+public class AltarScanCache {
+
+    private final Map<UUID, Map<Long, Map<Long, AltarScan>>> worlds = new HashMap<>();
+    private int maxRadius;
+    private int size;
+
+    /**
+     * Gets the cached scan for a core block.
+     *
+     * @param core The core block
+     * @param pattern The pattern the scan must be for
+     * @return The cached scan, or null if there is none
+     */
+    public AltarScan get(Block core, AltarPattern pattern) {
+        if (size == 0) {
+            return null;
+        }
+        Map<Long, Map<Long, AltarScan>> chunks = worlds.get(core.getWorld().getUID());
+        if (chunks == null) {
+            return null;
+        }
+        Map<Long, AltarScan> scans = chunks.get(chunkKey(core.getX() >> 4, core.getZ() >> 4));
+        if (scans == null) {
+            return null;
+        }
+        AltarScan scan = scans.get(blockKey(core.getX(), core.getY(), core.getZ()));
+        return scan != null && scan.getPattern() == pattern ? scan : null;
+    }
+
+    /**
+     * Caches the scan for a core block.
+     *
+     * @param core The core block
+     * @param scan The scan result
+     */
+    public void put(Block core, AltarScan scan) {
+        Map<Long, AltarScan> scans = worlds.computeIfAbsent(core.getWorld().getUID(), id -> new HashMap<>())
+            .computeIfAbsent(chunkKey(core.getX() >> 4, core.getZ() >> 4), key -> new HashMap<>());
+        if (scans.put(blockKey(core.getX(), core.getY(), core.getZ()), scan) == null) {
+            size++;
+        }
+        maxRadius = Math.max(maxRadius, scan.getPattern().getRadius());
+    }
+
+    /**
+     * Drops the scans whose cube contains a block.
+     *
+     * @param block The block that changed
+     */
+    public void invalidate(Block block) {
+        update(block, null, null);
+    }
+
+    /**
+     * Updates the scans whose cube contains a block that changed from one material to
+     * another. A scan whose core itself changed is dropped.
+     *
+     * @param block The block that changed
+     * @param from The block's previous material
+     * @param to The block's new material
+     * @return The updated scan whose core is nearest the block, or null if none was updated
+     */
+    public AltarScan adjust(Block block, Material from, Material to) {
+        return update(block, from, to);
+    }
+
+    private AltarScan update(Block block, Material from, Material to) {
+        if (size == 0) {
+            return null;
+        }
+        UUID world = block.getWorld().getUID();
+        Map<Long, Map<Long, AltarScan>> chunks = worlds.get(world);
+        if (chunks == null) {
+            return null;
+        }
+        int x = block.getX();
+        int y = block.getY();
+        int z = block.getZ();
+        long changed = blockKey(x, y, z);
+        AltarScan nearest = null;
+        int nearestDistance = Integer.MAX_VALUE;
+        for (int chunkX = (x - maxRadius) >> 4; chunkX <= (x + maxRadius) >> 4; chunkX++) {
+            for (int chunkZ = (z - maxRadius) >> 4; chunkZ <= (z + maxRadius) >> 4; chunkZ++) {
+                Long chunk = chunkKey(chunkX, chunkZ);
+                Map<Long, AltarScan> scans = chunks.get(chunk);
+                if (scans == null) {
+                    continue;
+                }
+                Iterator<Map.Entry<Long, AltarScan>> it = scans.entrySet().iterator();
+                while (it.hasNext()) {
+                    Map.Entry<Long, AltarScan> entry = it.next();
+                    AltarScan scan = entry.getValue();
+                    long key = entry.getKey();
+                    int distance = Math.max(Math.abs(blockX(key) - x),
+                        Math.max(Math.abs(blockY(key) - y), Math.abs(blockZ(key) - z)));
+                    if (distance > scan.getPattern().getRadius()) {
+                        continue;
+                    }
+                    if (from == null || key == changed) {
+                        it.remove();
+                        size--;
+                        continue;
+                    }
+                    scan.adjust(from, to);
+                    if (distance < nearestDistance) {
+                        nearest = scan;
+                        nearestDistance = distance;
+                    }
+                }
+                if (scans.isEmpty()) {
+                    chunks.remove(chunk);
+                }
+            }
+        }
+        if (chunks.isEmpty()) {
+            worlds.remove(world);
+        }
+        return nearest;
+    }
+
+    /**
+     * Drops the scans for cores in a chunk, for example when it unloads.
+     *
+     * @param world The chunk's world
+     * @param chunkX The chunk's X coordinate
+     * @param chunkZ The chunk's Z coordinate
+     */
+    public void invalidateChunk(UUID world, int chunkX, int chunkZ) {
+        Map<Long, Map<Long, AltarScan>> chunks = worlds.get(world);
+        if (chunks == null) {
+            return;
+        }
+        Map<Long, AltarScan> scans = chunks.remove(chunkKey(chunkX, chunkZ));
+        if (scans != null) {
+            size -= scans.size();
+        }
+        if (chunks.isEmpty()) {
+            worlds.remove(world);
+        }
+    }
+
+    /**
+     * Drops every scan.
+     */
+    public void clear() {
+        worlds.clear();
+        size = 0;
+    }
+
+    /**
+     * Gets the number of cached scans.
+     *
+     * @return The number of scans
+     */
+    public int size() {
+        return size;
+    }
+
+    static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    // Same layout as Paper's block keys: 27 bits of X and Z, 10 of Y
+    static long blockKey(int x, int y, int z) {
+        return ((long) x & 0x7FFFFFF) | (((long) z & 0x7FFFFFF) << 27) | ((long) y << 54);
+    }
+
+    static int blockX(long key) {
+        return (int) ((key << 37) >> 37);
+    }
+
+    static int blockY(long key) {
+        return (int) (key >> 54);
+    }
+
+    static int blockZ(long key) {
+        return (int) ((key << 10) >> 37);
+    }
+}
@@ -0,0 +1,200 @@
+package org.clockworx.vampire.altar;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.scheduler.BukkitTask;
+import org.clockworx.vampire.VampirePlugin;
+import org.clockworx.vampire.util.VampireMessages;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+/**
+ * Tracks altar rituals that are in progress.
+ * A ritual belongs to one player and completes at a deadline unless the player leaves
+ * the block they started on, is hurt, or quits first. Sessions are only looked at when
+ * one of those events arrives for a player with a ritual, or when the earliest deadline
+ * passes, so idle sessions cost nothing. A single task runs while any session is queued.
+ * <p>
+ * The manager is not thread-safe; it is used on the main thread.
+ */
+public class RitualSessionManager {
+
+    private final VampirePlugin plugin;
+    private final Map<UUID, Session> sessions = new HashMap<>();
+    private final PriorityQueue<Session> deadlines = new PriorityQueue<>((a, b) -> Long.compare(a.deadline, b.deadline));
+    private BukkitTask task;
+    private long tick;
+
+    /**
+     * Creates a new ritual session manager.
+     *
+     * @param plugin The plugin instance
+     */
+    public RitualSessionManager(VampirePlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Starts a ritual for a player at their current block.
+     *
+     * @param player The player performing the ritual
+     * @param durationTicks How long the player has to stay put, in ticks
+     * @param onComplete What to do when the ritual completes
+     * @return true if the ritual started, false if the player already has one in progress
+     */
+    public boolean start(Player player, long durationTicks, Runnable onComplete) {
+        UUID uuid = player.getUniqueId();
+        if (sessions.containsKey(uuid)) {
+            return false;
+        }
+        Location location = player.getLocation();
+        Session session = new Session(uuid, location.getWorld().getUID(), location.getBlockX(),
+            location.getBlockY(), location.getBlockZ(), tick + Math.max(1, durationTicks), onComplete);
+        sessions.put(uuid, session);
+        deadlines.add(session);
+        if (task == null) {
+            task = plugin.getServer().getScheduler().runTaskTimer(plugin, this::tick, 1, 1);
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a player has a ritual in progress.
+     *
+     * @param uuid The player's UUID
+     * @return true if the player has a ritual in progress
+     */
+    public boolean isActive(UUID uuid) {
+        return sessions.containsKey(uuid);
+    }
+
+    /**
+     * Gets the number of rituals in progress.
+     *
+     * @return The number of rituals
+     */
+    public int size() {
+        return sessions.size();
+    }
+
+    /**
+     * Interrupts a player's ritual if they moved off the block it started on.
+     * Moves within the same block, including turning the head, are ignored without
+     * a lookup.
+     *
+     * @param player The moving player
+     * @param from Where the player moved from
+     * @param to Where the player moved to
+     */
+    public void onMove(Player player, Location from, Location to) {
+        if (sessions.isEmpty() || to == null) {
+            return;
+        }
+        if (from.getBlockX() == to.getBlockX() && from.getBlockY() == to.getBlockY()
+                && from.getBlockZ() == to.getBlockZ() && from.getWorld() == to.getWorld()) {
+            return;
+        }
+        Session session = sessions.get(player.getUniqueId());
+        if (session != null && !session.contains(to)) {
+            interrupt(player, "You moved! The ritual has been interrupted.");
+        }
+    }
+
+    /**
+     * Interrupts a player's ritual because they were hurt.
+     *
+     * @param player The damaged player
+     */
+    public void onDamage(Player player) {
+        if (!sessions.isEmpty() && sessions.containsKey(player.getUniqueId())) {
+            interrupt(player, "You were hurt! The ritual has been interrupted.");
+        }
+    }
+
+    /**
+     * Drops a player's ritual without completing it, for example when they quit.
+     *
+     * @param uuid The player's UUID
+     */
+    public void cancel(UUID uuid) {
+        Session session = sessions.remove(uuid);
+        if (session != null) {
+            session.cancelled = true;
+        }
+    }
+
+    /**
+     * Drops every ritual and stops the deadline task.
+     */
+    public void clear() {
+        sessions.clear();
+        deadlines.clear();
+        stopTask();
+    }
+
+    private void interrupt(Player player, String message) {
+        cancel(player.getUniqueId());
+        VampireMessages.send(player, message);
+    }
+
+    private void tick() {
+        tick++;
+        // Interrupted sessions stay queued until their deadline and are skipped here
+        while (!deadlines.isEmpty() && deadlines.peek().deadline <= tick) {
+            Session session = deadlines.poll();
+            if (session.cancelled) {
+                continue;
+            }
+            sessions.remove(session.player);
+            try {
+                session.onComplete.run();
+            } catch (RuntimeException e) {
+                VampireMessages.error("Failed to complete ritual for " + session.player, e);
+            }
+        }
+        if (deadlines.isEmpty()) {
+            stopTask();
+        }
+    }
+
+    private void stopTask() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    /**
+     * A ritual in progress: where it started and when it completes.
+     */
+    private static final class Session {
+
+        private final UUID player;
+        private final UUID world;
+        private final int blockX;
+        private final int blockY;
+        private final int blockZ;
+        private final long deadline;
+        private final Runnable onComplete;
+        private boolean cancelled;
+
+        private Session(UUID player, UUID world, int blockX, int blockY, int blockZ, long deadline,
+                Runnable onComplete) {
+            this.player = player;
+            this.world = world;
+            this.blockX = blockX;
+            this.blockY = blockY;
+            this.blockZ = blockZ;
+            this.deadline = deadline;
+            this.onComplete = onComplete;
+        }
+
+        private boolean contains(Location location) {
+            return location.getBlockX() == blockX && location.getBlockY() == blockY
+                && location.getBlockZ() == blockZ && location.getWorld().getUID().equals(world);
+        }
+    }
+}
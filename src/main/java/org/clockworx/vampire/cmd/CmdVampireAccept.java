@@ -80,9 +80,9 @@ public class CmdVampireAccept extends VCommand {
                                     }
                                     
                                     // Save changes
-                                    plugin.getDatabaseManager().savePlayer(senderVampire);
+                                    plugin.saveVampirePlayer(senderVampire);
                                     if (targetVampire != null) {
-                                        plugin.getDatabaseManager().savePlayer(targetVampire);
+                                        plugin.saveVampirePlayer(targetVampire);
                                     }
                                     
                                     // Send messages
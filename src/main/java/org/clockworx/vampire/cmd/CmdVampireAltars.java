@@ -0,0 +1,84 @@
+package org.clockworx.vampire.cmd;
+
+import org.bukkit.ChatColor;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.clockworx.vampire.VampirePlugin;
+import org.clockworx.vampire.altar.AltarAbstract;
+import org.clockworx.vampire.altar.AltarManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Command for listing validated altars.
+ * Only altars in loaded chunks are known; the rest are read from chunk data when
+ * their chunk loads.
+ */
+public class CmdVampireAltars extends VCommand {
+
+    private static final int MAX_LINES = 20;
+
+    /**
+     * Creates a new altars command.
+     *
+     * @param plugin The plugin instance
+     */
+    public CmdVampireAltars(VampirePlugin plugin) {
+        super(plugin, "altars", "vampire.admin");
+    }
+
+    @Override
+    protected boolean execute(CommandSender sender, Command command, String label, String[] args) {
+        AltarManager altars = plugin.getAltarManager();
+        if (altars == null) {
+            sender.sendMessage(ChatColor.RED + "Altars are disabled.");
+            return true;
+        }
+
+        World world = null;
+        if (args.length > 0) {
+            world = plugin.getServer().getWorld(args[0]);
+            if (world == null) {
+                sender.sendMessage(ChatColor.RED + "Unknown world: " + args[0]);
+                return true;
+            }
+        }
+
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<Location, AltarAbstract> entry : altars.getRegistry().getLoadedAltars().entrySet()) {
+            Location location = entry.getKey();
+            if (world != null && !world.equals(location.getWorld())) {
+                continue;
+            }
+            lines.add(ChatColor.YELLOW + entry.getValue().getName() + ChatColor.GRAY + " at " + ChatColor.WHITE
+                + location.getWorld().getName() + " " + location.getBlockX() + ", " + location.getBlockY() + ", "
+                + location.getBlockZ());
+        }
+
+        sender.sendMessage(ChatColor.GOLD + "=== Altars (" + lines.size() + " in loaded chunks) ===");
+        for (int i = 0; i < lines.size() && i < MAX_LINES; i++) {
+            sender.sendMessage(lines.get(i));
+        }
+        if (lines.size() > MAX_LINES) {
+            sender.sendMessage(ChatColor.GRAY + "... and " + (lines.size() - MAX_LINES) + " more");
+        }
+        return true;
+    }
+
+    @Override
+    protected List<String> tabComplete(CommandSender sender, Command command, String label, String[] args) {
+        List<String> worlds = new ArrayList<>();
+        if (args.length == 1) {
+            for (World world : plugin.getServer().getWorlds()) {
+                if (world.getName().toLowerCase().startsWith(args[0].toLowerCase())) {
+                    worlds.add(world.getName());
+                }
+            }
+        }
+        return worlds;
+    }
+}
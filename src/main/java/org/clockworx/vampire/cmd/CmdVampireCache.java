@@ -0,0 +1,87 @@
+package org.clockworx.vampire.cmd;
+
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.clockworx.vampire.VampirePlugin;
+import org.clockworx.vampire.database.HibernateConfig;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Command for inspecting the database second-level cache.
+ * This command shows the hit ratio of each cache region so that the cache
+ * size and expiry can be tuned, and allows the cache to be cleared.
+ */
+public class CmdVampireCache extends VCommand {
+
+    /**
+     * Creates a new cache command.
+     *
+     * @param plugin The plugin instance
+     */
+    public CmdVampireCache(VampirePlugin plugin) {
+        super(plugin, "cache", "vampire.admin");
+    }
+
+    @Override
+    protected boolean execute(CommandSender sender, Command command, String label, String[] args) {
+        if (args.length > 0 && args[0].equalsIgnoreCase("clear")) {
+            try {
+                HibernateConfig.getSessionFactory().getCache().evictAllRegions();
+                sender.sendMessage(ChatColor.GREEN + "Database cache cleared.");
+            } catch (IllegalStateException e) {
+                sender.sendMessage(ChatColor.RED + "The database is not initialized.");
+            }
+            return true;
+        }
+
+        Statistics statistics = HibernateConfig.getStatistics();
+        if (statistics == null) {
+            sender.sendMessage(ChatColor.RED + "Cache statistics are disabled. Set database.cache.statistics to true.");
+            return true;
+        }
+
+        sender.sendMessage(ChatColor.GOLD + "=== Database Cache ===");
+        sendRegion(sender, HibernateConfig.PLAYER_REGION, statistics.getDomainDataRegionStatistics(HibernateConfig.PLAYER_REGION));
+        sendRegion(sender, HibernateConfig.OFFER_REGION, statistics.getDomainDataRegionStatistics(HibernateConfig.OFFER_REGION));
+        sendRegion(sender, HibernateConfig.PENDING_OFFER_QUERY_REGION, statistics.getQueryRegionStatistics(HibernateConfig.PENDING_OFFER_QUERY_REGION));
+        sendRegion(sender, HibernateConfig.ALL_VAMPIRES_QUERY_REGION, statistics.getQueryRegionStatistics(HibernateConfig.ALL_VAMPIRES_QUERY_REGION));
+        sender.sendMessage(ChatColor.YELLOW + "Database queries: " + ChatColor.WHITE + statistics.getQueryExecutionCount()
+            + ChatColor.YELLOW + ", entity loads: " + ChatColor.WHITE + statistics.getEntityLoadCount());
+        return true;
+    }
+
+    /**
+     * Sends the hit and miss counts of a single cache region.
+     *
+     * @param sender The command sender
+     * @param name The region name
+     * @param region The region statistics, or null if the region is not in use
+     */
+    private void sendRegion(CommandSender sender, String name, CacheRegionStatistics region) {
+        if (region == null) {
+            sender.sendMessage(ChatColor.YELLOW + name + ": " + ChatColor.GRAY + "not in use");
+            return;
+        }
+
+        long hits = region.getHitCount();
+        long misses = region.getMissCount();
+        long total = hits + misses;
+        double ratio = total == 0 ? 0.0 : hits * 100.0 / total;
+        sender.sendMessage(ChatColor.YELLOW + name + ": " + ChatColor.WHITE + String.format("%.1f%%", ratio)
+            + ChatColor.GRAY + " (" + hits + " hits, " + misses + " misses, " + region.getElementCountInMemory() + " cached)");
+    }
+
+    @Override
+    protected List<String> tabComplete(CommandSender sender, Command command, String label, String[] args) {
+        List<String> completions = new ArrayList<>();
+        if (args.length == 1 && "clear".startsWith(args[0].toLowerCase())) {
+            completions.add("clear");
+        }
+        return completions;
+    }
+}
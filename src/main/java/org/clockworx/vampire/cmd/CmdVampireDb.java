@@ -0,0 +1,209 @@
+package org.clockworx.vampire.cmd;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.clockworx.vampire.VampirePlugin;
+import org.clockworx.vampire.database.CircuitBreaker;
+import org.clockworx.vampire.database.InstrumentedDatabaseManager;
+import org.clockworx.vampire.database.OperationStats;
+import org.clockworx.vampire.database.OutboxDatabaseManager;
+import org.clockworx.vampire.task.OfferReaperTask;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.logging.Level;
+
+/**
+ * Command for inspecting database operation latencies.
+ * This command shows the latency percentiles, error and timeout counts of each
+ * DatabaseManager operation and the most recent slow calls, and can write the
+ * same figures to a JSON file for external tooling.
+ */
+public class CmdVampireDb extends VCommand {
+
+    private static final String DUMP_FILE = "db-stats.json";
+    private static final List<String> ACTIONS = List.of("stats", "reset", "dump");
+
+    /**
+     * Creates a new database command.
+     *
+     * @param plugin The plugin instance
+     */
+    public CmdVampireDb(VampirePlugin plugin) {
+        super(plugin, "db", "vampire.admin");
+    }
+
+    @Override
+    protected boolean execute(CommandSender sender, Command command, String label, String[] args) {
+        Optional<InstrumentedDatabaseManager> instrumented = plugin.getDatabaseManager().unwrap(InstrumentedDatabaseManager.class);
+        if (instrumented.isEmpty()) {
+            sender.sendMessage(ChatColor.RED + "Database statistics are disabled. Set database.stats.enabled to true.");
+            return true;
+        }
+        InstrumentedDatabaseManager stats = instrumented.get();
+
+        String action = args.length > 0 ? args[0].toLowerCase() : "stats";
+        switch (action) {
+            case "stats":
+                sendStats(sender, stats);
+                return true;
+            case "reset":
+                stats.reset();
+                sender.sendMessage(ChatColor.GREEN + "Database statistics reset.");
+                return true;
+            case "dump":
+                dump(sender, stats);
+                return true;
+            default:
+                sender.sendMessage(ChatColor.RED + "Usage: /vampire db <stats|reset|dump>");
+                return true;
+        }
+    }
+
+    /**
+     * Sends the per-operation latencies and recent slow calls.
+     *
+     * @param sender The command sender
+     * @param stats The instrumented database manager
+     */
+    private void sendStats(CommandSender sender, InstrumentedDatabaseManager stats) {
+        sender.sendMessage(ChatColor.GOLD + "=== Database Operations ===");
+        sender.sendMessage(ChatColor.GRAY + "operation: calls p50/p95/p99/max ms, errors, timeouts");
+        for (OperationStats operation : stats.getStats()) {
+            if (operation.getCount() == 0) {
+                continue;
+            }
+            sender.sendMessage(ChatColor.YELLOW + operation.getOperation() + ": " + ChatColor.WHITE + operation.getCount()
+                + ChatColor.GRAY + " " + millis(operation.getP50Micros()) + "/" + millis(operation.getP95Micros())
+                + "/" + millis(operation.getP99Micros()) + "/" + millis(operation.getMaxMicros())
+                + (operation.getErrors() > 0 ? ChatColor.RED : ChatColor.GRAY) + ", " + operation.getErrors()
+                + ChatColor.GRAY + ", " + operation.getTimeouts());
+        }
+
+        List<InstrumentedDatabaseManager.SlowOperation> slowOperations = stats.getSlowOperations();
+        sender.sendMessage(ChatColor.GOLD + "Slow operations (>= " + stats.getSlowThresholdMillis() + " ms): "
+            + ChatColor.WHITE + slowOperations.size());
+        for (InstrumentedDatabaseManager.SlowOperation slow : slowOperations) {
+            sender.sendMessage(ChatColor.YELLOW + slow.getOperation() + ChatColor.GRAY + "(" + slow.getKey() + ") "
+                + ChatColor.WHITE + millis(slow.getMicros()) + " ms" + (slow.isFailed() ? ChatColor.RED + " failed" : ""));
+        }
+
+        Optional<OutboxDatabaseManager> outbox = plugin.getDatabaseManager().unwrap(OutboxDatabaseManager.class);
+        if (outbox.isPresent()) {
+            CircuitBreaker.State state = outbox.get().getBreaker().getState();
+            sender.sendMessage(ChatColor.GOLD + "Outbox: " + ChatColor.WHITE + outbox.get().getPendingCount() + " waiting"
+                + ChatColor.GRAY + ", " + outbox.get().getSpilledCount() + " outboxed, " + outbox.get().getReplayedCount()
+                + " replayed, breaker " + (state == CircuitBreaker.State.CLOSED ? ChatColor.GREEN : ChatColor.RED) + state);
+        }
+    }
+
+    /**
+     * Writes the statistics to the dump file off the main thread.
+     *
+     * @param sender The command sender
+     * @param stats The instrumented database manager
+     */
+    private void dump(CommandSender sender, InstrumentedDatabaseManager stats) {
+        Map<String, Object> snapshot = snapshot(stats);
+        File file = new File(plugin.getDataFolder(), DUMP_FILE);
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            Gson gson = new GsonBuilder().setPrettyPrinting().create();
+            try (Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+                gson.toJson(snapshot, writer);
+                sender.sendMessage(ChatColor.GREEN + "Database statistics written to " + file.getPath());
+            } catch (IOException e) {
+                plugin.getLogger().log(Level.WARNING, "Failed to write " + file.getPath(), e);
+                sender.sendMessage(ChatColor.RED + "Failed to write database statistics: " + e.getMessage());
+            }
+        });
+    }
+
+    private Map<String, Object> snapshot(InstrumentedDatabaseManager stats) {
+        Map<String, Object> snapshot = new LinkedHashMap<>();
+        snapshot.put("generatedAt", System.currentTimeMillis());
+        snapshot.put("since", stats.getSince());
+        snapshot.put("slowThresholdMillis", stats.getSlowThresholdMillis());
+
+        List<Map<String, Object>> operations = new ArrayList<>();
+        for (OperationStats operation : stats.getStats()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("operation", operation.getOperation());
+            entry.put("count", operation.getCount());
+            entry.put("errors", operation.getErrors());
+            entry.put("timeouts", operation.getTimeouts());
+            entry.put("meanMicros", operation.getMeanMicros());
+            entry.put("p50Micros", operation.getP50Micros());
+            entry.put("p95Micros", operation.getP95Micros());
+            entry.put("p99Micros", operation.getP99Micros());
+            entry.put("maxMicros", operation.getMaxMicros());
+            operations.add(entry);
+        }
+        snapshot.put("operations", operations);
+
+        List<Map<String, Object>> slowOperations = new ArrayList<>();
+        for (InstrumentedDatabaseManager.SlowOperation slow : stats.getSlowOperations()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("operation", slow.getOperation());
+            entry.put("key", slow.getKey());
+            entry.put("micros", slow.getMicros());
+            entry.put("time", slow.getTime());
+            entry.put("failed", slow.isFailed());
+            slowOperations.add(entry);
+        }
+        snapshot.put("slowOperations", slowOperations);
+
+        Optional<OutboxDatabaseManager> outbox = plugin.getDatabaseManager().unwrap(OutboxDatabaseManager.class);
+        if (outbox.isPresent()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("pending", outbox.get().getPendingCount());
+            entry.put("outboxed", outbox.get().getSpilledCount());
+            entry.put("replayed", outbox.get().getReplayedCount());
+            entry.put("breaker", outbox.get().getBreaker().getState().name());
+            entry.put("breakerOpened", outbox.get().getBreaker().getOpenCount());
+            snapshot.put("outbox", entry);
+        }
+
+        OfferReaperTask reaper = plugin.getOfferReaper();
+        if (reaper != null) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("runs", reaper.getRuns());
+            entry.put("totalDeleted", reaper.getTotalDeleted());
+            entry.put("lastDeleted", reaper.getLastDeleted());
+            entry.put("lastRunTime", reaper.getLastRunTime());
+            entry.put("failures", reaper.getFailures());
+            snapshot.put("offerReaper", entry);
+        }
+        if (plugin.getStartupTimer() != null) {
+            snapshot.put("startupMillis", plugin.getStartupTimer().getPhaseMillis());
+        }
+        return snapshot;
+    }
+
+    private static String millis(long micros) {
+        return String.format("%.1f", micros / 1000.0);
+    }
+
+    @Override
+    protected List<String> tabComplete(CommandSender sender, Command command, String label, String[] args) {
+        List<String> completions = new ArrayList<>();
+        if (args.length == 1) {
+            for (String action : ACTIONS) {
+                if (action.startsWith(args[0].toLowerCase())) {
+                    completions.add(action);
+                }
+            }
+        }
+        return completions;
+    }
+}
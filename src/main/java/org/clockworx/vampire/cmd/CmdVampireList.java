@@ -9,7 +9,10 @@ import org.clockworx.vampire.VampirePlugin;
 import org.clockworx.vampire.entity.VampirePlayer;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 
 /**
@@ -18,6 +21,8 @@ import java.util.concurrent.CompletableFuture;
  */
 public class CmdVampireList extends VCommand {
 
+    private static final int LIST_PAGE_SIZE = 20;
+
     /**
      * Creates a new list command.
      * 
@@ -71,12 +76,31 @@ public class CmdVampireList extends VCommand {
                 });
             }
             
-            // Display results
-            sendInfo(sender, getMessage("command.list.header").replace("%page%", String.valueOf(page)));
-            sendInfo(sender, getMessage("command.list.online_vampires").replace("%players%", String.join(", ", onlineVampires)));
-            sendInfo(sender, getMessage("command.list.online_infected").replace("%players%", String.join(", ", onlineInfected)));
-            sendInfo(sender, getMessage("command.list.offline_vampires").replace("%players%", String.join(", ", offlineVampires)));
-            sendInfo(sender, getMessage("command.list.offline_infected").replace("%players%", String.join(", ", offlineInfected)));
+            // Stream offline vampires page by page rather than loading them all
+            int pageSize = plugin.getVampireConfig().getDatabasePageSize();
+            int first = (page - 1) * LIST_PAGE_SIZE;
+            Set<UUID> onlineIds = new HashSet<>();
+            onlinePlayers.forEach(player -> onlineIds.add(player.getUniqueId()));
+            int[] index = {0};
+            plugin.getDatabaseManager().forEachVampire(pageSize, vampire -> {
+                if (!onlineIds.contains(vampire.getUuid())) {
+                    if (index[0] >= first && index[0] < first + LIST_PAGE_SIZE) {
+                        offlineVampires.add(vampire.getName());
+                    }
+                    index[0]++;
+                }
+            }).whenComplete((ignored, error) -> {
+                if (error != null) {
+                    plugin.error("Failed to list vampires", error);
+                }
+                
+                // Display results
+                sendInfo(sender, getMessage("command.list.header").replace("%page%", String.valueOf(page)));
+                sendInfo(sender, getMessage("command.list.online_vampires").replace("%players%", String.join(", ", onlineVampires)));
+                sendInfo(sender, getMessage("command.list.online_infected").replace("%players%", String.join(", ", onlineInfected)));
+                sendInfo(sender, getMessage("command.list.offline_vampires").replace("%players%", String.join(", ", offlineVampires)));
+                sendInfo(sender, getMessage("command.list.offline_infected").replace("%players%", String.join(", ", offlineInfected)));
+            });
         });
         
         return true;
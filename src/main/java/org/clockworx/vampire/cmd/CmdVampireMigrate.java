@@ -0,0 +1,209 @@
+package org.clockworx.vampire.cmd;
+
+import org.bukkit.ChatColor;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.clockworx.vampire.VampirePlugin;
+import org.clockworx.vampire.config.VampireConfig;
+import org.clockworx.vampire.database.DataTransfer;
+import org.clockworx.vampire.database.DatabaseTransferEndpoint;
+import org.clockworx.vampire.database.JdbcDatabaseManager;
+import org.clockworx.vampire.database.NdjsonDumpReader;
+import org.clockworx.vampire.database.NdjsonDumpWriter;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Command for moving data between databases and dump files.
+ * Transfers run on their own thread in keyset pages, so they neither block the
+ * server nor load every player into memory. Copies to another database and imports
+ * save a checkpoint after each page and resume from it when started again.
+ */
+public class CmdVampireMigrate extends VCommand {
+
+    private static final List<String> ACTIONS = List.of("start", "export", "import", "status", "cancel");
+    private static final List<String> TARGET_TYPES = List.of("sqlite", "sqlite-jdbc", "mysql", "mysql-jdbc");
+
+    /**
+     * Creates a new migrate command.
+     *
+     * @param plugin The plugin instance
+     */
+    public CmdVampireMigrate(VampirePlugin plugin) {
+        super(plugin, "migrate", "vampire.admin");
+    }
+
+    @Override
+    protected boolean execute(CommandSender sender, Command command, String label, String[] args) {
+        String action = args.length > 0 ? args[0].toLowerCase() : "status";
+        switch (action) {
+            case "start":
+                startMigration(sender);
+                return true;
+            case "export":
+                startExport(sender, args.length > 1 ? args[1] : null);
+                return true;
+            case "import":
+                if (args.length < 2) {
+                    sender.sendMessage(ChatColor.RED + "Usage: /vampire migrate import <file>");
+                    return true;
+                }
+                startImport(sender, args[1]);
+                return true;
+            case "status":
+                sendStatus(sender);
+                return true;
+            case "cancel":
+                DataTransfer transfer = plugin.getDataTransfer();
+                if (transfer == null || !transfer.isRunning()) {
+                    sender.sendMessage(ChatColor.RED + "No transfer is running.");
+                } else {
+                    transfer.cancel();
+                    sender.sendMessage(ChatColor.YELLOW + "Stopping after the current batch.");
+                }
+                return true;
+            default:
+                sender.sendMessage(ChatColor.RED + "Usage: /vampire migrate <start|export|import|status|cancel>");
+                return true;
+        }
+    }
+
+    /**
+     * Copies the active database to the database.migrate.target database.
+     *
+     * @param sender The command sender
+     */
+    private void startMigration(CommandSender sender) {
+        VampireConfig config = plugin.getVampireConfig();
+        String type = config.getMigrateTargetType().toLowerCase();
+        String url = config.getMigrateTargetUrl();
+        if (!TARGET_TYPES.contains(type) || url.isEmpty()) {
+            sender.sendMessage(ChatColor.RED + "Set database.migrate.target.type (sqlite or mysql) and url first.");
+            return;
+        }
+        if (url.equals(config.getDatabaseUrl())) {
+            sender.sendMessage(ChatColor.RED + "The migration target is the active database.");
+            return;
+        }
+
+        JdbcDatabaseManager target = new JdbcDatabaseManager(plugin, type, url,
+            config.getMigrateTargetUser(), config.getMigrateTargetPassword());
+        DataTransfer transfer = new DataTransfer("migration to " + url,
+            new DatabaseTransferEndpoint(plugin.getDatabaseManager(), false),
+            new DatabaseTransferEndpoint(target, true),
+            config.getMigrateBatchSize(), transferFile("migrate.checkpoint"), plugin.getLogger(), reporter(sender));
+        start(sender, transfer);
+    }
+
+    /**
+     * Writes the active database to a dump file.
+     *
+     * @param sender The command sender
+     * @param name The dump file name, or null for a timestamped name
+     */
+    private void startExport(CommandSender sender, String name) {
+        if (name == null) {
+            name = "vampire-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date()) + ".ndjson.gz";
+        }
+        Path file = transferFile(name);
+        if (file == null) {
+            sender.sendMessage(ChatColor.RED + "Dump files must be inside the transfer folder: " + name);
+            return;
+        }
+        // A dump is rewritten from the start, so there is nothing to resume
+        DataTransfer transfer = new DataTransfer("export to " + file.getFileName(),
+            new DatabaseTransferEndpoint(plugin.getDatabaseManager(), false), new NdjsonDumpWriter(file),
+            plugin.getVampireConfig().getMigrateBatchSize(), null, plugin.getLogger(), reporter(sender));
+        start(sender, transfer);
+    }
+
+    /**
+     * Reads a dump file into the active database.
+     *
+     * @param sender The command sender
+     * @param name The dump file name
+     */
+    private void startImport(CommandSender sender, String name) {
+        Path file = transferFile(name);
+        if (file == null) {
+            sender.sendMessage(ChatColor.RED + "Dump files must be inside the transfer folder: " + name);
+            return;
+        }
+        if (!Files.isRegularFile(file)) {
+            sender.sendMessage(ChatColor.RED + "Dump file not found: " + file);
+            return;
+        }
+        // Imported players replace what the plugin holds; online players are loaded again on next use
+        DatabaseTransferEndpoint sink = new DatabaseTransferEndpoint(plugin.getDatabaseManager(), false,
+            uuids -> plugin.getServer().getScheduler().runTask(plugin, () -> uuids.forEach(plugin::removeFromCache)));
+        DataTransfer transfer = new DataTransfer("import from " + file.getFileName(), new NdjsonDumpReader(file), sink,
+            plugin.getVampireConfig().getMigrateBatchSize(), transferFile("import.checkpoint"), plugin.getLogger(),
+            reporter(sender));
+        start(sender, transfer);
+    }
+
+    private void start(CommandSender sender, DataTransfer transfer) {
+        if (!plugin.startDataTransfer(transfer)) {
+            sender.sendMessage(ChatColor.RED + "Another transfer is running. Use /vampire migrate status.");
+            return;
+        }
+        sender.sendMessage(ChatColor.GREEN + "Started " + transfer.getDescription() + ".");
+    }
+
+    private void sendStatus(CommandSender sender) {
+        DataTransfer transfer = plugin.getDataTransfer();
+        if (transfer == null) {
+            sender.sendMessage(ChatColor.YELLOW + "No transfer has run since the server started.");
+            return;
+        }
+        sender.sendMessage(ChatColor.GOLD + "=== Data Transfer ===");
+        sender.sendMessage(ChatColor.YELLOW + "Transfer: " + ChatColor.WHITE + transfer.getDescription());
+        sender.sendMessage(ChatColor.YELLOW + "State: " + ChatColor.WHITE + transfer.getState());
+        sender.sendMessage(ChatColor.YELLOW + "Players: " + ChatColor.WHITE + transfer.getPlayers()
+            + ChatColor.YELLOW + ", offers: " + ChatColor.WHITE + transfer.getOffers());
+        sender.sendMessage(ChatColor.YELLOW + "Throughput: " + ChatColor.WHITE
+            + String.format("%.0f players/s over %.1f s", transfer.getPlayersPerSecond(), transfer.getElapsedMillis() / 1000.0));
+        if (transfer.getFailure() != null) {
+            sender.sendMessage(ChatColor.RED + "Error: " + transfer.getFailure().getMessage());
+        }
+    }
+
+    /**
+     * Resolves a file in the plugin's transfer folder.
+     *
+     * @param name The file name, relative to the transfer folder
+     * @return The file, or null if the name points outside the transfer folder
+     */
+    private Path transferFile(String name) {
+        Path folder = plugin.getDataFolder().toPath().resolve("transfer").normalize();
+        Path file = folder.resolve(name).normalize();
+        return file.startsWith(folder) && !file.equals(folder) ? file : null;
+    }
+
+    private Consumer<String> reporter(CommandSender sender) {
+        // The console already sees the transfer's log lines
+        if (!isPlayer(sender)) {
+            return message -> { };
+        }
+        return message -> sender.sendMessage(ChatColor.GRAY + message);
+    }
+
+    @Override
+    protected List<String> tabComplete(CommandSender sender, Command command, String label, String[] args) {
+        List<String> completions = new ArrayList<>();
+        if (args.length == 1) {
+            for (String action : ACTIONS) {
+                if (action.startsWith(args[0].toLowerCase())) {
+                    completions.add(action);
+                }
+            }
+        }
+        return completions;
+    }
+}
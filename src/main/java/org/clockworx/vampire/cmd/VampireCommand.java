@@ -44,9 +44,13 @@ public class VampireCommand implements CommandExecutor, TabCompleter {
         
         // Register subcommands
         registerSubcommand(new CmdVampireAccept(plugin));
+        registerSubcommand(new CmdVampireAltars(plugin));
+        registerSubcommand(new CmdVampireCache(plugin));
+        registerSubcommand(new CmdVampireDb(plugin));
         registerSubcommand(new CmdVampireFlask(plugin));
         registerSubcommand(new CmdVampireHelp(plugin));
         registerSubcommand(new CmdVampireList(plugin));
+        registerSubcommand(new CmdVampireMigrate(plugin));
         registerSubcommand(new CmdVampireModeBloodlust(plugin));
         registerSubcommand(new CmdVampireModeNightvision(plugin));
         registerSubcommand(new CmdVampireModeIntend(plugin));
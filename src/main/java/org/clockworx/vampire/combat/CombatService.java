@@ -0,0 +1,83 @@
+package org.clockworx.vampire.combat;
+
+import org.bukkit.entity.Player;
+import org.clockworx.vampire.VampirePlugin;
+import org.clockworx.vampire.config.VampireConfig;
+import org.clockworx.vampire.entity.VampirePlayer;
+import org.clockworx.vampire.entity.VampireStatusIndex;
+
+import java.util.UUID;
+
+/**
+ * Applies vampire damage modifiers synchronously inside damage events.
+ * Vampires deal more damage and take less the more blood they have. Humans are
+ * rejected with a single lookup in the plugin's {@link VampireStatusIndex}; for
+ * vampires the blood level is read from the cached player state. Neither allocates.
+ * <p>
+ * A player who has not been loaded yet is not in the status index and is treated as
+ * a human until their join-time load completes.
+ */
+public class CombatService {
+
+    private final VampirePlugin plugin;
+    private final VampireConfig config;
+    private final VampireStatusIndex statuses;
+
+    /**
+     * Creates a new combat service.
+     *
+     * @param plugin The plugin instance
+     */
+    public CombatService(VampirePlugin plugin) {
+        this.plugin = plugin;
+        this.config = plugin.getVampireConfig();
+        this.statuses = plugin.getStatusIndex();
+    }
+
+    /**
+     * Scales damage dealt by a player: 1 + blood * combat.damage-per-blood for vampires.
+     *
+     * @param attacker The attacking player
+     * @param damage The unmodified damage
+     * @return The damage to deal
+     */
+    public double modifyDealtDamage(Player attacker, double damage) {
+        VampirePlayer vampire = lookupVampire(attacker.getUniqueId());
+        if (vampire == null) {
+            return damage;
+        }
+        return damage * (1.0 + vampire.getBlood() * config.getCombatDamagePerBlood());
+    }
+
+    /**
+     * Reduces damage taken by a player: blood * combat.resistance-per-blood for vampires,
+     * capped at combat.max-resistance.
+     *
+     * @param victim The damaged player
+     * @param damage The unmodified damage
+     * @return The damage to take
+     */
+    public double modifyTakenDamage(Player victim, double damage) {
+        VampirePlayer vampire = lookupVampire(victim.getUniqueId());
+        if (vampire == null) {
+            return damage;
+        }
+        double resistance = Math.min(vampire.getBlood() * config.getCombatResistancePerBlood(),
+            config.getCombatMaxResistance());
+        return damage * (1.0 - resistance);
+    }
+
+    /**
+     * Gets a vampire's cached state.
+     *
+     * @param uuid The player's UUID
+     * @return The cached state, or null if the player is not a loaded vampire
+     */
+    private VampirePlayer lookupVampire(UUID uuid) {
+        if (!statuses.isVampire(uuid)) {
+            return null;
+        }
+        VampirePlayer vampire = plugin.getCachedVampirePlayer(uuid);
+        return vampire != null && vampire.isVampire() ? vampire : null;
+    }
+}
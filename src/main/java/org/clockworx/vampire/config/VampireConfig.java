@@ -27,6 +27,72 @@ public class VampireConfig {
     private String databaseUrl;
     private String databaseUser;
     private String databasePassword;
+    private boolean databaseShowSql;
+    private int databasePageSize;
+    
+    // Database cache settings
+    private boolean databaseCacheEnabled;
+    private boolean databaseQueryCacheEnabled;
+    private int databaseCacheMaxEntries;
+    private int databaseCacheExpireSeconds;
+    private boolean databaseCacheStatistics;
+    
+    // SQLite engine settings
+    private int sqliteReadPoolSize;
+    private int sqliteWriteBatchSize;
+    private long sqliteMmapSize;
+    
+    // Player cache settings
+    private boolean playerCacheEnabled;
+    private int playerCacheFlushInterval;
+    private int playerCacheBatchSize;
+    private int playerCacheExpireSeconds;
+    
+    // Change log settings
+    private boolean changeLogEnabled;
+    private int changeLogPollInterval;
+    private int changeLogRetention;
+    
+    // Lease settings
+    private boolean leasesEnabled;
+    private int leaseTtl;
+    private int leaseHandoffTimeout;
+    
+    // Offer reaper settings
+    private boolean offerReaperEnabled;
+    private int offerReaperInterval;
+    private int offerRetention;
+    
+    // Database statistics settings
+    private boolean databaseStatsEnabled;
+    private int databaseSlowThreshold;
+    
+    // Shutdown settings
+    private int shutdownDeadline;
+    private String shutdownRecoveryFile;
+    
+    // Outbox settings
+    private boolean outboxEnabled;
+    private String outboxFile;
+    private int outboxFailureThreshold;
+    private int outboxOpenDuration;
+    private int outboxCallTimeout;
+    private int outboxRetryInterval;
+    
+    // Migration settings
+    private String migrateTargetType;
+    private String migrateTargetUrl;
+    private String migrateTargetUser;
+    private String migrateTargetPassword;
+    private int migrateBatchSize;
+    
+    // Bootstrap settings
+    private int bootstrapMaxWaitingLogins;
+    private int bootstrapLoginTimeout;
+    
+    // File store settings
+    private String fileStorePath;
+    private double fileStoreCompactionRatio;
     
     // General settings
     private boolean debug;
@@ -58,6 +124,9 @@ public class VampireConfig {
     private boolean altarsEnabled;
     private int altarSearchRadius;
     private double altarMinRatio;
+    private int altarRitualDuration;
+    private int altarClickDebounce;
+    private boolean altarShowProgress;
     private Map<String, Object> darkAltarConfig;
     private Map<String, Object> lightAltarConfig;
     
@@ -75,6 +144,11 @@ public class VampireConfig {
     private double bloodlustSpeedBoost;
     private int bloodlustCooldown;
     
+    // Combat settings
+    private double combatDamagePerBlood;
+    private double combatResistancePerBlood;
+    private double combatMaxResistance;
+    
     public VampireConfig(VampirePlugin plugin) {
         this.plugin = plugin;
         this.config = null;
@@ -113,6 +187,9 @@ public class VampireConfig {
         // Load bloodlust settings
         loadBloodlustSettings();
         
+        // Load combat settings
+        loadCombatSettings();
+        
         // Load altar settings
         loadAltarSettings();
         
@@ -170,6 +247,20 @@ public class VampireConfig {
             databaseUrl = "jdbc:sqlite:plugins/Vampire/database.db";
             databaseUser = "";
             databasePassword = "";
+            databaseShowSql = false;
+            databasePageSize = 500;
+            loadDatabaseCacheSettings(null);
+            loadSqliteSettings(null);
+            loadFileStoreSettings(null);
+            loadPlayerCacheSettings(null);
+            loadChangeLogSettings(null);
+            loadLeaseSettings(null);
+            loadOfferReaperSettings(null);
+            loadBootstrapSettings(null);
+            loadDatabaseStatsSettings(null);
+            loadShutdownSettings(null);
+            loadOutboxSettings(null);
+            loadMigrateSettings(null);
             return;
         }
         
@@ -177,11 +268,218 @@ public class VampireConfig {
         databaseUrl = dbSection.getString("url", "jdbc:sqlite:plugins/Vampire/database.db");
         databaseUser = dbSection.getString("user", "");
         databasePassword = dbSection.getString("password", "");
+        databaseShowSql = dbSection.getBoolean("show-sql", false);
+        databasePageSize = validatePositiveInteger(dbSection, "page-size", 500);
+        
+        // Load second-level cache settings
+        loadDatabaseCacheSettings(dbSection.getConfigurationSection("cache"));
+        
+        // Load SQLite engine settings
+        loadSqliteSettings(dbSection.getConfigurationSection("sqlite"));
+        
+        // Load file store settings
+        loadFileStoreSettings(dbSection.getConfigurationSection("file"));
+        
+        // Load player cache settings
+        loadPlayerCacheSettings(dbSection.getConfigurationSection("player-cache"));
+        
+        // Load change log settings
+        loadChangeLogSettings(dbSection.getConfigurationSection("change-log"));
+        
+        // Load lease settings
+        loadLeaseSettings(dbSection.getConfigurationSection("leases"));
+        
+        // Load offer reaper settings
+        loadOfferReaperSettings(dbSection.getConfigurationSection("offer-reaper"));
+        
+        // Load bootstrap settings
+        loadBootstrapSettings(dbSection.getConfigurationSection("bootstrap"));
+        
+        // Load database statistics settings
+        loadDatabaseStatsSettings(dbSection.getConfigurationSection("stats"));
+        
+        // Load shutdown settings
+        loadShutdownSettings(dbSection.getConfigurationSection("shutdown"));
+        
+        // Load outbox settings
+        loadOutboxSettings(dbSection.getConfigurationSection("outbox"));
+        
+        // Load migration settings
+        loadMigrateSettings(dbSection.getConfigurationSection("migrate"));
         
         // Load config
         databaseConfig = dbSection.getValues(false);
     }
     
+    private void loadDatabaseCacheSettings(ConfigurationSection cacheSection) {
+        if (cacheSection == null) {
+            databaseCacheEnabled = true;
+            databaseQueryCacheEnabled = true;
+            databaseCacheMaxEntries = 10000;
+            databaseCacheExpireSeconds = 600;
+            databaseCacheStatistics = false;
+            return;
+        }
+        
+        databaseCacheEnabled = cacheSection.getBoolean("enabled", true);
+        databaseQueryCacheEnabled = cacheSection.getBoolean("query-cache", true);
+        databaseCacheMaxEntries = validatePositiveInteger(cacheSection, "max-entries", 10000);
+        databaseCacheExpireSeconds = validatePositiveInteger(cacheSection, "expire-after-access", 600);
+        databaseCacheStatistics = cacheSection.getBoolean("statistics", false);
+    }
+    
+    private void loadSqliteSettings(ConfigurationSection sqliteSection) {
+        if (sqliteSection == null) {
+            sqliteReadPoolSize = 2;
+            sqliteWriteBatchSize = 64;
+            sqliteMmapSize = 67108864L;
+            return;
+        }
+        
+        sqliteReadPoolSize = validatePositiveInteger(sqliteSection, "read-pool-size", 2);
+        sqliteWriteBatchSize = validatePositiveInteger(sqliteSection, "write-batch-size", 64);
+        sqliteMmapSize = sqliteSection.getLong("mmap-size", 67108864L);
+        if (sqliteMmapSize < 0) {
+            plugin.getLogger().warning("Invalid value for mmap-size: " + sqliteMmapSize + ". Using default: 67108864");
+            sqliteMmapSize = 67108864L;
+        }
+    }
+    
+    private void loadFileStoreSettings(ConfigurationSection fileSection) {
+        if (fileSection == null) {
+            fileStorePath = "store/vampire.dat";
+            fileStoreCompactionRatio = 0.5;
+            return;
+        }
+        
+        fileStorePath = fileSection.getString("path", "store/vampire.dat");
+        fileStoreCompactionRatio = validatePercentage(fileSection, "compaction-ratio", 0.5);
+    }
+    
+    private void loadPlayerCacheSettings(ConfigurationSection playerCacheSection) {
+        if (playerCacheSection == null) {
+            playerCacheEnabled = true;
+            playerCacheFlushInterval = 5;
+            playerCacheBatchSize = 256;
+            playerCacheExpireSeconds = 600;
+            return;
+        }
+        
+        playerCacheEnabled = playerCacheSection.getBoolean("enabled", true);
+        playerCacheFlushInterval = validatePositiveInteger(playerCacheSection, "flush-interval", 5);
+        playerCacheBatchSize = validatePositiveInteger(playerCacheSection, "batch-size", 256);
+        playerCacheExpireSeconds = validatePositiveInteger(playerCacheSection, "expire-after-access", 600);
+    }
+    
+    private void loadChangeLogSettings(ConfigurationSection changeLogSection) {
+        if (changeLogSection == null) {
+            changeLogEnabled = false;
+            changeLogPollInterval = 2;
+            changeLogRetention = 3600;
+            return;
+        }
+        
+        changeLogEnabled = changeLogSection.getBoolean("enabled", false);
+        changeLogPollInterval = validatePositiveInteger(changeLogSection, "poll-interval", 2);
+        changeLogRetention = validatePositiveInteger(changeLogSection, "retention", 3600);
+    }
+    
+    private void loadLeaseSettings(ConfigurationSection leaseSection) {
+        if (leaseSection == null) {
+            leasesEnabled = false;
+            leaseTtl = 30;
+            leaseHandoffTimeout = 5;
+            return;
+        }
+        
+        leasesEnabled = leaseSection.getBoolean("enabled", false);
+        leaseTtl = validatePositiveInteger(leaseSection, "ttl", 30);
+        leaseHandoffTimeout = validatePositiveInteger(leaseSection, "handoff-timeout", 5);
+    }
+    
+    private void loadOfferReaperSettings(ConfigurationSection reaperSection) {
+        if (reaperSection == null) {
+            offerReaperEnabled = true;
+            offerReaperInterval = 300;
+            offerRetention = 86400;
+            return;
+        }
+        
+        offerReaperEnabled = reaperSection.getBoolean("enabled", true);
+        offerReaperInterval = validatePositiveInteger(reaperSection, "interval", 300);
+        offerRetention = validatePositiveInteger(reaperSection, "retention", 86400);
+    }
+    
+    private void loadBootstrapSettings(ConfigurationSection bootstrapSection) {
+        if (bootstrapSection == null) {
+            bootstrapMaxWaitingLogins = 50;
+            bootstrapLoginTimeout = 30;
+            return;
+        }
+        
+        bootstrapMaxWaitingLogins = validatePositiveInteger(bootstrapSection, "max-waiting-logins", 50);
+        bootstrapLoginTimeout = validatePositiveInteger(bootstrapSection, "login-timeout", 30);
+    }
+    
+    private void loadDatabaseStatsSettings(ConfigurationSection statsSection) {
+        if (statsSection == null) {
+            databaseStatsEnabled = true;
+            databaseSlowThreshold = 250;
+            return;
+        }
+        
+        databaseStatsEnabled = statsSection.getBoolean("enabled", true);
+        databaseSlowThreshold = validatePositiveInteger(statsSection, "slow-threshold", 250);
+    }
+    
+    private void loadShutdownSettings(ConfigurationSection shutdownSection) {
+        if (shutdownSection == null) {
+            shutdownDeadline = 10;
+            shutdownRecoveryFile = "store/recovery.journal";
+            return;
+        }
+        
+        shutdownDeadline = validatePositiveInteger(shutdownSection, "deadline", 10);
+        shutdownRecoveryFile = shutdownSection.getString("recovery-file", "store/recovery.journal");
+    }
+    
+    private void loadOutboxSettings(ConfigurationSection outboxSection) {
+        if (outboxSection == null) {
+            outboxEnabled = true;
+            outboxFile = "store/outbox.journal";
+            outboxFailureThreshold = 5;
+            outboxOpenDuration = 10;
+            outboxCallTimeout = 10;
+            outboxRetryInterval = 5;
+            return;
+        }
+        
+        outboxEnabled = outboxSection.getBoolean("enabled", true);
+        outboxFile = outboxSection.getString("file", "store/outbox.journal");
+        outboxFailureThreshold = validatePositiveInteger(outboxSection, "failure-threshold", 5);
+        outboxOpenDuration = validatePositiveInteger(outboxSection, "open-duration", 10);
+        outboxCallTimeout = validatePositiveInteger(outboxSection, "call-timeout", 10);
+        outboxRetryInterval = validatePositiveInteger(outboxSection, "retry-interval", 5);
+    }
+    
+    private void loadMigrateSettings(ConfigurationSection migrateSection) {
+        if (migrateSection == null) {
+            migrateTargetType = "mysql";
+            migrateTargetUrl = "";
+            migrateTargetUser = "";
+            migrateTargetPassword = "";
+            migrateBatchSize = 1000;
+            return;
+        }
+        
+        ConfigurationSection targetSection = migrateSection.getConfigurationSection("target");
+        migrateTargetType = targetSection != null ? targetSection.getString("type", "mysql") : "mysql";
+        migrateTargetUrl = targetSection != null ? targetSection.getString("url", "") : "";
+        migrateTargetUser = targetSection != null ? targetSection.getString("user", "") : "";
+        migrateTargetPassword = targetSection != null ? targetSection.getString("password", "") : "";
+        migrateBatchSize = validatePositiveInteger(migrateSection, "batch-size", 1000);
+    }
+    
     private void loadGeneralSettings() {
         ConfigurationSection generalSection = config.getConfigurationSection("general");
         if (generalSection == null) {
@@ -286,6 +584,9 @@ public class VampireConfig {
             altarsEnabled = true;
             altarSearchRadius = 3;
             altarMinRatio = 0.5;
+            altarRitualDuration = 20;
+            altarClickDebounce = 500;
+            altarShowProgress = true;
             darkAltarConfig = new HashMap<>();
             lightAltarConfig = new HashMap<>();
             return;
@@ -294,6 +595,9 @@ public class VampireConfig {
         altarsEnabled = altarSection.getBoolean("enabled", true);
         altarSearchRadius = altarSection.getInt("search-radius", 3);
         altarMinRatio = altarSection.getDouble("min-ratio", 0.5);
+        altarRitualDuration = validatePositiveInteger(altarSection, "ritual-duration", 20);
+        altarClickDebounce = validatePositiveInteger(altarSection, "click-debounce", 500);
+        altarShowProgress = altarSection.getBoolean("show-progress", true);
         
         // Load dark altar config
         ConfigurationSection darkSection = altarSection.getConfigurationSection("dark");
@@ -365,6 +669,14 @@ public class VampireConfig {
         return databasePassword;
     }
     
+    public boolean isDatabaseShowSql() {
+        return databaseShowSql;
+    }
+    
+    public int getDatabasePageSize() {
+        return databasePageSize;
+    }
+    
     public FileConfiguration getConfig() {
         return config;
     }
@@ -373,6 +685,178 @@ public class VampireConfig {
         return databaseConfig;
     }
     
+    // Getters for database cache settings
+    public boolean isDatabaseCacheEnabled() {
+        return databaseCacheEnabled;
+    }
+    
+    public boolean isDatabaseQueryCacheEnabled() {
+        return databaseCacheEnabled && databaseQueryCacheEnabled;
+    }
+    
+    public int getDatabaseCacheMaxEntries() {
+        return databaseCacheMaxEntries;
+    }
+    
+    public int getDatabaseCacheExpireSeconds() {
+        return databaseCacheExpireSeconds;
+    }
+    
+    public boolean isDatabaseCacheStatistics() {
+        return databaseCacheStatistics;
+    }
+    
+    // Getters for SQLite engine settings
+    public int getSqliteReadPoolSize() {
+        return sqliteReadPoolSize;
+    }
+    
+    public int getSqliteWriteBatchSize() {
+        return sqliteWriteBatchSize;
+    }
+    
+    public long getSqliteMmapSize() {
+        return sqliteMmapSize;
+    }
+    
+    // Getters for player cache settings
+    public boolean isPlayerCacheEnabled() {
+        return playerCacheEnabled;
+    }
+    
+    public int getPlayerCacheFlushInterval() {
+        return playerCacheFlushInterval;
+    }
+    
+    public int getPlayerCacheBatchSize() {
+        return playerCacheBatchSize;
+    }
+    
+    public int getPlayerCacheExpireSeconds() {
+        return playerCacheExpireSeconds;
+    }
+    
+    // Getters for change log settings
+    public boolean isChangeLogEnabled() {
+        return changeLogEnabled;
+    }
+    
+    public int getChangeLogPollInterval() {
+        return changeLogPollInterval;
+    }
+    
+    public int getChangeLogRetention() {
+        return changeLogRetention;
+    }
+    
+    // Getters for lease settings
+    public boolean isLeasesEnabled() {
+        return leasesEnabled;
+    }
+    
+    public int getLeaseTtl() {
+        return leaseTtl;
+    }
+    
+    public int getLeaseHandoffTimeout() {
+        return leaseHandoffTimeout;
+    }
+    
+    // Getters for offer reaper settings
+    public boolean isOfferReaperEnabled() {
+        return offerReaperEnabled;
+    }
+    
+    public int getOfferReaperInterval() {
+        return offerReaperInterval;
+    }
+    
+    public int getOfferRetention() {
+        return offerRetention;
+    }
+    
+    // Getters for database statistics settings
+    public boolean isDatabaseStatsEnabled() {
+        return databaseStatsEnabled;
+    }
+    
+    public int getDatabaseSlowThreshold() {
+        return databaseSlowThreshold;
+    }
+    
+    // Getters for shutdown settings
+    public int getShutdownDeadline() {
+        return shutdownDeadline;
+    }
+    
+    public String getShutdownRecoveryFile() {
+        return shutdownRecoveryFile;
+    }
+    
+    // Getters for outbox settings
+    public boolean isOutboxEnabled() {
+        return outboxEnabled;
+    }
+    
+    public String getOutboxFile() {
+        return outboxFile;
+    }
+    
+    public int getOutboxFailureThreshold() {
+        return outboxFailureThreshold;
+    }
+    
+    public int getOutboxOpenDuration() {
+        return outboxOpenDuration;
+    }
+    
+    public int getOutboxCallTimeout() {
+        return outboxCallTimeout;
+    }
+    
+    public int getOutboxRetryInterval() {
+        return outboxRetryInterval;
+    }
+    
+    // Getters for migration settings
+    public String getMigrateTargetType() {
+        return migrateTargetType;
+    }
+    
+    public String getMigrateTargetUrl() {
+        return migrateTargetUrl;
+    }
+    
+    public String getMigrateTargetUser() {
+        return migrateTargetUser;
+    }
+    
+    public String getMigrateTargetPassword() {
+        return migrateTargetPassword;
+    }
+    
+    public int getMigrateBatchSize() {
+        return migrateBatchSize;
+    }
+    
+    // Getters for bootstrap settings
+    public int getBootstrapMaxWaitingLogins() {
+        return bootstrapMaxWaitingLogins;
+    }
+    
+    public int getBootstrapLoginTimeout() {
+        return bootstrapLoginTimeout;
+    }
+    
+    // Getters for file store settings
+    public String getFileStorePath() {
+        return fileStorePath;
+    }
+    
+    public double getFileStoreCompactionRatio() {
+        return fileStoreCompactionRatio;
+    }
+    
     // Getters for general settings
     public boolean isDebug() {
         return debug;
@@ -468,6 +952,18 @@ public class VampireConfig {
         return altarMinRatio;
     }
     
+    public int getAltarRitualDuration() {
+        return altarRitualDuration;
+    }
+    
+    public int getAltarClickDebounce() {
+        return altarClickDebounce;
+    }
+    
+    public boolean isAltarShowProgress() {
+        return altarShowProgress;
+    }
+    
     public Map<String, Object> getDarkAltarConfig() {
         return darkAltarConfig;
     }
@@ -581,6 +1077,20 @@ public class VampireConfig {
         }
     }
 
+    private void loadCombatSettings() {
+        ConfigurationSection combatSection = config.getConfigurationSection("vampire.combat");
+        if (combatSection == null) {
+            combatDamagePerBlood = 0.1;
+            combatResistancePerBlood = 0.05;
+            combatMaxResistance = 0.5;
+            return;
+        }
+        
+        combatDamagePerBlood = validatePositiveDouble(combatSection, "damage-per-blood", 0.1);
+        combatResistancePerBlood = validatePositiveDouble(combatSection, "resistance-per-blood", 0.05);
+        combatMaxResistance = validatePercentage(combatSection, "max-resistance", 0.5);
+    }
+
     // Getters for night vision settings
     public boolean isNightVisionEnabled() {
         return nightVisionEnabled;
@@ -607,6 +1117,19 @@ public class VampireConfig {
         return bloodlustCooldown;
     }
 
+    // Getters for combat settings
+    public double getCombatDamagePerBlood() {
+        return combatDamagePerBlood;
+    }
+
+    public double getCombatResistancePerBlood() {
+        return combatResistancePerBlood;
+    }
+
+    public double getCombatMaxResistance() {
+        return combatMaxResistance;
+    }
+
     // Getters for vampire settings
     public double getBloodDecreaseRate() {
         return bloodDecreaseRate;
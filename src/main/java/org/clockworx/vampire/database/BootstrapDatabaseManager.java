@@ -0,0 +1,326 @@
+package org.clockworx.vampire.database;
+
+import org.clockworx.vampire.config.LanguageConfig;
+import org.clockworx.vampire.config.VampireConfig;
+import org.clockworx.vampire.entity.BloodOffer;
+import org.clockworx.vampire.entity.VampirePlayer;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Lets the plugin enable while the database initializes in the background.
+ * Operations called before initialization completes are queued and run once the
+ * wrapped manager is ready; if initialization fails, they fail with its cause.
+ * Players spilled to the recovery journal by the last shutdown are saved before
+ * the manager reports ready.
+ */
+public class BootstrapDatabaseManager extends ForwardingDatabaseManager {
+
+    private final CompletableFuture<Void> ready = new CompletableFuture<>();
+    private final PlayerJournal recovery;
+    private final Logger logger;
+
+    /**
+     * Creates a new bootstrap database manager.
+     *
+     * @param delegate The database manager to initialize in the background
+     * @param recovery The journal of players left unsaved by the last shutdown
+     * @param logger The logger to report the replay to
+     */
+    public BootstrapDatabaseManager(DatabaseManager delegate, PlayerJournal recovery, Logger logger) {
+        super(delegate);
+        this.recovery = recovery;
+        this.logger = logger;
+    }
+
+    @Override
+    public CompletableFuture<Void> initialize() {
+        delegate.initialize().thenCompose(ignored -> replayRecovery()).whenComplete((ignored, error) -> {
+            if (error != null) {
+                ready.completeExceptionally(error);
+            } else {
+                ready.complete(null);
+            }
+        });
+        return ready;
+    }
+
+    @Override
+    public CompletableFuture<Void> shutdown() {
+        // A bootstrap still in progress has to finish before its resources can be closed
+        return ready.handle((ignored, error) -> null).thenCompose(ignored -> delegate.shutdown());
+    }
+
+    private CompletableFuture<Void> replayRecovery() {
+        if (!recovery.exists()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return recovery.replay(delegate).handle((count, error) -> {
+            if (error != null) {
+                // Keep starting; the journal stays for the next attempt
+                logger.log(Level.SEVERE, "Failed to save the players in " + recovery.getFile(), error);
+            } else {
+                logger.info("Saved " + count + " players left unsaved by the last shutdown");
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Checks whether the database has finished initializing successfully.
+     *
+     * @return true if operations run without waiting
+     */
+    public boolean isReady() {
+        return ready.isDone() && !ready.isCompletedExceptionally();
+    }
+
+    /**
+     * Gets a future that completes when the database has finished initializing.
+     *
+     * @return The readiness future
+     */
+    public CompletableFuture<Void> getReady() {
+        return ready.copy();
+    }
+
+    @Override
+    public CompletableFuture<VampirePlayer> getPlayer(UUID uuid) {
+        return ready.thenCompose(ignored -> delegate.getPlayer(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> savePlayer(VampirePlayer player) {
+        return ready.thenCompose(ignored -> delegate.savePlayer(player));
+    }
+
+    @Override
+    public CompletableFuture<Void> savePlayerRecords(Collection<PlayerRecord> records) {
+        return ready.thenCompose(ignored -> delegate.savePlayerRecords(records));
+    }
+
+    @Override
+    public CompletableFuture<Void> deletePlayer(UUID uuid) {
+        return ready.thenCompose(ignored -> delegate.deletePlayer(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isVampire(UUID uuid) {
+        return ready.thenCompose(ignored -> delegate.isVampire(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isInfected(UUID uuid) {
+        return ready.thenCompose(ignored -> delegate.isInfected(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Double> getBloodLevel(UUID uuid) {
+        return ready.thenCompose(ignored -> delegate.getBloodLevel(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setBloodLevel(UUID uuid, double blood) {
+        return ready.thenCompose(ignored -> delegate.setBloodLevel(uuid, blood));
+    }
+
+    @Override
+    public CompletableFuture<Double> getInfectionLevel(UUID uuid) {
+        return ready.thenCompose(ignored -> delegate.getInfectionLevel(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setInfectionLevel(UUID uuid, double infection) {
+        return ready.thenCompose(ignored -> delegate.setInfectionLevel(uuid, infection));
+    }
+
+    @Override
+    public CompletableFuture<String> getInfectionReason(UUID uuid) {
+        return ready.thenCompose(ignored -> delegate.getInfectionReason(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setInfectionReason(UUID uuid, String reason) {
+        return ready.thenCompose(ignored -> delegate.setInfectionReason(uuid, reason));
+    }
+
+    @Override
+    public CompletableFuture<Long> getInfectionTime(UUID uuid) {
+        return ready.thenCompose(ignored -> delegate.getInfectionTime(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setInfectionTime(UUID uuid, long time) {
+        return ready.thenCompose(ignored -> delegate.setInfectionTime(uuid, time));
+    }
+
+    @Override
+    public CompletableFuture<Long> getLastShriekTime(UUID uuid) {
+        return ready.thenCompose(ignored -> delegate.getLastShriekTime(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastShriekTime(UUID uuid, long time) {
+        return ready.thenCompose(ignored -> delegate.setLastShriekTime(uuid, time));
+    }
+
+    @Override
+    public CompletableFuture<Long> getLastBloodTradeTime(UUID uuid) {
+        return ready.thenCompose(ignored -> delegate.getLastBloodTradeTime(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradeTime(UUID uuid, long time) {
+        return ready.thenCompose(ignored -> delegate.setLastBloodTradeTime(uuid, time));
+    }
+
+    @Override
+    public CompletableFuture<UUID> getLastBloodTradePartner(UUID uuid) {
+        return ready.thenCompose(ignored -> delegate.getLastBloodTradePartner(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradePartner(UUID uuid, UUID partner) {
+        return ready.thenCompose(ignored -> delegate.setLastBloodTradePartner(uuid, partner));
+    }
+
+    @Override
+    public CompletableFuture<Double> getLastBloodTradeAmount(UUID uuid) {
+        return ready.thenCompose(ignored -> delegate.getLastBloodTradeAmount(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradeAmount(UUID uuid, double amount) {
+        return ready.thenCompose(ignored -> delegate.setLastBloodTradeAmount(uuid, amount));
+    }
+
+    @Override
+    public CompletableFuture<String> getLastBloodTradeType(UUID uuid) {
+        return ready.thenCompose(ignored -> delegate.getLastBloodTradeType(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradeType(UUID uuid, String type) {
+        return ready.thenCompose(ignored -> delegate.setLastBloodTradeType(uuid, type));
+    }
+
+    @Override
+    public CompletableFuture<BloodOffer> createBloodOffer(UUID senderUuid, UUID targetUuid, double amount) {
+        return ready.thenCompose(ignored -> delegate.createBloodOffer(senderUuid, targetUuid, amount));
+    }
+
+    @Override
+    public CompletableFuture<BloodOffer> getBloodOffer(UUID playerUuid) {
+        return ready.thenCompose(ignored -> delegate.getBloodOffer(playerUuid));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> acceptBloodOffer(UUID playerUuid) {
+        return ready.thenCompose(ignored -> delegate.acceptBloodOffer(playerUuid));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> rejectBloodOffer(UUID playerUuid) {
+        return ready.thenCompose(ignored -> delegate.rejectBloodOffer(playerUuid));
+    }
+
+    @Override
+    public CompletableFuture<List<BloodOffer>> getAllBloodOffers() {
+        return ready.thenCompose(ignored -> delegate.getAllBloodOffers());
+    }
+
+    @Override
+    public CompletableFuture<List<BloodOffer>> getBloodOfferPage(BloodOffer after, int limit) {
+        return ready.thenCompose(ignored -> delegate.getBloodOfferPage(after, limit));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveBloodOffers(Collection<BloodOffer> offers) {
+        return ready.thenCompose(ignored -> delegate.saveBloodOffers(offers));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> cleanupExpiredOffers(long timeoutMillis) {
+        return ready.thenCompose(ignored -> delegate.cleanupExpiredOffers(timeoutMillis));
+    }
+
+    @Override
+    public CompletableFuture<Integer> purgeOffers(long pendingTimeoutMillis, long resolvedRetentionMillis) {
+        return ready.thenCompose(ignored -> delegate.purgeOffers(pendingTimeoutMillis, resolvedRetentionMillis));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> addInfection(UUID uuid, double amount, String reason) {
+        return ready.thenCompose(ignored -> delegate.addInfection(uuid, amount, reason));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> setVampire(UUID uuid, boolean isVampire) {
+        return ready.thenCompose(ignored -> delegate.setVampire(uuid, isVampire));
+    }
+
+    @Override
+    public CompletableFuture<List<VampirePlayer>> getAllVampires() {
+        return ready.thenCompose(ignored -> delegate.getAllVampires());
+    }
+
+    @Override
+    public CompletableFuture<List<VampirePlayer>> getVampirePage(UUID after, int limit) {
+        return ready.thenCompose(ignored -> delegate.getVampirePage(after, limit));
+    }
+
+    @Override
+    public CompletableFuture<List<PlayerRecord>> getPlayerRecordPage(UUID after, int limit) {
+        return ready.thenCompose(ignored -> delegate.getPlayerRecordPage(after, limit));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveConfig(String key, String value) {
+        return ready.thenCompose(ignored -> delegate.saveConfig(key, value));
+    }
+
+    @Override
+    public CompletableFuture<String> getConfig(String key) {
+        return ready.thenCompose(ignored -> delegate.getConfig(key));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveLanguage(String key, String value) {
+        return ready.thenCompose(ignored -> delegate.saveLanguage(key, value));
+    }
+
+    @Override
+    public CompletableFuture<String> getLanguage(String key) {
+        return ready.thenCompose(ignored -> delegate.getLanguage(key));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> useBlood(UUID uuid, double amount) {
+        return ready.thenCompose(ignored -> delegate.useBlood(uuid, amount));
+    }
+
+    @Override
+    public CompletableFuture<VampireConfig> loadConfig() {
+        return ready.thenCompose(ignored -> delegate.loadConfig());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveConfig(VampireConfig config) {
+        return ready.thenCompose(ignored -> delegate.saveConfig(config));
+    }
+
+    @Override
+    public CompletableFuture<LanguageConfig> loadLanguage() {
+        return ready.thenCompose(ignored -> delegate.loadLanguage());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveLanguage(LanguageConfig language) {
+        return ready.thenCompose(ignored -> delegate.saveLanguage(language));
+    }
+}
@@ -0,0 +1,586 @@
+package org.clockworx.vampire.database;
+
+import org.clockworx.vampire.entity.VampirePlayer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Read-through, write-behind player cache in front of any DatabaseManager.
+ * Point reads are answered from the cached player state, loading the player once
+ * on a miss. Point writes change the cached state and mark it dirty; dirty players
+ * are written in batches on a fixed interval, on {@link #flush()} and on shutdown.
+ * Bulk saves, such as imports, are written straight through and replace the cached copies.
+ * Blood offers pass straight through.
+ * <p>
+ * The cache assumes this server is the only writer of its players. If another
+ * process changes a player, call {@link #discard(UUID)} to drop the stale copy.
+ */
+public class CachingDatabaseManager extends ForwardingDatabaseManager {
+
+    private final long flushIntervalMillis;
+    private final int batchSize;
+    private final long expireAfterAccessMillis;
+    private final Logger logger;
+    private final Map<UUID, Entry> entries = new ConcurrentHashMap<>();
+    private CompletableFuture<Void> pendingWrites = CompletableFuture.completedFuture(null);
+    private ScheduledExecutorService flusher;
+
+    /**
+     * Creates a new caching database manager.
+     *
+     * @param delegate The database manager to cache
+     * @param flushIntervalMillis How often dirty players are written
+     * @param batchSize The maximum number of players written in one batch
+     * @param expireAfterAccessMillis How long an unused, clean player stays cached
+     * @param logger The logger to report write failures to
+     */
+    public CachingDatabaseManager(DatabaseManager delegate, long flushIntervalMillis, int batchSize,
+                                  long expireAfterAccessMillis, Logger logger) {
+        super(delegate);
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.batchSize = batchSize;
+        this.expireAfterAccessMillis = expireAfterAccessMillis;
+        this.logger = logger;
+    }
+
+    @Override
+    public CompletableFuture<Void> initialize() {
+        return delegate.initialize().thenRun(() -> {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Vampire-Cache-Flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flushAndExpire, flushIntervalMillis, flushIntervalMillis, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> shutdown() {
+        stopFlusher();
+        return flush().handle((ignored, error) -> {
+            if (error != null) {
+                logger.log(Level.SEVERE, "Failed to write cached players on shutdown", error);
+            }
+            entries.clear();
+            return null;
+        }).thenCompose(ignored -> delegate.shutdown());
+    }
+
+    /**
+     * Writes every dirty player to the wrapped database manager.
+     * Writes are queued behind any flush or delete already in progress.
+     *
+     * @return A CompletableFuture that completes when the dirty players are written
+     */
+    public CompletableFuture<Void> flush() {
+        return enqueue(this::writeDirty);
+    }
+
+    /**
+     * Stops the periodic flush and hands every dirty player to the caller, who becomes
+     * responsible for writing them, for example under a shutdown deadline. The players
+     * are marked clean. Writes already in flight are not waited for; {@link #flush()}
+     * completes once they have landed.
+     *
+     * @return Copies of the dirty players
+     */
+    public List<PlayerRecord> drainForShutdown() {
+        stopFlusher();
+        List<PlayerRecord> dirty = new ArrayList<>();
+        for (Entry entry : entries.values()) {
+            synchronized (entry) {
+                if (entry.dirty) {
+                    dirty.add(entry.record.copy());
+                    entry.dirty = false;
+                }
+            }
+        }
+        return dirty;
+    }
+
+    /**
+     * Drops a player from the cache, writing it first if it is dirty. Only this
+     * player is written, queued behind any flush or delete already in progress.
+     * The next access loads the player from the wrapped database manager again.
+     *
+     * @param uuid The player's UUID
+     * @return A CompletableFuture that completes when the player has been dropped
+     */
+    public CompletableFuture<Void> invalidate(UUID uuid) {
+        return enqueue(() -> {
+            Entry entry = entries.get(uuid);
+            return entry != null ? writeDirty(List.of(entry)) : CompletableFuture.completedFuture(null);
+        }).thenRun(() -> evict(uuid));
+    }
+
+    /**
+     * Drops a player from the cache without writing it, because another server has
+     * changed the player. Local changes that have not been written yet are lost: the
+     * other server's write is newer. The next access loads the player again.
+     * If a write of the player is in flight, the player is dropped once it has landed,
+     * so a load cannot read the row from before that write and keep it cached.
+     *
+     * @param uuid The player's UUID
+     */
+    public void discard(UUID uuid) {
+        Entry entry = entries.get(uuid);
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            if (entry.dirty) {
+                logger.warning("Player " + uuid + " was changed by another server, dropping unwritten local changes");
+            }
+            entry.dirty = false;
+            if (entry.writes > 0) {
+                entry.discarded = true;
+                return;
+            }
+            entry.evicted = true;
+        }
+        entries.remove(uuid, entry);
+    }
+
+    /**
+     * Gets the number of cached players.
+     *
+     * @return The number of cached players
+     */
+    public int getCachedPlayerCount() {
+        return entries.size();
+    }
+
+    @Override
+    public CompletableFuture<VampirePlayer> getPlayer(UUID uuid) {
+        // Copy under the entry lock, convert outside it: VampirePlayer setters fire events
+        return read(uuid, PlayerRecord::copy, null)
+            .thenApply(record -> record != null ? record.toVampirePlayer() : null);
+    }
+
+    @Override
+    public CompletableFuture<Void> savePlayer(VampirePlayer player) {
+        PlayerRecord record = PlayerRecord.from(player);
+        while (true) {
+            Entry entry = entries.computeIfAbsent(record.getUuid(), uuid -> new Entry());
+            synchronized (entry) {
+                if (entry.evicted) {
+                    continue;
+                }
+                entry.resolve(record);
+                entry.dirty = true;
+            }
+            entry.loaded.complete(null);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> savePlayerRecords(Collection<PlayerRecord> records) {
+        List<PlayerRecord> copies = new ArrayList<>(records.size());
+        for (PlayerRecord record : records) {
+            copies.add(record.copy());
+            // Cached copies take the new state at once, replacing unwritten local changes
+            Entry entry = entries.get(record.getUuid());
+            if (entry == null) {
+                continue;
+            }
+            synchronized (entry) {
+                if (entry.evicted) {
+                    continue;
+                }
+                entry.resolve(record.copy());
+                entry.dirty = false;
+            }
+            entry.loaded.complete(null);
+        }
+        // Queued behind in-flight flushes so an older save cannot overwrite these records. The
+        // players are dropped afterwards, so a load that raced the write does not stay cached.
+        return enqueue(() -> delegate.savePlayerRecords(copies)).whenComplete((ignored, error) -> {
+            for (PlayerRecord copy : copies) {
+                evict(copy.getUuid());
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> deletePlayer(UUID uuid) {
+        while (true) {
+            Entry entry = entries.computeIfAbsent(uuid, id -> new Entry());
+            synchronized (entry) {
+                if (entry.evicted) {
+                    continue;
+                }
+                entry.resolve(null);
+                entry.dirty = false;
+            }
+            entry.loaded.complete(null);
+            // Queued behind in-flight flushes so an older save cannot resurrect the player
+            return enqueue(() -> delegate.deletePlayer(uuid));
+        }
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isVampire(UUID uuid) {
+        return read(uuid, PlayerRecord::isVampire, false);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isInfected(UUID uuid) {
+        return read(uuid, record -> record.getInfectionLevel() > 0, false);
+    }
+
+    @Override
+    public CompletableFuture<Double> getBloodLevel(UUID uuid) {
+        return read(uuid, PlayerRecord::getBloodLevel, 0.0);
+    }
+
+    @Override
+    public CompletableFuture<Void> setBloodLevel(UUID uuid, double blood) {
+        return set(uuid, record -> record.setBloodLevel(blood));
+    }
+
+    @Override
+    public CompletableFuture<Double> getInfectionLevel(UUID uuid) {
+        return read(uuid, PlayerRecord::getInfectionLevel, 0.0);
+    }
+
+    @Override
+    public CompletableFuture<Void> setInfectionLevel(UUID uuid, double infection) {
+        return set(uuid, record -> record.setInfectionLevel(infection));
+    }
+
+    @Override
+    public CompletableFuture<String> getInfectionReason(UUID uuid) {
+        return read(uuid, PlayerRecord::getInfectionReason, null);
+    }
+
+    @Override
+    public CompletableFuture<Void> setInfectionReason(UUID uuid, String reason) {
+        return set(uuid, record -> record.setInfectionReason(reason));
+    }
+
+    @Override
+    public CompletableFuture<Long> getInfectionTime(UUID uuid) {
+        return read(uuid, PlayerRecord::getInfectionTime, 0L);
+    }
+
+    @Override
+    public CompletableFuture<Void> setInfectionTime(UUID uuid, long time) {
+        return set(uuid, record -> record.setInfectionTime(time));
+    }
+
+    @Override
+    public CompletableFuture<Long> getLastShriekTime(UUID uuid) {
+        return read(uuid, PlayerRecord::getLastShriekTime, 0L);
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastShriekTime(UUID uuid, long time) {
+        return set(uuid, record -> record.setLastShriekTime(time));
+    }
+
+    @Override
+    public CompletableFuture<Long> getLastBloodTradeTime(UUID uuid) {
+        return read(uuid, PlayerRecord::getLastBloodTradeTime, 0L);
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradeTime(UUID uuid, long time) {
+        return set(uuid, record -> record.setLastBloodTradeTime(time));
+    }
+
+    @Override
+    public CompletableFuture<UUID> getLastBloodTradePartner(UUID uuid) {
+        return read(uuid, PlayerRecord::getLastBloodTradePartner, null);
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradePartner(UUID uuid, UUID partner) {
+        return set(uuid, record -> record.setLastBloodTradePartner(partner));
+    }
+
+    @Override
+    public CompletableFuture<Double> getLastBloodTradeAmount(UUID uuid) {
+        return read(uuid, PlayerRecord::getLastBloodTradeAmount, 0.0);
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradeAmount(UUID uuid, double amount) {
+        return set(uuid, record -> record.setLastBloodTradeAmount(amount));
+    }
+
+    @Override
+    public CompletableFuture<String> getLastBloodTradeType(UUID uuid) {
+        return read(uuid, PlayerRecord::getLastBloodTradeType, null);
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradeType(UUID uuid, String type) {
+        return set(uuid, record -> record.setLastBloodTradeType(type));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> addInfection(UUID uuid, double amount, String reason) {
+        long now = System.currentTimeMillis();
+        return modify(uuid, record -> {
+            record.setInfectionLevel(record.getInfectionLevel() + amount);
+            record.setInfectionReason(reason);
+            record.setInfectionTime(now);
+            return true;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> setVampire(UUID uuid, boolean isVampire) {
+        long now = System.currentTimeMillis();
+        return modify(uuid, record -> {
+            record.setVampire(isVampire);
+            if (isVampire) {
+                record.setInfectionTime(now);
+            }
+            return true;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> useBlood(UUID uuid, double amount) {
+        return modify(uuid, record -> {
+            if (record.getBloodLevel() < amount) {
+                return false;
+            }
+            record.setBloodLevel(record.getBloodLevel() - amount);
+            return true;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<VampirePlayer>> getAllVampires() {
+        // Scans run against the database, so write pending changes first
+        return flush().handle((ignored, error) -> null).thenCompose(ignored -> delegate.getAllVampires());
+    }
+
+    @Override
+    public CompletableFuture<List<VampirePlayer>> getVampirePage(UUID after, int limit) {
+        return flush().handle((ignored, error) -> null).thenCompose(ignored -> delegate.getVampirePage(after, limit));
+    }
+
+    @Override
+    public CompletableFuture<List<PlayerRecord>> getPlayerRecordPage(UUID after, int limit) {
+        return flush().handle((ignored, error) -> null).thenCompose(ignored -> delegate.getPlayerRecordPage(after, limit));
+    }
+
+    /**
+     * Gets the cache entry for a player, starting a load if the player is not cached.
+     *
+     * @param uuid The player's UUID
+     * @return A CompletableFuture that completes with the loaded entry
+     */
+    private CompletableFuture<Entry> load(UUID uuid) {
+        boolean[] created = {false};
+        Entry entry = entries.computeIfAbsent(uuid, id -> {
+            created[0] = true;
+            return new Entry();
+        });
+        if (created[0]) {
+            delegate.getPlayer(uuid).whenComplete((player, error) -> {
+                if (error != null) {
+                    boolean drop;
+                    synchronized (entry) {
+                        drop = !entry.resolved;
+                        if (drop) {
+                            entry.evicted = true;
+                        }
+                    }
+                    if (drop) {
+                        entries.remove(uuid, entry);
+                        entry.loaded.completeExceptionally(error);
+                    }
+                    return;
+                }
+                synchronized (entry) {
+                    // A save or delete that raced the load is newer than what was read
+                    if (!entry.resolved) {
+                        entry.resolve(player != null ? PlayerRecord.from(player) : null);
+                    }
+                }
+                entry.loaded.complete(null);
+            });
+        }
+        return entry.loaded.thenApply(ignored -> entry);
+    }
+
+    private <T> CompletableFuture<T> read(UUID uuid, Function<PlayerRecord, T> getter, T defaultValue) {
+        return load(uuid).thenApply(entry -> {
+            synchronized (entry) {
+                entry.lastAccess = System.currentTimeMillis();
+                return entry.record != null ? getter.apply(entry.record) : defaultValue;
+            }
+        });
+    }
+
+    /**
+     * Changes a cached player and marks it dirty if the change applied.
+     *
+     * @param uuid The player's UUID
+     * @param change Changes the record and returns whether it did
+     * @return A CompletableFuture that completes with false if the player is not stored or the change did not apply
+     */
+    private CompletableFuture<Boolean> modify(UUID uuid, Predicate<PlayerRecord> change) {
+        return load(uuid).thenCompose(entry -> {
+            synchronized (entry) {
+                if (!entry.evicted) {
+                    entry.lastAccess = System.currentTimeMillis();
+                    boolean changed = entry.record != null && change.test(entry.record);
+                    if (changed) {
+                        entry.dirty = true;
+                    }
+                    return CompletableFuture.completedFuture(changed);
+                }
+            }
+            // Evicted while we waited for the load; retry against a fresh entry
+            return modify(uuid, change);
+        });
+    }
+
+    private CompletableFuture<Void> set(UUID uuid, Consumer<PlayerRecord> setter) {
+        return modify(uuid, record -> {
+            setter.accept(record);
+            return true;
+        }).thenApply(ignored -> null);
+    }
+
+    private synchronized void stopFlusher() {
+        if (flusher != null) {
+            flusher.shutdown();
+            flusher = null;
+        }
+    }
+
+    private synchronized CompletableFuture<Void> enqueue(Supplier<CompletableFuture<Void>> write) {
+        CompletableFuture<Void> next = pendingWrites.handle((ignored, error) -> null).thenCompose(ignored -> write.get());
+        pendingWrites = next;
+        return next;
+    }
+
+    private CompletableFuture<Void> writeDirty() {
+        return writeDirty(entries.values());
+    }
+
+    private CompletableFuture<Void> writeDirty(Collection<Entry> candidates) {
+        List<PlayerRecord> dirty = new ArrayList<>();
+        List<Entry> writing = new ArrayList<>();
+        for (Entry entry : candidates) {
+            synchronized (entry) {
+                if (entry.dirty) {
+                    dirty.add(entry.record.copy());
+                    entry.dirty = false;
+                    entry.writes++;
+                    writing.add(entry);
+                }
+            }
+        }
+        if (dirty.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        for (int i = 0; i < dirty.size(); i += batchSize) {
+            batches.add(delegate.savePlayerRecords(new ArrayList<>(dirty.subList(i, Math.min(i + batchSize, dirty.size())))));
+        }
+        return CompletableFuture.allOf(batches.toArray(new CompletableFuture[0])).whenComplete((ignored, error) -> {
+            if (error != null) {
+                logger.log(Level.WARNING, "Failed to write " + dirty.size() + " cached players, retrying on next flush", error);
+            }
+            for (int i = 0; i < writing.size(); i++) {
+                Entry entry = writing.get(i);
+                boolean drop;
+                synchronized (entry) {
+                    entry.writes--;
+                    // A discarded player's failed write is not retried: another server's is newer
+                    if (error != null && entry.record != null && !entry.discarded) {
+                        entry.dirty = true;
+                    }
+                    drop = entry.discarded && entry.writes == 0;
+                    if (drop) {
+                        entry.discarded = false;
+                    }
+                }
+                if (drop) {
+                    evict(dirty.get(i).getUuid());
+                }
+            }
+        });
+    }
+
+    private void flushAndExpire() {
+        try {
+            flush().join();
+        } catch (CompletionException e) {
+            // Already logged; the players stay dirty
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - expireAfterAccessMillis;
+        entries.forEach((uuid, entry) -> {
+            synchronized (entry) {
+                if (entry.lastAccess >= cutoff) {
+                    return;
+                }
+            }
+            evict(uuid);
+        });
+    }
+
+    private void evict(UUID uuid) {
+        Entry entry = entries.get(uuid);
+        if (entry == null) {
+            return;
+        }
+        synchronized (entry) {
+            // Dirty or in-flight players must stay until they are written
+            if (!entry.loaded.isDone() || entry.dirty || entry.writes > 0) {
+                return;
+            }
+            entry.evicted = true;
+        }
+        entries.remove(uuid, entry);
+    }
+
+    /**
+     * A cached player. All fields are guarded by the entry's monitor.
+     */
+    private static final class Entry {
+
+        private final CompletableFuture<Void> loaded = new CompletableFuture<>();
+        private PlayerRecord record;
+        private boolean resolved;
+        private boolean dirty;
+        private boolean evicted;
+        // Discarded while a write was in flight; dropped once the writes have landed
+        private boolean discarded;
+        private int writes;
+        private long lastAccess = System.currentTimeMillis();
+
+        private void resolve(PlayerRecord record) {
+            this.record = record;
+            this.resolved = true;
+            this.lastAccess = System.currentTimeMillis();
+        }
+    }
+}
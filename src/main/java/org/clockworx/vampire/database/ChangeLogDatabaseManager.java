@@ -0,0 +1,227 @@
+package org.clockworx.vampire.database;
+
+import org.clockworx.vampire.config.VampireConfig;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the caches of several servers sharing one database coherent.
+ * Every player write made by the backend appends a row to the vampire_player_changes
+ * table in the write's own transaction, so a change is logged exactly when it commits.
+ * A background poller reads the rows other servers appended and passes each changed
+ * player's UUID to the registered listeners, which drop their copy.
+ * <p>
+ * Versions are auto-increment values handed out when a row is inserted, so on MySQL a
+ * transaction can commit a lower version after a higher one has already been read.
+ * The poller therefore re-reads the versions of the last 30 seconds and skips the ones
+ * it has already passed on. A version is identified by its number, so a change is passed
+ * on once however often it is read. Versions older than the window are settled.
+ * <p>
+ * The change log runs on the backend's own connection source, so SQLite keeps a single writer.
+ */
+public class ChangeLogDatabaseManager extends ForwardingDatabaseManager {
+
+    private static final String INSERT_CHANGE = "INSERT INTO vampire_player_changes (uuid, server_id, changed_at) VALUES (?, ?, ?)";
+    private static final String SELECT_LATEST_VERSION = "SELECT MAX(version) FROM vampire_player_changes";
+    private static final String SELECT_CHANGES = "SELECT version, uuid FROM vampire_player_changes "
+        + "WHERE version > ? AND server_id <> ? ORDER BY version LIMIT ?";
+    private static final String DELETE_OLD_CHANGES = "DELETE FROM vampire_player_changes WHERE changed_at < ?";
+    private static final int POLL_LIMIT = 1000;
+    private static final long LOOKBACK_MILLIS = 30000;
+    private static final long PRUNE_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final VampireConfig config;
+    private final Logger logger;
+    private final String serverId = UUID.randomUUID().toString();
+    private final StatementCache statements = new StatementCache();
+    private final List<Consumer<UUID>> listeners = new CopyOnWriteArrayList<>();
+    // Versions above the settled one that were already passed on, with when they were first read
+    private final NavigableMap<Long, Long> seen = new TreeMap<>();
+    private ConnectionSource connectionSource;
+    private ScheduledExecutorService poller;
+    private long settled;
+    private long lastPrune;
+
+    /**
+     * Creates a new change log database manager and has the backend record its
+     * player writes into the change log.
+     *
+     * @param delegate The database manager to record writes of
+     * @param config The plugin configuration
+     * @param logger The logger to report failures to
+     */
+    public ChangeLogDatabaseManager(DatabaseManager delegate, VampireConfig config, Logger logger) {
+        super(delegate);
+        this.config = config;
+        this.logger = logger;
+        delegate.setChangeRecorder(this::append);
+    }
+
+    /**
+     * Registers a listener for players changed by other servers.
+     * Listeners run on the poller thread.
+     *
+     * @param listener Receives the UUID of each changed player
+     */
+    public void addListener(Consumer<UUID> listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Gets the id this server writes into the change log.
+     *
+     * @return The server id
+     */
+    public String getServerId() {
+        return serverId;
+    }
+
+    @Override
+    public CompletableFuture<Void> initialize() {
+        return delegate.initialize().thenRunAsync(() -> {
+            connectionSource = delegate.getConnectionSource();
+            if (connectionSource == null) {
+                throw new IllegalStateException("The player change log needs an SQL database");
+            }
+            try {
+                // Changes made before this server started are already in the database
+                settled = connectionSource.read(connection -> {
+                    PreparedStatement statement = statements.prepare(connection, SELECT_LATEST_VERSION);
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        return resultSet.next() ? resultSet.getLong(1) : 0L;
+                    }
+                }).join();
+            } catch (CompletionException e) {
+                throw new RuntimeException("Failed to open the player change log", e);
+            }
+
+            long interval = TimeUnit.SECONDS.toMillis(config.getChangeLogPollInterval());
+            poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Vampire-ChangeLog-Poller");
+                thread.setDaemon(true);
+                return thread;
+            });
+            poller.scheduleWithFixedDelay(this::poll, interval, interval, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> shutdown() {
+        if (poller != null) {
+            poller.shutdown();
+            poller = null;
+        }
+        // The connection source belongs to the backend, which closes it
+        return delegate.shutdown().whenComplete((ignored, error) -> {
+            connectionSource = null;
+            statements.clear();
+        });
+    }
+
+    /**
+     * Appends change rows on the connection of the write that made the changes.
+     *
+     * @param connection The connection of the write's transaction
+     * @param uuids The players the write changed
+     * @throws SQLException If the rows cannot be inserted, which rolls back the write
+     */
+    private void append(Connection connection, Collection<UUID> uuids) throws SQLException {
+        long now = System.currentTimeMillis();
+        PreparedStatement statement = statements.prepare(connection, INSERT_CHANGE);
+        for (UUID uuid : uuids) {
+            statement.setString(1, uuid.toString());
+            statement.setString(2, serverId);
+            statement.setLong(3, now);
+            statement.addBatch();
+        }
+        statement.executeBatch();
+    }
+
+    /**
+     * Reads the changes other servers made above the settled version and notifies the
+     * listeners of the ones not passed on yet. Reads one bounded page at a time until
+     * the change log is drained, then settles the versions that left the lookback window.
+     */
+    private void poll() {
+        try {
+            long now = System.currentTimeMillis();
+            int read;
+            long after = settled;
+            do {
+                long from = after;
+                Map<Long, UUID> changes = new LinkedHashMap<>();
+                read = connectionSource.read(connection -> {
+                    PreparedStatement statement = statements.prepare(connection, SELECT_CHANGES);
+                    statement.setLong(1, from);
+                    statement.setString(2, serverId);
+                    statement.setInt(3, POLL_LIMIT);
+                    int rows = 0;
+                    try (ResultSet resultSet = statement.executeQuery()) {
+                        while (resultSet.next()) {
+                            changes.put(resultSet.getLong("version"), UUID.fromString(resultSet.getString("uuid")));
+                            rows++;
+                        }
+                    }
+                    return rows;
+                }).join();
+
+                for (Map.Entry<Long, UUID> change : changes.entrySet()) {
+                    after = change.getKey();
+                    if (seen.containsKey(change.getKey())) {
+                        continue;
+                    }
+                    for (Consumer<UUID> listener : listeners) {
+                        listener.accept(change.getValue());
+                    }
+                    seen.put(change.getKey(), now);
+                }
+            } while (read == POLL_LIMIT);
+
+            // A version still missing this long after a higher one was read has been rolled back
+            while (!seen.isEmpty() && seen.firstEntry().getValue() < now - LOOKBACK_MILLIS) {
+                settled = seen.pollFirstEntry().getKey();
+            }
+
+            prune();
+        } catch (RuntimeException e) {
+            // Keep the poller alive; changes not passed on yet are read again next time
+            logger.log(Level.WARNING, "Failed to poll the player change log", e);
+        }
+    }
+
+    private void prune() {
+        long now = System.currentTimeMillis();
+        if (now - lastPrune < PRUNE_INTERVAL_MILLIS) {
+            return;
+        }
+        lastPrune = now;
+        long cutoff = now - TimeUnit.SECONDS.toMillis(config.getChangeLogRetention());
+        connectionSource.write(connection -> {
+            PreparedStatement statement = statements.prepare(connection, DELETE_OLD_CHANGES);
+            statement.setLong(1, cutoff);
+            return statement.executeUpdate();
+        }).exceptionally(error -> {
+            logger.log(Level.WARNING, "Failed to prune the player change log", error);
+            return 0;
+        });
+    }
+}
@@ -0,0 +1,24 @@
+package org.clockworx.vampire.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Records which players a write changed, inside the write's own transaction.
+ * SQL backends call it on the connection of every player write, so the record
+ * commits or rolls back together with the change it describes.
+ */
+@FunctionalInterface
+public interface ChangeRecorder {
+
+    /**
+     * Records changed players.
+     *
+     * @param connection The connection of the write's transaction; it must not be committed or closed
+     * @param uuids The players the write changed
+     * @throws SQLException If the record cannot be written, which rolls back the write
+     */
+    void record(Connection connection, Collection<UUID> uuids) throws SQLException;
+}
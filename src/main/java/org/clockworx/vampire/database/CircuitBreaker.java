@@ -0,0 +1,105 @@
+package org.clockworx.vampire.database;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops calls to a database that keeps failing.
+ * The breaker opens after a number of consecutive failures and rejects calls until
+ * the open duration has passed. It then lets a single trial call through: success
+ * closes it again, failure opens it for another full duration.
+ */
+public class CircuitBreaker {
+
+    /**
+     * The states of a circuit breaker.
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+    private long openCount;
+
+    /**
+     * Creates a new circuit breaker.
+     *
+     * @param failureThreshold The number of consecutive failures that opens the breaker
+     * @param openMillis How long the breaker rejects calls once open
+     */
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+    }
+
+    /**
+     * Checks whether a call may be made. Once the open duration has passed this
+     * admits one trial call and rejects the others until it completes.
+     *
+     * @return true if the call may be made
+     */
+    public synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAt < openNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Records a call that reached the database.
+     *
+     * @return true if this closed an open or half-open breaker
+     */
+    public synchronized boolean recordSuccess() {
+        failures = 0;
+        if (state == State.CLOSED) {
+            return false;
+        }
+        state = State.CLOSED;
+        return true;
+    }
+
+    /**
+     * Records a call that failed because the database could not be reached.
+     *
+     * @return true if this opened the breaker
+     */
+    public synchronized boolean recordFailure() {
+        failures++;
+        if (state == State.OPEN || (state == State.CLOSED && failures < failureThreshold)) {
+            return false;
+        }
+        state = State.OPEN;
+        openedAt = System.nanoTime();
+        openCount++;
+        return true;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public synchronized int getFailures() {
+        return failures;
+    }
+
+    /**
+     * Gets how often the breaker has opened.
+     *
+     * @return The number of times the breaker opened
+     */
+    public synchronized long getOpenCount() {
+        return openCount;
+    }
+}
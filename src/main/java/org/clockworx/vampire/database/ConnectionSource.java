@@ -0,0 +1,51 @@
+package org.clockworx.vampire.database;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Provides asynchronous JDBC access for backends that do not use Hibernate.
+ * Implementations decide how reads and writes map onto connections, for example
+ * a single queued writer for SQLite or a shared pool for MySQL.
+ */
+public interface ConnectionSource {
+
+    /**
+     * Gets the SQL dialect of the underlying database.
+     *
+     * @return The SQL dialect
+     */
+    SqlDialect getDialect();
+
+    /**
+     * Executes read-only work.
+     *
+     * @param work The work to execute
+     * @param <T> The type of the result
+     * @return A CompletableFuture that completes with the result of the work
+     */
+    <T> CompletableFuture<T> read(SqlFunction<T> work);
+
+    /**
+     * Executes work that modifies the database inside a transaction.
+     * The work must not commit, roll back or close the connection.
+     *
+     * @param work The work to execute
+     * @param <T> The type of the result
+     * @return A CompletableFuture that completes once the work has been committed
+     */
+    <T> CompletableFuture<T> write(SqlFunction<T> work);
+
+    /**
+     * Gets the number of writes that can run at the same time.
+     *
+     * @return The number of concurrent writes
+     */
+    default int getWriteConcurrency() {
+        return 1;
+    }
+
+    /**
+     * Completes outstanding writes and closes all connections.
+     */
+    void shutdown();
+}
@@ -0,0 +1,307 @@
+package org.clockworx.vampire.database;
+
+import org.clockworx.vampire.entity.BloodOffer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Copies every player and blood offer from a {@link TransferSource} to a {@link TransferSink}.
+ * Players are copied in keyset pages, and the next page is read while the current one
+ * is written, so at most two pages are held in memory however many players there are.
+ * Pending offers follow in keyset pages of their own. After each written page the last
+ * player or offer is saved to an optional checkpoint file; a transfer started with the
+ * same checkpoint and description resumes from there.
+ */
+public class DataTransfer implements Runnable {
+
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    /**
+     * The lifecycle of a transfer.
+     */
+    public enum State {
+        PENDING, RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+
+    private final String description;
+    private final TransferSource source;
+    private final TransferSink sink;
+    private final int batchSize;
+    private final Path checkpoint;
+    private final Logger logger;
+    private final Consumer<String> progress;
+    private volatile State state = State.PENDING;
+    private volatile boolean cancelled;
+    private volatile long players;
+    private volatile long resumedPlayers;
+    private volatile long offers;
+    private volatile long startNanos;
+    private volatile long endNanos;
+    private volatile Throwable failure;
+
+    /**
+     * Creates a new data transfer.
+     *
+     * @param description Describes the source and sink; a checkpoint is only resumed for the same description
+     * @param source Where to read from
+     * @param sink Where to write to
+     * @param batchSize The number of players per page and offers per batch
+     * @param checkpoint The checkpoint file, or null if the transfer cannot be resumed
+     * @param logger The logger to report to
+     * @param progress Receives progress messages, on the transfer thread
+     */
+    public DataTransfer(String description, TransferSource source, TransferSink sink, int batchSize, Path checkpoint,
+                        Logger logger, Consumer<String> progress) {
+        this.description = description;
+        this.source = source;
+        this.sink = sink;
+        this.batchSize = batchSize;
+        this.checkpoint = checkpoint;
+        this.logger = logger;
+        this.progress = progress;
+    }
+
+    @Override
+    public void run() {
+        state = State.RUNNING;
+        startNanos = System.nanoTime();
+        try {
+            source.open().join();
+            sink.open().join();
+            Properties saved = loadCheckpoint();
+            UUID after = saved.containsKey("after") ? UUID.fromString(saved.getProperty("after")) : null;
+            players = Long.parseLong(saved.getProperty("players", "0"));
+            resumedPlayers = players;
+            if (after != null) {
+                report("Resuming " + description + " after " + players + " players");
+            }
+
+            if (!Boolean.parseBoolean(saved.getProperty("players-done")) && !copyPlayers(after)) {
+                state = State.CANCELLED;
+                report("Cancelled " + description + " after " + players + " players; start it again to resume");
+                return;
+            }
+            offers = Long.parseLong(saved.getProperty("offers", "0"));
+            if (!copyOffers(loadOfferCheckpoint(saved))) {
+                state = State.CANCELLED;
+                report("Cancelled " + description + " after " + offers + " offers; start it again to resume");
+                return;
+            }
+
+            deleteCheckpoint();
+            state = State.COMPLETED;
+            report(String.format("Finished %s: %d players and %d offers in %.1f s (%.0f players/s)",
+                description, players, offers, getElapsedMillis() / 1000.0, getPlayersPerSecond()));
+        } catch (RuntimeException | IOException e) {
+            failure = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            state = State.FAILED;
+            logger.log(Level.SEVERE, "Failed " + description + " after " + players + " players", failure);
+            progress.accept("Failed " + description + " after " + players + " players: " + failure.getMessage());
+        } finally {
+            endNanos = System.nanoTime();
+            close();
+        }
+    }
+
+    /**
+     * Asks the transfer to stop after the batch it is writing.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Copies the players, reading the next page while the current one is written.
+     *
+     * @param after The UUID of the last player already copied, or null to start from the beginning
+     * @return false if the transfer was cancelled
+     * @throws IOException If the checkpoint cannot be saved
+     */
+    private boolean copyPlayers(UUID after) throws IOException {
+        long lastReport = System.nanoTime();
+        List<PlayerRecord> page = source.readPlayers(after, batchSize).join();
+        while (!page.isEmpty()) {
+            UUID last = page.get(page.size() - 1).getUuid();
+            CompletableFuture<Void> write = sink.writePlayers(page);
+            CompletableFuture<List<PlayerRecord>> next = page.size() < batchSize
+                ? CompletableFuture.completedFuture(List.of())
+                : source.readPlayers(last, batchSize);
+            write.join();
+            players += page.size();
+            saveCheckpoint(last, false, null);
+
+            if (cancelled) {
+                return false;
+            }
+            if (System.nanoTime() - lastReport >= PROGRESS_INTERVAL_NANOS) {
+                lastReport = System.nanoTime();
+                report(String.format("%s: %d players (%.0f players/s)", description, players, getPlayersPerSecond()));
+            }
+            page = next.join();
+        }
+        saveCheckpoint(null, true, null);
+        return true;
+    }
+
+    /**
+     * Copies the pending blood offers in keyset pages, like the players.
+     *
+     * @param after The last offer already copied, or null to start from the beginning
+     * @return false if the transfer was cancelled
+     * @throws IOException If the checkpoint cannot be saved
+     */
+    private boolean copyOffers(BloodOffer after) throws IOException {
+        List<BloodOffer> page = source.readOffers(after, batchSize).join();
+        while (!page.isEmpty()) {
+            BloodOffer last = page.get(page.size() - 1);
+            sink.writeOffers(page).join();
+            offers += page.size();
+            saveCheckpoint(null, true, last);
+            if (page.size() < batchSize) {
+                break;
+            }
+            if (cancelled) {
+                return false;
+            }
+            page = source.readOffers(last, batchSize).join();
+        }
+        return true;
+    }
+
+    private Properties loadCheckpoint() throws IOException {
+        Properties properties = new Properties();
+        if (checkpoint == null || !Files.exists(checkpoint)) {
+            return properties;
+        }
+        try (InputStream in = Files.newInputStream(checkpoint)) {
+            properties.load(in);
+        }
+        if (!description.equals(properties.getProperty("description"))) {
+            report("Ignoring the checkpoint of a different transfer: " + properties.getProperty("description"));
+            return new Properties();
+        }
+        return properties;
+    }
+
+    private BloodOffer loadOfferCheckpoint(Properties saved) {
+        if (!saved.containsKey("offer-after-time")) {
+            return null;
+        }
+        return new BloodOffer(UUID.fromString(saved.getProperty("offer-after-sender")),
+            UUID.fromString(saved.getProperty("offer-after-target")), 0.0,
+            Long.parseLong(saved.getProperty("offer-after-time")));
+    }
+
+    private void saveCheckpoint(UUID after, boolean playersDone, BloodOffer offerAfter) throws IOException {
+        if (checkpoint == null) {
+            return;
+        }
+        Properties properties = new Properties();
+        properties.setProperty("description", description);
+        properties.setProperty("players", Long.toString(players));
+        properties.setProperty("players-done", Boolean.toString(playersDone));
+        properties.setProperty("offers", Long.toString(offers));
+        if (after != null) {
+            properties.setProperty("after", after.toString());
+        }
+        if (offerAfter != null) {
+            properties.setProperty("offer-after-time", Long.toString(offerAfter.getTimestamp()));
+            properties.setProperty("offer-after-sender", offerAfter.getSenderUuid().toString());
+            properties.setProperty("offer-after-target", offerAfter.getTargetUuid().toString());
+        }
+
+        // Write aside and move, so a crash never leaves a torn checkpoint
+        Path parent = checkpoint.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = parent.resolve(checkpoint.getFileName() + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp)) {
+            properties.store(out, null);
+        }
+        Files.move(temp, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void deleteCheckpoint() throws IOException {
+        if (checkpoint != null) {
+            Files.deleteIfExists(checkpoint);
+        }
+    }
+
+    private void close() {
+        try {
+            source.close();
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Failed to close the source of " + description, e);
+        }
+        try {
+            sink.close();
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Failed to close the destination of " + description, e);
+        }
+    }
+
+    private void report(String message) {
+        logger.info(message);
+        progress.accept(message);
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public boolean isRunning() {
+        return state == State.PENDING || state == State.RUNNING;
+    }
+
+    public long getPlayers() {
+        return players;
+    }
+
+    public long getOffers() {
+        return offers;
+    }
+
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    /**
+     * Gets the time the transfer has been running, or ran for.
+     *
+     * @return The elapsed time in milliseconds
+     */
+    public long getElapsedMillis() {
+        if (startNanos == 0) {
+            return 0;
+        }
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        return TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+    }
+
+    /**
+     * Gets the average throughput of this run, not counting players copied before a resume.
+     *
+     * @return The number of players copied per second
+     */
+    public double getPlayersPerSecond() {
+        long millis = getElapsedMillis();
+        return millis == 0 ? 0.0 : (players - resumedPlayers) * 1000.0 / millis;
+    }
+}
@@ -14,9 +14,14 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.logging.Level;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.function.Consumer;
 import java.util.List;
 
 /**
@@ -25,6 +30,13 @@ import java.util.List;
  * to the appropriate backend implementation (MySQL, SQLite).
  */
 public interface DatabaseManager {
+
+    /**
+     * The order of {@link #getBloodOfferPage(BloodOffer, int)}: by time, then sender and target UUID.
+     */
+    Comparator<BloodOffer> OFFER_PAGE_ORDER = Comparator.comparingLong(BloodOffer::getTimestamp)
+        .thenComparing(offer -> offer.getSenderUuid().toString())
+        .thenComparing(offer -> offer.getTargetUuid().toString());
     
     /**
      * Initializes the database connection and creates necessary tables.
@@ -40,6 +52,47 @@ public interface DatabaseManager {
      */
     CompletableFuture<Void> shutdown();
     
+    /**
+     * Finds a database manager of the given type in this manager's decorator chain.
+     * 
+     * @param type The type to look for
+     * @param <T> The type to look for
+     * @return This manager or a manager it wraps, if one has the given type
+     */
+    default <T> Optional<T> unwrap(Class<T> type) {
+        return type.isInstance(this) ? Optional.of(type.cast(this)) : Optional.empty();
+    }
+    
+    /**
+     * Gets the number of write transactions the database can run at the same time.
+     * Bulk writers split their work into this many parallel batches.
+     * 
+     * @return The number of concurrent writes, at least 1
+     */
+    default int getWriteConcurrency() {
+        return 1;
+    }
+    
+    /**
+     * Gets the connection source the backend runs its SQL on, so decorators that keep
+     * their own tables in the same database share its connections and writer.
+     * Only available once the manager is initialized.
+     * 
+     * @return The connection source, or null if the backend does not use SQL
+     */
+    default ConnectionSource getConnectionSource() {
+        return null;
+    }
+    
+    /**
+     * Sets the recorder that SQL backends call inside every player write's transaction.
+     * Backends that do not use SQL ignore it.
+     * 
+     * @param recorder The recorder, or null for none
+     */
+    default void setChangeRecorder(ChangeRecorder recorder) {
+    }
+    
     /**
      * Gets a player's vampire data from the database.
      * 
@@ -56,6 +109,20 @@ public interface DatabaseManager {
      */
     CompletableFuture<Void> savePlayer(VampirePlayer player);
     
+    /**
+     * Saves several players' persisted fields in one batch.
+     * Backends that can write a batch in a single transaction should override this;
+     * the default saves each record on its own.
+     * 
+     * @param records The records to save
+     * @return A CompletableFuture that completes when every record is saved
+     */
+    default CompletableFuture<Void> savePlayerRecords(Collection<PlayerRecord> records) {
+        return CompletableFuture.allOf(records.stream()
+            .map(record -> savePlayer(record.toVampirePlayer()))
+            .toArray(CompletableFuture[]::new));
+    }
+    
     /**
      * Deletes a player's vampire data from the database.
      * 
@@ -244,7 +311,7 @@ public interface DatabaseManager {
     CompletableFuture<BloodOffer> createBloodOffer(UUID senderUuid, UUID targetUuid, double amount);
     
     /**
-     * Gets a pending blood offer for a player.
+     * Gets a player's most recent pending blood offer.
      * 
      * @param playerUuid The player's UUID
      * @return A CompletableFuture that completes with the blood offer, or null if none exists
@@ -252,7 +319,8 @@ public interface DatabaseManager {
     CompletableFuture<BloodOffer> getBloodOffer(UUID playerUuid);
     
     /**
-     * Accepts a blood offer.
+     * Accepts a player's most recent pending blood offer, the one {@link #getBloodOffer} returns.
+     * Older pending offers are left pending.
      * 
      * @param playerUuid The UUID of the player accepting the offer
      * @return A CompletableFuture that completes with true if the offer was accepted successfully, false otherwise
@@ -260,7 +328,8 @@ public interface DatabaseManager {
     CompletableFuture<Boolean> acceptBloodOffer(UUID playerUuid);
     
     /**
-     * Rejects a blood offer.
+     * Rejects a player's most recent pending blood offer, the one {@link #getBloodOffer} returns.
+     * Older pending offers are left pending.
      * 
      * @param playerUuid The UUID of the player rejecting the offer
      * @return A CompletableFuture that completes when the offer is rejected
@@ -274,6 +343,25 @@ public interface DatabaseManager {
      */
     CompletableFuture<List<BloodOffer>> getAllBloodOffers();
     
+    /**
+     * Gets a page of pending blood offers in {@link #OFFER_PAGE_ORDER}, starting after
+     * the last offer of the previous page, so offers can be walked without loading them all.
+     * 
+     * @param after The last offer of the previous page, or null for the first page
+     * @param limit The maximum number of offers to return
+     * @return A CompletableFuture that completes with the page, shorter than limit on the last page
+     */
+    CompletableFuture<List<BloodOffer>> getBloodOfferPage(BloodOffer after, int limit);
+    
+    /**
+     * Stores blood offers exactly as given, keeping their timestamps and status.
+     * This is meant for copying offers between databases, not for making new offers.
+     * 
+     * @param offers The offers to store
+     * @return A CompletableFuture that completes when every offer is stored
+     */
+    CompletableFuture<Void> saveBloodOffers(Collection<BloodOffer> offers);
+    
     /**
      * Cleans up expired blood offers.
      * 
@@ -282,6 +370,16 @@ public interface DatabaseManager {
      */
     CompletableFuture<Boolean> cleanupExpiredOffers(long timeoutMillis);
     
+    /**
+     * Deletes pending offers older than the offer timeout and accepted or rejected
+     * offers older than the retention window, in a single set-based delete.
+     * 
+     * @param pendingTimeoutMillis How long a pending offer stays valid
+     * @param resolvedRetentionMillis How long accepted and rejected offers are kept
+     * @return A CompletableFuture that completes with the number of deleted offers
+     */
+    CompletableFuture<Integer> purgeOffers(long pendingTimeoutMillis, long resolvedRetentionMillis);
+    
     /**
      * Adds an infection to a player.
      * 
@@ -308,6 +406,61 @@ public interface DatabaseManager {
      */
     CompletableFuture<List<VampirePlayer>> getAllVampires();
     
+    /**
+     * Gets one page of vampires, ordered by UUID as the database compares them.
+     * Pass the UUID of the last vampire of the previous page to get the next page,
+     * so each page is an index range scan instead of an ever larger offset.
+     * 
+     * @param after The UUID of the last vampire already seen, or null for the first page
+     * @param limit The maximum number of vampires to return
+     * @return A CompletableFuture that completes with the page, shorter than limit on the last page
+     */
+    CompletableFuture<List<VampirePlayer>> getVampirePage(UUID after, int limit);
+    
+    /**
+     * Gets one page of all players, vampire or not, ordered by UUID as the database compares them.
+     * Like {@link #getVampirePage(UUID, int)} this is a keyset scan, for bulk copies and exports.
+     * 
+     * @param after The UUID of the last player already seen, or null for the first page
+     * @param limit The maximum number of players to return
+     * @return A CompletableFuture that completes with the page, shorter than limit on the last page
+     */
+    CompletableFuture<List<PlayerRecord>> getPlayerRecordPage(UUID after, int limit);
+    
+    /**
+     * Passes every vampire to an action, one page at a time.
+     * Only one page is held in memory, so this is the way to visit all vampires
+     * for listings, exports and recalculations. The action runs on the thread
+     * that completed the page, which is usually not the main thread.
+     * 
+     * @param pageSize The number of vampires loaded per page
+     * @param action The action to run for each vampire
+     * @return A CompletableFuture that completes after the last vampire has been visited
+     */
+    default CompletableFuture<Void> forEachVampire(int pageSize, Consumer<VampirePlayer> action) {
+        return forEachVampireAfter(null, pageSize, action);
+    }
+    
+    /**
+     * Publishes every vampire, loading a page only when the subscriber requests more.
+     * 
+     * @param pageSize The number of vampires loaded per page
+     * @return A publisher of all vampires
+     */
+    default Flow.Publisher<VampirePlayer> publishVampires(int pageSize) {
+        return new PagedPublisher<>(this::getVampirePage, VampirePlayer::getUuid, pageSize);
+    }
+    
+    private CompletableFuture<Void> forEachVampireAfter(UUID after, int pageSize, Consumer<VampirePlayer> action) {
+        return getVampirePage(after, pageSize).thenCompose(page -> {
+            page.forEach(action);
+            if (page.size() < pageSize) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return forEachVampireAfter(page.get(page.size() - 1).getUuid(), pageSize, action);
+        });
+    }
+    
     /**
      * Saves a configuration value to the database.
      * 
@@ -0,0 +1,158 @@
+package org.clockworx.vampire.database;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.clockworx.vampire.VampirePlugin;
+import org.clockworx.vampire.config.VampireConfig;
+import org.sqlite.SQLiteDataSource;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Creates the DatabaseManager selected by the database.type setting.
+ * <ul>
+ *   <li>sqlite, mysql - Hibernate ORM ({@link HibernateDatabaseManager})</li>
+ *   <li>sqlite-jdbc, mysql-jdbc - plain JDBC ({@link JdbcDatabaseManager})</li>
+ *   <li>file - embedded append-only store ({@link FileStoreDatabaseManager})</li>
+ * </ul>
+ */
+public final class DatabaseManagerFactory {
+
+    private DatabaseManagerFactory() {
+    }
+
+    /**
+     * Creates the configured database manager. From the inside out it is wrapped in a
+     * {@link LeaseDatabaseManager} and a {@link ChangeLogDatabaseManager} if those are
+     * enabled, in an {@link OutboxDatabaseManager} for SQL databases unless the outbox is
+     * disabled, in a {@link CachingDatabaseManager} unless the player cache is disabled,
+     * and in an {@link InstrumentedDatabaseManager} unless statistics are disabled.
+     * The manager still has to be initialized.
+     *
+     * @param plugin The plugin instance
+     * @return The database manager
+     */
+    public static DatabaseManager create(VampirePlugin plugin) {
+        VampireConfig config = plugin.getVampireConfig();
+        DatabaseManager backend = createBackend(plugin);
+
+        boolean shared = !(backend instanceof FileStoreDatabaseManager);
+        if (config.isLeasesEnabled()) {
+            if (shared) {
+                // Innermost, so rejected writes never reach the change log
+                backend = new LeaseDatabaseManager(backend, config, plugin.getLogger());
+            } else {
+                plugin.getLogger().warning("Player leases need a shared SQL database and are not used with the file store");
+            }
+        }
+
+        ChangeLogDatabaseManager changeLog = null;
+        if (config.isChangeLogEnabled()) {
+            if (shared) {
+                changeLog = new ChangeLogDatabaseManager(backend, config, plugin.getLogger());
+                backend = changeLog;
+            } else {
+                plugin.getLogger().warning("The change log needs a shared SQL database and is not used with the file store");
+            }
+        }
+
+        // The file store fails with the disk the outbox would be written to
+        if (config.isOutboxEnabled() && shared) {
+            // Below the cache, so its batched flushes are what lands in the outbox
+            PlayerJournal journal = new PlayerJournal(plugin.getDataFolder().toPath().resolve(config.getOutboxFile()),
+                plugin.getLogger());
+            CircuitBreaker breaker = new CircuitBreaker(config.getOutboxFailureThreshold(),
+                TimeUnit.SECONDS.toMillis(config.getOutboxOpenDuration()));
+            backend = new OutboxDatabaseManager(backend, journal, breaker,
+                TimeUnit.SECONDS.toMillis(config.getOutboxCallTimeout()),
+                TimeUnit.SECONDS.toMillis(config.getOutboxRetryInterval()),
+                config.getPlayerCacheBatchSize(), plugin.getLogger());
+        }
+
+        if (config.isPlayerCacheEnabled()) {
+            CachingDatabaseManager cache = new CachingDatabaseManager(backend,
+                TimeUnit.SECONDS.toMillis(config.getPlayerCacheFlushInterval()),
+                config.getPlayerCacheBatchSize(),
+                TimeUnit.SECONDS.toMillis(config.getPlayerCacheExpireSeconds()),
+                plugin.getLogger());
+            if (changeLog != null) {
+                // Writes from the cache pass through the change log, and other servers' changes replace cached copies
+                changeLog.addListener(cache::discard);
+            }
+            backend = cache;
+        }
+
+        if (config.isDatabaseStatsEnabled()) {
+            // Outermost, so latencies are the ones callers see, cache hits included
+            backend = new InstrumentedDatabaseManager(backend, config.getDatabaseSlowThreshold(), plugin.getLogger());
+        }
+        return backend;
+    }
+
+    private static DatabaseManager createBackend(VampirePlugin plugin) {
+        String type = plugin.getVampireConfig().getDatabaseType().toLowerCase();
+        switch (type) {
+            case "sqlite-jdbc":
+            case "mysql-jdbc":
+                return new JdbcDatabaseManager(plugin);
+            case "file":
+                return new FileStoreDatabaseManager(plugin);
+            case "sqlite":
+            case "mysql":
+                return new HibernateDatabaseManager(plugin);
+            default:
+                plugin.getLogger().warning("Unknown database type " + type + ", using sqlite");
+                return new HibernateDatabaseManager(plugin);
+        }
+    }
+
+    /**
+     * Opens a plain JDBC connection source for the given database and brings its
+     * schema up to date. SQLite engine settings are taken from the plugin configuration.
+     *
+     * @param type The database type, such as sqlite or mysql-jdbc
+     * @param url The JDBC URL
+     * @param user The user name, ignored for SQLite
+     * @param password The password, ignored for SQLite
+     * @param config The plugin configuration
+     * @param logger The logger to report to
+     * @return The open connection source
+     * @throws SQLException If the database cannot be opened or migrated
+     */
+    public static ConnectionSource openConnectionSource(String type, String url, String user, String password,
+                                                        VampireConfig config, Logger logger) throws SQLException {
+        SqlDialect dialect = SqlDialect.fromType(type);
+
+        if (dialect == SqlDialect.MYSQL) {
+            HikariConfig hikariConfig = new HikariConfig();
+            hikariConfig.setPoolName("Vampire-MySQL");
+            hikariConfig.setJdbcUrl(url);
+            hikariConfig.setUsername(user);
+            hikariConfig.setPassword(password);
+            hikariConfig.setMaximumPoolSize(10);
+            hikariConfig.setMinimumIdle(2);
+            hikariConfig.setIdleTimeout(300000); // 5 minutes
+            hikariConfig.setConnectionTimeout(10000); // 10 seconds
+            HikariDataSource dataSource = new HikariDataSource(hikariConfig);
+            try {
+                new SchemaMigrator(dataSource, dialect, logger).migrate();
+            } catch (SQLException e) {
+                dataSource.close();
+                throw e;
+            }
+            return new PooledConnectionSource(dataSource, dialect);
+        }
+
+        // Migrations run on their own connection, before the single writer owns the file
+        SQLiteDataSource migrationSource = new SQLiteDataSource();
+        migrationSource.setUrl(url);
+        new SchemaMigrator(migrationSource, dialect, logger).migrate();
+
+        SqliteEngine engine = new SqliteEngine(url, config.getSqliteReadPoolSize(),
+            config.getSqliteWriteBatchSize(), config.getSqliteMmapSize(), logger);
+        engine.start();
+        return engine;
+    }
+}
@@ -0,0 +1,91 @@
+package org.clockworx.vampire.database;
+
+import org.clockworx.vampire.entity.BloodOffer;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Reads from or writes to a DatabaseManager during a {@link DataTransfer}.
+ * Before a transfer touches the live database, the write-behind cache is flushed and
+ * the outbox must be empty, so every saved player is in the database while it is paged.
+ */
+public class DatabaseTransferEndpoint implements TransferSource, TransferSink {
+
+    private final DatabaseManager databaseManager;
+    private final boolean owned;
+    private final Consumer<List<UUID>> written;
+
+    /**
+     * Creates a new database transfer endpoint.
+     *
+     * @param databaseManager The database manager to read from or write to
+     * @param owned Whether the endpoint initializes the manager on open and shuts it down on close
+     */
+    public DatabaseTransferEndpoint(DatabaseManager databaseManager, boolean owned) {
+        this(databaseManager, owned, uuids -> { });
+    }
+
+    /**
+     * Creates a new database transfer endpoint that reports the players it has written.
+     *
+     * @param databaseManager The database manager to read from or write to
+     * @param owned Whether the endpoint initializes the manager on open and shuts it down on close
+     * @param written Receives the UUIDs of each written page of players, on the transfer thread
+     */
+    public DatabaseTransferEndpoint(DatabaseManager databaseManager, boolean owned, Consumer<List<UUID>> written) {
+        this.databaseManager = databaseManager;
+        this.owned = owned;
+        this.written = written;
+    }
+
+    @Override
+    public CompletableFuture<Void> open() {
+        if (owned) {
+            return databaseManager.initialize();
+        }
+        CompletableFuture<Void> flushed = databaseManager.unwrap(CachingDatabaseManager.class)
+            .map(CachingDatabaseManager::flush)
+            .orElseGet(() -> CompletableFuture.completedFuture(null));
+        return flushed.thenRun(() -> {
+            int waiting = databaseManager.unwrap(OutboxDatabaseManager.class)
+                .map(OutboxDatabaseManager::getPendingCount)
+                .orElse(0);
+            if (waiting > 0) {
+                throw new IllegalStateException(waiting + " players are waiting in the outbox; "
+                    + "try again once they have been written to the database");
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<PlayerRecord>> readPlayers(UUID after, int limit) {
+        return databaseManager.getPlayerRecordPage(after, limit);
+    }
+
+    @Override
+    public CompletableFuture<List<BloodOffer>> readOffers(BloodOffer after, int limit) {
+        return databaseManager.getBloodOfferPage(after, limit);
+    }
+
+    @Override
+    public CompletableFuture<Void> writePlayers(List<PlayerRecord> records) {
+        List<UUID> uuids = records.stream().map(PlayerRecord::getUuid).collect(Collectors.toList());
+        return databaseManager.savePlayerRecords(records).thenRun(() -> written.accept(uuids));
+    }
+
+    @Override
+    public CompletableFuture<Void> writeOffers(List<BloodOffer> offers) {
+        return databaseManager.saveBloodOffers(offers);
+    }
+
+    @Override
+    public void close() {
+        if (owned) {
+            databaseManager.shutdown().join();
+        }
+    }
+}
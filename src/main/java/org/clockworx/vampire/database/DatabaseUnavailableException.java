@@ -0,0 +1,15 @@
+package org.clockworx.vampire.database;
+
+/**
+ * Thrown instead of calling the database while its circuit breaker is open.
+ * The call is rejected at once rather than waiting for a connection that will not come.
+ */
+public class DatabaseUnavailableException extends IllegalStateException {
+
+    /**
+     * Creates a new database unavailable exception.
+     */
+    public DatabaseUnavailableException() {
+        super("The database is unavailable; calls are suspended until it recovers");
+    }
+}
@@ -0,0 +1,807 @@
+package org.clockworx.vampire.database;
+
+import org.clockworx.vampire.entity.BloodOffer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only, log-structured store for player records and blood offers.
+ * <p>
+ * Every change is appended to a single file as a checksummed record. An in-memory
+ * index maps each player UUID to the offset of its latest record, so a read is one
+ * positional read. Blood offers are few and are kept entirely in memory. Player
+ * records are read on a small pool of reader threads, concurrently with each other
+ * and with writes. Changes are applied by a single writer thread, which appends all
+ * queued changes and fsyncs once per batch. When more than the configured share of the file is superseded
+ * records, the writer rewrites the live records to a new file while it is idle.
+ * <p>
+ * Record layout: int body length, int CRC32 of the body, then the body, which is
+ * a type byte followed by the payload.
+ */
+public class FileStore {
+
+    private static final int HEADER_SIZE = 8;
+    private static final int MAX_BATCH_SIZE = 256;
+    private static final long MIN_COMPACTION_SIZE = 64 * 1024;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10000;
+    private static final int READER_THREADS = 2;
+
+    private static final byte PLAYER_PUT = 1;
+    private static final byte PLAYER_DELETE = 2;
+    private static final byte OFFER_PUT = 3;
+    private static final byte OFFER_DELETE = 4;
+
+    private final Path file;
+    private final double compactionRatio;
+    private final Logger logger;
+    private final BlockingQueue<PendingMutation<?>> queue;
+    private final ReentrantReadWriteLock channelLock;
+
+    // Published state, readable from any thread
+    private final Map<UUID, Location> playerIndex;
+    // Sorted by the UUID string, the order of the CHAR(36) uuid column of the SQL backends
+    private final NavigableMap<String, UUID> players;
+    private final NavigableMap<String, UUID> vampires;
+    private final Map<Long, Offer> offers;
+
+    // Writer thread state
+    private final Map<Long, Integer> offerSizes;
+    private FileChannel channel;
+    private long writePosition;
+    private long liveBytes;
+    private long nextOfferId;
+
+    private Thread writerThread;
+    private ExecutorService readers;
+    private volatile boolean running;
+
+    /**
+     * Creates a new file store. Nothing is opened until {@link #open()} is called.
+     *
+     * @param file The store file
+     * @param compactionRatio The share of superseded data, between 0 and 1, that triggers compaction
+     * @param logger The logger to report to
+     */
+    public FileStore(Path file, double compactionRatio, Logger logger) {
+        this.file = file;
+        this.compactionRatio = compactionRatio;
+        this.logger = logger;
+        this.queue = new LinkedBlockingQueue<>();
+        this.channelLock = new ReentrantReadWriteLock();
+        this.playerIndex = new ConcurrentHashMap<>();
+        this.players = new ConcurrentSkipListMap<>();
+        this.vampires = new ConcurrentSkipListMap<>();
+        this.offers = new ConcurrentHashMap<>();
+        this.offerSizes = new HashMap<>();
+    }
+
+    /**
+     * Opens the store file, replays it to rebuild the index, and starts the writer thread.
+     * An incomplete or corrupt record at the end of the file, left by a crash during
+     * an append, is truncated away.
+     *
+     * @throws IOException If the file cannot be opened or read
+     */
+    public void open() throws IOException {
+        Files.createDirectories(file.getParent());
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        replay();
+
+        running = true;
+        readers = Executors.newFixedThreadPool(READER_THREADS, runnable -> {
+            Thread thread = new Thread(runnable, "Vampire-FileStore-Reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writerThread = new Thread(this::runWriter, "Vampire-FileStore-Writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    private void replay() throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+        while (position + HEADER_SIZE <= size) {
+            header.clear();
+            readFully(header, position);
+            header.flip();
+            int length = header.getInt();
+            int crc = header.getInt();
+            if (length <= 0 || position + HEADER_SIZE + length > size) {
+                break;
+            }
+
+            ByteBuffer body = ByteBuffer.allocate(length);
+            readFully(body, position + HEADER_SIZE);
+            if (checksum(body.array()) != crc) {
+                break;
+            }
+
+            apply(body.array(), position, HEADER_SIZE + length);
+            position += HEADER_SIZE + length;
+        }
+
+        if (position < size) {
+            logger.warning("Discarding " + (size - position) + " bytes of incomplete records at the end of " + file);
+            channel.truncate(position);
+            channel.force(true);
+        }
+        writePosition = position;
+    }
+
+    /**
+     * Applies a replayed record to the in-memory state.
+     */
+    private void apply(byte[] body, long offset, int size) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body, 1, body.length - 1));
+        switch (body[0]) {
+            case PLAYER_PUT: {
+                PlayerRecord record = PlayerRecord.readFrom(in);
+                publishPlayer(record.getUuid(), record.isVampire(), new Location(offset, size));
+                break;
+            }
+            case PLAYER_DELETE:
+                publishPlayer(PlayerRecord.readUuid(in), false, null);
+                break;
+            case OFFER_PUT: {
+                Offer offer = Offer.readFrom(in);
+                publishOffer(offer.getId(), offer, size);
+                nextOfferId = Math.max(nextOfferId, offer.getId() + 1);
+                break;
+            }
+            case OFFER_DELETE:
+                publishOffer(in.readLong(), null, 0);
+                break;
+            default:
+                throw new IOException("Unknown record type " + body[0] + " at offset " + offset);
+        }
+    }
+
+    /**
+     * Reads a player's latest record.
+     *
+     * @param uuid The player's UUID
+     * @return The record, or null if the player is not stored
+     * @throws IOException If the record cannot be read
+     */
+    public PlayerRecord readPlayer(UUID uuid) throws IOException {
+        channelLock.readLock().lock();
+        try {
+            Location location = playerIndex.get(uuid);
+            if (location == null) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(location.size);
+            readFully(buffer, location.offset);
+            byte[] record = buffer.array();
+
+            int crc = ByteBuffer.wrap(record, 4, 4).getInt();
+            CRC32 checksum = new CRC32();
+            checksum.update(record, HEADER_SIZE, record.length - HEADER_SIZE);
+            if ((int) checksum.getValue() != crc || record[HEADER_SIZE] != PLAYER_PUT) {
+                throw new IOException("Corrupt player record for " + uuid + " at offset " + location.offset);
+            }
+            return PlayerRecord.readFrom(new DataInputStream(
+                new ByteArrayInputStream(record, HEADER_SIZE + 1, record.length - HEADER_SIZE - 1)));
+        } finally {
+            channelLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs a read on the store's reader threads, so callers never wait on the disk.
+     * The read sees published data and runs concurrently with other reads and with writes.
+     *
+     * @param read The read to run
+     * @param <T> The type of the result
+     * @return A CompletableFuture that completes with the read's result
+     */
+    public <T> CompletableFuture<T> read(Read<T> read) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new IllegalStateException("File store is not open"));
+        }
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            readers.execute(() -> {
+                try {
+                    future.complete(read.apply(this));
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new IllegalStateException("File store was closed", e));
+        }
+        return future;
+    }
+
+    /**
+     * Gets the UUIDs of all stored vampires.
+     *
+     * @return A snapshot of the vampire UUIDs
+     */
+    public Collection<UUID> getVampireIds() {
+        return new ArrayList<>(vampires.values());
+    }
+
+    /**
+     * Gets a page of stored vampires' UUIDs in UUID string order.
+     *
+     * @param after The last UUID of the previous page, or null for the first page
+     * @param limit The maximum number of UUIDs
+     * @return The UUIDs that sort after {@code after}
+     */
+    public List<UUID> getVampireIdPage(UUID after, int limit) {
+        return page(vampires, after, limit);
+    }
+
+    /**
+     * Gets a page of stored players' UUIDs in UUID string order.
+     *
+     * @param after The last UUID of the previous page, or null for the first page
+     * @param limit The maximum number of UUIDs
+     * @return The UUIDs that sort after {@code after}
+     */
+    public List<UUID> getPlayerIdPage(UUID after, int limit) {
+        return page(players, after, limit);
+    }
+
+    private static List<UUID> page(NavigableMap<String, UUID> ids, UUID after, int limit) {
+        NavigableMap<String, UUID> tail = after != null ? ids.tailMap(after.toString(), false) : ids;
+        List<UUID> page = new ArrayList<>();
+        for (UUID uuid : tail.values()) {
+            if (page.size() >= limit) {
+                break;
+            }
+            page.add(uuid);
+        }
+        return page;
+    }
+
+    /**
+     * Gets all stored blood offers.
+     *
+     * @return A snapshot of the offers
+     */
+    public Collection<Offer> getOffers() {
+        return new ArrayList<>(offers.values());
+    }
+
+    /**
+     * Queues a change. The mutation runs on the writer thread, sees the effects of
+     * earlier mutations, and is durable once the returned future completes.
+     * If the mutation throws, none of its changes are written.
+     *
+     * @param mutation The change to apply
+     * @param <T> The type of the result
+     * @return A CompletableFuture that completes with the mutation's result after fsync
+     */
+    public <T> CompletableFuture<T> mutate(Mutation<T> mutation) {
+        PendingMutation<T> pending = new PendingMutation<>(mutation);
+        if (!running) {
+            pending.future.completeExceptionally(new IllegalStateException("File store is not open"));
+            return pending.future;
+        }
+        queue.add(pending);
+        return pending.future;
+    }
+
+    private void runWriter() {
+        List<PendingMutation<?>> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingMutation<?> first = queue.poll(250, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    // Compact only while idle, so it never delays a queued write
+                    if (needsCompaction()) {
+                        compact();
+                    }
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+                executeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Failed to compact " + file, e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void executeBatch(List<PendingMutation<?>> batch) {
+        Map<UUID, StagedPlayer> stagedPlayers = new LinkedHashMap<>();
+        Map<Long, Offer> stagedOffers = new LinkedHashMap<>();
+        List<PendingMutation<?>> succeeded = new ArrayList<>(batch.size());
+        List<Object> results = new ArrayList<>(batch.size());
+
+        for (PendingMutation<?> pending : batch) {
+            Transaction transaction = new Transaction(stagedPlayers, stagedOffers);
+            try {
+                results.add(pending.mutation.apply(transaction));
+                stagedPlayers.putAll(transaction.players);
+                stagedOffers.putAll(transaction.offerChanges);
+                succeeded.add(pending);
+            } catch (Exception e) {
+                pending.future.completeExceptionally(e);
+            }
+        }
+
+        if (!stagedPlayers.isEmpty() || !stagedOffers.isEmpty()) {
+            try {
+                appendAndPublish(stagedPlayers, stagedOffers);
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Failed to write to " + file, e);
+                succeeded.forEach(pending -> pending.future.completeExceptionally(e));
+                return;
+            }
+        }
+
+        for (int i = 0; i < succeeded.size(); i++) {
+            succeeded.get(i).complete(results.get(i));
+        }
+    }
+
+    /**
+     * Appends the staged changes in one write, fsyncs, and then publishes them.
+     * On failure the file is truncated back, so nothing of the batch remains.
+     */
+    private void appendAndPublish(Map<UUID, StagedPlayer> stagedPlayers, Map<Long, Offer> stagedOffers) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        Map<UUID, Location> playerLocations = new HashMap<>();
+        Map<Long, Integer> offerRecordSizes = new HashMap<>();
+        long start = writePosition;
+
+        for (Map.Entry<UUID, StagedPlayer> entry : stagedPlayers.entrySet()) {
+            long offset = start + buffer.size();
+            if (entry.getValue() != null) {
+                int size = encode(buffer, PLAYER_PUT, entry.getValue().bytes);
+                playerLocations.put(entry.getKey(), new Location(offset, size));
+            } else {
+                encode(buffer, PLAYER_DELETE, uuidBytes(entry.getKey()));
+            }
+        }
+        for (Map.Entry<Long, Offer> entry : stagedOffers.entrySet()) {
+            if (entry.getValue() != null) {
+                offerRecordSizes.put(entry.getKey(), encode(buffer, OFFER_PUT, entry.getValue().toBytes()));
+            } else {
+                encode(buffer, OFFER_DELETE, ByteBuffer.allocate(8).putLong(entry.getKey()).array());
+            }
+        }
+
+        try {
+            ByteBuffer bytes = ByteBuffer.wrap(buffer.toByteArray());
+            long position = start;
+            while (bytes.hasRemaining()) {
+                position += channel.write(bytes, position);
+            }
+            channel.force(false);
+            writePosition = position;
+        } catch (IOException e) {
+            channel.truncate(start);
+            throw e;
+        }
+
+        for (Map.Entry<UUID, StagedPlayer> entry : stagedPlayers.entrySet()) {
+            StagedPlayer staged = entry.getValue();
+            publishPlayer(entry.getKey(), staged != null && staged.vampire, playerLocations.get(entry.getKey()));
+        }
+        for (Map.Entry<Long, Offer> entry : stagedOffers.entrySet()) {
+            publishOffer(entry.getKey(), entry.getValue(), offerRecordSizes.getOrDefault(entry.getKey(), 0));
+        }
+    }
+
+    private void publishPlayer(UUID uuid, boolean vampire, Location location) {
+        Location previous = location != null ? playerIndex.put(uuid, location) : playerIndex.remove(uuid);
+        String key = uuid.toString();
+        if (location != null) {
+            players.put(key, uuid);
+        } else {
+            players.remove(key);
+        }
+        if (previous != null) {
+            liveBytes -= previous.size;
+        }
+        if (location != null) {
+            liveBytes += location.size;
+        }
+        if (vampire) {
+            vampires.put(key, uuid);
+        } else {
+            vampires.remove(key);
+        }
+    }
+
+    private void publishOffer(long id, Offer offer, int size) {
+        Integer previous = offer != null ? offerSizes.put(id, size) : offerSizes.remove(id);
+        if (previous != null) {
+            liveBytes -= previous;
+        }
+        if (offer != null) {
+            liveBytes += size;
+            offers.put(id, offer);
+        } else {
+            offers.remove(id);
+        }
+    }
+
+    private boolean needsCompaction() {
+        return writePosition > MIN_COMPACTION_SIZE && writePosition - liveBytes > writePosition * compactionRatio;
+    }
+
+    /**
+     * Rewrites the live records to a new file and swaps it in.
+     * Readers are only blocked for the swap itself.
+     */
+    private void compact() throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".compact");
+        Map<UUID, Location> newIndex = new HashMap<>();
+        long position = 0;
+
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            for (Map.Entry<UUID, Location> entry : playerIndex.entrySet()) {
+                Location location = entry.getValue();
+                ByteBuffer record = ByteBuffer.allocate(location.size);
+                readFully(record, location.offset);
+                record.flip();
+                while (record.hasRemaining()) {
+                    out.write(record, position + record.position());
+                }
+                newIndex.put(entry.getKey(), new Location(position, location.size));
+                position += location.size;
+            }
+
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            for (Offer offer : offers.values()) {
+                encode(buffer, OFFER_PUT, offer.toBytes());
+            }
+            ByteBuffer offerRecords = ByteBuffer.wrap(buffer.toByteArray());
+            while (offerRecords.hasRemaining()) {
+                out.write(offerRecords, position + offerRecords.position());
+            }
+            position += buffer.size();
+            out.force(true);
+        }
+
+        long before = writePosition;
+        channelLock.writeLock().lock();
+        try {
+            channel.close();
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            playerIndex.putAll(newIndex);
+            writePosition = position;
+            liveBytes = position;
+        } finally {
+            channelLock.writeLock().unlock();
+        }
+        logger.info("Compacted " + file.getFileName() + " from " + before + " to " + position + " bytes");
+    }
+
+    /**
+     * Stops accepting changes, writes everything still queued, and closes the file.
+     */
+    public void close() {
+        running = false;
+        if (readers != null) {
+            readers.shutdown();
+            try {
+                if (!readers.awaitTermination(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    logger.warning("File store readers did not finish in time");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (writerThread != null) {
+            try {
+                writerThread.join(SHUTDOWN_TIMEOUT_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            List<PendingMutation<?>> dropped = new ArrayList<>();
+            queue.drainTo(dropped);
+            if (!dropped.isEmpty()) {
+                logger.warning("File store writer did not drain in time, " + dropped.size() + " writes were dropped");
+                dropped.forEach(pending -> pending.future.completeExceptionally(new IllegalStateException("File store was closed")));
+            }
+        }
+
+        channelLock.writeLock().lock();
+        try {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to close " + file, e);
+        } finally {
+            channelLock.writeLock().unlock();
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of " + file + " at offset " + position);
+            }
+        }
+    }
+
+    private static int encode(ByteArrayOutputStream buffer, byte type, byte[] payload) {
+        byte[] body = new byte[payload.length + 1];
+        body[0] = type;
+        System.arraycopy(payload, 0, body, 1, payload.length);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(body.length).putInt(checksum(body));
+        buffer.write(header.array(), 0, HEADER_SIZE);
+        buffer.write(body, 0, body.length);
+        return HEADER_SIZE + body.length;
+    }
+
+    private static int checksum(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] uuidBytes(UUID uuid) {
+        return ByteBuffer.allocate(16).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).array();
+    }
+
+    /**
+     * A read run on a reader thread.
+     *
+     * @param <T> The type of the result
+     */
+    @FunctionalInterface
+    public interface Read<T> {
+        T apply(FileStore store) throws IOException;
+    }
+
+    /**
+     * A change applied on the writer thread.
+     *
+     * @param <T> The type of the result
+     */
+    @FunctionalInterface
+    public interface Mutation<T> {
+        T apply(Transaction transaction) throws IOException;
+    }
+
+    /**
+     * The view of the store given to a mutation. Reads see committed data plus the
+     * changes of earlier mutations in the same batch; writes are staged until the
+     * batch is written.
+     */
+    public final class Transaction {
+        private final Map<UUID, StagedPlayer> batchPlayers;
+        private final Map<Long, Offer> batchOffers;
+        private final Map<UUID, StagedPlayer> players = new HashMap<>();
+        private final Map<Long, Offer> offerChanges = new HashMap<>();
+
+        private Transaction(Map<UUID, StagedPlayer> batchPlayers, Map<Long, Offer> batchOffers) {
+            this.batchPlayers = batchPlayers;
+            this.batchOffers = batchOffers;
+        }
+
+        /**
+         * Gets a player's record. The record is a copy; call {@link #putPlayer} to store changes.
+         *
+         * @param uuid The player's UUID
+         * @return The record, or null if the player is not stored
+         * @throws IOException If the record cannot be read
+         */
+        public PlayerRecord getPlayer(UUID uuid) throws IOException {
+            if (players.containsKey(uuid)) {
+                StagedPlayer staged = players.get(uuid);
+                return staged != null ? PlayerRecord.fromBytes(staged.bytes) : null;
+            }
+            if (batchPlayers.containsKey(uuid)) {
+                StagedPlayer staged = batchPlayers.get(uuid);
+                return staged != null ? PlayerRecord.fromBytes(staged.bytes) : null;
+            }
+            return readPlayer(uuid);
+        }
+
+        public void putPlayer(PlayerRecord record) {
+            players.put(record.getUuid(), new StagedPlayer(record.toBytes(), record.isVampire()));
+        }
+
+        public void deletePlayer(UUID uuid) {
+            players.put(uuid, null);
+        }
+
+        /**
+         * Gets all blood offers, including changes staged in this batch.
+         *
+         * @return The offers
+         */
+        public Collection<Offer> getOffers() {
+            Map<Long, Offer> view = new HashMap<>(offers);
+            applyChanges(view, batchOffers);
+            applyChanges(view, offerChanges);
+            return view.values();
+        }
+
+        private void applyChanges(Map<Long, Offer> view, Map<Long, Offer> changes) {
+            for (Map.Entry<Long, Offer> entry : changes.entrySet()) {
+                if (entry.getValue() != null) {
+                    view.put(entry.getKey(), entry.getValue());
+                } else {
+                    view.remove(entry.getKey());
+                }
+            }
+        }
+
+        public void putOffer(Offer offer) {
+            offerChanges.put(offer.getId(), offer);
+        }
+
+        public void deleteOffer(long id) {
+            offerChanges.put(id, null);
+        }
+
+        public long nextOfferId() {
+            return nextOfferId++;
+        }
+    }
+
+    /**
+     * A stored blood offer. Offers are immutable; state changes produce a new offer with the same id.
+     */
+    public static final class Offer {
+        private final long id;
+        private final UUID senderUuid;
+        private final UUID targetUuid;
+        private final double amount;
+        private final long timestamp;
+        private final boolean accepted;
+        private final boolean rejected;
+
+        public Offer(long id, UUID senderUuid, UUID targetUuid, double amount, long timestamp, boolean accepted, boolean rejected) {
+            this.id = id;
+            this.senderUuid = senderUuid;
+            this.targetUuid = targetUuid;
+            this.amount = amount;
+            this.timestamp = timestamp;
+            this.accepted = accepted;
+            this.rejected = rejected;
+        }
+
+        public Offer withAccepted() {
+            return new Offer(id, senderUuid, targetUuid, amount, timestamp, true, rejected);
+        }
+
+        public Offer withRejected() {
+            return new Offer(id, senderUuid, targetUuid, amount, timestamp, accepted, true);
+        }
+
+        public boolean isPending() {
+            return !accepted && !rejected;
+        }
+
+        public BloodOffer toBloodOffer() {
+            BloodOffer offer = new BloodOffer(senderUuid, targetUuid, amount, timestamp);
+            if (accepted) {
+                offer.setAccepted();
+            }
+            if (rejected) {
+                offer.setRejected();
+            }
+            return offer;
+        }
+
+        private byte[] toBytes() {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeLong(id);
+                PlayerRecord.writeUuid(out, senderUuid);
+                PlayerRecord.writeUuid(out, targetUuid);
+                out.writeDouble(amount);
+                out.writeLong(timestamp);
+                out.writeBoolean(accepted);
+                out.writeBoolean(rejected);
+            } catch (IOException e) {
+                // Writing to memory cannot fail
+                throw new UncheckedIOException(e);
+            }
+            return bytes.toByteArray();
+        }
+
+        private static Offer readFrom(DataInputStream in) throws IOException {
+            return new Offer(in.readLong(), PlayerRecord.readUuid(in), PlayerRecord.readUuid(in),
+                in.readDouble(), in.readLong(), in.readBoolean(), in.readBoolean());
+        }
+
+        // Getters
+        public long getId() { return id; }
+        public UUID getSenderUuid() { return senderUuid; }
+        public UUID getTargetUuid() { return targetUuid; }
+        public double getAmount() { return amount; }
+        public long getTimestamp() { return timestamp; }
+        public boolean isAccepted() { return accepted; }
+        public boolean isRejected() { return rejected; }
+    }
+
+    /**
+     * Where a player's latest record is in the file.
+     */
+    private static final class Location {
+        private final long offset;
+        private final int size;
+
+        private Location(long offset, int size) {
+            this.offset = offset;
+            this.size = size;
+        }
+    }
+
+    /**
+     * An encoded player record waiting to be written.
+     */
+    private static final class StagedPlayer {
+        private final byte[] bytes;
+        private final boolean vampire;
+
+        private StagedPlayer(byte[] bytes, boolean vampire) {
+            this.bytes = bytes;
+            this.vampire = vampire;
+        }
+    }
+
+    /**
+     * A queued mutation and the future of its result.
+     */
+    private static final class PendingMutation<T> {
+        private final Mutation<T> mutation;
+        private final CompletableFuture<T> future;
+
+        private PendingMutation(Mutation<T> mutation) {
+            this.mutation = mutation;
+            this.future = new CompletableFuture<>();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void complete(Object result) {
+            future.complete((T) result);
+        }
+    }
+}
@@ -0,0 +1,484 @@
+package org.clockworx.vampire.database;
+
+import org.clockworx.vampire.VampirePlugin;
+import org.clockworx.vampire.config.LanguageConfig;
+import org.clockworx.vampire.config.VampireConfig;
+import org.clockworx.vampire.entity.BloodOffer;
+import org.clockworx.vampire.entity.VampirePlayer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * DatabaseManager implementation backed by an embedded {@link FileStore}.
+ * Intended for single-server installs that do not need SQL: there is no JDBC
+ * driver or connection pool, reads are served from the file through an in-memory
+ * index on the store's reader threads, and writes are group-committed by the store.
+ */
+public class FileStoreDatabaseManager implements DatabaseManager {
+
+    private final VampirePlugin plugin;
+    private FileStore store;
+
+    /**
+     * Creates a new file store database manager.
+     *
+     * @param plugin The plugin instance
+     */
+    public FileStoreDatabaseManager(VampirePlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public CompletableFuture<Void> initialize() {
+        return CompletableFuture.runAsync(() -> {
+            VampireConfig config = plugin.getVampireConfig();
+            store = new FileStore(plugin.getDataFolder().toPath().resolve(config.getFileStorePath()),
+                config.getFileStoreCompactionRatio(), plugin.getLogger());
+            try {
+                store.open();
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to initialize database", e);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> shutdown() {
+        return CompletableFuture.runAsync(() -> {
+            if (store != null) {
+                store.close();
+                store = null;
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<VampirePlayer> getPlayer(UUID uuid) {
+        return readRecord(uuid, PlayerRecord::toVampirePlayer, null);
+    }
+
+    @Override
+    public CompletableFuture<Void> savePlayer(VampirePlayer player) {
+        PlayerRecord record = PlayerRecord.from(player);
+        return store.mutate(transaction -> {
+            transaction.putPlayer(record);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> savePlayerRecords(Collection<PlayerRecord> records) {
+        List<PlayerRecord> copies = records.stream().map(PlayerRecord::copy).collect(Collectors.toList());
+        return store.mutate(transaction -> {
+            copies.forEach(transaction::putPlayer);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> deletePlayer(UUID uuid) {
+        return store.mutate(transaction -> {
+            transaction.deletePlayer(uuid);
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isVampire(UUID uuid) {
+        return readRecord(uuid, PlayerRecord::isVampire, false);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isInfected(UUID uuid) {
+        return readRecord(uuid, record -> record.getInfectionLevel() > 0, false);
+    }
+
+    @Override
+    public CompletableFuture<Double> getBloodLevel(UUID uuid) {
+        return readRecord(uuid, PlayerRecord::getBloodLevel, 0.0);
+    }
+
+    @Override
+    public CompletableFuture<Void> setBloodLevel(UUID uuid, double blood) {
+        return updateRecord(uuid, record -> record.setBloodLevel(blood));
+    }
+
+    @Override
+    public CompletableFuture<Double> getInfectionLevel(UUID uuid) {
+        return readRecord(uuid, PlayerRecord::getInfectionLevel, 0.0);
+    }
+
+    @Override
+    public CompletableFuture<Void> setInfectionLevel(UUID uuid, double infection) {
+        return updateRecord(uuid, record -> record.setInfectionLevel(infection));
+    }
+
+    @Override
+    public CompletableFuture<String> getInfectionReason(UUID uuid) {
+        return readRecord(uuid, PlayerRecord::getInfectionReason, null);
+    }
+
+    @Override
+    public CompletableFuture<Void> setInfectionReason(UUID uuid, String reason) {
+        return updateRecord(uuid, record -> record.setInfectionReason(reason));
+    }
+
+    @Override
+    public CompletableFuture<Long> getInfectionTime(UUID uuid) {
+        return readRecord(uuid, PlayerRecord::getInfectionTime, 0L);
+    }
+
+    @Override
+    public CompletableFuture<Void> setInfectionTime(UUID uuid, long time) {
+        return updateRecord(uuid, record -> record.setInfectionTime(time));
+    }
+
+    @Override
+    public CompletableFuture<Long> getLastShriekTime(UUID uuid) {
+        return readRecord(uuid, PlayerRecord::getLastShriekTime, 0L);
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastShriekTime(UUID uuid, long time) {
+        return updateRecord(uuid, record -> record.setLastShriekTime(time));
+    }
+
+    @Override
+    public CompletableFuture<Long> getLastBloodTradeTime(UUID uuid) {
+        return readRecord(uuid, PlayerRecord::getLastBloodTradeTime, 0L);
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradeTime(UUID uuid, long time) {
+        return updateRecord(uuid, record -> record.setLastBloodTradeTime(time));
+    }
+
+    @Override
+    public CompletableFuture<UUID> getLastBloodTradePartner(UUID uuid) {
+        return readRecord(uuid, PlayerRecord::getLastBloodTradePartner, null);
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradePartner(UUID uuid, UUID partner) {
+        return updateRecord(uuid, record -> record.setLastBloodTradePartner(partner));
+    }
+
+    @Override
+    public CompletableFuture<Double> getLastBloodTradeAmount(UUID uuid) {
+        return readRecord(uuid, PlayerRecord::getLastBloodTradeAmount, 0.0);
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradeAmount(UUID uuid, double amount) {
+        return updateRecord(uuid, record -> record.setLastBloodTradeAmount(amount));
+    }
+
+    @Override
+    public CompletableFuture<String> getLastBloodTradeType(UUID uuid) {
+        return readRecord(uuid, PlayerRecord::getLastBloodTradeType, null);
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradeType(UUID uuid, String type) {
+        return updateRecord(uuid, record -> record.setLastBloodTradeType(type));
+    }
+
+    @Override
+    public CompletableFuture<BloodOffer> createBloodOffer(UUID senderUuid, UUID targetUuid, double amount) {
+        long now = System.currentTimeMillis();
+        return store.mutate(transaction -> {
+            FileStore.Offer offer = new FileStore.Offer(transaction.nextOfferId(), senderUuid, targetUuid, amount, now, false, false);
+            transaction.putOffer(offer);
+            return offer.toBloodOffer();
+        });
+    }
+
+    @Override
+    public CompletableFuture<BloodOffer> getBloodOffer(UUID playerUuid) {
+        BloodOffer offer = latestPendingOffer(store.getOffers(), playerUuid)
+            .map(FileStore.Offer::toBloodOffer)
+            .orElse(null);
+        return CompletableFuture.completedFuture(offer);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> acceptBloodOffer(UUID playerUuid) {
+        return store.mutate(transaction -> latestPendingOffer(transaction.getOffers(), playerUuid)
+            .map(offer -> {
+                transaction.putOffer(offer.withAccepted());
+                return true;
+            })
+            .orElse(false));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> rejectBloodOffer(UUID playerUuid) {
+        return store.mutate(transaction -> latestPendingOffer(transaction.getOffers(), playerUuid)
+            .map(offer -> {
+                transaction.putOffer(offer.withRejected());
+                return true;
+            })
+            .orElse(false));
+    }
+
+    @Override
+    public CompletableFuture<List<BloodOffer>> getAllBloodOffers() {
+        List<BloodOffer> pending = store.getOffers().stream()
+            .filter(FileStore.Offer::isPending)
+            .map(FileStore.Offer::toBloodOffer)
+            .collect(Collectors.toList());
+        return CompletableFuture.completedFuture(pending);
+    }
+
+    @Override
+    public CompletableFuture<List<BloodOffer>> getBloodOfferPage(BloodOffer after, int limit) {
+        // Offers are few once the reaper has run, so they are sorted on each page rather than indexed
+        List<BloodOffer> page = store.getOffers().stream()
+            .filter(FileStore.Offer::isPending)
+            .map(FileStore.Offer::toBloodOffer)
+            .filter(offer -> after == null || OFFER_PAGE_ORDER.compare(offer, after) > 0)
+            .sorted(OFFER_PAGE_ORDER)
+            .limit(limit)
+            .collect(Collectors.toList());
+        return CompletableFuture.completedFuture(page);
+    }
+
+    @Override
+    public CompletableFuture<Void> saveBloodOffers(Collection<BloodOffer> offers) {
+        if (offers.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return store.mutate(transaction -> {
+            for (BloodOffer offer : offers) {
+                transaction.putOffer(new FileStore.Offer(transaction.nextOfferId(), offer.getSenderUuid(), offer.getTargetUuid(),
+                    offer.getAmount(), offer.getTimestamp(), offer.isAccepted(), offer.isRejected()));
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> cleanupExpiredOffers(long timeoutMillis) {
+        long cutoff = System.currentTimeMillis() - timeoutMillis;
+        return store.mutate(transaction -> {
+            for (FileStore.Offer offer : transaction.getOffers()) {
+                if (offer.getTimestamp() < cutoff) {
+                    transaction.deleteOffer(offer.getId());
+                }
+            }
+            return true;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Integer> purgeOffers(long pendingTimeoutMillis, long resolvedRetentionMillis) {
+        long now = System.currentTimeMillis();
+        return store.mutate(transaction -> {
+            int deleted = 0;
+            for (FileStore.Offer offer : transaction.getOffers()) {
+                long cutoff = offer.isPending() ? now - pendingTimeoutMillis : now - resolvedRetentionMillis;
+                if (offer.getTimestamp() < cutoff) {
+                    transaction.deleteOffer(offer.getId());
+                    deleted++;
+                }
+            }
+            return deleted;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> addInfection(UUID uuid, double amount, String reason) {
+        long now = System.currentTimeMillis();
+        return store.mutate(transaction -> {
+            PlayerRecord record = transaction.getPlayer(uuid);
+            if (record == null) {
+                return false;
+            }
+            record.setInfectionLevel(record.getInfectionLevel() + amount);
+            record.setInfectionReason(reason);
+            record.setInfectionTime(now);
+            transaction.putPlayer(record);
+            return true;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> setVampire(UUID uuid, boolean isVampire) {
+        long now = System.currentTimeMillis();
+        return store.mutate(transaction -> {
+            PlayerRecord record = transaction.getPlayer(uuid);
+            if (record == null) {
+                return false;
+            }
+            record.setVampire(isVampire);
+            if (isVampire) {
+                record.setInfectionTime(now);
+            }
+            transaction.putPlayer(record);
+            return true;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<VampirePlayer>> getAllVampires() {
+        return store.read(reader -> {
+            List<VampirePlayer> players = new ArrayList<>();
+            for (UUID uuid : reader.getVampireIds()) {
+                PlayerRecord record = reader.readPlayer(uuid);
+                if (record != null) {
+                    players.add(record.toVampirePlayer());
+                }
+            }
+            return players;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<VampirePlayer>> getVampirePage(UUID after, int limit) {
+        return store.read(reader -> {
+            List<UUID> page = reader.getVampireIdPage(after, limit);
+            List<VampirePlayer> players = new ArrayList<>(page.size());
+            for (UUID uuid : page) {
+                PlayerRecord record = reader.readPlayer(uuid);
+                if (record != null) {
+                    players.add(record.toVampirePlayer());
+                }
+            }
+            return players;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<PlayerRecord>> getPlayerRecordPage(UUID after, int limit) {
+        return store.read(reader -> {
+            List<UUID> page = reader.getPlayerIdPage(after, limit);
+            List<PlayerRecord> records = new ArrayList<>(page.size());
+            for (UUID uuid : page) {
+                PlayerRecord record = reader.readPlayer(uuid);
+                if (record != null) {
+                    records.add(record);
+                }
+            }
+            return records;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveConfig(String key, String value) {
+        // Not implemented as we're using file-based config
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<String> getConfig(String key) {
+        // Not implemented as we're using file-based config
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveLanguage(String key, String value) {
+        // Not implemented as we're using file-based config
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<String> getLanguage(String key) {
+        // Not implemented as we're using file-based config
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> useBlood(UUID uuid, double amount) {
+        return store.mutate(transaction -> {
+            PlayerRecord record = transaction.getPlayer(uuid);
+            if (record == null || record.getBloodLevel() < amount) {
+                return false;
+            }
+            record.setBloodLevel(record.getBloodLevel() - amount);
+            transaction.putPlayer(record);
+            return true;
+        });
+    }
+
+    @Override
+    public CompletableFuture<VampireConfig> loadConfig() {
+        // Not implemented as we're using file-based config
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveConfig(VampireConfig config) {
+        // Not implemented as we're using file-based config
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<LanguageConfig> loadLanguage() {
+        // Not implemented as we're using file-based config
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveLanguage(LanguageConfig language) {
+        // Not implemented as we're using file-based config
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Finds a player's most recent pending offer, the one accepting or rejecting acts on.
+     *
+     * @param offers The offers to search
+     * @param playerUuid The UUID of the offer's target
+     * @return The offer, if the player has a pending one
+     */
+    private static Optional<FileStore.Offer> latestPendingOffer(Collection<FileStore.Offer> offers, UUID playerUuid) {
+        return offers.stream()
+            .filter(candidate -> candidate.isPending() && candidate.getTargetUuid().equals(playerUuid))
+            .max(Comparator.comparingLong(FileStore.Offer::getTimestamp).thenComparingLong(FileStore.Offer::getId));
+    }
+
+    /**
+     * Reads a value from a player's record on the store's reader threads, so the
+     * calling thread, often the main thread, never waits on the disk.
+     *
+     * @param uuid The player's UUID
+     * @param getter Extracts the value from the record
+     * @param defaultValue The value returned if the player is not stored
+     * @param <T> The type of the value
+     * @return A CompletableFuture that completes with the value
+     */
+    private <T> CompletableFuture<T> readRecord(UUID uuid, Function<PlayerRecord, T> getter, T defaultValue) {
+        return store.read(reader -> {
+            PlayerRecord record = reader.readPlayer(uuid);
+            return record != null ? getter.apply(record) : defaultValue;
+        });
+    }
+
+    /**
+     * Changes a player's record. Players that are not stored are left alone.
+     *
+     * @param uuid The player's UUID
+     * @param change The change to apply to the record
+     * @return A CompletableFuture that completes once the change is durable
+     */
+    private CompletableFuture<Void> updateRecord(UUID uuid, Consumer<PlayerRecord> change) {
+        return store.mutate(transaction -> {
+            PlayerRecord record = transaction.getPlayer(uuid);
+            if (record != null) {
+                change.accept(record);
+                transaction.putPlayer(record);
+            }
+            return null;
+        });
+    }
+}
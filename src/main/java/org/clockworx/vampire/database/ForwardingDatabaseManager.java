@@ -0,0 +1,305 @@
+package org.clockworx.vampire.database;
+
+import org.clockworx.vampire.config.LanguageConfig;
+import org.clockworx.vampire.config.VampireConfig;
+import org.clockworx.vampire.entity.BloodOffer;
+import org.clockworx.vampire.entity.VampirePlayer;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Base class for DatabaseManager decorators.
+ * Every method forwards to the wrapped manager, so a decorator only overrides
+ * the operations it changes.
+ */
+public abstract class ForwardingDatabaseManager implements DatabaseManager {
+
+    protected final DatabaseManager delegate;
+
+    /**
+     * Creates a new forwarding database manager.
+     *
+     * @param delegate The database manager to forward to
+     */
+    protected ForwardingDatabaseManager(DatabaseManager delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Gets the wrapped database manager.
+     *
+     * @return The wrapped database manager
+     */
+    public DatabaseManager getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public <T> Optional<T> unwrap(Class<T> type) {
+        return type.isInstance(this) ? Optional.of(type.cast(this)) : delegate.unwrap(type);
+    }
+
+    @Override
+    public int getWriteConcurrency() {
+        return delegate.getWriteConcurrency();
+    }
+
+    @Override
+    public ConnectionSource getConnectionSource() {
+        return delegate.getConnectionSource();
+    }
+
+    @Override
+    public void setChangeRecorder(ChangeRecorder recorder) {
+        delegate.setChangeRecorder(recorder);
+    }
+
+    @Override
+    public CompletableFuture<Void> initialize() {
+        return delegate.initialize();
+    }
+
+    @Override
+    public CompletableFuture<Void> shutdown() {
+        return delegate.shutdown();
+    }
+
+    @Override
+    public CompletableFuture<VampirePlayer> getPlayer(UUID uuid) {
+        return delegate.getPlayer(uuid);
+    }
+
+    @Override
+    public CompletableFuture<Void> savePlayer(VampirePlayer player) {
+        return delegate.savePlayer(player);
+    }
+
+    @Override
+    public CompletableFuture<Void> savePlayerRecords(Collection<PlayerRecord> records) {
+        return delegate.savePlayerRecords(records);
+    }
+
+    @Override
+    public CompletableFuture<Void> deletePlayer(UUID uuid) {
+        return delegate.deletePlayer(uuid);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isVampire(UUID uuid) {
+        return delegate.isVampire(uuid);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isInfected(UUID uuid) {
+        return delegate.isInfected(uuid);
+    }
+
+    @Override
+    public CompletableFuture<Double> getBloodLevel(UUID uuid) {
+        return delegate.getBloodLevel(uuid);
+    }
+
+    @Override
+    public CompletableFuture<Void> setBloodLevel(UUID uuid, double blood) {
+        return delegate.setBloodLevel(uuid, blood);
+    }
+
+    @Override
+    public CompletableFuture<Double> getInfectionLevel(UUID uuid) {
+        return delegate.getInfectionLevel(uuid);
+    }
+
+    @Override
+    public CompletableFuture<Void> setInfectionLevel(UUID uuid, double infection) {
+        return delegate.setInfectionLevel(uuid, infection);
+    }
+
+    @Override
+    public CompletableFuture<String> getInfectionReason(UUID uuid) {
+        return delegate.getInfectionReason(uuid);
+    }
+
+    @Override
+    public CompletableFuture<Void> setInfectionReason(UUID uuid, String reason) {
+        return delegate.setInfectionReason(uuid, reason);
+    }
+
+    @Override
+    public CompletableFuture<Long> getInfectionTime(UUID uuid) {
+        return delegate.getInfectionTime(uuid);
+    }
+
+    @Override
+    public CompletableFuture<Void> setInfectionTime(UUID uuid, long time) {
+        return delegate.setInfectionTime(uuid, time);
+    }
+
+    @Override
+    public CompletableFuture<Long> getLastShriekTime(UUID uuid) {
+        return delegate.getLastShriekTime(uuid);
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastShriekTime(UUID uuid, long time) {
+        return delegate.setLastShriekTime(uuid, time);
+    }
+
+    @Override
+    public CompletableFuture<Long> getLastBloodTradeTime(UUID uuid) {
+        return delegate.getLastBloodTradeTime(uuid);
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradeTime(UUID uuid, long time) {
+        return delegate.setLastBloodTradeTime(uuid, time);
+    }
+
+    @Override
+    public CompletableFuture<UUID> getLastBloodTradePartner(UUID uuid) {
+        return delegate.getLastBloodTradePartner(uuid);
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradePartner(UUID uuid, UUID partner) {
+        return delegate.setLastBloodTradePartner(uuid, partner);
+    }
+
+    @Override
+    public CompletableFuture<Double> getLastBloodTradeAmount(UUID uuid) {
+        return delegate.getLastBloodTradeAmount(uuid);
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradeAmount(UUID uuid, double amount) {
+        return delegate.setLastBloodTradeAmount(uuid, amount);
+    }
+
+    @Override
+    public CompletableFuture<String> getLastBloodTradeType(UUID uuid) {
+        return delegate.getLastBloodTradeType(uuid);
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradeType(UUID uuid, String type) {
+        return delegate.setLastBloodTradeType(uuid, type);
+    }
+
+    @Override
+    public CompletableFuture<BloodOffer> createBloodOffer(UUID senderUuid, UUID targetUuid, double amount) {
+        return delegate.createBloodOffer(senderUuid, targetUuid, amount);
+    }
+
+    @Override
+    public CompletableFuture<BloodOffer> getBloodOffer(UUID playerUuid) {
+        return delegate.getBloodOffer(playerUuid);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> acceptBloodOffer(UUID playerUuid) {
+        return delegate.acceptBloodOffer(playerUuid);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> rejectBloodOffer(UUID playerUuid) {
+        return delegate.rejectBloodOffer(playerUuid);
+    }
+
+    @Override
+    public CompletableFuture<List<BloodOffer>> getAllBloodOffers() {
+        return delegate.getAllBloodOffers();
+    }
+
+    @Override
+    public CompletableFuture<List<BloodOffer>> getBloodOfferPage(BloodOffer after, int limit) {
+        return delegate.getBloodOfferPage(after, limit);
+    }
+
+    @Override
+    public CompletableFuture<Void> saveBloodOffers(Collection<BloodOffer> offers) {
+        return delegate.saveBloodOffers(offers);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> cleanupExpiredOffers(long timeoutMillis) {
+        return delegate.cleanupExpiredOffers(timeoutMillis);
+    }
+
+    @Override
+    public CompletableFuture<Integer> purgeOffers(long pendingTimeoutMillis, long resolvedRetentionMillis) {
+        return delegate.purgeOffers(pendingTimeoutMillis, resolvedRetentionMillis);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> addInfection(UUID uuid, double amount, String reason) {
+        return delegate.addInfection(uuid, amount, reason);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> setVampire(UUID uuid, boolean isVampire) {
+        return delegate.setVampire(uuid, isVampire);
+    }
+
+    @Override
+    public CompletableFuture<List<VampirePlayer>> getAllVampires() {
+        return delegate.getAllVampires();
+    }
+
+    @Override
+    public CompletableFuture<List<VampirePlayer>> getVampirePage(UUID after, int limit) {
+        return delegate.getVampirePage(after, limit);
+    }
+
+    @Override
+    public CompletableFuture<List<PlayerRecord>> getPlayerRecordPage(UUID after, int limit) {
+        return delegate.getPlayerRecordPage(after, limit);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveConfig(String key, String value) {
+        return delegate.saveConfig(key, value);
+    }
+
+    @Override
+    public CompletableFuture<String> getConfig(String key) {
+        return delegate.getConfig(key);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveLanguage(String key, String value) {
+        return delegate.saveLanguage(key, value);
+    }
+
+    @Override
+    public CompletableFuture<String> getLanguage(String key) {
+        return delegate.getLanguage(key);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> useBlood(UUID uuid, double amount) {
+        return delegate.useBlood(uuid, amount);
+    }
+
+    @Override
+    public CompletableFuture<VampireConfig> loadConfig() {
+        return delegate.loadConfig();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveConfig(VampireConfig config) {
+        return delegate.saveConfig(config);
+    }
+
+    @Override
+    public CompletableFuture<LanguageConfig> loadLanguage() {
+        return delegate.loadLanguage();
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveLanguage(LanguageConfig language) {
+        return delegate.saveLanguage(language);
+    }
+}
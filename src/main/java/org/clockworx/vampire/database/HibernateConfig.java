@@ -2,19 +2,60 @@ package org.clockworx.vampire.database;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import org.clockworx.vampire.config.VampireConfig;
+import org.clockworx.vampire.util.StartupTimer;
+import org.ehcache.config.builders.CacheConfigurationBuilder;
+import org.ehcache.config.builders.ExpiryPolicyBuilder;
+import org.ehcache.config.builders.ResourcePoolsBuilder;
+import org.ehcache.jsr107.Eh107Configuration;
 import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
 import org.hibernate.cfg.Configuration;
 import org.hibernate.cfg.Environment;
+import org.hibernate.stat.Statistics;
 import org.sqlite.SQLiteDataSource;
 
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
 import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
 import java.util.Properties;
+import java.util.logging.Logger;
 
 public class HibernateConfig {
+
+    /**
+     * Second-level cache region holding VampirePlayerEntity instances.
+     */
+    public static final String PLAYER_REGION = "vampire_players";
+
+    /**
+     * Second-level cache region holding BloodOfferEntity instances.
+     */
+    public static final String OFFER_REGION = "blood_offers";
+
+    /**
+     * Query cache region for the pending blood offer lookups.
+     */
+    public static final String PENDING_OFFER_QUERY_REGION = "vampire_pending_offers";
+
+    /**
+     * Query cache region for the all-vampires query.
+     */
+    public static final String ALL_VAMPIRES_QUERY_REGION = "vampire_all_vampires";
+
     private static SessionFactory sessionFactory;
     private static DataSource dataSource;
+    private static CacheManager cacheManager;
+    private static SqliteEngine sqliteEngine;
+    private static ConnectionSource connectionSource;
 
-    public static void initialize(String dbType, String dbUrl, String dbUser, String dbPassword) {
+    public static void initialize(String dbType, String dbUrl, String dbUser, String dbPassword, VampireConfig pluginConfig,
+                                  StartupTimer timer) {
         // Create data source based on database type
         if ("mysql".equalsIgnoreCase(dbType)) {
             HikariConfig config = new HikariConfig();
@@ -26,42 +67,128 @@ public class HibernateConfig {
             config.setIdleTimeout(300000); // 5 minutes
             config.setConnectionTimeout(10000); // 10 seconds
             config.setAutoCommit(true);
-            dataSource = new HikariDataSource(config);
+            HikariDataSource pool = new HikariDataSource(config);
+            dataSource = pool;
+            connectionSource = new PooledConnectionSource(pool, SqlDialect.MYSQL);
         } else {
+            // Migrations run on their own connection, before the single writer owns the file
             SQLiteDataSource sqliteDs = new SQLiteDataSource();
             sqliteDs.setUrl(dbUrl);
             dataSource = sqliteDs;
         }
 
+        // Bring the schema up to date before Hibernate touches it
+        long migrationStart = System.nanoTime();
+        try {
+            new SchemaMigrator(dataSource, SqlDialect.fromType(dbType), Logger.getLogger(HibernateConfig.class.getName())).migrate();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to migrate database schema", e);
+        } finally {
+            timer.record("schema migration", System.nanoTime() - migrationStart);
+        }
+
+        // SQLite gets a single writer and a read-only pool, which Hibernate uses for reads
+        if (!"mysql".equalsIgnoreCase(dbType)) {
+            sqliteEngine = new SqliteEngine(dbUrl, pluginConfig.getSqliteReadPoolSize(),
+                pluginConfig.getSqliteWriteBatchSize(), pluginConfig.getSqliteMmapSize(),
+                Logger.getLogger(SqliteEngine.class.getName()));
+            long engineStart = System.nanoTime();
+            try {
+                sqliteEngine.start();
+            } catch (SQLException e) {
+                throw new IllegalStateException("Failed to open SQLite database", e);
+            } finally {
+                timer.record("sqlite engine", System.nanoTime() - engineStart);
+            }
+            dataSource = sqliteEngine.getReadDataSource();
+        }
+
         // Configure Hibernate
         Configuration configuration = new Configuration();
         Properties settings = new Properties();
-        
+
         // Common settings
         settings.put(Environment.DATASOURCE, dataSource);
-        settings.put(Environment.SHOW_SQL, "true");
-        settings.put(Environment.HBM2DDL_AUTO, "update");
+        settings.put(Environment.SHOW_SQL, String.valueOf(pluginConfig.isDatabaseShowSql()));
+        // The schema is owned by SchemaMigrator, so skip Hibernate's startup introspection
+        settings.put(Environment.HBM2DDL_AUTO, "none");
         settings.put(Environment.CURRENT_SESSION_CONTEXT_CLASS, "thread");
         settings.put(Environment.TRANSACTION_COORDINATOR_STRATEGY, "jdbc");
         settings.put(Environment.JDBC_TIME_ZONE, "UTC");
-        
+
         // Database-specific settings
         if ("mysql".equalsIgnoreCase(dbType)) {
             settings.put(Environment.DIALECT, "org.hibernate.dialect.MySQLDialect");
-            settings.put(Environment.CONNECTION_PROVIDER, "com.zaxxer.hikari.hibernate.HikariConnectionProvider");
         } else {
-            settings.put(Environment.DIALECT, "org.sqlite.hibernate.dialect.SQLiteDialect");
-            settings.put(Environment.CONNECTION_PROVIDER, "org.hibernate.connection.C3P0ConnectionProvider");
+            settings.put(Environment.DIALECT, "org.hibernate.community.dialect.SQLiteDialect");
+            // Writer sessions flush into the engine's batch transaction, which is committed by the engine
+            settings.put(Environment.ALLOW_UPDATE_OUTSIDE_TRANSACTION, "true");
         }
-        
+
+        // Second-level and query cache settings
+        configureCache(settings, pluginConfig);
+
         configuration.setProperties(settings);
-        
+
         // Add entity classes
         configuration.addAnnotatedClass(org.clockworx.vampire.entity.VampirePlayerEntity.class);
         configuration.addAnnotatedClass(org.clockworx.vampire.entity.BloodOfferEntity.class);
-        
+
         // Build session factory
-        sessionFactory = configuration.buildSessionFactory();
+        sessionFactory = timer.time("session factory", () -> configuration.buildSessionFactory());
+
+        if (sqliteEngine != null) {
+            // Committed writes invalidate only their own tables, see HibernateDatabaseManager;
+            // a rolled back batch may have left cache entries for any of them
+            sqliteEngine.setRollbackListener(() -> sessionFactory.getCache().evictAllRegions());
+        }
+    }
+
+    /**
+     * Configures the JCache-backed second-level cache.
+     * The cache regions are created up front so that their size and expiry
+     * follow the database.cache section of config.yml instead of provider defaults.
+     *
+     * @param settings The Hibernate settings to add the cache configuration to
+     * @param config The plugin configuration
+     */
+    private static void configureCache(Properties settings, VampireConfig config) {
+        settings.put(Environment.GENERATE_STATISTICS, String.valueOf(config.isDatabaseCacheStatistics()));
+
+        if (!config.isDatabaseCacheEnabled()) {
+            settings.put(Environment.USE_SECOND_LEVEL_CACHE, "false");
+            settings.put(Environment.USE_QUERY_CACHE, "false");
+            return;
+        }
+
+        ClassLoader classLoader = HibernateConfig.class.getClassLoader();
+        CachingProvider provider = Caching.getCachingProvider("org.ehcache.jsr107.EhcacheCachingProvider", classLoader);
+        cacheManager = provider.getCacheManager(provider.getDefaultURI(), classLoader);
+
+        int maxEntries = config.getDatabaseCacheMaxEntries();
+        Duration expiry = Duration.ofSeconds(config.getDatabaseCacheExpireSeconds());
+
+        // Entity and query result regions expire after being idle for the configured time
+        for (String region : List.of(PLAYER_REGION, OFFER_REGION, PENDING_OFFER_QUERY_REGION,
+                ALL_VAMPIRES_QUERY_REGION, RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME)) {
+            cacheManager.createCache(region, Eh107Configuration.fromEhcacheCacheConfiguration(
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
+                        ResourcePoolsBuilder.heap(maxEntries))
+                    .withExpiry(ExpiryPolicyBuilder.timeToIdleExpiration(expiry))));
+        }
+
+        // The update timestamps region must never expire, otherwise stale query results could be served
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME,
+            Eh107Configuration.fromEhcacheCacheConfiguration(
+                CacheConfigurationBuilder.newCacheConfigurationBuilder(Object.class, Object.class,
+                        ResourcePoolsBuilder.heap(1000))
+                    .withExpiry(ExpiryPolicyBuilder.noExpiration())));
+
+        settings.put(Environment.USE_SECOND_LEVEL_CACHE, "true");
+        settings.put(Environment.USE_QUERY_CACHE, String.valueOf(config.isDatabaseQueryCacheEnabled()));
+        settings.put(Environment.CACHE_REGION_FACTORY, "jcache");
+        settings.put(ConfigSettings.CACHE_MANAGER, cacheManager);
+        settings.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
     }
 
     public static SessionFactory getSessionFactory() {
@@ -78,12 +205,63 @@ public class HibernateConfig {
         return dataSource;
     }
 
+    /**
+     * Gets the single-writer SQLite engine.
+     *
+     * @return The engine, or null if the database is not SQLite
+     */
+    public static SqliteEngine getSqliteEngine() {
+        return sqliteEngine;
+    }
+
+    /**
+     * Gets plain JDBC access to the database, sharing Hibernate's connections:
+     * the single writer on SQLite and the connection pool on MySQL.
+     *
+     * @return The connection source, or null if Hibernate is not initialized
+     */
+    public static ConnectionSource getConnectionSource() {
+        return sqliteEngine != null ? sqliteEngine : connectionSource;
+    }
+
+    /**
+     * Gets the number of write transactions the database can run at the same time.
+     *
+     * @return The connection pool size for MySQL, or 1 for the single SQLite writer
+     */
+    public static int getWriteConcurrency() {
+        return dataSource instanceof HikariDataSource ? ((HikariDataSource) dataSource).getMaximumPoolSize() : 1;
+    }
+
+    /**
+     * Gets the Hibernate statistics, including second-level and query cache hit counts.
+     *
+     * @return The statistics, or null if Hibernate is not initialized or statistics are disabled
+     */
+    public static Statistics getStatistics() {
+        if (sessionFactory == null || !sessionFactory.getStatistics().isStatisticsEnabled()) {
+            return null;
+        }
+        return sessionFactory.getStatistics();
+    }
+
     public static void shutdown() {
+        // Drain queued writes while the session factory is still open
+        if (sqliteEngine != null) {
+            sqliteEngine.shutdown();
+            sqliteEngine = null;
+        }
         if (sessionFactory != null) {
             sessionFactory.close();
+            sessionFactory = null;
+        }
+        if (cacheManager != null) {
+            cacheManager.close();
+            cacheManager = null;
         }
         if (dataSource instanceof HikariDataSource) {
             ((HikariDataSource) dataSource).close();
         }
+        connectionSource = null;
     }
-} 
\ No newline at end of file
+}
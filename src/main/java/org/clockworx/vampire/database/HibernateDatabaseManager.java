@@ -7,19 +7,24 @@ import org.clockworx.vampire.entity.BloodOffer;
 import org.clockworx.vampire.entity.BloodOfferEntity;
 import org.clockworx.vampire.config.VampireConfig;
 import org.clockworx.vampire.config.LanguageConfig;
+import org.hibernate.CacheMode;
 import org.hibernate.Session;
 import org.hibernate.Transaction;
+import org.hibernate.engine.spi.SessionImplementor;
 import org.hibernate.query.Query;
-import com.zaxxer.hikari.HikariDataSource;
 
+import java.sql.PreparedStatement;
+import java.util.Collection;
 import java.util.UUID;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class HibernateDatabaseManager implements DatabaseManager {
     private final VampirePlugin plugin;
-    private HikariDataSource dataSource;
+    private volatile ChangeRecorder changeRecorder;
 
     public HibernateDatabaseManager(VampirePlugin plugin) {
         this.plugin = plugin;
@@ -35,30 +40,8 @@ public class HibernateDatabaseManager implements DatabaseManager {
                 String dbUser = plugin.getVampireConfig().getDatabaseUser();
                 String dbPassword = plugin.getVampireConfig().getDatabasePassword();
                 
-                // Create data source based on database type
-                if (dbType.equalsIgnoreCase("mysql")) {
-                    // MySQL configuration
-                    dataSource = new HikariDataSource();
-                    dataSource.setDriverClassName("com.mysql.cj.jdbc.Driver");
-                    dataSource.setJdbcUrl(dbUrl);
-                    dataSource.setUsername(dbUser);
-                    dataSource.setPassword(dbPassword);
-                    dataSource.setMaximumPoolSize(10);
-                    dataSource.setMinimumIdle(5);
-                    dataSource.setIdleTimeout(300000);
-                    dataSource.setConnectionTimeout(10000);
-                    dataSource.setMaxLifetime(1800000);
-                } else {
-                    // SQLite configuration (default)
-                    dataSource = new HikariDataSource();
-                    dataSource.setDriverClassName("org.sqlite.JDBC");
-                    dataSource.setJdbcUrl(dbUrl);
-                    dataSource.setMaximumPoolSize(10);
-                    dataSource.setMinimumIdle(5);
-                    dataSource.setIdleTimeout(300000);
-                    dataSource.setConnectionTimeout(10000);
-                    dataSource.setMaxLifetime(1800000);
-                }
+                // Build the session factory, including the second-level cache
+                HibernateConfig.initialize(dbType, dbUrl, dbUser, dbPassword, plugin.getVampireConfig(), plugin.getStartupTimer());
             } catch (Exception e) {
                 throw new RuntimeException("Failed to initialize database", e);
             }
@@ -70,6 +53,21 @@ public class HibernateDatabaseManager implements DatabaseManager {
         return CompletableFuture.runAsync(HibernateConfig::shutdown);
     }
 
+    @Override
+    public int getWriteConcurrency() {
+        return HibernateConfig.getWriteConcurrency();
+    }
+
+    @Override
+    public ConnectionSource getConnectionSource() {
+        return HibernateConfig.getConnectionSource();
+    }
+
+    @Override
+    public void setChangeRecorder(ChangeRecorder recorder) {
+        this.changeRecorder = recorder;
+    }
+
     @Override
     public CompletableFuture<VampirePlayer> getPlayer(UUID uuid) {
         return CompletableFuture.supplyAsync(() -> {
@@ -82,37 +80,38 @@ public class HibernateDatabaseManager implements DatabaseManager {
 
     @Override
     public CompletableFuture<Void> savePlayer(VampirePlayer player) {
-        return CompletableFuture.runAsync(() -> {
-            try (Session session = HibernateConfig.getSessionFactory().openSession()) {
-                Transaction tx = session.beginTransaction();
-                try {
-                    VampirePlayerEntity entity = convertToEntity(player);
-                    session.merge(entity);
-                    tx.commit();
-                } catch (Exception e) {
-                    tx.rollback();
-                    throw e;
-                }
+        return write(session -> {
+            VampirePlayerEntity entity = convertToEntity(player);
+            session.merge(entity);
+            recordChanges(session, List.of(player.getUuid()));
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> savePlayerRecords(Collection<PlayerRecord> records) {
+        if (records.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        // One transaction for the whole batch
+        return write(session -> {
+            for (PlayerRecord record : records) {
+                session.merge(convertToEntity(record));
             }
+            recordChanges(session, records.stream().map(PlayerRecord::getUuid).collect(Collectors.toList()));
+            return null;
         });
     }
 
     @Override
     public CompletableFuture<Void> deletePlayer(UUID uuid) {
-        return CompletableFuture.runAsync(() -> {
-            try (Session session = HibernateConfig.getSessionFactory().openSession()) {
-                Transaction tx = session.beginTransaction();
-                try {
-                    VampirePlayerEntity entity = session.get(VampirePlayerEntity.class, uuid);
-                    if (entity != null) {
-                        session.remove(entity);
-                    }
-                    tx.commit();
-                } catch (Exception e) {
-                    tx.rollback();
-                    throw e;
-                }
+        return write(session -> {
+            VampirePlayerEntity entity = session.get(VampirePlayerEntity.class, uuid);
+            if (entity != null) {
+                session.remove(entity);
+                recordChanges(session, List.of(uuid));
             }
+            return null;
         });
     }
 
@@ -148,21 +147,14 @@ public class HibernateDatabaseManager implements DatabaseManager {
 
     @Override
     public CompletableFuture<Void> setBloodLevel(UUID uuid, double blood) {
-        return CompletableFuture.runAsync(() -> {
-            try (Session session = HibernateConfig.getSessionFactory().openSession()) {
-                Transaction tx = session.beginTransaction();
-                try {
-                    VampirePlayerEntity entity = session.get(VampirePlayerEntity.class, uuid);
-                    if (entity != null) {
-                        entity.setBloodLevel(blood);
-                        session.merge(entity);
-                    }
-                    tx.commit();
-                } catch (Exception e) {
-                    tx.rollback();
-                    throw e;
-                }
+        return write(session -> {
+            VampirePlayerEntity entity = session.get(VampirePlayerEntity.class, uuid);
+            if (entity != null) {
+                entity.setBloodLevel(blood);
+                session.merge(entity);
+                recordChanges(session, List.of(uuid));
             }
+            return null;
         });
     }
 
@@ -178,21 +170,14 @@ public class HibernateDatabaseManager implements DatabaseManager {
 
     @Override
     public CompletableFuture<Void> setInfectionLevel(UUID uuid, double infection) {
-        return CompletableFuture.runAsync(() -> {
-            try (Session session = HibernateConfig.getSessionFactory().openSession()) {
-                Transaction tx = session.beginTransaction();
-                try {
-                    VampirePlayerEntity entity = session.get(VampirePlayerEntity.class, uuid);
-                    if (entity != null) {
-                        entity.setInfectionLevel(infection);
-                        session.merge(entity);
-                    }
-                    tx.commit();
-                } catch (Exception e) {
-                    tx.rollback();
-                    throw e;
-                }
+        return write(session -> {
+            VampirePlayerEntity entity = session.get(VampirePlayerEntity.class, uuid);
+            if (entity != null) {
+                entity.setInfectionLevel(infection);
+                session.merge(entity);
+                recordChanges(session, List.of(uuid));
             }
+            return null;
         });
     }
 
@@ -208,21 +193,14 @@ public class HibernateDatabaseManager implements DatabaseManager {
 
     @Override
     public CompletableFuture<Void> setInfectionReason(UUID uuid, String reason) {
-        return CompletableFuture.runAsync(() -> {
-            try (Session session = HibernateConfig.getSessionFactory().openSession()) {
-                Transaction tx = session.beginTransaction();
-                try {
-                    VampirePlayerEntity entity = session.get(VampirePlayerEntity.class, uuid);
-                    if (entity != null) {
-                        entity.setInfectionReason(reason);
-                        session.merge(entity);
-                    }
-                    tx.commit();
-                } catch (Exception e) {
-                    tx.rollback();
-                    throw e;
-                }
+        return write(session -> {
+            VampirePlayerEntity entity = session.get(VampirePlayerEntity.class, uuid);
+            if (entity != null) {
+                entity.setInfectionReason(reason);
+                session.merge(entity);
+                recordChanges(session, List.of(uuid));
             }
+            return null;
         });
     }
 
@@ -238,21 +216,14 @@ public class HibernateDatabaseManager implements DatabaseManager {
 
     @Override
     public CompletableFuture<Void> setInfectionTime(UUID uuid, long time) {
-        return CompletableFuture.runAsync(() -> {
-            try (Session session = HibernateConfig.getSessionFactory().openSession()) {
-                Transaction tx = session.beginTransaction();
-                try {
-                    VampirePlayerEntity entity = session.get(VampirePlayerEntity.class, uuid);
-                    if (entity != null) {
-                        entity.setInfectionTime(time);
-                        session.merge(entity);
-                    }
-                    tx.commit();
-                } catch (Exception e) {
-                    tx.rollback();
-                    throw e;
-                }
+        return write(session -> {
+            VampirePlayerEntity entity = session.get(VampirePlayerEntity.class, uuid);
+            if (entity != null) {
+                entity.setInfectionTime(time);
+                session.merge(entity);
+                recordChanges(session, List.of(uuid));
             }
+            return null;
         });
     }
 
@@ -268,21 +239,14 @@ public class HibernateDatabaseManager implements DatabaseManager {
 
     @Override
     public CompletableFuture<Void> setLastShriekTime(UUID uuid, long time) {
-        return CompletableFuture.runAsync(() -> {
-            try (Session session = HibernateConfig.getSessionFactory().openSession()) {
-                Transaction tx = session.beginTransaction();
-                try {
-                    VampirePlayerEntity entity = session.get(VampirePlayerEntity.class, uuid);
-                    if (entity != null) {
-                        entity.setLastShriekTime(time);
-                        session.merge(entity);
-                    }
-                    tx.commit();
-                } catch (Exception e) {
-                    tx.rollback();
-                    throw e;
-                }
+        return write(session -> {
+            VampirePlayerEntity entity = session.get(VampirePlayerEntity.class, uuid);
+            if (entity != null) {
+                entity.setLastShriekTime(time);
+                session.merge(entity);
+                recordChanges(session, List.of(uuid));
             }
+            return null;
         });
     }
 
@@ -298,21 +262,14 @@ public class HibernateDatabaseManager implements DatabaseManager {
 
     @Override
     public CompletableFuture<Void> setLastBloodTradeTime(UUID uuid, long time) {
-        return CompletableFuture.runAsync(() -> {
-            try (Session session = HibernateConfig.getSessionFactory().openSession()) {
-                Transaction tx = session.beginTransaction();
-                try {
-                    VampirePlayerEntity entity = session.get(VampirePlayerEntity.class, uuid);
-                    if (entity != null) {
-                        entity.setLastBloodTradeTime(time);
-                        session.merge(entity);
-                    }
-                    tx.commit();
-                } catch (Exception e) {
-                    tx.rollback();
-                    throw e;
-                }
+        return write(session -> {
+            VampirePlayerEntity entity = session.get(VampirePlayerEntity.class, uuid);
+            if (entity != null) {
+                entity.setLastBloodTradeTime(time);
+                session.merge(entity);
+                recordChanges(session, List.of(uuid));
             }
+            return null;
         });
     }
 
@@ -328,21 +285,14 @@ public class HibernateDatabaseManager implements DatabaseManager {
 
     @Override
     public CompletableFuture<Void> setLastBloodTradePartner(UUID uuid, UUID partner) {
-        return CompletableFuture.runAsync(() -> {
-            try (Session session = HibernateConfig.getSessionFactory().openSession()) {
-                Transaction tx = session.beginTransaction();
-                try {
-                    VampirePlayerEntity entity = session.get(VampirePlayerEntity.class, uuid);
-                    if (entity != null) {
-                        entity.setLastBloodTradePartner(partner);
-                        session.merge(entity);
-                    }
-                    tx.commit();
-                } catch (Exception e) {
-                    tx.rollback();
-                    throw e;
-                }
+        return write(session -> {
+            VampirePlayerEntity entity = session.get(VampirePlayerEntity.class, uuid);
+            if (entity != null) {
+                entity.setLastBloodTradePartner(partner);
+                session.merge(entity);
+                recordChanges(session, List.of(uuid));
             }
+            return null;
         });
     }
 
@@ -358,21 +308,14 @@ public class HibernateDatabaseManager implements DatabaseManager {
 
     @Override
     public CompletableFuture<Void> setLastBloodTradeAmount(UUID uuid, double amount) {
-        return CompletableFuture.runAsync(() -> {
-            try (Session session = HibernateConfig.getSessionFactory().openSession()) {
-                Transaction tx = session.beginTransaction();
-                try {
-                    VampirePlayerEntity entity = session.get(VampirePlayerEntity.class, uuid);
-                    if (entity != null) {
-                        entity.setLastBloodTradeAmount(amount);
-                        session.merge(entity);
-                    }
-                    tx.commit();
-                } catch (Exception e) {
-                    tx.rollback();
-                    throw e;
-                }
+        return write(session -> {
+            VampirePlayerEntity entity = session.get(VampirePlayerEntity.class, uuid);
+            if (entity != null) {
+                entity.setLastBloodTradeAmount(amount);
+                session.merge(entity);
+                recordChanges(session, List.of(uuid));
             }
+            return null;
         });
     }
 
@@ -388,39 +331,23 @@ public class HibernateDatabaseManager implements DatabaseManager {
 
     @Override
     public CompletableFuture<Void> setLastBloodTradeType(UUID uuid, String type) {
-        return CompletableFuture.runAsync(() -> {
-            try (Session session = HibernateConfig.getSessionFactory().openSession()) {
-                Transaction tx = session.beginTransaction();
-                try {
-                    VampirePlayerEntity entity = session.get(VampirePlayerEntity.class, uuid);
-                    if (entity != null) {
-                        entity.setLastBloodTradeType(type);
-                        session.merge(entity);
-                    }
-                    tx.commit();
-                } catch (Exception e) {
-                    tx.rollback();
-                    throw e;
-                }
+        return write(session -> {
+            VampirePlayerEntity entity = session.get(VampirePlayerEntity.class, uuid);
+            if (entity != null) {
+                entity.setLastBloodTradeType(type);
+                session.merge(entity);
+                recordChanges(session, List.of(uuid));
             }
+            return null;
         });
     }
 
     @Override
     public CompletableFuture<BloodOffer> createBloodOffer(UUID senderUuid, UUID targetUuid, double amount) {
-        return CompletableFuture.supplyAsync(() -> {
-            try (Session session = HibernateConfig.getSessionFactory().openSession()) {
-                Transaction tx = session.beginTransaction();
-                try {
-                    BloodOfferEntity entity = new BloodOfferEntity(senderUuid, targetUuid, amount);
-                    session.persist(entity);
-                    tx.commit();
-                    return convertToBloodOffer(entity);
-                } catch (Exception e) {
-                    tx.rollback();
-                    throw e;
-                }
-            }
+        return write(session -> {
+            BloodOfferEntity entity = new BloodOfferEntity(senderUuid, targetUuid, amount);
+            session.persist(entity);
+            return convertToBloodOffer(entity);
         });
     }
 
@@ -428,10 +355,9 @@ public class HibernateDatabaseManager implements DatabaseManager {
     public CompletableFuture<BloodOffer> getBloodOffer(UUID playerUuid) {
         return CompletableFuture.supplyAsync(() -> {
             try (Session session = HibernateConfig.getSessionFactory().openSession()) {
-                Query<BloodOfferEntity> query = session.createQuery(
-                    "FROM BloodOfferEntity WHERE targetUuid = :uuid AND accepted = false AND rejected = false",
-                    BloodOfferEntity.class);
-                query.setParameter("uuid", playerUuid);
+                Query<BloodOfferEntity> query = pendingOfferQuery(session, playerUuid);
+                query.setCacheable(true);
+                query.setCacheRegion(HibernateConfig.PENDING_OFFER_QUERY_REGION);
                 BloodOfferEntity entity = query.uniqueResult();
                 return entity != null ? convertToBloodOffer(entity) : null;
             }
@@ -440,56 +366,27 @@ public class HibernateDatabaseManager implements DatabaseManager {
 
     @Override
     public CompletableFuture<Boolean> acceptBloodOffer(UUID playerUuid) {
-        return CompletableFuture.supplyAsync(() -> {
-            try (Session session = HibernateConfig.getSessionFactory().openSession()) {
-                Transaction tx = session.beginTransaction();
-                try {
-                    Query<BloodOfferEntity> query = session.createQuery(
-                        "FROM BloodOfferEntity WHERE targetUuid = :uuid AND accepted = false AND rejected = false",
-                        BloodOfferEntity.class);
-                    query.setParameter("uuid", playerUuid);
-                    BloodOfferEntity entity = query.uniqueResult();
-                    if (entity != null) {
-                        entity.setAccepted(true);
-                        session.merge(entity);
-                        tx.commit();
-                        return true;
-                    }
-                    tx.commit();
-                    return false;
-                } catch (Exception e) {
-                    tx.rollback();
-                    throw e;
-                }
+        return write(session -> {
+            BloodOfferEntity entity = pendingOfferQuery(session, playerUuid).uniqueResult();
+            if (entity != null) {
+                entity.setAccepted(true);
+                session.merge(entity);
+                return true;
             }
+            return false;
         });
     }
 
     @Override
     public CompletableFuture<Boolean> rejectBloodOffer(UUID playerUuid) {
-        return CompletableFuture.supplyAsync(() -> {
-            try (Session session = HibernateConfig.getSessionFactory().openSession()) {
-                Transaction tx = session.beginTransaction();
-                try {
-                    Query<BloodOfferEntity> query = session.createQuery(
-                        "FROM BloodOfferEntity WHERE targetUuid = :uuid AND rejected = false",
-                        BloodOfferEntity.class);
-                    query.setParameter("uuid", playerUuid);
-                    BloodOfferEntity entity = query.uniqueResult();
-                    
-                    if (entity != null) {
-                        entity.setRejected(true);
-                        session.merge(entity);
-                        tx.commit();
-                        return true;
-                    }
-                    tx.commit();
-                    return false;
-                } catch (Exception e) {
-                    tx.rollback();
-                    throw e;
-                }
+        return write(session -> {
+            BloodOfferEntity entity = pendingOfferQuery(session, playerUuid).uniqueResult();
+            if (entity != null) {
+                entity.setRejected(true);
+                session.merge(entity);
+                return true;
             }
+            return false;
         });
     }
 
@@ -500,6 +397,8 @@ public class HibernateDatabaseManager implements DatabaseManager {
                 Query<BloodOfferEntity> query = session.createQuery(
                     "FROM BloodOfferEntity WHERE accepted = false AND rejected = false",
                     BloodOfferEntity.class);
+                query.setCacheable(true);
+                query.setCacheRegion(HibernateConfig.PENDING_OFFER_QUERY_REGION);
                 List<BloodOfferEntity> entities = query.list();
                 return entities.stream()
                     .map(this::convertToBloodOffer)
@@ -509,89 +408,106 @@ public class HibernateDatabaseManager implements DatabaseManager {
     }
 
     @Override
-    public CompletableFuture<Boolean> cleanupExpiredOffers(long timeoutMillis) {
+    public CompletableFuture<List<BloodOffer>> getBloodOfferPage(BloodOffer after, int limit) {
         return CompletableFuture.supplyAsync(() -> {
             try (Session session = HibernateConfig.getSessionFactory().openSession()) {
-                Transaction tx = session.beginTransaction();
-                try {
-                    long cutoff = System.currentTimeMillis() - timeoutMillis;
-                    Query<BloodOfferEntity> query = session.createQuery(
-                        "FROM BloodOfferEntity WHERE timestamp < :cutoff",
+                Query<BloodOfferEntity> query;
+                if (after == null) {
+                    query = session.createQuery(
+                        "FROM BloodOfferEntity WHERE accepted = false AND rejected = false "
+                            + "ORDER BY timestamp, senderUuid, targetUuid",
                         BloodOfferEntity.class);
-                    query.setParameter("cutoff", cutoff);
-                    List<BloodOfferEntity> entities = query.list();
-                    for (BloodOfferEntity entity : entities) {
-                        session.remove(entity);
-                    }
-                    tx.commit();
-                    return true;
-                } catch (Exception e) {
-                    tx.rollback();
-                    throw e;
+                } else {
+                    query = session.createQuery(
+                        "FROM BloodOfferEntity WHERE accepted = false AND rejected = false AND (timestamp > :time "
+                            + "OR (timestamp = :time AND (senderUuid > :sender OR (senderUuid = :sender AND targetUuid > :target)))) "
+                            + "ORDER BY timestamp, senderUuid, targetUuid",
+                        BloodOfferEntity.class);
+                    query.setParameter("time", after.getTimestamp());
+                    query.setParameter("sender", after.getSenderUuid());
+                    query.setParameter("target", after.getTargetUuid());
                 }
+                query.setMaxResults(limit);
+                query.setFetchSize(limit);
+                // Pages are read once, so keep them out of the session and second-level cache
+                query.setReadOnly(true);
+                query.setCacheMode(CacheMode.IGNORE);
+                return query.list().stream()
+                    .map(this::convertToBloodOffer)
+                    .collect(Collectors.toList());
             }
         });
     }
 
+    @Override
+    public CompletableFuture<Void> saveBloodOffers(Collection<BloodOffer> offers) {
+        if (offers.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return write(session -> {
+            for (BloodOffer offer : offers) {
+                BloodOfferEntity entity = new BloodOfferEntity(offer.getSenderUuid(), offer.getTargetUuid(), offer.getAmount());
+                entity.setTimestamp(offer.getTimestamp());
+                entity.setAccepted(offer.isAccepted());
+                entity.setRejected(offer.isRejected());
+                session.persist(entity);
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> cleanupExpiredOffers(long timeoutMillis) {
+        return write(session -> {
+            long cutoff = System.currentTimeMillis() - timeoutMillis;
+            deleteOffers(session, "DELETE FROM blood_offers WHERE timestamp < ?", cutoff);
+            return true;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Integer> purgeOffers(long pendingTimeoutMillis, long resolvedRetentionMillis) {
+        return write(session -> {
+            long now = System.currentTimeMillis();
+            return deleteOffers(session, "DELETE FROM blood_offers WHERE "
+                + "(accepted = ? AND rejected = ? AND timestamp < ?) OR ((accepted = ? OR rejected = ?) AND timestamp < ?)",
+                false, false, now - pendingTimeoutMillis, true, true, now - resolvedRetentionMillis);
+        });
+    }
+
     @Override
     public CompletableFuture<Boolean> addInfection(UUID uuid, double amount, String reason) {
-        return CompletableFuture.supplyAsync(() -> {
-            try (Session session = HibernateConfig.getSessionFactory().openSession()) {
-                Transaction tx = session.beginTransaction();
-                try {
-                    Query<VampirePlayerEntity> query = session.createQuery(
-                        "FROM VampirePlayerEntity WHERE uuid = :uuid",
-                        VampirePlayerEntity.class);
-                    query.setParameter("uuid", uuid);
-                    VampirePlayerEntity entity = query.uniqueResult();
-                    
-                    if (entity != null) {
-                        double currentInfection = entity.getInfectionLevel();
-                        entity.setInfectionLevel(currentInfection + amount);
-                        entity.setInfectionReason(reason);
-                        entity.setInfectionTime(System.currentTimeMillis());
-                        session.merge(entity);
-                        tx.commit();
-                        return true;
-                    }
-                    tx.commit();
-                    return false;
-                } catch (Exception e) {
-                    tx.rollback();
-                    throw e;
-                }
+        return write(session -> {
+            VampirePlayerEntity entity = session.get(VampirePlayerEntity.class, uuid);
+            
+            if (entity != null) {
+                double currentInfection = entity.getInfectionLevel();
+                entity.setInfectionLevel(currentInfection + amount);
+                entity.setInfectionReason(reason);
+                entity.setInfectionTime(System.currentTimeMillis());
+                session.merge(entity);
+                recordChanges(session, List.of(uuid));
+                return true;
             }
+            return false;
         });
     }
 
     @Override
     public CompletableFuture<Boolean> setVampire(UUID uuid, boolean isVampire) {
-        return CompletableFuture.supplyAsync(() -> {
-            try (Session session = HibernateConfig.getSessionFactory().openSession()) {
-                Transaction tx = session.beginTransaction();
-                try {
-                    Query<VampirePlayerEntity> query = session.createQuery(
-                        "FROM VampirePlayerEntity WHERE uuid = :uuid",
-                        VampirePlayerEntity.class);
-                    query.setParameter("uuid", uuid);
-                    VampirePlayerEntity entity = query.uniqueResult();
-                    
-                    if (entity != null) {
-                        entity.setVampire(isVampire);
-                        if (isVampire) {
-                            entity.setInfectionTime(System.currentTimeMillis());
-                        }
-                        session.merge(entity);
-                        tx.commit();
-                        return true;
-                    }
-                    tx.commit();
-                    return false;
-                } catch (Exception e) {
-                    tx.rollback();
-                    throw e;
+        return write(session -> {
+            VampirePlayerEntity entity = session.get(VampirePlayerEntity.class, uuid);
+            
+            if (entity != null) {
+                entity.setVampire(isVampire);
+                if (isVampire) {
+                    entity.setInfectionTime(System.currentTimeMillis());
                 }
+                session.merge(entity);
+                recordChanges(session, List.of(uuid));
+                return true;
             }
+            return false;
         });
     }
 
@@ -602,6 +518,36 @@ public class HibernateDatabaseManager implements DatabaseManager {
                 Query<VampirePlayerEntity> query = session.createQuery(
                     "FROM VampirePlayerEntity WHERE isVampire = true",
                     VampirePlayerEntity.class);
+                query.setCacheable(true);
+                query.setCacheRegion(HibernateConfig.ALL_VAMPIRES_QUERY_REGION);
+                List<VampirePlayerEntity> entities = query.list();
+                return entities.stream()
+                    .map(this::convertToVampirePlayer)
+                    .collect(Collectors.toList());
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<VampirePlayer>> getVampirePage(UUID after, int limit) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Session session = HibernateConfig.getSessionFactory().openSession()) {
+                Query<VampirePlayerEntity> query;
+                if (after == null) {
+                    query = session.createQuery(
+                        "FROM VampirePlayerEntity WHERE isVampire = true ORDER BY uuid",
+                        VampirePlayerEntity.class);
+                } else {
+                    query = session.createQuery(
+                        "FROM VampirePlayerEntity WHERE isVampire = true AND uuid > :after ORDER BY uuid",
+                        VampirePlayerEntity.class);
+                    query.setParameter("after", after);
+                }
+                query.setMaxResults(limit);
+                query.setFetchSize(limit);
+                // Pages are read once, so keep them out of the session and second-level cache
+                query.setReadOnly(true);
+                query.setCacheMode(CacheMode.IGNORE);
                 List<VampirePlayerEntity> entities = query.list();
                 return entities.stream()
                     .map(this::convertToVampirePlayer)
@@ -610,6 +556,29 @@ public class HibernateDatabaseManager implements DatabaseManager {
         });
     }
 
+    @Override
+    public CompletableFuture<List<PlayerRecord>> getPlayerRecordPage(UUID after, int limit) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Session session = HibernateConfig.getSessionFactory().openSession()) {
+                Query<VampirePlayerEntity> query;
+                if (after == null) {
+                    query = session.createQuery("FROM VampirePlayerEntity ORDER BY uuid", VampirePlayerEntity.class);
+                } else {
+                    query = session.createQuery("FROM VampirePlayerEntity WHERE uuid > :after ORDER BY uuid",
+                        VampirePlayerEntity.class);
+                    query.setParameter("after", after);
+                }
+                query.setMaxResults(limit);
+                query.setFetchSize(limit);
+                query.setReadOnly(true);
+                query.setCacheMode(CacheMode.IGNORE);
+                return query.list().stream()
+                    .map(this::convertToRecord)
+                    .collect(Collectors.toList());
+            }
+        });
+    }
+
     @Override
     public CompletableFuture<Boolean> saveConfig(String key, String value) {
         // Not implemented as we're using file-based config
@@ -636,24 +605,15 @@ public class HibernateDatabaseManager implements DatabaseManager {
 
     @Override
     public CompletableFuture<Boolean> useBlood(UUID uuid, double amount) {
-        return CompletableFuture.supplyAsync(() -> {
-            try (Session session = HibernateConfig.getSessionFactory().openSession()) {
-                Transaction tx = session.beginTransaction();
-                try {
-                    VampirePlayerEntity entity = session.get(VampirePlayerEntity.class, uuid);
-                    if (entity != null && entity.getBloodLevel() >= amount) {
-                        entity.setBloodLevel(entity.getBloodLevel() - amount);
-                        session.merge(entity);
-                        tx.commit();
-                        return true;
-                    }
-                    tx.commit();
-                    return false;
-                } catch (Exception e) {
-                    tx.rollback();
-                    throw e;
-                }
+        return write(session -> {
+            VampirePlayerEntity entity = session.get(VampirePlayerEntity.class, uuid);
+            if (entity != null && entity.getBloodLevel() >= amount) {
+                entity.setBloodLevel(entity.getBloodLevel() - amount);
+                session.merge(entity);
+                recordChanges(session, List.of(uuid));
+                return true;
             }
+            return false;
         });
     }
 
@@ -681,20 +641,115 @@ public class HibernateDatabaseManager implements DatabaseManager {
         return CompletableFuture.completedFuture(null);
     }
 
+    /**
+     * Creates the query for a player's most recent pending offer. Accepting and rejecting
+     * act on the same offer, so older pending offers are left alone.
+     *
+     * @param session The session to query in
+     * @param playerUuid The UUID of the offer's target
+     * @return The query, returning at most one offer
+     */
+    private Query<BloodOfferEntity> pendingOfferQuery(Session session, UUID playerUuid) {
+        Query<BloodOfferEntity> query = session.createQuery(
+            "FROM BloodOfferEntity WHERE targetUuid = :uuid AND accepted = false AND rejected = false "
+            + "ORDER BY timestamp DESC, id DESC",
+            BloodOfferEntity.class);
+        query.setParameter("uuid", playerUuid);
+        query.setMaxResults(1);
+        return query;
+    }
+
+    /**
+     * Passes changed players to the change recorder, on the write's connection and in its transaction.
+     *
+     * @param session The session of the write
+     * @param uuids The players the write changed
+     */
+    private void recordChanges(Session session, Collection<UUID> uuids) {
+        ChangeRecorder recorder = changeRecorder;
+        if (recorder != null && !uuids.isEmpty()) {
+            session.doWork(connection -> recorder.record(connection, uuids));
+        }
+    }
+
+    /**
+     * Deletes offers in bulk with plain SQL. Hibernate only runs bulk queries inside its
+     * own transaction, which sessions on the SQLite writer connection do not have, so the
+     * statement runs on the session's connection and the cached offers are evicted here.
+     *
+     * @param session The session whose connection to use
+     * @param sql The DELETE statement
+     * @param parameters The statement's parameters, in order
+     * @return The number of deleted offers
+     */
+    private int deleteOffers(Session session, String sql, Object... parameters) {
+        int deleted = session.doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                for (int i = 0; i < parameters.length; i++) {
+                    statement.setObject(i + 1, parameters[i]);
+                }
+                return statement.executeUpdate();
+            }
+        });
+        session.getSessionFactory().getCache().evictEntityData(BloodOfferEntity.class);
+        return deleted;
+    }
+
+    /**
+     * Executes work that modifies the database in its own transaction.
+     * On SQLite the work is queued to the single writer and may share a transaction
+     * with other queued writes; the future completes once that transaction commits.
+     *
+     * @param work The work to execute with an open session
+     * @param <T> The type of the result
+     * @return A CompletableFuture that completes with the result of the work
+     */
+    private <T> CompletableFuture<T> write(Function<Session, T> work) {
+        SqliteEngine engine = HibernateConfig.getSqliteEngine();
+        if (engine != null) {
+            // The engine commits the batch after the session has flushed, so the session stays
+            // open until then to release its cache locks and invalidate the tables it wrote
+            AtomicReference<Session> attempt = new AtomicReference<>();
+            return engine.write(connection -> {
+                // A failed batch runs each write again on its own; end the earlier attempt first
+                completeSession(attempt.getAndSet(null), false);
+                Session session = HibernateConfig.getSessionFactory().withOptions().connection(connection).openSession();
+                attempt.set(session);
+                T result = work.apply(session);
+                session.flush();
+                return result;
+            }).whenComplete((result, error) -> completeSession(attempt.getAndSet(null), error == null));
+        }
+
+        return CompletableFuture.supplyAsync(() -> {
+            try (Session session = HibernateConfig.getSessionFactory().openSession()) {
+                Transaction tx = session.beginTransaction();
+                try {
+                    T result = work.apply(session);
+                    tx.commit();
+                    return result;
+                } catch (Exception e) {
+                    tx.rollback();
+                    throw e;
+                }
+            }
+        });
+    }
+
+    private static void completeSession(Session session, boolean committed) {
+        if (session == null) {
+            return;
+        }
+        try {
+            session.unwrap(SessionImplementor.class).afterTransactionCompletion(committed, false);
+        } finally {
+            session.close();
+        }
+    }
+
     // Helper methods for converting between entities and domain objects
     private VampirePlayer convertToVampirePlayer(VampirePlayerEntity entity) {
-        VampirePlayer player = new VampirePlayer(entity.getUuid(), entity.getName());
-        player.setVampire(entity.isVampire());
-        player.setBlood(entity.getBloodLevel());
-        player.setInfectionLevel(entity.getInfectionLevel());
-        player.setInfectionReason(entity.getInfectionReason());
-        player.setInfectionTime(entity.getInfectionTime());
-        player.setLastShriekTime(entity.getLastShriekTime());
-        player.setLastBloodTradeTime(entity.getLastBloodTradeTime());
-        player.setLastBloodTradePartner(entity.getLastBloodTradePartner());
-        player.setLastBloodTradeAmount(entity.getLastBloodTradeAmount());
-        player.setLastBloodTradeType(entity.getLastBloodTradeType());
-        return player;
+        return convertToRecord(entity).toVampirePlayer();
     }
 
     private VampirePlayerEntity convertToEntity(VampirePlayer player) {
@@ -712,8 +767,38 @@ public class HibernateDatabaseManager implements DatabaseManager {
         return entity;
     }
 
+    private PlayerRecord convertToRecord(VampirePlayerEntity entity) {
+        PlayerRecord record = new PlayerRecord(entity.getUuid(), entity.getName());
+        record.setVampire(entity.isVampire());
+        record.setBloodLevel(entity.getBloodLevel());
+        record.setInfectionLevel(entity.getInfectionLevel());
+        record.setInfectionReason(entity.getInfectionReason());
+        record.setInfectionTime(entity.getInfectionTime());
+        record.setLastShriekTime(entity.getLastShriekTime());
+        record.setLastBloodTradeTime(entity.getLastBloodTradeTime());
+        record.setLastBloodTradePartner(entity.getLastBloodTradePartner());
+        record.setLastBloodTradeAmount(entity.getLastBloodTradeAmount());
+        record.setLastBloodTradeType(entity.getLastBloodTradeType());
+        return record;
+    }
+
+    private VampirePlayerEntity convertToEntity(PlayerRecord record) {
+        VampirePlayerEntity entity = new VampirePlayerEntity(record.getUuid(), record.getName());
+        entity.setVampire(record.isVampire());
+        entity.setBloodLevel(record.getBloodLevel());
+        entity.setInfectionLevel(record.getInfectionLevel());
+        entity.setInfectionReason(record.getInfectionReason());
+        entity.setInfectionTime(record.getInfectionTime());
+        entity.setLastShriekTime(record.getLastShriekTime());
+        entity.setLastBloodTradeTime(record.getLastBloodTradeTime());
+        entity.setLastBloodTradePartner(record.getLastBloodTradePartner());
+        entity.setLastBloodTradeAmount(record.getLastBloodTradeAmount());
+        entity.setLastBloodTradeType(record.getLastBloodTradeType());
+        return entity;
+    }
+
     private BloodOffer convertToBloodOffer(BloodOfferEntity entity) {
-        BloodOffer offer = new BloodOffer(entity.getSenderUuid(), entity.getTargetUuid(), entity.getAmount());
+        BloodOffer offer = new BloodOffer(entity.getSenderUuid(), entity.getTargetUuid(), entity.getAmount(), entity.getTimestamp());
         if (entity.isAccepted()) {
             offer.setAccepted();
         }
@@ -0,0 +1,428 @@
+package org.clockworx.vampire.database;
+
+import org.clockworx.vampire.config.LanguageConfig;
+import org.clockworx.vampire.config.VampireConfig;
+import org.clockworx.vampire.entity.BloodOffer;
+import org.clockworx.vampire.entity.VampirePlayer;
+
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Measures every DatabaseManager operation as callers see it.
+ * Each operation gets a latency histogram and error and timeout counts, and calls
+ * slower than the configured threshold are logged with the key they were made for
+ * and kept in a short list of recent slow operations.
+ */
+public class InstrumentedDatabaseManager extends ForwardingDatabaseManager {
+
+    private static final int RECENT_SLOW_OPERATIONS = 20;
+
+    private final long slowThresholdMicros;
+    private final Logger logger;
+    private final Map<String, OperationStats> stats = new ConcurrentHashMap<>();
+    private final Deque<SlowOperation> slowOperations = new ArrayDeque<>();
+    private volatile long since = System.currentTimeMillis();
+
+    /**
+     * Creates a new instrumented database manager.
+     *
+     * @param delegate The database manager to measure
+     * @param slowThresholdMillis Calls taking at least this long are logged
+     * @param logger The logger to report slow calls to
+     */
+    public InstrumentedDatabaseManager(DatabaseManager delegate, long slowThresholdMillis, Logger logger) {
+        super(delegate);
+        this.slowThresholdMicros = TimeUnit.MILLISECONDS.toMicros(slowThresholdMillis);
+        this.logger = logger;
+    }
+
+    /**
+     * Gets the statistics of every operation called so far, ordered by name.
+     *
+     * @return The operation statistics
+     */
+    public List<OperationStats> getStats() {
+        List<OperationStats> result = new ArrayList<>(stats.values());
+        result.sort(Comparator.comparing(OperationStats::getOperation));
+        return result;
+    }
+
+    /**
+     * Gets the most recent slow calls, newest first.
+     *
+     * @return The slow calls
+     */
+    public List<SlowOperation> getSlowOperations() {
+        synchronized (slowOperations) {
+            return new ArrayList<>(slowOperations);
+        }
+    }
+
+    /**
+     * Gets the slow operation threshold.
+     *
+     * @return The threshold in milliseconds
+     */
+    public long getSlowThresholdMillis() {
+        return TimeUnit.MICROSECONDS.toMillis(slowThresholdMicros);
+    }
+
+    /**
+     * Gets the time the statistics were last reset.
+     *
+     * @return The time in milliseconds since the epoch
+     */
+    public long getSince() {
+        return since;
+    }
+
+    /**
+     * Clears all statistics and slow calls.
+     */
+    public void reset() {
+        stats.values().forEach(OperationStats::reset);
+        synchronized (slowOperations) {
+            slowOperations.clear();
+        }
+        since = System.currentTimeMillis();
+    }
+
+    @Override
+    public CompletableFuture<VampirePlayer> getPlayer(UUID uuid) {
+        return measure("getPlayer", uuid, () -> delegate.getPlayer(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> savePlayer(VampirePlayer player) {
+        return measure("savePlayer", player.getUuid(), () -> delegate.savePlayer(player));
+    }
+
+    @Override
+    public CompletableFuture<Void> savePlayerRecords(Collection<PlayerRecord> records) {
+        return measure("savePlayerRecords", records.size() + " players", () -> delegate.savePlayerRecords(records));
+    }
+
+    @Override
+    public CompletableFuture<Void> deletePlayer(UUID uuid) {
+        return measure("deletePlayer", uuid, () -> delegate.deletePlayer(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isVampire(UUID uuid) {
+        return measure("isVampire", uuid, () -> delegate.isVampire(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isInfected(UUID uuid) {
+        return measure("isInfected", uuid, () -> delegate.isInfected(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Double> getBloodLevel(UUID uuid) {
+        return measure("getBloodLevel", uuid, () -> delegate.getBloodLevel(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setBloodLevel(UUID uuid, double blood) {
+        return measure("setBloodLevel", uuid, () -> delegate.setBloodLevel(uuid, blood));
+    }
+
+    @Override
+    public CompletableFuture<Double> getInfectionLevel(UUID uuid) {
+        return measure("getInfectionLevel", uuid, () -> delegate.getInfectionLevel(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setInfectionLevel(UUID uuid, double infection) {
+        return measure("setInfectionLevel", uuid, () -> delegate.setInfectionLevel(uuid, infection));
+    }
+
+    @Override
+    public CompletableFuture<String> getInfectionReason(UUID uuid) {
+        return measure("getInfectionReason", uuid, () -> delegate.getInfectionReason(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setInfectionReason(UUID uuid, String reason) {
+        return measure("setInfectionReason", uuid, () -> delegate.setInfectionReason(uuid, reason));
+    }
+
+    @Override
+    public CompletableFuture<Long> getInfectionTime(UUID uuid) {
+        return measure("getInfectionTime", uuid, () -> delegate.getInfectionTime(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setInfectionTime(UUID uuid, long time) {
+        return measure("setInfectionTime", uuid, () -> delegate.setInfectionTime(uuid, time));
+    }
+
+    @Override
+    public CompletableFuture<Long> getLastShriekTime(UUID uuid) {
+        return measure("getLastShriekTime", uuid, () -> delegate.getLastShriekTime(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastShriekTime(UUID uuid, long time) {
+        return measure("setLastShriekTime", uuid, () -> delegate.setLastShriekTime(uuid, time));
+    }
+
+    @Override
+    public CompletableFuture<Long> getLastBloodTradeTime(UUID uuid) {
+        return measure("getLastBloodTradeTime", uuid, () -> delegate.getLastBloodTradeTime(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradeTime(UUID uuid, long time) {
+        return measure("setLastBloodTradeTime", uuid, () -> delegate.setLastBloodTradeTime(uuid, time));
+    }
+
+    @Override
+    public CompletableFuture<UUID> getLastBloodTradePartner(UUID uuid) {
+        return measure("getLastBloodTradePartner", uuid, () -> delegate.getLastBloodTradePartner(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradePartner(UUID uuid, UUID partner) {
+        return measure("setLastBloodTradePartner", uuid, () -> delegate.setLastBloodTradePartner(uuid, partner));
+    }
+
+    @Override
+    public CompletableFuture<Double> getLastBloodTradeAmount(UUID uuid) {
+        return measure("getLastBloodTradeAmount", uuid, () -> delegate.getLastBloodTradeAmount(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradeAmount(UUID uuid, double amount) {
+        return measure("setLastBloodTradeAmount", uuid, () -> delegate.setLastBloodTradeAmount(uuid, amount));
+    }
+
+    @Override
+    public CompletableFuture<String> getLastBloodTradeType(UUID uuid) {
+        return measure("getLastBloodTradeType", uuid, () -> delegate.getLastBloodTradeType(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradeType(UUID uuid, String type) {
+        return measure("setLastBloodTradeType", uuid, () -> delegate.setLastBloodTradeType(uuid, type));
+    }
+
+    @Override
+    public CompletableFuture<BloodOffer> createBloodOffer(UUID senderUuid, UUID targetUuid, double amount) {
+        return measure("createBloodOffer", senderUuid, () -> delegate.createBloodOffer(senderUuid, targetUuid, amount));
+    }
+
+    @Override
+    public CompletableFuture<BloodOffer> getBloodOffer(UUID playerUuid) {
+        return measure("getBloodOffer", playerUuid, () -> delegate.getBloodOffer(playerUuid));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> acceptBloodOffer(UUID playerUuid) {
+        return measure("acceptBloodOffer", playerUuid, () -> delegate.acceptBloodOffer(playerUuid));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> rejectBloodOffer(UUID playerUuid) {
+        return measure("rejectBloodOffer", playerUuid, () -> delegate.rejectBloodOffer(playerUuid));
+    }
+
+    @Override
+    public CompletableFuture<List<BloodOffer>> getAllBloodOffers() {
+        return measure("getAllBloodOffers", null, () -> delegate.getAllBloodOffers());
+    }
+
+    @Override
+    public CompletableFuture<List<BloodOffer>> getBloodOfferPage(BloodOffer after, int limit) {
+        return measure("getBloodOfferPage", null, () -> delegate.getBloodOfferPage(after, limit));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveBloodOffers(Collection<BloodOffer> offers) {
+        return measure("saveBloodOffers", offers.size() + " offers", () -> delegate.saveBloodOffers(offers));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> cleanupExpiredOffers(long timeoutMillis) {
+        return measure("cleanupExpiredOffers", null, () -> delegate.cleanupExpiredOffers(timeoutMillis));
+    }
+
+    @Override
+    public CompletableFuture<Integer> purgeOffers(long pendingTimeoutMillis, long resolvedRetentionMillis) {
+        return measure("purgeOffers", null, () -> delegate.purgeOffers(pendingTimeoutMillis, resolvedRetentionMillis));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> addInfection(UUID uuid, double amount, String reason) {
+        return measure("addInfection", uuid, () -> delegate.addInfection(uuid, amount, reason));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> setVampire(UUID uuid, boolean isVampire) {
+        return measure("setVampire", uuid, () -> delegate.setVampire(uuid, isVampire));
+    }
+
+    @Override
+    public CompletableFuture<List<VampirePlayer>> getAllVampires() {
+        return measure("getAllVampires", null, () -> delegate.getAllVampires());
+    }
+
+    @Override
+    public CompletableFuture<List<VampirePlayer>> getVampirePage(UUID after, int limit) {
+        return measure("getVampirePage", after, () -> delegate.getVampirePage(after, limit));
+    }
+
+    @Override
+    public CompletableFuture<List<PlayerRecord>> getPlayerRecordPage(UUID after, int limit) {
+        return measure("getPlayerRecordPage", after, () -> delegate.getPlayerRecordPage(after, limit));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveConfig(String key, String value) {
+        return measure("saveConfig", key, () -> delegate.saveConfig(key, value));
+    }
+
+    @Override
+    public CompletableFuture<String> getConfig(String key) {
+        return measure("getConfig", key, () -> delegate.getConfig(key));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveLanguage(String key, String value) {
+        return measure("saveLanguage", key, () -> delegate.saveLanguage(key, value));
+    }
+
+    @Override
+    public CompletableFuture<String> getLanguage(String key) {
+        return measure("getLanguage", key, () -> delegate.getLanguage(key));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> useBlood(UUID uuid, double amount) {
+        return measure("useBlood", uuid, () -> delegate.useBlood(uuid, amount));
+    }
+
+    @Override
+    public CompletableFuture<VampireConfig> loadConfig() {
+        return measure("loadConfig", null, () -> delegate.loadConfig());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveConfig(VampireConfig config) {
+        return measure("saveConfig", null, () -> delegate.saveConfig(config));
+    }
+
+    @Override
+    public CompletableFuture<LanguageConfig> loadLanguage() {
+        return measure("loadLanguage", null, () -> delegate.loadLanguage());
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveLanguage(LanguageConfig language) {
+        return measure("saveLanguage", null, () -> delegate.saveLanguage(language));
+    }
+
+    /**
+     * Times a call from invocation until its future completes.
+     *
+     * @param operation The operation name
+     * @param key The player or key the call is for, or null
+     * @param call Starts the call
+     * @param <T> The type of the call's result
+     * @return The call's future
+     */
+    private <T> CompletableFuture<T> measure(String operation, Object key, Supplier<CompletableFuture<T>> call) {
+        OperationStats operationStats = stats.computeIfAbsent(operation, OperationStats::new);
+        long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            complete(operationStats, key, start, e);
+            throw e;
+        }
+        return future.whenComplete((result, error) -> complete(operationStats, key, start, error));
+    }
+
+    private void complete(OperationStats operationStats, Object key, long start, Throwable error) {
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+        operationStats.record(micros, error, error != null && isTimeout(error));
+        if (micros < slowThresholdMicros) {
+            return;
+        }
+
+        SlowOperation slow = new SlowOperation(operationStats.getOperation(), key == null ? "-" : key.toString(),
+            micros, System.currentTimeMillis(), error != null);
+        synchronized (slowOperations) {
+            slowOperations.addFirst(slow);
+            if (slowOperations.size() > RECENT_SLOW_OPERATIONS) {
+                slowOperations.removeLast();
+            }
+        }
+        logger.warning(String.format("Slow database operation %s(%s) took %.1f ms%s",
+            slow.getOperation(), slow.getKey(), micros / 1000.0, slow.isFailed() ? " and failed" : ""));
+    }
+
+    private static boolean isTimeout(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException || cause instanceof SQLTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A call that took at least the slow operation threshold.
+     */
+    public static class SlowOperation {
+
+        private final String operation;
+        private final String key;
+        private final long micros;
+        private final long time;
+        private final boolean failed;
+
+        private SlowOperation(String operation, String key, long micros, long time, boolean failed) {
+            this.operation = operation;
+            this.key = key;
+            this.micros = micros;
+            this.time = time;
+            this.failed = failed;
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getMicros() {
+            return micros;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public boolean isFailed() {
+            return failed;
+        }
+    }
+}
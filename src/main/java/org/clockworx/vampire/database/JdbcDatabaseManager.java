@@ -0,0 +1,751 @@
+package org.clockworx.vampire.database;
+
+import org.clockworx.vampire.VampirePlugin;
+import org.clockworx.vampire.config.LanguageConfig;
+import org.clockworx.vampire.config.VampireConfig;
+import org.clockworx.vampire.entity.BloodOffer;
+import org.clockworx.vampire.entity.VampirePlayer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * DatabaseManager implementation using hand-written JDBC statements.
+ * It works on the same schema as HibernateDatabaseManager, but without session
+ * or entity overhead: rows are mapped straight to VampirePlayer and BloodOffer,
+ * prepared statements are cached per connection, and read-modify-write
+ * operations are single UPDATE statements.
+ */
+public class JdbcDatabaseManager implements DatabaseManager {
+
+    private static final String PLAYER_COLUMNS = "uuid, name, is_vampire, blood_level, infection_level, infection_reason, "
+        + "infection_time, last_shriek_time, last_blood_trade_time, last_blood_trade_partner, "
+        + "last_blood_trade_amount, last_blood_trade_type";
+    private static final String OFFER_COLUMNS = "sender_uuid, target_uuid, amount, timestamp, accepted, rejected";
+
+    private static final String SELECT_PLAYER = "SELECT " + PLAYER_COLUMNS + " FROM vampire_players WHERE uuid = ?";
+    private static final String SELECT_VAMPIRES = "SELECT " + PLAYER_COLUMNS + " FROM vampire_players WHERE is_vampire = ?";
+    private static final String SELECT_VAMPIRE_PAGE = "SELECT " + PLAYER_COLUMNS + " FROM vampire_players "
+        + "WHERE is_vampire = ? ORDER BY uuid LIMIT ?";
+    private static final String SELECT_VAMPIRE_PAGE_AFTER = "SELECT " + PLAYER_COLUMNS + " FROM vampire_players "
+        + "WHERE is_vampire = ? AND uuid > ? ORDER BY uuid LIMIT ?";
+    private static final String SELECT_PLAYER_PAGE = "SELECT " + PLAYER_COLUMNS + " FROM vampire_players ORDER BY uuid LIMIT ?";
+    private static final String SELECT_PLAYER_PAGE_AFTER = "SELECT " + PLAYER_COLUMNS + " FROM vampire_players "
+        + "WHERE uuid > ? ORDER BY uuid LIMIT ?";
+    private static final String DELETE_PLAYER = "DELETE FROM vampire_players WHERE uuid = ?";
+    private static final String ADD_INFECTION = "UPDATE vampire_players SET infection_level = infection_level + ?, "
+        + "infection_reason = ?, infection_time = ? WHERE uuid = ?";
+    private static final String SET_VAMPIRE = "UPDATE vampire_players SET is_vampire = ? WHERE uuid = ?";
+    private static final String SET_VAMPIRE_AND_TIME = "UPDATE vampire_players SET is_vampire = ?, infection_time = ? WHERE uuid = ?";
+    private static final String USE_BLOOD = "UPDATE vampire_players SET blood_level = blood_level - ? WHERE uuid = ? AND blood_level >= ?";
+
+    private static final String INSERT_OFFER = "INSERT INTO blood_offers (" + OFFER_COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String SELECT_PENDING_OFFER = "SELECT " + OFFER_COLUMNS + " FROM blood_offers "
+        + "WHERE target_uuid = ? AND accepted = ? AND rejected = ? ORDER BY timestamp DESC, id DESC LIMIT 1";
+    private static final String SELECT_PENDING_OFFER_ID = "SELECT id FROM blood_offers "
+        + "WHERE target_uuid = ? AND accepted = ? AND rejected = ? ORDER BY timestamp DESC, id DESC LIMIT 1";
+    private static final String SELECT_PENDING_OFFERS = "SELECT " + OFFER_COLUMNS + " FROM blood_offers "
+        + "WHERE accepted = ? AND rejected = ?";
+    private static final String SELECT_OFFER_PAGE = "SELECT " + OFFER_COLUMNS + " FROM blood_offers "
+        + "WHERE accepted = ? AND rejected = ? ORDER BY timestamp, sender_uuid, target_uuid LIMIT ?";
+    private static final String SELECT_OFFER_PAGE_AFTER = "SELECT " + OFFER_COLUMNS + " FROM blood_offers "
+        + "WHERE accepted = ? AND rejected = ? AND (timestamp > ? OR (timestamp = ? AND (sender_uuid > ? "
+        + "OR (sender_uuid = ? AND target_uuid > ?)))) ORDER BY timestamp, sender_uuid, target_uuid LIMIT ?";
+    private static final String ACCEPT_OFFER = "UPDATE blood_offers SET accepted = ? WHERE id = ?";
+    private static final String REJECT_OFFER = "UPDATE blood_offers SET rejected = ? WHERE id = ?";
+    private static final String DELETE_EXPIRED_OFFERS = "DELETE FROM blood_offers WHERE timestamp < ?";
+    private static final String PURGE_OFFERS = "DELETE FROM blood_offers WHERE "
+        + "(accepted = ? AND rejected = ? AND timestamp < ?) OR ((accepted = ? OR rejected = ?) AND timestamp < ?)";
+
+    private final VampirePlugin plugin;
+    private final String type;
+    private final String url;
+    private final String user;
+    private final String password;
+    private final StatementCache statements;
+    private ConnectionSource connectionSource;
+    private String upsertPlayer;
+    private volatile ChangeRecorder changeRecorder;
+
+    /**
+     * Creates a new JDBC database manager for the configured database.
+     *
+     * @param plugin The plugin instance
+     */
+    public JdbcDatabaseManager(VampirePlugin plugin) {
+        this(plugin, plugin.getVampireConfig().getDatabaseType(), plugin.getVampireConfig().getDatabaseUrl(),
+            plugin.getVampireConfig().getDatabaseUser(), plugin.getVampireConfig().getDatabasePassword());
+    }
+
+    /**
+     * Creates a new JDBC database manager for another database, such as a migration target.
+     *
+     * @param plugin The plugin instance
+     * @param type The database type, such as sqlite or mysql
+     * @param url The JDBC URL
+     * @param user The user name, ignored for SQLite
+     * @param password The password, ignored for SQLite
+     */
+    public JdbcDatabaseManager(VampirePlugin plugin, String type, String url, String user, String password) {
+        this.plugin = plugin;
+        this.type = type;
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.statements = new StatementCache();
+    }
+
+    @Override
+    public CompletableFuture<Void> initialize() {
+        return CompletableFuture.runAsync(() -> {
+            try {
+                connectionSource = DatabaseManagerFactory.openConnectionSource(type, url, user, password,
+                    plugin.getVampireConfig(), plugin.getLogger());
+                upsertPlayer = connectionSource.getDialect().upsert("vampire_players", "uuid",
+                    "name", "is_vampire", "blood_level", "infection_level", "infection_reason", "infection_time",
+                    "last_shriek_time", "last_blood_trade_time", "last_blood_trade_partner",
+                    "last_blood_trade_amount", "last_blood_trade_type");
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to initialize database", e);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> shutdown() {
+        return CompletableFuture.runAsync(() -> {
+            if (connectionSource != null) {
+                connectionSource.shutdown();
+                connectionSource = null;
+            }
+            statements.clear();
+        });
+    }
+
+    @Override
+    public int getWriteConcurrency() {
+        return connectionSource != null ? connectionSource.getWriteConcurrency() : 1;
+    }
+
+    @Override
+    public ConnectionSource getConnectionSource() {
+        return connectionSource;
+    }
+
+    @Override
+    public void setChangeRecorder(ChangeRecorder recorder) {
+        this.changeRecorder = recorder;
+    }
+
+    @Override
+    public CompletableFuture<VampirePlayer> getPlayer(UUID uuid) {
+        return connectionSource.read(connection -> {
+            PreparedStatement statement = statements.prepare(connection, SELECT_PLAYER);
+            statement.setString(1, uuid.toString());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? mapPlayer(resultSet) : null;
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> savePlayer(VampirePlayer player) {
+        PlayerRecord record = PlayerRecord.from(player);
+        return connectionSource.write(connection -> {
+            PreparedStatement statement = statements.prepare(connection, upsertPlayer);
+            bindPlayer(statement, record);
+            statement.executeUpdate();
+            recordChanges(connection, List.of(record.getUuid()));
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> savePlayerRecords(Collection<PlayerRecord> records) {
+        if (records.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return connectionSource.write(connection -> {
+            PreparedStatement statement = statements.prepare(connection, upsertPlayer);
+            for (PlayerRecord record : records) {
+                bindPlayer(statement, record);
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            recordChanges(connection, records.stream().map(PlayerRecord::getUuid).collect(Collectors.toList()));
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> deletePlayer(UUID uuid) {
+        return connectionSource.write(connection -> {
+            PreparedStatement statement = statements.prepare(connection, DELETE_PLAYER);
+            statement.setString(1, uuid.toString());
+            if (statement.executeUpdate() > 0) {
+                recordChanges(connection, List.of(uuid));
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isVampire(UUID uuid) {
+        return readColumn(uuid, "is_vampire", ResultSet::getBoolean, false);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isInfected(UUID uuid) {
+        return getInfectionLevel(uuid).thenApply(level -> level > 0);
+    }
+
+    @Override
+    public CompletableFuture<Double> getBloodLevel(UUID uuid) {
+        return readColumn(uuid, "blood_level", ResultSet::getDouble, 0.0);
+    }
+
+    @Override
+    public CompletableFuture<Void> setBloodLevel(UUID uuid, double blood) {
+        return writeColumn(uuid, "blood_level", (statement, index) -> statement.setDouble(index, blood));
+    }
+
+    @Override
+    public CompletableFuture<Double> getInfectionLevel(UUID uuid) {
+        return readColumn(uuid, "infection_level", ResultSet::getDouble, 0.0);
+    }
+
+    @Override
+    public CompletableFuture<Void> setInfectionLevel(UUID uuid, double infection) {
+        return writeColumn(uuid, "infection_level", (statement, index) -> statement.setDouble(index, infection));
+    }
+
+    @Override
+    public CompletableFuture<String> getInfectionReason(UUID uuid) {
+        return readColumn(uuid, "infection_reason", ResultSet::getString, null);
+    }
+
+    @Override
+    public CompletableFuture<Void> setInfectionReason(UUID uuid, String reason) {
+        return writeColumn(uuid, "infection_reason", (statement, index) -> statement.setString(index, reason));
+    }
+
+    @Override
+    public CompletableFuture<Long> getInfectionTime(UUID uuid) {
+        return readColumn(uuid, "infection_time", ResultSet::getLong, 0L);
+    }
+
+    @Override
+    public CompletableFuture<Void> setInfectionTime(UUID uuid, long time) {
+        return writeColumn(uuid, "infection_time", (statement, index) -> statement.setLong(index, time));
+    }
+
+    @Override
+    public CompletableFuture<Long> getLastShriekTime(UUID uuid) {
+        return readColumn(uuid, "last_shriek_time", ResultSet::getLong, 0L);
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastShriekTime(UUID uuid, long time) {
+        return writeColumn(uuid, "last_shriek_time", (statement, index) -> statement.setLong(index, time));
+    }
+
+    @Override
+    public CompletableFuture<Long> getLastBloodTradeTime(UUID uuid) {
+        return readColumn(uuid, "last_blood_trade_time", ResultSet::getLong, 0L);
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradeTime(UUID uuid, long time) {
+        return writeColumn(uuid, "last_blood_trade_time", (statement, index) -> statement.setLong(index, time));
+    }
+
+    @Override
+    public CompletableFuture<UUID> getLastBloodTradePartner(UUID uuid) {
+        return readColumn(uuid, "last_blood_trade_partner", (resultSet, column) -> toUuid(resultSet.getString(column)), null);
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradePartner(UUID uuid, UUID partner) {
+        return writeColumn(uuid, "last_blood_trade_partner", (statement, index) -> statement.setString(index, uuidToString(partner)));
+    }
+
+    @Override
+    public CompletableFuture<Double> getLastBloodTradeAmount(UUID uuid) {
+        return readColumn(uuid, "last_blood_trade_amount", ResultSet::getDouble, 0.0);
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradeAmount(UUID uuid, double amount) {
+        return writeColumn(uuid, "last_blood_trade_amount", (statement, index) -> statement.setDouble(index, amount));
+    }
+
+    @Override
+    public CompletableFuture<String> getLastBloodTradeType(UUID uuid) {
+        return readColumn(uuid, "last_blood_trade_type", ResultSet::getString, null);
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradeType(UUID uuid, String type) {
+        return writeColumn(uuid, "last_blood_trade_type", (statement, index) -> statement.setString(index, type));
+    }
+
+    @Override
+    public CompletableFuture<BloodOffer> createBloodOffer(UUID senderUuid, UUID targetUuid, double amount) {
+        BloodOffer offer = new BloodOffer(senderUuid, targetUuid, amount);
+        return connectionSource.write(connection -> {
+            PreparedStatement statement = statements.prepare(connection, INSERT_OFFER);
+            statement.setString(1, senderUuid.toString());
+            statement.setString(2, targetUuid.toString());
+            statement.setDouble(3, amount);
+            statement.setLong(4, offer.getTimestamp());
+            statement.setBoolean(5, false);
+            statement.setBoolean(6, false);
+            statement.executeUpdate();
+            return offer;
+        });
+    }
+
+    @Override
+    public CompletableFuture<BloodOffer> getBloodOffer(UUID playerUuid) {
+        return connectionSource.read(connection -> {
+            PreparedStatement statement = statements.prepare(connection, SELECT_PENDING_OFFER);
+            statement.setString(1, playerUuid.toString());
+            statement.setBoolean(2, false);
+            statement.setBoolean(3, false);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? mapOffer(resultSet) : null;
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> acceptBloodOffer(UUID playerUuid) {
+        return resolveOffer(playerUuid, ACCEPT_OFFER);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> rejectBloodOffer(UUID playerUuid) {
+        return resolveOffer(playerUuid, REJECT_OFFER);
+    }
+
+    @Override
+    public CompletableFuture<List<BloodOffer>> getAllBloodOffers() {
+        return connectionSource.read(connection -> {
+            PreparedStatement statement = statements.prepare(connection, SELECT_PENDING_OFFERS);
+            statement.setBoolean(1, false);
+            statement.setBoolean(2, false);
+            List<BloodOffer> offers = new ArrayList<>();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    offers.add(mapOffer(resultSet));
+                }
+            }
+            return offers;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<BloodOffer>> getBloodOfferPage(BloodOffer after, int limit) {
+        return connectionSource.read(connection -> {
+            PreparedStatement statement;
+            if (after == null) {
+                statement = statements.prepare(connection, SELECT_OFFER_PAGE);
+                statement.setBoolean(1, false);
+                statement.setBoolean(2, false);
+                statement.setInt(3, limit);
+            } else {
+                statement = statements.prepare(connection, SELECT_OFFER_PAGE_AFTER);
+                statement.setBoolean(1, false);
+                statement.setBoolean(2, false);
+                statement.setLong(3, after.getTimestamp());
+                statement.setLong(4, after.getTimestamp());
+                statement.setString(5, after.getSenderUuid().toString());
+                statement.setString(6, after.getSenderUuid().toString());
+                statement.setString(7, after.getTargetUuid().toString());
+                statement.setInt(8, limit);
+            }
+            statement.setFetchSize(limit);
+            List<BloodOffer> offers = new ArrayList<>(limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    offers.add(mapOffer(resultSet));
+                }
+            }
+            return offers;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> saveBloodOffers(Collection<BloodOffer> offers) {
+        if (offers.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return connectionSource.write(connection -> {
+            PreparedStatement statement = statements.prepare(connection, INSERT_OFFER);
+            for (BloodOffer offer : offers) {
+                statement.setString(1, offer.getSenderUuid().toString());
+                statement.setString(2, offer.getTargetUuid().toString());
+                statement.setDouble(3, offer.getAmount());
+                statement.setLong(4, offer.getTimestamp());
+                statement.setBoolean(5, offer.isAccepted());
+                statement.setBoolean(6, offer.isRejected());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> cleanupExpiredOffers(long timeoutMillis) {
+        long cutoff = System.currentTimeMillis() - timeoutMillis;
+        return connectionSource.write(connection -> {
+            PreparedStatement statement = statements.prepare(connection, DELETE_EXPIRED_OFFERS);
+            statement.setLong(1, cutoff);
+            statement.executeUpdate();
+            return true;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Integer> purgeOffers(long pendingTimeoutMillis, long resolvedRetentionMillis) {
+        long now = System.currentTimeMillis();
+        return connectionSource.write(connection -> {
+            PreparedStatement statement = statements.prepare(connection, PURGE_OFFERS);
+            statement.setBoolean(1, false);
+            statement.setBoolean(2, false);
+            statement.setLong(3, now - pendingTimeoutMillis);
+            statement.setBoolean(4, true);
+            statement.setBoolean(5, true);
+            statement.setLong(6, now - resolvedRetentionMillis);
+            return statement.executeUpdate();
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> addInfection(UUID uuid, double amount, String reason) {
+        long now = System.currentTimeMillis();
+        return connectionSource.write(connection -> {
+            PreparedStatement statement = statements.prepare(connection, ADD_INFECTION);
+            statement.setDouble(1, amount);
+            statement.setString(2, reason);
+            statement.setLong(3, now);
+            statement.setString(4, uuid.toString());
+            return recordIfChanged(connection, uuid, statement.executeUpdate());
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> setVampire(UUID uuid, boolean isVampire) {
+        long now = System.currentTimeMillis();
+        return connectionSource.write(connection -> {
+            PreparedStatement statement;
+            if (isVampire) {
+                statement = statements.prepare(connection, SET_VAMPIRE_AND_TIME);
+                statement.setBoolean(1, true);
+                statement.setLong(2, now);
+                statement.setString(3, uuid.toString());
+            } else {
+                statement = statements.prepare(connection, SET_VAMPIRE);
+                statement.setBoolean(1, false);
+                statement.setString(2, uuid.toString());
+            }
+            return recordIfChanged(connection, uuid, statement.executeUpdate());
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<VampirePlayer>> getAllVampires() {
+        return connectionSource.read(connection -> {
+            PreparedStatement statement = statements.prepare(connection, SELECT_VAMPIRES);
+            statement.setBoolean(1, true);
+            List<VampirePlayer> players = new ArrayList<>();
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    players.add(mapPlayer(resultSet));
+                }
+            }
+            return players;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<VampirePlayer>> getVampirePage(UUID after, int limit) {
+        return connectionSource.read(connection -> {
+            PreparedStatement statement;
+            if (after == null) {
+                statement = statements.prepare(connection, SELECT_VAMPIRE_PAGE);
+                statement.setBoolean(1, true);
+                statement.setInt(2, limit);
+            } else {
+                statement = statements.prepare(connection, SELECT_VAMPIRE_PAGE_AFTER);
+                statement.setBoolean(1, true);
+                statement.setString(2, uuidToString(after));
+                statement.setInt(3, limit);
+            }
+            statement.setFetchSize(limit);
+            List<VampirePlayer> players = new ArrayList<>(limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    players.add(mapPlayer(resultSet));
+                }
+            }
+            return players;
+        });
+    }
+
+    @Override
+    public CompletableFuture<List<PlayerRecord>> getPlayerRecordPage(UUID after, int limit) {
+        return connectionSource.read(connection -> {
+            PreparedStatement statement;
+            if (after == null) {
+                statement = statements.prepare(connection, SELECT_PLAYER_PAGE);
+                statement.setInt(1, limit);
+            } else {
+                statement = statements.prepare(connection, SELECT_PLAYER_PAGE_AFTER);
+                statement.setString(1, uuidToString(after));
+                statement.setInt(2, limit);
+            }
+            statement.setFetchSize(limit);
+            List<PlayerRecord> records = new ArrayList<>(limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    records.add(mapRecord(resultSet));
+                }
+            }
+            return records;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveConfig(String key, String value) {
+        // Not implemented as we're using file-based config
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<String> getConfig(String key) {
+        // Not implemented as we're using file-based config
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveLanguage(String key, String value) {
+        // Not implemented as we're using file-based config
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<String> getLanguage(String key) {
+        // Not implemented as we're using file-based config
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> useBlood(UUID uuid, double amount) {
+        return connectionSource.write(connection -> {
+            // The balance check and the update are one statement, so concurrent uses cannot overdraw
+            PreparedStatement statement = statements.prepare(connection, USE_BLOOD);
+            statement.setDouble(1, amount);
+            statement.setString(2, uuid.toString());
+            statement.setDouble(3, amount);
+            return recordIfChanged(connection, uuid, statement.executeUpdate());
+        });
+    }
+
+    @Override
+    public CompletableFuture<VampireConfig> loadConfig() {
+        // Not implemented as we're using file-based config
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveConfig(VampireConfig config) {
+        // Not implemented as we're using file-based config
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<LanguageConfig> loadLanguage() {
+        // Not implemented as we're using file-based config
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveLanguage(LanguageConfig language) {
+        // Not implemented as we're using file-based config
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Marks a player's most recent pending offer as accepted or rejected. Older pending
+     * offers are left alone, matching the offer {@link #getBloodOffer} returns.
+     *
+     * @param playerUuid The UUID of the offer's target
+     * @param sql The update setting the accepted or rejected flag of one offer by id
+     * @return A CompletableFuture that completes with true if there was a pending offer
+     */
+    private CompletableFuture<Boolean> resolveOffer(UUID playerUuid, String sql) {
+        return connectionSource.write(connection -> {
+            PreparedStatement select = statements.prepare(connection, SELECT_PENDING_OFFER_ID);
+            select.setString(1, playerUuid.toString());
+            select.setBoolean(2, false);
+            select.setBoolean(3, false);
+            long id;
+            try (ResultSet resultSet = select.executeQuery()) {
+                if (!resultSet.next()) {
+                    return false;
+                }
+                id = resultSet.getLong(1);
+            }
+            PreparedStatement update = statements.prepare(connection, sql);
+            update.setBoolean(1, true);
+            update.setLong(2, id);
+            return update.executeUpdate() > 0;
+        });
+    }
+
+    /**
+     * Reads a single column of a player's row.
+     *
+     * @param uuid The player's UUID
+     * @param column The column name; must be a constant, never user input
+     * @param reader Reads the value from the result set
+     * @param defaultValue The value returned if the player does not exist
+     * @param <T> The type of the value
+     * @return A CompletableFuture that completes with the value
+     */
+    private <T> CompletableFuture<T> readColumn(UUID uuid, String column, ColumnReader<T> reader, T defaultValue) {
+        String sql = "SELECT " + column + " FROM vampire_players WHERE uuid = ?";
+        return connectionSource.read(connection -> {
+            PreparedStatement statement = statements.prepare(connection, sql);
+            statement.setString(1, uuid.toString());
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? reader.read(resultSet, column) : defaultValue;
+            }
+        });
+    }
+
+    /**
+     * Updates a single column of a player's row. Players that do not exist are left alone.
+     *
+     * @param uuid The player's UUID
+     * @param column The column name; must be a constant, never user input
+     * @param binder Binds the new value to the given parameter index
+     * @return A CompletableFuture that completes when the update is committed
+     */
+    private CompletableFuture<Void> writeColumn(UUID uuid, String column, ParameterBinder binder) {
+        String sql = "UPDATE vampire_players SET " + column + " = ? WHERE uuid = ?";
+        return connectionSource.write(connection -> {
+            PreparedStatement statement = statements.prepare(connection, sql);
+            binder.bind(statement, 1);
+            statement.setString(2, uuid.toString());
+            recordIfChanged(connection, uuid, statement.executeUpdate());
+            return null;
+        });
+    }
+
+    /**
+     * Passes changed players to the change recorder, in the write's transaction.
+     *
+     * @param connection The connection of the write
+     * @param uuids The players the write changed
+     * @throws SQLException If the changes cannot be recorded
+     */
+    private void recordChanges(Connection connection, Collection<UUID> uuids) throws SQLException {
+        ChangeRecorder recorder = changeRecorder;
+        if (recorder != null && !uuids.isEmpty()) {
+            recorder.record(connection, uuids);
+        }
+    }
+
+    private boolean recordIfChanged(Connection connection, UUID uuid, int updated) throws SQLException {
+        if (updated == 0) {
+            return false;
+        }
+        recordChanges(connection, List.of(uuid));
+        return true;
+    }
+
+    // Helper methods for converting between rows and domain objects
+    private void bindPlayer(PreparedStatement statement, PlayerRecord record) throws SQLException {
+        statement.setString(1, record.getUuid().toString());
+        statement.setString(2, record.getName());
+        statement.setBoolean(3, record.isVampire());
+        statement.setDouble(4, record.getBloodLevel());
+        statement.setDouble(5, record.getInfectionLevel());
+        statement.setString(6, record.getInfectionReason());
+        statement.setLong(7, record.getInfectionTime());
+        statement.setLong(8, record.getLastShriekTime());
+        statement.setLong(9, record.getLastBloodTradeTime());
+        statement.setString(10, uuidToString(record.getLastBloodTradePartner()));
+        statement.setDouble(11, record.getLastBloodTradeAmount());
+        statement.setString(12, record.getLastBloodTradeType());
+    }
+
+    private VampirePlayer mapPlayer(ResultSet resultSet) throws SQLException {
+        return mapRecord(resultSet).toVampirePlayer();
+    }
+
+    private PlayerRecord mapRecord(ResultSet resultSet) throws SQLException {
+        PlayerRecord record = new PlayerRecord(UUID.fromString(resultSet.getString("uuid")), resultSet.getString("name"));
+        record.setVampire(resultSet.getBoolean("is_vampire"));
+        record.setBloodLevel(resultSet.getDouble("blood_level"));
+        record.setInfectionLevel(resultSet.getDouble("infection_level"));
+        record.setInfectionReason(resultSet.getString("infection_reason"));
+        record.setInfectionTime(resultSet.getLong("infection_time"));
+        record.setLastShriekTime(resultSet.getLong("last_shriek_time"));
+        record.setLastBloodTradeTime(resultSet.getLong("last_blood_trade_time"));
+        record.setLastBloodTradePartner(toUuid(resultSet.getString("last_blood_trade_partner")));
+        record.setLastBloodTradeAmount(resultSet.getDouble("last_blood_trade_amount"));
+        record.setLastBloodTradeType(resultSet.getString("last_blood_trade_type"));
+        return record;
+    }
+
+    private BloodOffer mapOffer(ResultSet resultSet) throws SQLException {
+        BloodOffer offer = new BloodOffer(
+            UUID.fromString(resultSet.getString("sender_uuid")),
+            UUID.fromString(resultSet.getString("target_uuid")),
+            resultSet.getDouble("amount"),
+            resultSet.getLong("timestamp"));
+        if (resultSet.getBoolean("accepted")) {
+            offer.setAccepted();
+        }
+        if (resultSet.getBoolean("rejected")) {
+            offer.setRejected();
+        }
+        return offer;
+    }
+
+    private static String uuidToString(UUID uuid) {
+        return uuid != null ? uuid.toString() : null;
+    }
+
+    private static UUID toUuid(String value) {
+        return value != null ? UUID.fromString(value) : null;
+    }
+
+    /**
+     * Reads a typed value from the current row of a result set.
+     */
+    @FunctionalInterface
+    private interface ColumnReader<T> {
+        T read(ResultSet resultSet, String column) throws SQLException;
+    }
+
+    /**
+     * Binds a typed value to a statement parameter.
+     */
+    @FunctionalInterface
+    private interface ParameterBinder {
+        void bind(PreparedStatement statement, int index) throws SQLException;
+    }
+}
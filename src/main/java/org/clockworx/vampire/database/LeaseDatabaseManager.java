@@ -0,0 +1,390 @@
+package org.clockworx.vampire.database;
+
+import org.clockworx.vampire.config.VampireConfig;
+import org.clockworx.vampire.entity.VampirePlayer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Per-player ownership leases for servers sharing one database behind a proxy.
+ * A server acquires a player's lease when the player logs in, waiting briefly for
+ * the previous owner to flush and release it, and releases it after the final save
+ * on quit. Each takeover increments the lease's fencing token. Writes for a player
+ * this server has leased renew the lease first and are rejected with a
+ * {@link StaleLeaseException} once another server holds a newer token. Leases are
+ * kept in the backend's database and written through its connection source.
+ * <p>
+ * The token check and the write run in separate transactions. A takeover between
+ * them can only happen once the lease has expired, which heartbeats prevent while
+ * this server is alive.
+ */
+public class LeaseDatabaseManager extends ForwardingDatabaseManager {
+
+    private static final String SELECT_LEASE = "SELECT owner, token, expires_at, released FROM vampire_player_leases WHERE uuid = ?";
+    private static final String INSERT_LEASE = "INSERT INTO vampire_player_leases (uuid, owner, token, expires_at, released) VALUES (?, ?, ?, ?, ?)";
+    private static final String TAKE_LEASE = "UPDATE vampire_player_leases SET owner = ?, token = ?, expires_at = ?, released = ? "
+        + "WHERE uuid = ? AND token = ?";
+    private static final String RENEW_LEASE = "UPDATE vampire_player_leases SET expires_at = ? "
+        + "WHERE uuid = ? AND owner = ? AND token = ? AND released = ?";
+    private static final String RENEW_ALL_LEASES = "UPDATE vampire_player_leases SET expires_at = ? WHERE owner = ? AND released = ?";
+    private static final String RELEASE_LEASE = "UPDATE vampire_player_leases SET released = ? WHERE uuid = ? AND owner = ? AND token = ?";
+    private static final String RELEASE_ALL_LEASES = "UPDATE vampire_player_leases SET released = ? WHERE owner = ? AND released = ?";
+    private static final long RETRY_MILLIS = 100;
+
+    private final VampireConfig config;
+    private final Logger logger;
+    private final String serverId = UUID.randomUUID().toString();
+    private final StatementCache statements = new StatementCache();
+    // Tokens stay after release so late writes from this server are still fenced
+    private final Map<UUID, Long> tokens = new ConcurrentHashMap<>();
+    private final Map<UUID, CompletableFuture<Long>> acquiring = new ConcurrentHashMap<>();
+    private ConnectionSource connectionSource;
+    private ScheduledExecutorService heartbeat;
+    private long ttlMillis;
+    private long handoffTimeoutMillis;
+
+    /**
+     * Creates a new lease database manager.
+     *
+     * @param delegate The database manager to fence writes to
+     * @param config The plugin configuration, used for the lease timings
+     * @param logger The logger to report failures to
+     */
+    public LeaseDatabaseManager(DatabaseManager delegate, VampireConfig config, Logger logger) {
+        super(delegate);
+        this.config = config;
+        this.logger = logger;
+    }
+
+    @Override
+    public CompletableFuture<Void> initialize() {
+        return delegate.initialize().thenRunAsync(() -> {
+            ttlMillis = TimeUnit.SECONDS.toMillis(config.getLeaseTtl());
+            handoffTimeoutMillis = TimeUnit.SECONDS.toMillis(config.getLeaseHandoffTimeout());
+            connectionSource = delegate.getConnectionSource();
+            if (connectionSource == null) {
+                throw new IllegalStateException("Player leases need an SQL database");
+            }
+
+            heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Vampire-Lease-Heartbeat");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = Math.max(1, ttlMillis / 3);
+            heartbeat.scheduleWithFixedDelay(this::renewAll, interval, interval, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> shutdown() {
+        if (heartbeat != null) {
+            heartbeat.shutdown();
+            heartbeat = null;
+        }
+        if (connectionSource == null) {
+            return delegate.shutdown();
+        }
+        // The connection source belongs to the backend, so leases are released before it shuts down
+        return connectionSource.write(connection -> {
+            PreparedStatement statement = statements.prepare(connection, RELEASE_ALL_LEASES);
+            statement.setBoolean(1, true);
+            statement.setString(2, serverId);
+            statement.setBoolean(3, false);
+            return statement.executeUpdate();
+        }).handle((released, error) -> {
+            if (error != null) {
+                logger.log(Level.WARNING, "Failed to release player leases; they expire on their own", error);
+            }
+            connectionSource = null;
+            statements.clear();
+            return null;
+        }).thenCompose(ignored -> delegate.shutdown());
+    }
+
+    /**
+     * Acquires the lease for a player. If another server holds it, this waits for
+     * that server to release it, or for the handoff timeout, before taking over.
+     * Reads of the player made meanwhile wait for the acquisition.
+     *
+     * @param uuid The player's UUID
+     * @return A CompletableFuture that completes with the new fencing token
+     */
+    public CompletableFuture<Long> acquire(UUID uuid) {
+        CompletableFuture<Long> pending = new CompletableFuture<>();
+        CompletableFuture<Long> existing = acquiring.putIfAbsent(uuid, pending);
+        if (existing != null) {
+            return existing;
+        }
+        long now = System.currentTimeMillis();
+        tryAcquire(uuid, now + handoffTimeoutMillis, now + 2 * handoffTimeoutMillis).whenComplete((token, error) -> {
+            acquiring.remove(uuid, pending);
+            if (error != null) {
+                pending.completeExceptionally(error);
+            } else {
+                pending.complete(token);
+            }
+        });
+        return pending;
+    }
+
+    /**
+     * Releases this server's lease for a player, letting the next server take over
+     * without waiting. Call this after the player's final save has completed.
+     *
+     * @param uuid The player's UUID
+     * @return A CompletableFuture that completes when the lease is released
+     */
+    public CompletableFuture<Void> release(UUID uuid) {
+        Long token = tokens.get(uuid);
+        if (token == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return connectionSource.write(connection -> {
+            PreparedStatement statement = statements.prepare(connection, RELEASE_LEASE);
+            statement.setBoolean(1, true);
+            statement.setString(2, uuid.toString());
+            statement.setString(3, serverId);
+            statement.setLong(4, token);
+            statement.executeUpdate();
+            return null;
+        });
+    }
+
+    @Override
+    public CompletableFuture<VampirePlayer> getPlayer(UUID uuid) {
+        CompletableFuture<Long> pending = acquiring.get(uuid);
+        if (pending == null) {
+            return delegate.getPlayer(uuid);
+        }
+        // Read only after the previous owner has flushed and handed over
+        return pending.handle((token, error) -> null).thenCompose(ignored -> delegate.getPlayer(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> savePlayer(VampirePlayer player) {
+        return fenced(player.getUuid(), () -> delegate.savePlayer(player));
+    }
+
+    @Override
+    public CompletableFuture<Void> savePlayerRecords(Collection<PlayerRecord> records) {
+        List<PlayerRecord> leased = new ArrayList<>();
+        List<PlayerRecord> unleased = new ArrayList<>();
+        for (PlayerRecord record : records) {
+            (tokens.containsKey(record.getUuid()) ? leased : unleased).add(record);
+        }
+        if (leased.isEmpty()) {
+            return delegate.savePlayerRecords(records);
+        }
+
+        // One renewal transaction for the whole batch; stale records are dropped, not retried
+        return connectionSource.write(connection -> {
+            List<PlayerRecord> current = new ArrayList<>(unleased);
+            for (PlayerRecord record : leased) {
+                long token = tokens.get(record.getUuid());
+                if (renew(connection, record.getUuid(), token)) {
+                    current.add(record);
+                } else {
+                    logger.warning(new StaleLeaseException(record.getUuid(), token).getMessage() + ", dropping write");
+                }
+            }
+            return current;
+        }).thenCompose(delegate::savePlayerRecords);
+    }
+
+    @Override
+    public CompletableFuture<Void> deletePlayer(UUID uuid) {
+        return fenced(uuid, () -> delegate.deletePlayer(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setBloodLevel(UUID uuid, double blood) {
+        return fenced(uuid, () -> delegate.setBloodLevel(uuid, blood));
+    }
+
+    @Override
+    public CompletableFuture<Void> setInfectionLevel(UUID uuid, double infection) {
+        return fenced(uuid, () -> delegate.setInfectionLevel(uuid, infection));
+    }
+
+    @Override
+    public CompletableFuture<Void> setInfectionReason(UUID uuid, String reason) {
+        return fenced(uuid, () -> delegate.setInfectionReason(uuid, reason));
+    }
+
+    @Override
+    public CompletableFuture<Void> setInfectionTime(UUID uuid, long time) {
+        return fenced(uuid, () -> delegate.setInfectionTime(uuid, time));
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastShriekTime(UUID uuid, long time) {
+        return fenced(uuid, () -> delegate.setLastShriekTime(uuid, time));
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradeTime(UUID uuid, long time) {
+        return fenced(uuid, () -> delegate.setLastBloodTradeTime(uuid, time));
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradePartner(UUID uuid, UUID partner) {
+        return fenced(uuid, () -> delegate.setLastBloodTradePartner(uuid, partner));
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradeAmount(UUID uuid, double amount) {
+        return fenced(uuid, () -> delegate.setLastBloodTradeAmount(uuid, amount));
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradeType(UUID uuid, String type) {
+        return fenced(uuid, () -> delegate.setLastBloodTradeType(uuid, type));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> addInfection(UUID uuid, double amount, String reason) {
+        return fenced(uuid, () -> delegate.addInfection(uuid, amount, reason));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> setVampire(UUID uuid, boolean isVampire) {
+        return fenced(uuid, () -> delegate.setVampire(uuid, isVampire));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> useBlood(UUID uuid, double amount) {
+        return fenced(uuid, () -> delegate.useBlood(uuid, amount));
+    }
+
+    /**
+     * Runs a write after checking that this server's token for the player is still current.
+     * Players this server never leased, such as offline players edited by an admin, are not fenced.
+     *
+     * @param uuid The player's UUID
+     * @param write Starts the write
+     * @param <T> The type of the write's result
+     * @return A CompletableFuture with the write's result, or failed with a StaleLeaseException
+     */
+    private <T> CompletableFuture<T> fenced(UUID uuid, Supplier<CompletableFuture<T>> write) {
+        Long token = tokens.get(uuid);
+        if (token == null) {
+            return write.get();
+        }
+        return connectionSource.write(connection -> renew(connection, uuid, token)).thenCompose(current -> {
+            if (!current) {
+                return CompletableFuture.failedFuture(new StaleLeaseException(uuid, token));
+            }
+            return write.get();
+        });
+    }
+
+    /**
+     * Takes the lease if it is free, released, expired or past the handoff deadline,
+     * otherwise retries shortly. The takeover is a compare-and-set on the old token,
+     * so two servers racing for the same player cannot both win.
+     */
+    private CompletableFuture<Long> tryAcquire(UUID uuid, long handoffDeadline, long giveUpAt) {
+        return connectionSource.write(connection -> {
+            long now = System.currentTimeMillis();
+            PreparedStatement select = statements.prepare(connection, SELECT_LEASE);
+            select.setString(1, uuid.toString());
+            String owner;
+            long token;
+            long expiresAt;
+            boolean released;
+            try (ResultSet resultSet = select.executeQuery()) {
+                if (!resultSet.next()) {
+                    return insertLease(connection, uuid, now);
+                }
+                owner = resultSet.getString("owner");
+                token = resultSet.getLong("token");
+                expiresAt = resultSet.getLong("expires_at");
+                released = resultSet.getBoolean("released");
+            }
+
+            boolean free = released || expiresAt < now || owner.equals(serverId) || now >= handoffDeadline;
+            if (!free) {
+                return null;
+            }
+            if (now >= handoffDeadline && !released && expiresAt >= now) {
+                logger.warning("Server " + owner + " did not release player " + uuid + " in time, taking over");
+            }
+            PreparedStatement take = statements.prepare(connection, TAKE_LEASE);
+            take.setString(1, serverId);
+            take.setLong(2, token + 1);
+            take.setLong(3, now + ttlMillis);
+            take.setBoolean(4, false);
+            take.setString(5, uuid.toString());
+            take.setLong(6, token);
+            return take.executeUpdate() == 1 ? token + 1 : null;
+        }).thenCompose(token -> {
+            if (token != null) {
+                tokens.put(uuid, token);
+                return CompletableFuture.completedFuture(token);
+            }
+            if (System.currentTimeMillis() >= giveUpAt) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Could not acquire the lease for player " + uuid));
+            }
+            return CompletableFuture.runAsync(() -> { }, CompletableFuture.delayedExecutor(RETRY_MILLIS, TimeUnit.MILLISECONDS))
+                .thenCompose(ignored -> tryAcquire(uuid, handoffDeadline, giveUpAt));
+        });
+    }
+
+    private Long insertLease(Connection connection, UUID uuid, long now) {
+        try {
+            PreparedStatement insert = statements.prepare(connection, INSERT_LEASE);
+            insert.setString(1, uuid.toString());
+            insert.setString(2, serverId);
+            insert.setLong(3, 1);
+            insert.setLong(4, now + ttlMillis);
+            insert.setBoolean(5, false);
+            insert.executeUpdate();
+            return 1L;
+        } catch (SQLException e) {
+            // Another server inserted the first lease concurrently; retry against its row
+            return null;
+        }
+    }
+
+    private boolean renew(Connection connection, UUID uuid, long token) throws SQLException {
+        PreparedStatement statement = statements.prepare(connection, RENEW_LEASE);
+        statement.setLong(1, System.currentTimeMillis() + ttlMillis);
+        statement.setString(2, uuid.toString());
+        statement.setString(3, serverId);
+        statement.setLong(4, token);
+        statement.setBoolean(5, false);
+        return statement.executeUpdate() == 1;
+    }
+
+    private void renewAll() {
+        try {
+            connectionSource.write(connection -> {
+                PreparedStatement statement = statements.prepare(connection, RENEW_ALL_LEASES);
+                statement.setLong(1, System.currentTimeMillis() + ttlMillis);
+                statement.setString(2, serverId);
+                statement.setBoolean(3, false);
+                return statement.executeUpdate();
+            }).join();
+        } catch (CompletionException e) {
+            logger.log(Level.WARNING, "Failed to renew player leases", e);
+        }
+    }
+}
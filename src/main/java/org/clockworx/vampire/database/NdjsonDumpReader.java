@@ -0,0 +1,182 @@
+package org.clockworx.vampire.database;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import org.clockworx.vampire.entity.BloodOffer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads a dump written by {@link NdjsonDumpWriter}, one line at a time.
+ * Players and offers are read in file order; a resumed read skips those up to the
+ * given one, which works because dumps list players in UUID order and offers in
+ * {@link DatabaseManager#OFFER_PAGE_ORDER}.
+ */
+public class NdjsonDumpReader implements TransferSource {
+
+    private final Path file;
+    // Offers met while reading players, handed out before reading on
+    private final Queue<BloodOffer> offers = new ArrayDeque<>();
+    private BufferedReader reader;
+    private long lineNumber;
+
+    /**
+     * Creates a new dump reader.
+     *
+     * @param file The dump file
+     */
+    public NdjsonDumpReader(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public CompletableFuture<Void> open() {
+        try {
+            InputStream in = Files.newInputStream(file);
+            if (file.getFileName().toString().endsWith(".gz")) {
+                in = new GZIPInputStream(in, 64 * 1024);
+            }
+            reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024);
+
+            JsonObject header = nextLine();
+            if (header == null || !"header".equals(getString(header, "type"))) {
+                throw new IOException(file + " is not a Vampire dump");
+            }
+            int format = header.get("format").getAsInt();
+            if (format > NdjsonDumpWriter.FORMAT_VERSION) {
+                throw new IOException(file + " has dump format " + format + ", newer than this plugin supports");
+            }
+            return CompletableFuture.completedFuture(null);
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<PlayerRecord>> readPlayers(UUID after, int limit) {
+        try {
+            String afterKey = after != null ? after.toString() : null;
+            List<PlayerRecord> records = new ArrayList<>(limit);
+            JsonObject line;
+            while (records.size() < limit && (line = nextLine()) != null) {
+                String type = getString(line, "type");
+                if ("offer".equals(type)) {
+                    offers.add(toOffer(line));
+                } else if ("player".equals(type)) {
+                    String uuid = getString(line, "uuid");
+                    if (afterKey == null || uuid.compareTo(afterKey) > 0) {
+                        records.add(toRecord(line));
+                    }
+                }
+            }
+            return CompletableFuture.completedFuture(records);
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<List<BloodOffer>> readOffers(BloodOffer after, int limit) {
+        try {
+            List<BloodOffer> page = new ArrayList<>(limit);
+            while (page.size() < limit) {
+                BloodOffer offer = offers.poll();
+                if (offer == null) {
+                    JsonObject line = nextLine();
+                    if (line == null) {
+                        break;
+                    }
+                    if (!"offer".equals(getString(line, "type"))) {
+                        continue;
+                    }
+                    offer = toOffer(line);
+                }
+                if (after == null || DatabaseManager.OFFER_PAGE_ORDER.compare(offer, after) > 0) {
+                    page.add(offer);
+                }
+            }
+            return CompletableFuture.completedFuture(page);
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (reader == null) {
+            return;
+        }
+        try {
+            reader.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close " + file, e);
+        } finally {
+            reader = null;
+        }
+    }
+
+    private JsonObject nextLine() throws IOException {
+        String line;
+        do {
+            line = reader.readLine();
+            lineNumber++;
+        } while (line != null && line.isBlank());
+        if (line == null) {
+            return null;
+        }
+        try {
+            return JsonParser.parseString(line).getAsJsonObject();
+        } catch (JsonParseException | IllegalStateException e) {
+            throw new IOException("Malformed line " + lineNumber + " in " + file, e);
+        }
+    }
+
+    private static PlayerRecord toRecord(JsonObject line) {
+        PlayerRecord record = new PlayerRecord(UUID.fromString(getString(line, "uuid")), getString(line, "name"));
+        record.setVampire(line.get("vampire").getAsBoolean());
+        record.setBloodLevel(line.get("bloodLevel").getAsDouble());
+        record.setInfectionLevel(line.get("infectionLevel").getAsDouble());
+        record.setInfectionReason(getString(line, "infectionReason"));
+        record.setInfectionTime(line.get("infectionTime").getAsLong());
+        record.setLastShriekTime(line.get("lastShriekTime").getAsLong());
+        record.setLastBloodTradeTime(line.get("lastBloodTradeTime").getAsLong());
+        String partner = getString(line, "lastBloodTradePartner");
+        record.setLastBloodTradePartner(partner != null ? UUID.fromString(partner) : null);
+        record.setLastBloodTradeAmount(line.get("lastBloodTradeAmount").getAsDouble());
+        record.setLastBloodTradeType(getString(line, "lastBloodTradeType"));
+        return record;
+    }
+
+    private static BloodOffer toOffer(JsonObject line) {
+        BloodOffer offer = new BloodOffer(UUID.fromString(getString(line, "sender")), UUID.fromString(getString(line, "target")),
+            line.get("amount").getAsDouble(), line.get("timestamp").getAsLong());
+        if (line.get("accepted").getAsBoolean()) {
+            offer.setAccepted();
+        }
+        if (line.get("rejected").getAsBoolean()) {
+            offer.setRejected();
+        }
+        return offer;
+    }
+
+    private static String getString(JsonObject line, String key) {
+        JsonElement value = line.get(key);
+        return value == null || value.isJsonNull() ? null : value.getAsString();
+    }
+}
@@ -0,0 +1,132 @@
+package org.clockworx.vampire.database;
+
+import com.google.gson.JsonObject;
+import org.clockworx.vampire.entity.BloodOffer;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes players and blood offers to a newline-delimited JSON dump.
+ * The first line is a header, followed by one line per player in UUID order and
+ * then one line per offer in {@link DatabaseManager#OFFER_PAGE_ORDER}. Files ending in .gz are gzip-compressed.
+ */
+public class NdjsonDumpWriter implements TransferSink {
+
+    static final int FORMAT_VERSION = 1;
+
+    private final Path file;
+    private BufferedWriter writer;
+
+    /**
+     * Creates a new dump writer.
+     *
+     * @param file The dump file; an existing file is replaced
+     */
+    public NdjsonDumpWriter(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public CompletableFuture<Void> open() {
+        try {
+            Path parent = file.getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            OutputStream out = Files.newOutputStream(file);
+            if (file.getFileName().toString().endsWith(".gz")) {
+                out = new GZIPOutputStream(out, 64 * 1024);
+            }
+            writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+
+            JsonObject header = new JsonObject();
+            header.addProperty("type", "header");
+            header.addProperty("format", FORMAT_VERSION);
+            header.addProperty("created", System.currentTimeMillis());
+            writeLine(header);
+            return CompletableFuture.completedFuture(null);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> writePlayers(List<PlayerRecord> records) {
+        try {
+            for (PlayerRecord record : records) {
+                JsonObject line = new JsonObject();
+                line.addProperty("type", "player");
+                line.addProperty("uuid", record.getUuid().toString());
+                line.addProperty("name", record.getName());
+                line.addProperty("vampire", record.isVampire());
+                line.addProperty("bloodLevel", record.getBloodLevel());
+                line.addProperty("infectionLevel", record.getInfectionLevel());
+                line.addProperty("infectionReason", record.getInfectionReason());
+                line.addProperty("infectionTime", record.getInfectionTime());
+                line.addProperty("lastShriekTime", record.getLastShriekTime());
+                line.addProperty("lastBloodTradeTime", record.getLastBloodTradeTime());
+                line.addProperty("lastBloodTradePartner", toString(record.getLastBloodTradePartner()));
+                line.addProperty("lastBloodTradeAmount", record.getLastBloodTradeAmount());
+                line.addProperty("lastBloodTradeType", record.getLastBloodTradeType());
+                writeLine(line);
+            }
+            return CompletableFuture.completedFuture(null);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> writeOffers(List<BloodOffer> offers) {
+        try {
+            for (BloodOffer offer : offers) {
+                JsonObject line = new JsonObject();
+                line.addProperty("type", "offer");
+                line.addProperty("sender", offer.getSenderUuid().toString());
+                line.addProperty("target", offer.getTargetUuid().toString());
+                line.addProperty("amount", offer.getAmount());
+                line.addProperty("timestamp", offer.getTimestamp());
+                line.addProperty("accepted", offer.isAccepted());
+                line.addProperty("rejected", offer.isRejected());
+                writeLine(line);
+            }
+            return CompletableFuture.completedFuture(null);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close " + file, e);
+        } finally {
+            writer = null;
+        }
+    }
+
+    private void writeLine(JsonObject line) throws IOException {
+        writer.write(line.toString());
+        writer.write('\n');
+    }
+
+    private static String toString(UUID uuid) {
+        return uuid != null ? uuid.toString() : null;
+    }
+}
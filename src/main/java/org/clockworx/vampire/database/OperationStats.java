@@ -0,0 +1,87 @@
+package org.clockworx.vampire.database;
+
+import org.clockworx.vampire.util.LatencyHistogram;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency and failure counts of one DatabaseManager operation.
+ */
+public class OperationStats {
+
+    private final String operation;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+
+    /**
+     * Creates new operation statistics.
+     *
+     * @param operation The operation name
+     */
+    public OperationStats(String operation) {
+        this.operation = operation;
+    }
+
+    /**
+     * Records one completed call.
+     *
+     * @param micros The time the call took in microseconds
+     * @param error The failure, or null if the call succeeded
+     * @param timedOut Whether the failure was a timeout
+     */
+    public void record(long micros, Throwable error, boolean timedOut) {
+        latencies.record(micros);
+        if (error != null) {
+            errors.increment();
+            if (timedOut) {
+                timeouts.increment();
+            }
+        }
+    }
+
+    /**
+     * Clears the recorded calls.
+     */
+    public void reset() {
+        latencies.reset();
+        errors.reset();
+        timeouts.reset();
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public long getCount() {
+        return latencies.getCount();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    public double getMeanMicros() {
+        return latencies.getMean();
+    }
+
+    public long getP50Micros() {
+        return latencies.getPercentile(0.50);
+    }
+
+    public long getP95Micros() {
+        return latencies.getPercentile(0.95);
+    }
+
+    public long getP99Micros() {
+        return latencies.getPercentile(0.99);
+    }
+
+    public long getMaxMicros() {
+        return latencies.getMax();
+    }
+}
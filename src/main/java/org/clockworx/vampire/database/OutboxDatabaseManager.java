@@ -0,0 +1,811 @@
+package org.clockworx.vampire.database;
+
+import org.clockworx.vampire.config.LanguageConfig;
+import org.clockworx.vampire.config.VampireConfig;
+import org.clockworx.vampire.entity.BloodOffer;
+import org.clockworx.vampire.entity.VampirePlayer;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLNonTransientException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps player writes that the database cannot take in a local outbox.
+ * A player write that fails because the database is unreachable, or that is made
+ * while the {@link CircuitBreaker} is open, is appended to a {@link PlayerJournal}
+ * and reported as saved. Later writes for a player already in the outbox are merged
+ * into it, so the outbox holds one latest record per player. Writes and deletes of the
+ * same player start only once the previous one has landed or been outboxed, and a
+ * player is not replayed while a database write of it is still running, even one whose
+ * call has timed out, so an older write can never land after a newer one. A background
+ * task replays the outbox in batches once the database answers again.
+ * <p>
+ * While a player is in the outbox, its reads are answered and its point updates are
+ * applied from the outbox record. Other calls fail at once with a
+ * {@link DatabaseUnavailableException} while the breaker is open, instead of queueing
+ * on a dead connection pool. Listings still come from the database and may miss
+ * changes that are waiting in the outbox.
+ */
+public class OutboxDatabaseManager extends ForwardingDatabaseManager {
+
+    private final PlayerJournal journal;
+    private final CircuitBreaker breaker;
+    private final long callTimeoutMillis;
+    private final long retryIntervalMillis;
+    private final int batchSize;
+    private final Logger logger;
+    // Guarded by this, together with the journal file it mirrors
+    private final Map<UUID, PlayerRecord> pending = new LinkedHashMap<>();
+    // Guarded by this: the latest write or delete of each player, which the next one waits for
+    private final Map<UUID, CompletableFuture<Void>> lastWrites = new HashMap<>();
+    // Guarded by this: players with database writes still running, by number of writes
+    private final Map<UUID, Integer> landing = new HashMap<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private ScheduledExecutorService retrier;
+
+    /**
+     * Creates a new outbox database manager.
+     *
+     * @param delegate The database manager to protect
+     * @param journal The journal the outbox is kept in
+     * @param breaker The circuit breaker for calls to the delegate
+     * @param callTimeoutMillis How long a call may take before it counts as failed
+     * @param retryIntervalMillis How often the outbox is replayed
+     * @param batchSize The maximum number of players replayed in one batch
+     * @param logger The logger to report outages to
+     */
+    public OutboxDatabaseManager(DatabaseManager delegate, PlayerJournal journal, CircuitBreaker breaker,
+                                 long callTimeoutMillis, long retryIntervalMillis, int batchSize, Logger logger) {
+        super(delegate);
+        this.journal = journal;
+        this.breaker = breaker;
+        this.callTimeoutMillis = callTimeoutMillis;
+        this.retryIntervalMillis = retryIntervalMillis;
+        this.batchSize = batchSize;
+        this.logger = logger;
+    }
+
+    @Override
+    public CompletableFuture<Void> initialize() {
+        try {
+            List<PlayerRecord> records = journal.read();
+            synchronized (this) {
+                for (PlayerRecord record : records) {
+                    pending.put(record.getUuid(), record);
+                }
+            }
+            if (!records.isEmpty()) {
+                logger.info(records.size() + " players from the outbox in " + journal.getFile() + " will be written to the database");
+            }
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        return delegate.initialize().thenRun(() -> {
+            retrier = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "Vampire-Outbox");
+                thread.setDaemon(true);
+                return thread;
+            });
+            retrier.scheduleWithFixedDelay(this::drain, 0, retryIntervalMillis, TimeUnit.MILLISECONDS);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> shutdown() {
+        if (retrier != null) {
+            retrier.shutdownNow();
+            retrier = null;
+        }
+        int waiting = getPendingCount();
+        if (waiting > 0) {
+            logger.warning(waiting + " players are still in the outbox in " + journal.getFile()
+                + " and will be written on the next start");
+        }
+        return delegate.shutdown();
+    }
+
+    /**
+     * Gets the number of players waiting in the outbox.
+     *
+     * @return The number of players waiting
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Gets the number of writes sent to the outbox since the server started.
+     *
+     * @return The number of outboxed writes
+     */
+    public long getSpilledCount() {
+        return spilled.get();
+    }
+
+    /**
+     * Gets the number of players replayed from the outbox since the server started.
+     *
+     * @return The number of replayed players
+     */
+    public long getReplayedCount() {
+        return replayed.get();
+    }
+
+    public CircuitBreaker getBreaker() {
+        return breaker;
+    }
+
+    @Override
+    public CompletableFuture<VampirePlayer> getPlayer(UUID uuid) {
+        return read(uuid, PlayerRecord::toVampirePlayer, () -> delegate.getPlayer(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> savePlayer(VampirePlayer player) {
+        return save(List.of(PlayerRecord.from(player)));
+    }
+
+    @Override
+    public CompletableFuture<Void> savePlayerRecords(Collection<PlayerRecord> records) {
+        return save(records);
+    }
+
+    @Override
+    public CompletableFuture<Void> deletePlayer(UUID uuid) {
+        return sequenced(List.of(uuid), () -> {
+            // Drop the outboxed write first, so a replay cannot bring the player back
+            synchronized (this) {
+                if (pending.remove(uuid) != null) {
+                    try {
+                        journal.rewrite(pending.values());
+                    } catch (IOException e) {
+                        return CompletableFuture.failedFuture(e);
+                    }
+                }
+            }
+            return guarded(() -> delegate.deletePlayer(uuid));
+        });
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isVampire(UUID uuid) {
+        return read(uuid, PlayerRecord::isVampire, () -> delegate.isVampire(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> isInfected(UUID uuid) {
+        return read(uuid, record -> record.getInfectionLevel() > 0, () -> delegate.isInfected(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Double> getBloodLevel(UUID uuid) {
+        return read(uuid, PlayerRecord::getBloodLevel, () -> delegate.getBloodLevel(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setBloodLevel(UUID uuid, double blood) {
+        return update(uuid, record -> {
+            record.setBloodLevel(blood);
+            return null;
+        }, () -> delegate.setBloodLevel(uuid, blood));
+    }
+
+    @Override
+    public CompletableFuture<Double> getInfectionLevel(UUID uuid) {
+        return read(uuid, PlayerRecord::getInfectionLevel, () -> delegate.getInfectionLevel(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setInfectionLevel(UUID uuid, double infection) {
+        return update(uuid, record -> {
+            record.setInfectionLevel(infection);
+            return null;
+        }, () -> delegate.setInfectionLevel(uuid, infection));
+    }
+
+    @Override
+    public CompletableFuture<String> getInfectionReason(UUID uuid) {
+        return read(uuid, PlayerRecord::getInfectionReason, () -> delegate.getInfectionReason(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setInfectionReason(UUID uuid, String reason) {
+        return update(uuid, record -> {
+            record.setInfectionReason(reason);
+            return null;
+        }, () -> delegate.setInfectionReason(uuid, reason));
+    }
+
+    @Override
+    public CompletableFuture<Long> getInfectionTime(UUID uuid) {
+        return read(uuid, PlayerRecord::getInfectionTime, () -> delegate.getInfectionTime(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setInfectionTime(UUID uuid, long time) {
+        return update(uuid, record -> {
+            record.setInfectionTime(time);
+            return null;
+        }, () -> delegate.setInfectionTime(uuid, time));
+    }
+
+    @Override
+    public CompletableFuture<Long> getLastShriekTime(UUID uuid) {
+        return read(uuid, PlayerRecord::getLastShriekTime, () -> delegate.getLastShriekTime(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastShriekTime(UUID uuid, long time) {
+        return update(uuid, record -> {
+            record.setLastShriekTime(time);
+            return null;
+        }, () -> delegate.setLastShriekTime(uuid, time));
+    }
+
+    @Override
+    public CompletableFuture<Long> getLastBloodTradeTime(UUID uuid) {
+        return read(uuid, PlayerRecord::getLastBloodTradeTime, () -> delegate.getLastBloodTradeTime(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradeTime(UUID uuid, long time) {
+        return update(uuid, record -> {
+            record.setLastBloodTradeTime(time);
+            return null;
+        }, () -> delegate.setLastBloodTradeTime(uuid, time));
+    }
+
+    @Override
+    public CompletableFuture<UUID> getLastBloodTradePartner(UUID uuid) {
+        return read(uuid, PlayerRecord::getLastBloodTradePartner, () -> delegate.getLastBloodTradePartner(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradePartner(UUID uuid, UUID partner) {
+        return update(uuid, record -> {
+            record.setLastBloodTradePartner(partner);
+            return null;
+        }, () -> delegate.setLastBloodTradePartner(uuid, partner));
+    }
+
+    @Override
+    public CompletableFuture<Double> getLastBloodTradeAmount(UUID uuid) {
+        return read(uuid, PlayerRecord::getLastBloodTradeAmount, () -> delegate.getLastBloodTradeAmount(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradeAmount(UUID uuid, double amount) {
+        return update(uuid, record -> {
+            record.setLastBloodTradeAmount(amount);
+            return null;
+        }, () -> delegate.setLastBloodTradeAmount(uuid, amount));
+    }
+
+    @Override
+    public CompletableFuture<String> getLastBloodTradeType(UUID uuid) {
+        return read(uuid, PlayerRecord::getLastBloodTradeType, () -> delegate.getLastBloodTradeType(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setLastBloodTradeType(UUID uuid, String type) {
+        return update(uuid, record -> {
+            record.setLastBloodTradeType(type);
+            return null;
+        }, () -> delegate.setLastBloodTradeType(uuid, type));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> addInfection(UUID uuid, double amount, String reason) {
+        long now = System.currentTimeMillis();
+        return update(uuid, record -> {
+            record.setInfectionLevel(record.getInfectionLevel() + amount);
+            record.setInfectionReason(reason);
+            record.setInfectionTime(now);
+            return true;
+        }, () -> delegate.addInfection(uuid, amount, reason));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> setVampire(UUID uuid, boolean isVampire) {
+        long now = System.currentTimeMillis();
+        return update(uuid, record -> {
+            record.setVampire(isVampire);
+            if (isVampire) {
+                record.setInfectionTime(now);
+            }
+            return true;
+        }, () -> delegate.setVampire(uuid, isVampire));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> useBlood(UUID uuid, double amount) {
+        return update(uuid, record -> {
+            if (record.getBloodLevel() < amount) {
+                return false;
+            }
+            record.setBloodLevel(record.getBloodLevel() - amount);
+            return true;
+        }, () -> delegate.useBlood(uuid, amount));
+    }
+
+    @Override
+    public CompletableFuture<BloodOffer> createBloodOffer(UUID senderUuid, UUID targetUuid, double amount) {
+        return guarded(() -> delegate.createBloodOffer(senderUuid, targetUuid, amount));
+    }
+
+    @Override
+    public CompletableFuture<BloodOffer> getBloodOffer(UUID playerUuid) {
+        return guarded(() -> delegate.getBloodOffer(playerUuid));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> acceptBloodOffer(UUID playerUuid) {
+        return guarded(() -> delegate.acceptBloodOffer(playerUuid));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> rejectBloodOffer(UUID playerUuid) {
+        return guarded(() -> delegate.rejectBloodOffer(playerUuid));
+    }
+
+    @Override
+    public CompletableFuture<List<BloodOffer>> getAllBloodOffers() {
+        return guarded(delegate::getAllBloodOffers);
+    }
+
+    @Override
+    public CompletableFuture<List<BloodOffer>> getBloodOfferPage(BloodOffer after, int limit) {
+        return guarded(() -> delegate.getBloodOfferPage(after, limit));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveBloodOffers(Collection<BloodOffer> offers) {
+        return guarded(() -> delegate.saveBloodOffers(offers));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> cleanupExpiredOffers(long timeoutMillis) {
+        return guarded(() -> delegate.cleanupExpiredOffers(timeoutMillis));
+    }
+
+    @Override
+    public CompletableFuture<Integer> purgeOffers(long pendingTimeoutMillis, long resolvedRetentionMillis) {
+        return guarded(() -> delegate.purgeOffers(pendingTimeoutMillis, resolvedRetentionMillis));
+    }
+
+    @Override
+    public CompletableFuture<List<VampirePlayer>> getAllVampires() {
+        return guarded(delegate::getAllVampires);
+    }
+
+    @Override
+    public CompletableFuture<List<VampirePlayer>> getVampirePage(UUID after, int limit) {
+        return guarded(() -> delegate.getVampirePage(after, limit));
+    }
+
+    @Override
+    public CompletableFuture<List<PlayerRecord>> getPlayerRecordPage(UUID after, int limit) {
+        return guarded(() -> delegate.getPlayerRecordPage(after, limit));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveConfig(String key, String value) {
+        return guarded(() -> delegate.saveConfig(key, value));
+    }
+
+    @Override
+    public CompletableFuture<String> getConfig(String key) {
+        return guarded(() -> delegate.getConfig(key));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveLanguage(String key, String value) {
+        return guarded(() -> delegate.saveLanguage(key, value));
+    }
+
+    @Override
+    public CompletableFuture<String> getLanguage(String key) {
+        return guarded(() -> delegate.getLanguage(key));
+    }
+
+    @Override
+    public CompletableFuture<VampireConfig> loadConfig() {
+        return guarded(delegate::loadConfig);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveConfig(VampireConfig config) {
+        return guarded(() -> delegate.saveConfig(config));
+    }
+
+    @Override
+    public CompletableFuture<LanguageConfig> loadLanguage() {
+        return guarded(delegate::loadLanguage);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> saveLanguage(LanguageConfig language) {
+        return guarded(() -> delegate.saveLanguage(language));
+    }
+
+    /**
+     * Writes players to the database, or to the outbox if the database cannot take them,
+     * after any earlier write of the same players.
+     *
+     * @param records The players to write
+     * @return A CompletableFuture that completes once every player is in the database or the outbox
+     */
+    private CompletableFuture<Void> save(Collection<PlayerRecord> records) {
+        List<UUID> uuids = new ArrayList<>(records.size());
+        for (PlayerRecord record : records) {
+            uuids.add(record.getUuid());
+        }
+        return sequenced(uuids, () -> write(records));
+    }
+
+    private CompletableFuture<Void> write(Collection<PlayerRecord> records) {
+        List<PlayerRecord> direct = new ArrayList<>();
+        synchronized (this) {
+            List<PlayerRecord> merged = new ArrayList<>();
+            for (PlayerRecord record : records) {
+                (pending.containsKey(record.getUuid()) ? merged : direct).add(record);
+            }
+            // Players already in the outbox stay there, so their writes are replayed in order
+            if (!merged.isEmpty()) {
+                try {
+                    spill(merged);
+                } catch (IOException e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+            }
+        }
+        if (direct.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (!breaker.allowRequest()) {
+            return spillAsync(direct);
+        }
+        return callSave(direct).handle((ignored, error) -> error)
+            .thenCompose(error -> {
+                if (error == null) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                if (!isOutage(error)) {
+                    return CompletableFuture.failedFuture(unwrap(error));
+                }
+                return spillAsync(direct);
+            });
+    }
+
+    /**
+     * Runs a write or delete once the previous one of the same players has landed or been
+     * outboxed, so each player's writes reach the database or the outbox in call order.
+     *
+     * @param uuids The players written
+     * @param operation Starts the write
+     * @return A CompletableFuture that completes with the result of the write
+     */
+    private <T> CompletableFuture<T> sequenced(Collection<UUID> uuids, Supplier<CompletableFuture<T>> operation) {
+        CompletableFuture<Void> settled = new CompletableFuture<>();
+        List<CompletableFuture<Void>> previous = new ArrayList<>();
+        synchronized (this) {
+            for (UUID uuid : uuids) {
+                CompletableFuture<Void> last = lastWrites.put(uuid, settled);
+                if (last != null && last != settled) {
+                    previous.add(last);
+                }
+            }
+        }
+        CompletableFuture<T> result = CompletableFuture.allOf(previous.toArray(new CompletableFuture[0]))
+            .thenCompose(ignored -> operation.get());
+        result.whenComplete((value, error) -> {
+            synchronized (this) {
+                for (UUID uuid : uuids) {
+                    lastWrites.remove(uuid, settled);
+                }
+            }
+            settled.complete(null);
+        });
+        return result;
+    }
+
+    /**
+     * Writes players to the database with a timeout. The players count as landing until
+     * the write itself has finished, which may be after the call has timed out.
+     *
+     * @param records The players to write
+     * @return A CompletableFuture that completes with the outcome of the call
+     */
+    private CompletableFuture<Void> callSave(List<PlayerRecord> records) {
+        synchronized (this) {
+            for (PlayerRecord record : records) {
+                landing.merge(record.getUuid(), 1, Integer::sum);
+            }
+        }
+        CompletableFuture<Void> written;
+        try {
+            written = delegate.savePlayerRecords(records);
+        } catch (RuntimeException e) {
+            written = CompletableFuture.failedFuture(e);
+        }
+        written.whenComplete((ignored, error) -> {
+            synchronized (this) {
+                for (PlayerRecord record : records) {
+                    landing.computeIfPresent(record.getUuid(), (uuid, writes) -> writes > 1 ? writes - 1 : null);
+                }
+            }
+        });
+        CompletableFuture<Void> attempt = written;
+        return call(() -> attempt);
+    }
+
+    /**
+     * Answers a player read from the outbox if the player is waiting there.
+     *
+     * @param uuid The player's UUID
+     * @param outboxed Reads the answer from the outbox record
+     * @param operation Reads the answer from the database
+     * @return A CompletableFuture that completes with the answer
+     */
+    private <T> CompletableFuture<T> read(UUID uuid, Function<PlayerRecord, T> outboxed,
+                                          Supplier<CompletableFuture<T>> operation) {
+        PlayerRecord record;
+        synchronized (this) {
+            record = pending.get(uuid);
+            record = record != null ? record.copy() : null;
+        }
+        if (record != null) {
+            return CompletableFuture.completedFuture(outboxed.apply(record));
+        }
+        return guarded(operation);
+    }
+
+    /**
+     * Applies a point update to the outbox record if the player is waiting there.
+     *
+     * @param uuid The player's UUID
+     * @param outboxed Applies the update to the outbox record and returns the result
+     * @param operation Applies the update in the database
+     * @return A CompletableFuture that completes with the result
+     */
+    private <T> CompletableFuture<T> update(UUID uuid, Function<PlayerRecord, T> outboxed,
+                                            Supplier<CompletableFuture<T>> operation) {
+        synchronized (this) {
+            PlayerRecord record = pending.get(uuid);
+            if (record != null) {
+                PlayerRecord updated = record.copy();
+                T result = outboxed.apply(updated);
+                try {
+                    spill(List.of(updated));
+                } catch (IOException e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+                return CompletableFuture.completedFuture(result);
+            }
+        }
+        return guarded(operation);
+    }
+
+    /**
+     * Calls the database, or fails at once while the breaker is open.
+     *
+     * @param operation The call
+     * @return A CompletableFuture that completes with the result of the call
+     */
+    private <T> CompletableFuture<T> guarded(Supplier<CompletableFuture<T>> operation) {
+        if (!breaker.allowRequest()) {
+            return CompletableFuture.failedFuture(new DatabaseUnavailableException());
+        }
+        return call(operation);
+    }
+
+    /**
+     * Calls the database with a timeout and reports the outcome to the breaker.
+     *
+     * @param operation The call
+     * @return A CompletableFuture that completes with the result of the call
+     */
+    private <T> CompletableFuture<T> call(Supplier<CompletableFuture<T>> operation) {
+        CompletableFuture<T> future;
+        try {
+            // Copied so the timeout does not complete a future the delegate may share
+            future = operation.get().copy();
+        } catch (RuntimeException e) {
+            future = CompletableFuture.failedFuture(e);
+        }
+        return future.orTimeout(callTimeoutMillis, TimeUnit.MILLISECONDS).whenComplete((result, error) -> {
+            if (error != null && isOutage(error)) {
+                if (breaker.recordFailure()) {
+                    logger.log(Level.WARNING, "The database is unreachable; player writes go to the outbox in "
+                        + journal.getFile() + " until it recovers", unwrap(error));
+                }
+            } else if (breaker.recordSuccess()) {
+                logger.info("The database is reachable again; replaying " + getPendingCount() + " players from the outbox");
+            }
+        });
+    }
+
+    private CompletableFuture<Void> spillAsync(Collection<PlayerRecord> records) {
+        synchronized (this) {
+            try {
+                spill(records);
+            } catch (IOException e) {
+                logger.log(Level.SEVERE, "Failed to write " + records.size() + " players to the outbox in "
+                    + journal.getFile() + "; their latest changes are lost", e);
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Appends players to the outbox. Must be called holding this manager's lock.
+     *
+     * @param records The players to append
+     * @throws IOException If the journal cannot be written
+     */
+    private void spill(Collection<PlayerRecord> records) throws IOException {
+        List<PlayerRecord> copies = new ArrayList<>(records.size());
+        for (PlayerRecord record : records) {
+            copies.add(record.copy());
+        }
+        journal.append(copies);
+        for (PlayerRecord copy : copies) {
+            pending.put(copy.getUuid(), copy);
+        }
+        spilled.addAndGet(copies.size());
+    }
+
+    /**
+     * Replays one batch of the outbox, and the next one straight after if it succeeds.
+     */
+    private void drain() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        List<PlayerRecord> batch = new ArrayList<>();
+        synchronized (this) {
+            for (PlayerRecord record : pending.values()) {
+                if (batch.size() == batchSize) {
+                    break;
+                }
+                // A replay must not race a write that may still land after it
+                if (!landing.containsKey(record.getUuid())) {
+                    batch.add(record);
+                }
+            }
+        }
+        if (batch.isEmpty() || !breaker.allowRequest()) {
+            draining.set(false);
+            return;
+        }
+
+        callSave(batch).handle((ignored, error) -> error).thenCompose(error -> {
+            if (error == null) {
+                return CompletableFuture.completedFuture(batch);
+            }
+            if (isOutage(error)) {
+                return CompletableFuture.completedFuture(List.<PlayerRecord>of());
+            }
+            // A player the database rejects would hold up the outbox forever; find it by replaying one at a time
+            return replayEach(batch);
+        }).whenComplete((resolved, error) -> {
+            boolean more = false;
+            try {
+                more = resolved != null && !resolved.isEmpty() && removeReplayed(resolved);
+            } finally {
+                draining.set(false);
+            }
+            ScheduledExecutorService executor = retrier;
+            if (more && executor != null) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RuntimeException e) {
+                    // Shutting down; the rest stays in the journal
+                }
+            }
+        });
+    }
+
+    /**
+     * Replays players one at a time, dropping those the database rejects.
+     *
+     * @param batch The players to replay
+     * @return A CompletableFuture that completes with the players written or dropped
+     */
+    private CompletableFuture<List<PlayerRecord>> replayEach(List<PlayerRecord> batch) {
+        List<PlayerRecord> resolved = new ArrayList<>();
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        for (PlayerRecord record : batch) {
+            writes.add(callSave(List.of(record)).handle((ignored, error) -> {
+                if (error != null && isOutage(error)) {
+                    return null;
+                }
+                if (error != null) {
+                    logger.log(Level.WARNING, "Dropping player " + record.getUuid()
+                        + " from the outbox; the database rejected it", unwrap(error));
+                }
+                synchronized (resolved) {
+                    resolved.add(record);
+                }
+                return null;
+            }));
+        }
+        return CompletableFuture.allOf(writes.toArray(new CompletableFuture[0])).thenApply(ignored -> resolved);
+    }
+
+    /**
+     * Removes replayed players from the outbox, keeping any that were written again since.
+     *
+     * @param batch The replayed or dropped players
+     * @return true if players are still waiting
+     */
+    private synchronized boolean removeReplayed(List<PlayerRecord> batch) {
+        for (PlayerRecord record : batch) {
+            if (pending.get(record.getUuid()) == record) {
+                pending.remove(record.getUuid());
+            }
+        }
+        replayed.addAndGet(batch.size());
+        try {
+            journal.rewrite(pending.values());
+        } catch (IOException e) {
+            // The old journal still holds these players; replaying them again is harmless
+            logger.log(Level.WARNING, "Failed to compact the outbox in " + journal.getFile(), e);
+        }
+        if (pending.isEmpty()) {
+            logger.info("The outbox is empty; " + replayed.get() + " players have been replayed since the server started");
+        }
+        return !pending.isEmpty();
+    }
+
+    /**
+     * Checks whether a failure means the database could not be reached, as opposed to
+     * rejecting the call. Rejections such as stale leases or constraint violations would
+     * fail the same way on every replay, so they are passed to the caller instead.
+     *
+     * @param error The failure
+     * @return true if the failure is an outage
+     */
+    private static boolean isOutage(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof StaleLeaseException) {
+                return false;
+            }
+            if (cause instanceof SQLNonTransientException && !(cause instanceof SQLNonTransientConnectionException)) {
+                return false;
+            }
+            if (cause instanceof SQLException || cause instanceof IOException
+                    || cause instanceof TimeoutException || cause instanceof DatabaseUnavailableException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
@@ -0,0 +1,173 @@
+package org.clockworx.vampire.database;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Publishes the rows of a keyset-paginated query.
+ * A page is only fetched once the subscriber has asked for more items than are
+ * buffered, so at most one page is held in memory per subscription.
+ *
+ * @param <K> The type of the key the rows are ordered by
+ * @param <T> The type of the published rows
+ */
+public class PagedPublisher<K, T> implements Flow.Publisher<T> {
+
+    private final BiFunction<K, Integer, CompletableFuture<List<T>>> pageLoader;
+    private final Function<T, K> keyExtractor;
+    private final int pageSize;
+
+    /**
+     * Creates a new paged publisher.
+     *
+     * @param pageLoader Loads up to the given number of rows after the given key, or from the start if the key is null
+     * @param keyExtractor Gets the key of a row
+     * @param pageSize The number of rows fetched per page
+     */
+    public PagedPublisher(BiFunction<K, Integer, CompletableFuture<List<T>>> pageLoader, Function<T, K> keyExtractor, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive: " + pageSize);
+        }
+        this.pageLoader = pageLoader;
+        this.keyExtractor = keyExtractor;
+        this.pageSize = pageSize;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        PageSubscription subscription = new PageSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    /**
+     * Tracks demand for one subscriber and pulls pages to satisfy it.
+     */
+    private class PageSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super T> subscriber;
+        private final Deque<T> buffer = new ArrayDeque<>();
+        private long demand;
+        private K lastKey;
+        private boolean exhausted;
+        private boolean loading;
+        private boolean draining;
+        private boolean done;
+
+        private PageSubscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            synchronized (this) {
+                if (done) {
+                    return;
+                }
+                if (n <= 0) {
+                    done = true;
+                    buffer.clear();
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+            }
+            if (n <= 0) {
+                subscriber.onError(new IllegalArgumentException("Requested " + n + " items"));
+                return;
+            }
+            drain();
+        }
+
+        @Override
+        public synchronized void cancel() {
+            done = true;
+            buffer.clear();
+        }
+
+        /**
+         * Delivers buffered rows while there is demand, then fetches the next page
+         * or signals completion. Only one thread delivers at a time.
+         */
+        private void drain() {
+            synchronized (this) {
+                if (draining) {
+                    return;
+                }
+                draining = true;
+            }
+            while (true) {
+                T next;
+                boolean complete = false;
+                boolean fetch = false;
+                synchronized (this) {
+                    if (done) {
+                        draining = false;
+                        return;
+                    }
+                    if (demand > 0 && !buffer.isEmpty()) {
+                        next = buffer.poll();
+                        demand--;
+                    } else {
+                        next = null;
+                        if (buffer.isEmpty() && exhausted) {
+                            done = true;
+                            complete = true;
+                        } else if (buffer.isEmpty() && demand > 0 && !loading) {
+                            loading = true;
+                            fetch = true;
+                        }
+                        draining = false;
+                    }
+                }
+                if (next != null) {
+                    subscriber.onNext(next);
+                    continue;
+                }
+                if (complete) {
+                    subscriber.onComplete();
+                } else if (fetch) {
+                    fetchPage();
+                }
+                return;
+            }
+        }
+
+        private void fetchPage() {
+            K after;
+            synchronized (this) {
+                after = lastKey;
+            }
+            pageLoader.apply(after, pageSize).whenComplete((page, error) -> {
+                if (error != null) {
+                    boolean notify;
+                    synchronized (this) {
+                        notify = !done;
+                        done = true;
+                        loading = false;
+                    }
+                    if (notify) {
+                        subscriber.onError(error);
+                    }
+                    return;
+                }
+                synchronized (this) {
+                    loading = false;
+                    if (page.size() < pageSize) {
+                        exhausted = true;
+                    }
+                    if (!page.isEmpty()) {
+                        lastKey = keyExtractor.apply(page.get(page.size() - 1));
+                        if (!done) {
+                            buffer.addAll(page);
+                        }
+                    }
+                }
+                drain();
+            });
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package org.clockworx.vampire.database;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * A local recovery file for player records that could not be written to the database.
+ * Records are appended with a length and checksum each and synced to disk, so a crash
+ * while spilling loses at most the torn last record. On the next start the journal is
+ * replayed into the database and deleted; a later record for the same player wins.
+ */
+public class PlayerJournal {
+
+    private final Path file;
+    private final Logger logger;
+
+    /**
+     * Creates a new player journal.
+     *
+     * @param file The journal file; it is created on the first append
+     * @param logger The logger to report damaged records to
+     */
+    public PlayerJournal(Path file, Logger logger) {
+        this.file = file;
+        this.logger = logger;
+    }
+
+    /**
+     * Gets the journal file.
+     *
+     * @return The journal file
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Checks whether there are records waiting to be replayed.
+     *
+     * @return true if the journal file exists
+     */
+    public boolean exists() {
+        return Files.exists(file);
+    }
+
+    /**
+     * Appends records to the journal and syncs them to disk.
+     *
+     * @param records The records to append
+     * @throws IOException If the journal cannot be written
+     */
+    public synchronized void append(Collection<PlayerRecord> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        write(file, encode(records), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Replaces the journal with the given records, or deletes it if there are none.
+     * The records are written aside and moved over the journal, so a crash leaves
+     * either the old or the new journal.
+     *
+     * @param records The records to keep
+     * @throws IOException If the journal cannot be written
+     */
+    public synchronized void rewrite(Collection<PlayerRecord> records) throws IOException {
+        if (records.isEmpty()) {
+            Files.deleteIfExists(file);
+            return;
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        write(temp, encode(records), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static byte[] encode(Collection<PlayerRecord> records) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(records.size() * 128);
+        DataOutputStream out = new DataOutputStream(bytes);
+        CRC32 crc = new CRC32();
+        for (PlayerRecord record : records) {
+            byte[] body = record.toBytes();
+            crc.reset();
+            crc.update(body);
+            out.writeInt(body.length);
+            out.write(body);
+            out.writeInt((int) crc.getValue());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static void write(Path target, byte[] bytes, StandardOpenOption... options) throws IOException {
+        Path parent = target.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (FileChannel channel = FileChannel.open(target, options)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Reads the journaled records, keeping only the latest record of each player.
+     * Reading stops at the first damaged record.
+     *
+     * @return The records in the order their players were first journaled
+     * @throws IOException If the journal cannot be read
+     */
+    public synchronized List<PlayerRecord> read() throws IOException {
+        Map<UUID, PlayerRecord> records = new LinkedHashMap<>();
+        if (!Files.exists(file)) {
+            return new ArrayList<>();
+        }
+        try (InputStream stream = Files.newInputStream(file);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(stream))) {
+            CRC32 crc = new CRC32();
+            while (true) {
+                byte[] body;
+                int checksum;
+                try {
+                    int length = in.readInt();
+                    if (length <= 0 || length > 1 << 20) {
+                        logger.warning("Ignoring damaged record in " + file + " after " + records.size() + " players");
+                        break;
+                    }
+                    body = new byte[length];
+                    in.readFully(body);
+                    checksum = in.readInt();
+                } catch (EOFException e) {
+                    // Clean end of file, or a record torn by a crash while spilling
+                    break;
+                }
+                crc.reset();
+                crc.update(body);
+                if ((int) crc.getValue() != checksum) {
+                    logger.warning("Ignoring damaged record in " + file + " after " + records.size() + " players");
+                    break;
+                }
+                PlayerRecord record = PlayerRecord.fromBytes(body);
+                records.put(record.getUuid(), record);
+            }
+        }
+        return new ArrayList<>(records.values());
+    }
+
+    /**
+     * Writes the journaled records to a database and deletes the journal once they are saved.
+     * If the write fails the journal is kept for the next attempt.
+     *
+     * @param target The database manager to write to
+     * @return A CompletableFuture that completes with the number of replayed records
+     */
+    public CompletableFuture<Integer> replay(DatabaseManager target) {
+        List<PlayerRecord> records;
+        try {
+            records = read();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (records.isEmpty()) {
+            delete();
+            return CompletableFuture.completedFuture(0);
+        }
+        return target.savePlayerRecords(records).thenApply(ignored -> {
+            delete();
+            return records.size();
+        });
+    }
+
+    private synchronized void delete() {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to delete " + file + "; its players will be replayed again", e);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package org.clockworx.vampire.database;
+
+import org.clockworx.vampire.entity.VampirePlayer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.UUID;
+
+/**
+ * The persisted fields of a vampire player, with a compact binary encoding.
+ * This holds the same columns as the vampire_players table. Backends that do not
+ * use SQL can work on it without constructing a VampirePlayer, whose setters fire events.
+ */
+public class PlayerRecord {
+
+    private static final byte FORMAT_VERSION = 1;
+
+    private final UUID uuid;
+    private String name;
+    private boolean vampire;
+    private double bloodLevel;
+    private double infectionLevel;
+    private String infectionReason;
+    private long infectionTime;
+    private long lastShriekTime;
+    private long lastBloodTradeTime;
+    private UUID lastBloodTradePartner;
+    private double lastBloodTradeAmount;
+    private String lastBloodTradeType;
+
+    /**
+     * Creates a new record with default values.
+     *
+     * @param uuid The player's UUID
+     * @param name The player's name
+     */
+    public PlayerRecord(UUID uuid, String name) {
+        this.uuid = uuid;
+        this.name = name;
+    }
+
+    /**
+     * Creates a record from a player's current state.
+     *
+     * @param player The player
+     * @return The record
+     */
+    public static PlayerRecord from(VampirePlayer player) {
+        PlayerRecord record = new PlayerRecord(player.getUuid(), player.getName());
+        record.vampire = player.isVampire();
+        record.bloodLevel = player.getBlood();
+        record.infectionLevel = player.getInfectionLevel();
+        record.infectionReason = player.getInfectionReason();
+        record.infectionTime = player.getInfectionTime();
+        record.lastShriekTime = player.getLastShriekTime();
+        record.lastBloodTradeTime = player.getLastBloodTradeTime();
+        record.lastBloodTradePartner = player.getLastBloodTradePartner();
+        record.lastBloodTradeAmount = player.getLastBloodTradeAmount();
+        record.lastBloodTradeType = player.getLastBloodTradeType();
+        return record;
+    }
+
+    /**
+     * Creates an independent copy of this record.
+     *
+     * @return The copy
+     */
+    public PlayerRecord copy() {
+        PlayerRecord copy = new PlayerRecord(uuid, name);
+        copy.vampire = vampire;
+        copy.bloodLevel = bloodLevel;
+        copy.infectionLevel = infectionLevel;
+        copy.infectionReason = infectionReason;
+        copy.infectionTime = infectionTime;
+        copy.lastShriekTime = lastShriekTime;
+        copy.lastBloodTradeTime = lastBloodTradeTime;
+        copy.lastBloodTradePartner = lastBloodTradePartner;
+        copy.lastBloodTradeAmount = lastBloodTradeAmount;
+        copy.lastBloodTradeType = lastBloodTradeType;
+        return copy;
+    }
+
+    /**
+     * Creates a VampirePlayer holding this record's state.
+     * No events are fired and no permissions or effects are applied.
+     *
+     * @return The player
+     */
+    public VampirePlayer toVampirePlayer() {
+        VampirePlayer player = new VampirePlayer(uuid, name);
+        player.restore(this);
+        return player;
+    }
+
+    /**
+     * Writes this record in its binary form.
+     *
+     * @param out The output to write to
+     * @throws IOException If writing fails
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(FORMAT_VERSION);
+        writeUuid(out, uuid);
+        out.writeUTF(name);
+        out.writeBoolean(vampire);
+        out.writeDouble(bloodLevel);
+        out.writeDouble(infectionLevel);
+        writeNullableString(out, infectionReason);
+        out.writeLong(infectionTime);
+        out.writeLong(lastShriekTime);
+        out.writeLong(lastBloodTradeTime);
+        out.writeBoolean(lastBloodTradePartner != null);
+        if (lastBloodTradePartner != null) {
+            writeUuid(out, lastBloodTradePartner);
+        }
+        out.writeDouble(lastBloodTradeAmount);
+        writeNullableString(out, lastBloodTradeType);
+    }
+
+    /**
+     * Reads a record written by {@link #writeTo(DataOutput)}.
+     *
+     * @param in The input to read from
+     * @return The record
+     * @throws IOException If reading fails or the format version is unknown
+     */
+    public static PlayerRecord readFrom(DataInput in) throws IOException {
+        byte version = in.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unknown player record format " + version);
+        }
+        PlayerRecord record = new PlayerRecord(readUuid(in), in.readUTF());
+        record.vampire = in.readBoolean();
+        record.bloodLevel = in.readDouble();
+        record.infectionLevel = in.readDouble();
+        record.infectionReason = readNullableString(in);
+        record.infectionTime = in.readLong();
+        record.lastShriekTime = in.readLong();
+        record.lastBloodTradeTime = in.readLong();
+        record.lastBloodTradePartner = in.readBoolean() ? readUuid(in) : null;
+        record.lastBloodTradeAmount = in.readDouble();
+        record.lastBloodTradeType = readNullableString(in);
+        return record;
+    }
+
+    /**
+     * Encodes this record to a byte array.
+     *
+     * @return The encoded record
+     */
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeTo(out);
+        } catch (IOException e) {
+            // Writing to memory cannot fail
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a record from a byte array.
+     *
+     * @param bytes The encoded record
+     * @return The record
+     * @throws IOException If the bytes are not a valid record
+     */
+    public static PlayerRecord fromBytes(byte[] bytes) throws IOException {
+        return readFrom(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    static void writeUuid(DataOutput out, UUID uuid) throws IOException {
+        out.writeLong(uuid.getMostSignificantBits());
+        out.writeLong(uuid.getLeastSignificantBits());
+    }
+
+    static UUID readUuid(DataInput in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    private static void writeNullableString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    // Getters and setters
+    public UUID getUuid() { return uuid; }
+
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public boolean isVampire() { return vampire; }
+    public void setVampire(boolean vampire) { this.vampire = vampire; }
+
+    public double getBloodLevel() { return bloodLevel; }
+    public void setBloodLevel(double bloodLevel) { this.bloodLevel = bloodLevel; }
+
+    public double getInfectionLevel() { return infectionLevel; }
+    public void setInfectionLevel(double infectionLevel) { this.infectionLevel = infectionLevel; }
+
+    public String getInfectionReason() { return infectionReason; }
+    public void setInfectionReason(String infectionReason) { this.infectionReason = infectionReason; }
+
+    public long getInfectionTime() { return infectionTime; }
+    public void setInfectionTime(long infectionTime) { this.infectionTime = infectionTime; }
+
+    public long getLastShriekTime() { return lastShriekTime; }
+    public void setLastShriekTime(long lastShriekTime) { this.lastShriekTime = lastShriekTime; }
+
+    public long getLastBloodTradeTime() { return lastBloodTradeTime; }
+    public void setLastBloodTradeTime(long lastBloodTradeTime) { this.lastBloodTradeTime = lastBloodTradeTime; }
+
+    public UUID getLastBloodTradePartner() { return lastBloodTradePartner; }
+    public void setLastBloodTradePartner(UUID lastBloodTradePartner) { this.lastBloodTradePartner = lastBloodTradePartner; }
+
+    public double getLastBloodTradeAmount() { return lastBloodTradeAmount; }
+    public void setLastBloodTradeAmount(double lastBloodTradeAmount) { this.lastBloodTradeAmount = lastBloodTradeAmount; }
+
+    public String getLastBloodTradeType() { return lastBloodTradeType; }
+    public void setLastBloodTradeType(String lastBloodTradeType) { this.lastBloodTradeType = lastBloodTradeType; }
+}
@@ -0,0 +1,86 @@
+package org.clockworx.vampire.database;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * A connection source backed by a connection pool, for servers such as MySQL
+ * that handle concurrent writers themselves. Every write runs in its own transaction.
+ */
+public class PooledConnectionSource implements ConnectionSource {
+
+    private final HikariDataSource dataSource;
+    private final SqlDialect dialect;
+
+    /**
+     * Creates a new pooled connection source.
+     *
+     * @param dataSource The connection pool; it is closed on shutdown
+     * @param dialect The SQL dialect of the database
+     */
+    public PooledConnectionSource(HikariDataSource dataSource, SqlDialect dialect) {
+        this.dataSource = dataSource;
+        this.dialect = dialect;
+    }
+
+    /**
+     * Gets the underlying data source.
+     *
+     * @return The data source
+     */
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    @Override
+    public SqlDialect getDialect() {
+        return dialect;
+    }
+
+    @Override
+    public <T> CompletableFuture<T> read(SqlFunction<T> work) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Connection connection = dataSource.getConnection()) {
+                return work.apply(connection);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    @Override
+    public <T> CompletableFuture<T> write(SqlFunction<T> work) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(false);
+                try {
+                    T result = work.apply(connection);
+                    connection.commit();
+                    return result;
+                } catch (SQLException | RuntimeException e) {
+                    connection.rollback();
+                    throw e;
+                } finally {
+                    connection.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    @Override
+    public int getWriteConcurrency() {
+        return dataSource.getMaximumPoolSize();
+    }
+
+    @Override
+    public void shutdown() {
+        dataSource.close();
+    }
+}
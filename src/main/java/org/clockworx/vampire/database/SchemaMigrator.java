@@ -0,0 +1,248 @@
+package org.clockworx.vampire.database;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Applies versioned schema migrations to the plugin database.
+ * Applied versions are recorded in the vampire_schema_history table, so each
+ * migration runs exactly once per database. New migrations must be appended
+ * with a higher version number; released migrations must never be edited.
+ */
+public class SchemaMigrator {
+
+    /**
+     * The table recording which migrations have been applied.
+     */
+    public static final String HISTORY_TABLE = "vampire_schema_history";
+
+    private final DataSource dataSource;
+    private final SqlDialect dialect;
+    private final Logger logger;
+    private final List<Migration> migrations;
+
+    /**
+     * Creates a new schema migrator.
+     *
+     * @param dataSource The data source to migrate
+     * @param dialect The SQL dialect of the data source
+     * @param logger The logger to report applied migrations to
+     */
+    public SchemaMigrator(DataSource dataSource, SqlDialect dialect, Logger logger) {
+        this.dataSource = dataSource;
+        this.dialect = dialect;
+        this.logger = logger;
+        this.migrations = new ArrayList<>();
+
+        migrations.add(new Migration(1, "Create player and blood offer tables", this::createTables));
+        migrations.add(new Migration(2, "Add indexes for vampire and pending offer lookups", this::createLookupIndexes));
+        migrations.add(new Migration(3, "Add index for paging vampires by UUID", this::createPagingIndexes));
+        migrations.add(new Migration(4, "Create player change log table", this::createChangeLog));
+        migrations.add(new Migration(5, "Create player lease table", this::createLeases));
+    }
+
+    /**
+     * Applies all migrations that have not been applied yet, in version order.
+     *
+     * @return The number of migrations applied
+     * @throws SQLException If a migration fails; earlier migrations stay applied
+     */
+    public int migrate() throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            createHistoryTable(connection);
+            Set<Integer> applied = getAppliedVersions(connection);
+
+            int count = 0;
+            for (Migration migration : migrations) {
+                if (applied.contains(migration.version)) {
+                    continue;
+                }
+                apply(connection, migration);
+                count++;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Applies a single migration and records it in the history table.
+     * DDL is not transactional on MySQL, so every migration must be safe to re-run
+     * if the server stops between the DDL and the history insert.
+     *
+     * @param connection The connection to use
+     * @param migration The migration to apply
+     * @throws SQLException If the migration fails
+     */
+    private void apply(Connection connection, Migration migration) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            migration.step.apply(connection);
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO " + HISTORY_TABLE + " (version, description, applied_at) VALUES (?, ?, ?)")) {
+                statement.setInt(1, migration.version);
+                statement.setString(2, migration.description);
+                statement.setLong(3, System.currentTimeMillis());
+                statement.executeUpdate();
+            }
+            connection.commit();
+            logger.info("Applied database migration V" + migration.version + ": " + migration.description);
+        } catch (SQLException e) {
+            connection.rollback();
+            throw new SQLException("Database migration V" + migration.version + " failed", e);
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private void createHistoryTable(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + HISTORY_TABLE + " ("
+                + "version INTEGER NOT NULL PRIMARY KEY, "
+                + "description VARCHAR(255) NOT NULL, "
+                + "applied_at BIGINT NOT NULL)" + dialect.tableOptions());
+        }
+    }
+
+    private Set<Integer> getAppliedVersions(Connection connection) throws SQLException {
+        Set<Integer> versions = new HashSet<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT version FROM " + HISTORY_TABLE)) {
+            while (resultSet.next()) {
+                versions.add(resultSet.getInt(1));
+            }
+        }
+        return versions;
+    }
+
+    // V1: the tables as previously created by hbm2ddl, with UUIDs stored as CHAR(36)
+    private void createTables(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS vampire_players ("
+                + "uuid CHAR(36) NOT NULL PRIMARY KEY, "
+                + "name VARCHAR(255) NOT NULL, "
+                + "is_vampire BOOLEAN NOT NULL DEFAULT FALSE, "
+                + "blood_level DOUBLE NOT NULL DEFAULT 0, "
+                + "infection_level DOUBLE NOT NULL DEFAULT 0, "
+                + "infection_reason VARCHAR(255), "
+                + "infection_time BIGINT NOT NULL DEFAULT 0, "
+                + "last_shriek_time BIGINT NOT NULL DEFAULT 0, "
+                + "last_blood_trade_time BIGINT NOT NULL DEFAULT 0, "
+                + "last_blood_trade_partner CHAR(36), "
+                + "last_blood_trade_amount DOUBLE NOT NULL DEFAULT 0, "
+                + "last_blood_trade_type VARCHAR(255))" + dialect.tableOptions());
+
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS blood_offers ("
+                + "id " + dialect.autoIncrementPrimaryKey() + ", "
+                + "sender_uuid CHAR(36) NOT NULL, "
+                + "target_uuid CHAR(36) NOT NULL, "
+                + "amount DOUBLE NOT NULL, "
+                + "timestamp BIGINT NOT NULL, "
+                + "accepted BOOLEAN NOT NULL DEFAULT FALSE, "
+                + "rejected BOOLEAN NOT NULL DEFAULT FALSE)" + dialect.tableOptions());
+        }
+    }
+
+    // V2: one index per WHERE clause used by the database managers
+    private void createLookupIndexes(Connection connection) throws SQLException {
+        // getAllVampires
+        createIndex(connection, "idx_vampire_players_is_vampire", "vampire_players", "is_vampire");
+        // getBloodOffer, acceptBloodOffer and rejectBloodOffer
+        createIndex(connection, "idx_blood_offers_target_pending", "blood_offers", "target_uuid", "accepted", "rejected");
+        // getAllBloodOffers
+        createIndex(connection, "idx_blood_offers_pending", "blood_offers", "accepted", "rejected");
+        // cleanupExpiredOffers
+        createIndex(connection, "idx_blood_offers_timestamp", "blood_offers", "timestamp");
+    }
+
+    // V3: keyset pagination filters on is_vampire and seeks and orders on uuid
+    private void createPagingIndexes(Connection connection) throws SQLException {
+        // getVampirePage
+        createIndex(connection, "idx_vampire_players_is_vampire_uuid", "vampire_players", "is_vampire", "uuid");
+    }
+
+    // V4: one row per player write, polled by other servers sharing the database
+    private void createChangeLog(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS vampire_player_changes ("
+                + "version " + dialect.autoIncrementPrimaryKey() + ", "
+                + "uuid CHAR(36) NOT NULL, "
+                + "server_id CHAR(36) NOT NULL, "
+                + "changed_at BIGINT NOT NULL)" + dialect.tableOptions());
+        }
+        // Pruning old changes
+        createIndex(connection, "idx_vampire_player_changes_changed_at", "vampire_player_changes", "changed_at");
+    }
+
+    // V5: which server owns each player, with a fencing token bumped on every takeover
+    private void createLeases(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS vampire_player_leases ("
+                + "uuid CHAR(36) NOT NULL PRIMARY KEY, "
+                + "owner CHAR(36) NOT NULL, "
+                + "token BIGINT NOT NULL, "
+                + "expires_at BIGINT NOT NULL, "
+                + "released BOOLEAN NOT NULL DEFAULT FALSE)" + dialect.tableOptions());
+        }
+        // Heartbeat renewal and release on shutdown
+        createIndex(connection, "idx_vampire_player_leases_owner", "vampire_player_leases", "owner", "released");
+    }
+
+    /**
+     * Creates an index unless an index with the same name already exists.
+     * MySQL has no CREATE INDEX IF NOT EXISTS, so the metadata is checked instead.
+     *
+     * @param connection The connection to use
+     * @param name The index name
+     * @param table The table to index
+     * @param columns The indexed columns, in order
+     * @throws SQLException If the index cannot be created
+     */
+    private void createIndex(Connection connection, String name, String table, String... columns) throws SQLException {
+        DatabaseMetaData metaData = connection.getMetaData();
+        try (ResultSet indexes = metaData.getIndexInfo(connection.getCatalog(), null, table, false, true)) {
+            while (indexes.next()) {
+                if (name.equalsIgnoreCase(indexes.getString("INDEX_NAME"))) {
+                    return;
+                }
+            }
+        }
+
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("CREATE INDEX " + name + " ON " + table + " (" + String.join(", ", columns) + ")");
+        }
+    }
+
+    /**
+     * A single step in the schema history.
+     */
+    private static class Migration {
+        private final int version;
+        private final String description;
+        private final Step step;
+
+        private Migration(int version, String description, Step step) {
+            this.version = version;
+            this.description = description;
+            this.step = step;
+        }
+    }
+
+    /**
+     * The DDL executed by a migration.
+     */
+    @FunctionalInterface
+    private interface Step {
+        void apply(Connection connection) throws SQLException;
+    }
+}
@@ -0,0 +1,137 @@
+package org.clockworx.vampire.database;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Writes every unsaved player when the plugin is disabled, within a deadline.
+ * The players held by the plugin and the dirty players of the write-behind cache are
+ * split into one batch per concurrent database writer and written in parallel, each
+ * batch in its own transaction. Batches that have not been written by the deadline
+ * are spilled to a {@link PlayerJournal} and replayed on the next start.
+ */
+public class ShutdownFlusher {
+
+    private final DatabaseManager databaseManager;
+    private final PlayerJournal journal;
+    private final Logger logger;
+
+    /**
+     * Creates a new shutdown flusher.
+     *
+     * @param databaseManager The plugin's database manager
+     * @param journal The journal unwritten players are spilled to
+     * @param logger The logger to report progress to
+     */
+    public ShutdownFlusher(DatabaseManager databaseManager, PlayerJournal journal, Logger logger) {
+        this.databaseManager = databaseManager;
+        this.journal = journal;
+        this.logger = logger;
+    }
+
+    /**
+     * Writes the given players and the cache's dirty players.
+     * Blocks until they are written or the deadline has passed.
+     *
+     * @param players The players held by the plugin; these win over cached copies
+     * @param deadlineNanos The {@link System#nanoTime()} by which to stop waiting
+     * @return The number of players spilled to the journal
+     */
+    public int flush(Collection<PlayerRecord> players, long deadlineNanos) {
+        long start = System.nanoTime();
+        Map<UUID, PlayerRecord> pending = new LinkedHashMap<>();
+        DatabaseManager target = databaseManager;
+
+        Optional<CachingDatabaseManager> cache = databaseManager.unwrap(CachingDatabaseManager.class);
+        if (cache.isPresent()) {
+            // Write below the cache, which is about to shut down
+            target = cache.get().getDelegate();
+            for (PlayerRecord record : cache.get().drainForShutdown()) {
+                pending.put(record.getUuid(), record);
+            }
+            // Let the cache's in-flight writes land first so they cannot overwrite newer state
+            await(cache.get().flush(), deadlineNanos);
+        }
+        for (PlayerRecord record : players) {
+            pending.put(record.getUuid(), record);
+        }
+        if (pending.isEmpty()) {
+            return 0;
+        }
+
+        List<PlayerRecord> records = new ArrayList<>(pending.values());
+        int concurrency = Math.max(1, target.getWriteConcurrency());
+        int chunkSize = (records.size() + concurrency - 1) / concurrency;
+        List<List<PlayerRecord>> chunks = new ArrayList<>();
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        for (int i = 0; i < records.size(); i += chunkSize) {
+            List<PlayerRecord> chunk = new ArrayList<>(records.subList(i, Math.min(i + chunkSize, records.size())));
+            chunks.add(chunk);
+            CompletableFuture<Void> write;
+            try {
+                write = target.savePlayerRecords(chunk);
+            } catch (RuntimeException e) {
+                write = CompletableFuture.failedFuture(e);
+            }
+            writes.add(write);
+        }
+
+        List<PlayerRecord> unwritten = new ArrayList<>();
+        for (int i = 0; i < writes.size(); i++) {
+            if (!await(writes.get(i), deadlineNanos)) {
+                unwritten.addAll(chunks.get(i));
+            }
+        }
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (unwritten.isEmpty()) {
+            logger.info("Saved " + records.size() + " players in " + chunks.size() + " batches in " + millis + " ms");
+            return 0;
+        }
+
+        try {
+            journal.append(unwritten);
+            logger.warning("Saved " + (records.size() - unwritten.size()) + " of " + records.size() + " players in "
+                + millis + " ms; the other " + unwritten.size() + " were written to " + journal.getFile()
+                + " and will be saved on the next start");
+        } catch (IOException e) {
+            logger.log(Level.SEVERE, "Failed to write " + unwritten.size() + " unsaved players to " + journal.getFile()
+                + "; their latest changes are lost", e);
+        }
+        return unwritten.size();
+    }
+
+    /**
+     * Waits for a write until the deadline.
+     *
+     * @param write The write
+     * @param deadlineNanos The {@link System#nanoTime()} by which to stop waiting
+     * @return true if the write completed successfully in time
+     */
+    private boolean await(CompletableFuture<?> write, long deadlineNanos) {
+        try {
+            write.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (ExecutionException e) {
+            logger.log(Level.WARNING, "Failed to save players on shutdown", e.getCause());
+            return false;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
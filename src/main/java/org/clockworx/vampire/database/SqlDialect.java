@@ -0,0 +1,78 @@
+package org.clockworx.vampire.database;
+
+/**
+ * The SQL dialects supported by the plugin's own DDL and queries.
+ * Hibernate has its own dialect handling; this enum covers the statements
+ * the plugin writes by hand, such as schema migrations.
+ */
+public enum SqlDialect {
+    SQLITE("INTEGER PRIMARY KEY AUTOINCREMENT", ""),
+    MYSQL("BIGINT NOT NULL AUTO_INCREMENT PRIMARY KEY", " ENGINE=InnoDB DEFAULT CHARSET=utf8mb4");
+
+    private final String autoIncrementPrimaryKey;
+    private final String tableOptions;
+
+    SqlDialect(String autoIncrementPrimaryKey, String tableOptions) {
+        this.autoIncrementPrimaryKey = autoIncrementPrimaryKey;
+        this.tableOptions = tableOptions;
+    }
+
+    /**
+     * Gets the column definition for an auto-incrementing primary key.
+     *
+     * @return The column definition
+     */
+    public String autoIncrementPrimaryKey() {
+        return autoIncrementPrimaryKey;
+    }
+
+    /**
+     * Gets the options appended to CREATE TABLE statements.
+     *
+     * @return The table options, or an empty string if none are needed
+     */
+    public String tableOptions() {
+        return tableOptions;
+    }
+
+    /**
+     * Builds an insert-or-update statement keyed on a single column.
+     *
+     * @param table The table name
+     * @param key The primary key column
+     * @param columns The remaining columns, updated when the key already exists
+     * @return The SQL, with one parameter for the key followed by one per column
+     */
+    public String upsert(String table, String key, String... columns) {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" (").append(key);
+        for (String column : columns) {
+            sql.append(", ").append(column);
+        }
+        sql.append(") VALUES (?");
+        for (int i = 0; i < columns.length; i++) {
+            sql.append(", ?");
+        }
+        sql.append(this == MYSQL ? ") ON DUPLICATE KEY UPDATE " : ") ON CONFLICT(" + key + ") DO UPDATE SET ");
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            String column = columns[i];
+            sql.append(column).append(this == MYSQL ? " = VALUES(" + column + ")" : " = excluded." + column);
+        }
+        return sql.toString();
+    }
+
+    /**
+     * Gets the dialect for a configured database type.
+     *
+     * @param dbType The database type from config.yml
+     * @return The matching dialect, SQLite if the type is not recognized
+     */
+    public static SqlDialect fromType(String dbType) {
+        if (dbType != null && dbType.toLowerCase().startsWith("mysql")) {
+            return MYSQL;
+        }
+        return SQLITE;
+    }
+}
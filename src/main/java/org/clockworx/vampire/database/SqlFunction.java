@@ -0,0 +1,22 @@
+package org.clockworx.vampire.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A unit of database work executed on a JDBC connection.
+ *
+ * @param <T> The type of the result
+ */
+@FunctionalInterface
+public interface SqlFunction<T> {
+
+    /**
+     * Executes the work.
+     *
+     * @param connection The connection to execute on; it must not be closed by the work
+     * @return The result of the work
+     * @throws SQLException If a database error occurs
+     */
+    T apply(Connection connection) throws SQLException;
+}
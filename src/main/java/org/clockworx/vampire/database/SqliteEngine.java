@@ -0,0 +1,347 @@
+package org.clockworx.vampire.database;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.sqlite.SQLiteConfig;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Single-writer access to a SQLite database.
+ * SQLite allows one writer at a time, so instead of letting pooled connections
+ * compete for the file lock, all writes are queued to one thread that owns the
+ * only writable connection. Queued writes are grouped into a single transaction,
+ * which turns many small fsyncs into one. Reads use a small pool of read-only
+ * connections, which never block the writer in WAL mode.
+ */
+public class SqliteEngine implements ConnectionSource {
+
+    private static final long BUSY_TIMEOUT_MILLIS = 5000;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10000;
+    private static final long INTERRUPT_TIMEOUT_MILLIS = 1000;
+
+    private final String url;
+    private final int readPoolSize;
+    private final int writeBatchSize;
+    private final long mmapSize;
+    private final Logger logger;
+    private final BlockingQueue<WriteTask<?>> writeQueue;
+
+    private Connection writer;
+    private HikariDataSource readPool;
+    private Thread writerThread;
+    private Runnable commitListener;
+    private Runnable rollbackListener;
+    // Guards running against writes queued while shutting down
+    private final Object lifecycleLock = new Object();
+    private volatile boolean running;
+
+    /**
+     * Creates a new SQLite engine. Nothing is opened until {@link #start()} is called.
+     *
+     * @param url The JDBC URL of the database file
+     * @param readPoolSize The number of read-only connections
+     * @param writeBatchSize The maximum number of queued writes committed in one transaction
+     * @param mmapSize The memory-mapped I/O size in bytes, 0 to disable
+     * @param logger The logger to report failures to
+     */
+    public SqliteEngine(String url, int readPoolSize, int writeBatchSize, long mmapSize, Logger logger) {
+        this.url = url;
+        this.readPoolSize = readPoolSize;
+        this.writeBatchSize = writeBatchSize;
+        this.mmapSize = mmapSize;
+        this.logger = logger;
+        this.writeQueue = new LinkedBlockingQueue<>();
+    }
+
+    /**
+     * Opens the writer connection, the read pool and the writer thread.
+     *
+     * @throws SQLException If the database cannot be opened
+     */
+    public void start() throws SQLException {
+        // The writer is opened first so that the WAL and shared memory files exist for the readers
+        SQLiteConfig writerConfig = createConfig();
+        writer = DriverManager.getConnection(url, writerConfig.toProperties());
+        try (Statement statement = writer.createStatement()) {
+            statement.execute("PRAGMA mmap_size = " + mmapSize);
+        }
+        writer.setAutoCommit(false);
+
+        SQLiteConfig readerConfig = createConfig();
+        readerConfig.setReadOnly(true);
+        HikariConfig poolConfig = new HikariConfig();
+        poolConfig.setPoolName("Vampire-SQLite-Read");
+        poolConfig.setJdbcUrl(url);
+        poolConfig.setDataSourceProperties(readerConfig.toProperties());
+        poolConfig.setMaximumPoolSize(readPoolSize);
+        poolConfig.setMinimumIdle(1);
+        // The pool sets this flag on every connection, and SQLite refuses to change it once open
+        poolConfig.setReadOnly(true);
+        poolConfig.setConnectionInitSql("PRAGMA mmap_size = " + mmapSize);
+        readPool = new HikariDataSource(poolConfig);
+
+        running = true;
+        writerThread = new Thread(this::runWriter, "Vampire-SQLite-Writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    private SQLiteConfig createConfig() throws SQLException {
+        SQLiteConfig config = new SQLiteConfig();
+        config.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        // NORMAL is durable in WAL mode except for the last commits before a power loss
+        config.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL);
+        config.setBusyTimeout((int) BUSY_TIMEOUT_MILLIS);
+        config.setTempStore(SQLiteConfig.TempStore.MEMORY);
+        return config;
+    }
+
+    /**
+     * Sets the callback run on the writer thread after each committed batch,
+     * once the batch's futures have completed.
+     *
+     * @param commitListener The callback, or null for none
+     */
+    public void setCommitListener(Runnable commitListener) {
+        this.commitListener = commitListener;
+    }
+
+    /**
+     * Sets the callback run on the writer thread after a batch is rolled back,
+     * before its writes are retried one at a time.
+     *
+     * @param rollbackListener The callback, or null for none
+     */
+    public void setRollbackListener(Runnable rollbackListener) {
+        this.rollbackListener = rollbackListener;
+    }
+
+    /**
+     * Gets the pool of read-only connections.
+     *
+     * @return The read data source
+     */
+    public DataSource getReadDataSource() {
+        return readPool;
+    }
+
+    @Override
+    public SqlDialect getDialect() {
+        return SqlDialect.SQLITE;
+    }
+
+    /**
+     * Queues work for the writer thread. The work runs inside a transaction shared
+     * with other queued writes and must not commit, roll back or close the connection.
+     *
+     * @param work The work to execute
+     * @param <T> The type of the result
+     * @return A CompletableFuture that completes once the transaction containing the work has committed
+     */
+    @Override
+    public <T> CompletableFuture<T> write(SqlFunction<T> work) {
+        WriteTask<T> task = new WriteTask<>(work);
+        synchronized (lifecycleLock) {
+            if (!running) {
+                task.future.completeExceptionally(new IllegalStateException("SQLite engine is not running"));
+                return task.future;
+            }
+            writeQueue.add(task);
+        }
+        return task.future;
+    }
+
+    /**
+     * Executes work on a read-only connection from the pool.
+     *
+     * @param work The work to execute
+     * @param <T> The type of the result
+     * @return A CompletableFuture that completes with the result of the work
+     */
+    @Override
+    public <T> CompletableFuture<T> read(SqlFunction<T> work) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Connection connection = readPool.getConnection()) {
+                return work.apply(connection);
+            } catch (SQLException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    private void runWriter() {
+        List<WriteTask<?>> batch = new ArrayList<>(writeBatchSize);
+        while (running || !writeQueue.isEmpty()) {
+            try {
+                WriteTask<?> first = writeQueue.poll(250, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                writeQueue.drainTo(batch, writeBatchSize - 1);
+                executeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                // Keep the writer alive; only this batch's writes fail
+                logger.log(Level.SEVERE, "SQLite write batch failed", e);
+                batch.forEach(task -> task.future.completeExceptionally(e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Executes a batch of writes in one transaction. If any write fails, the
+     * transaction is rolled back and each write is retried on its own, so one
+     * bad write only fails its own future.
+     *
+     * @param batch The writes to execute
+     */
+    private void executeBatch(List<WriteTask<?>> batch) {
+        List<Object> results = new ArrayList<>(batch.size());
+        try {
+            for (WriteTask<?> task : batch) {
+                results.add(task.work.apply(writer));
+            }
+            writer.commit();
+        } catch (Exception e) {
+            rollback();
+            if (batch.size() == 1) {
+                batch.get(0).future.completeExceptionally(e);
+            } else {
+                for (WriteTask<?> task : batch) {
+                    executeBatch(List.of(task));
+                }
+            }
+            return;
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            batch.get(i).complete(results.get(i));
+        }
+        runListener(commitListener, "commit");
+    }
+
+    private void rollback() {
+        try {
+            writer.rollback();
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Failed to roll back SQLite write batch", e);
+        }
+        runListener(rollbackListener, "rollback");
+    }
+
+    private void runListener(Runnable listener, String name) {
+        if (listener == null) {
+            return;
+        }
+        try {
+            listener.run();
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "SQLite " + name + " listener failed", e);
+        }
+    }
+
+    /**
+     * Stops accepting writes, waits for the queue to drain, and closes all connections.
+     * PRAGMA optimize is run before closing so that the query planner statistics
+     * stay current without a manual ANALYZE. If the writer thread cannot be stopped,
+     * its connection is left open rather than closed underneath a running statement.
+     */
+    @Override
+    public void shutdown() {
+        synchronized (lifecycleLock) {
+            running = false;
+        }
+        boolean writerStopped = true;
+        if (writerThread != null) {
+            writerStopped = stopWriter();
+            List<WriteTask<?>> dropped = new ArrayList<>();
+            writeQueue.drainTo(dropped);
+            if (!dropped.isEmpty()) {
+                logger.warning("SQLite writer did not drain in time, " + dropped.size() + " writes were dropped");
+                dropped.forEach(task -> task.future.completeExceptionally(new IllegalStateException("SQLite engine was shut down")));
+            }
+        }
+
+        if (writer != null) {
+            if (writerStopped) {
+                try (Statement statement = writer.createStatement()) {
+                    statement.execute("PRAGMA optimize");
+                    writer.commit();
+                } catch (SQLException e) {
+                    logger.log(Level.WARNING, "Failed to optimize SQLite database", e);
+                }
+                try {
+                    writer.close();
+                } catch (SQLException e) {
+                    logger.log(Level.WARNING, "Failed to close SQLite writer connection", e);
+                }
+            } else {
+                logger.warning("SQLite writer thread is still running a write, leaving its connection open");
+            }
+            writer = null;
+        }
+
+        if (readPool != null) {
+            readPool.close();
+            readPool = null;
+        }
+    }
+
+    /**
+     * Waits for the writer thread to drain the queue and exit. If it does not finish
+     * in time it is interrupted, which stops it after its current batch, and waited
+     * for once more.
+     *
+     * @return true if the writer thread has exited
+     */
+    private boolean stopWriter() {
+        try {
+            writerThread.join(SHUTDOWN_TIMEOUT_MILLIS);
+            if (writerThread.isAlive()) {
+                writerThread.interrupt();
+                writerThread.join(INTERRUPT_TIMEOUT_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            writerThread.interrupt();
+            Thread.currentThread().interrupt();
+        }
+        return !writerThread.isAlive();
+    }
+
+    /**
+     * A queued write and the future of its result.
+     */
+    private static class WriteTask<T> {
+        private final SqlFunction<T> work;
+        private final CompletableFuture<T> future;
+
+        private WriteTask(SqlFunction<T> work) {
+            this.work = work;
+            this.future = new CompletableFuture<>();
+        }
+
+        @SuppressWarnings("unchecked")
+        private void complete(Object result) {
+            future.complete((T) result);
+        }
+    }
+}
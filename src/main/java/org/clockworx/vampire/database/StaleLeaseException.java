@@ -0,0 +1,33 @@
+package org.clockworx.vampire.database;
+
+import java.util.UUID;
+
+/**
+ * Thrown when a write is made under a player lease that another server has since taken over.
+ * The write is rejected so it cannot overwrite the new owner's state.
+ */
+public class StaleLeaseException extends IllegalStateException {
+
+    private final UUID uuid;
+    private final long token;
+
+    /**
+     * Creates a new stale lease exception.
+     *
+     * @param uuid The player's UUID
+     * @param token The fencing token the write carried
+     */
+    public StaleLeaseException(UUID uuid, long token) {
+        super("Lease token " + token + " for player " + uuid + " is no longer current");
+        this.uuid = uuid;
+        this.token = token;
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    public long getToken() {
+        return token;
+    }
+}
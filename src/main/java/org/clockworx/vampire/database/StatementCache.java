@@ -0,0 +1,91 @@
+package org.clockworx.vampire.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches prepared statements per physical connection.
+ * Statements are prepared on the unwrapped driver connection rather than the pool
+ * proxy, so they survive the connection being returned to the pool and are only
+ * closed when the physical connection is. A physical connection is only ever
+ * used by one thread at a time, so the per-connection maps need no locking.
+ * <p>
+ * Cached statements reference their connection, so entries cannot be weakly keyed.
+ * Instead, whenever a physical connection is seen for the first time, entries for
+ * connections that have since been closed are dropped. A pool opens a connection
+ * when it retires one, so the cache never holds more than the live connections
+ * and the ones retired since the last new connection.
+ */
+public class StatementCache {
+
+    private final Map<Connection, Map<String, PreparedStatement>> statements = new ConcurrentHashMap<>();
+
+    /**
+     * Gets a cached prepared statement, preparing it on first use.
+     * The returned statement must not be closed by the caller.
+     *
+     * @param connection The connection, possibly a pool proxy
+     * @param sql The SQL of the statement
+     * @return The prepared statement, with its parameters cleared
+     * @throws SQLException If the statement cannot be prepared
+     */
+    public PreparedStatement prepare(Connection connection, String sql) throws SQLException {
+        Connection physical = connection.unwrap(Connection.class);
+        Map<String, PreparedStatement> cache = statements.get(physical);
+        if (cache == null) {
+            evictClosed();
+            cache = new HashMap<>();
+            statements.put(physical, cache);
+        }
+
+        PreparedStatement statement = cache.get(sql);
+        if (statement == null || statement.isClosed()) {
+            statement = physical.prepareStatement(sql);
+            cache.put(sql, statement);
+        } else {
+            statement.clearParameters();
+        }
+        return statement;
+    }
+
+    /**
+     * Gets the number of physical connections with cached statements.
+     *
+     * @return The number of connections
+     */
+    public int size() {
+        return statements.size();
+    }
+
+    /**
+     * Forgets all cached statements. The statements themselves are closed with their connections.
+     */
+    public void clear() {
+        statements.clear();
+    }
+
+    /**
+     * Drops the statements of connections that have been closed, along with the
+     * references that kept those connections reachable.
+     */
+    private void evictClosed() {
+        Iterator<Connection> connections = statements.keySet().iterator();
+        while (connections.hasNext()) {
+            Connection connection = connections.next();
+            boolean closed;
+            try {
+                closed = connection.isClosed();
+            } catch (SQLException e) {
+                closed = true;
+            }
+            if (closed) {
+                connections.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package org.clockworx.vampire.database;
+
+import org.clockworx.vampire.entity.BloodOffer;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Where a {@link DataTransfer} writes players and blood offers to.
+ * Writing the same players again must be harmless, as a resumed transfer
+ * repeats the batch that was in flight when it stopped.
+ */
+public interface TransferSink {
+
+    /**
+     * Opens the sink before the first write.
+     *
+     * @return A CompletableFuture that completes when the sink is open
+     */
+    default CompletableFuture<Void> open() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Writes a batch of players.
+     *
+     * @param records The players
+     * @return A CompletableFuture that completes when the batch is durable
+     */
+    CompletableFuture<Void> writePlayers(List<PlayerRecord> records);
+
+    /**
+     * Writes a batch of blood offers.
+     *
+     * @param offers The offers
+     * @return A CompletableFuture that completes when the batch is durable
+     */
+    CompletableFuture<Void> writeOffers(List<BloodOffer> offers);
+
+    /**
+     * Closes the sink after the transfer has ended.
+     */
+    default void close() {
+    }
+}
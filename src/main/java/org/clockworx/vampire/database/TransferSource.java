@@ -0,0 +1,49 @@
+package org.clockworx.vampire.database;
+
+import org.clockworx.vampire.entity.BloodOffer;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Where a {@link DataTransfer} reads players and blood offers from.
+ * Players and offers are read in ordered pages, so a transfer can resume after the
+ * last one it wrote.
+ */
+public interface TransferSource {
+
+    /**
+     * Opens the source before the first read.
+     *
+     * @return A CompletableFuture that completes when the source is open
+     */
+    default CompletableFuture<Void> open() {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Reads the next page of players.
+     *
+     * @param after The UUID of the last player already read, or null for the first page
+     * @param limit The maximum number of players to read
+     * @return A CompletableFuture that completes with the page, shorter than limit on the last page
+     */
+    CompletableFuture<List<PlayerRecord>> readPlayers(UUID after, int limit);
+
+    /**
+     * Reads the next page of pending blood offers, in {@link DatabaseManager#OFFER_PAGE_ORDER}.
+     * Called after the last page of players.
+     *
+     * @param after The last offer already read, or null for the first page
+     * @param limit The maximum number of offers to read
+     * @return A CompletableFuture that completes with the page, shorter than limit on the last page
+     */
+    CompletableFuture<List<BloodOffer>> readOffers(BloodOffer after, int limit);
+
+    /**
+     * Closes the source after the transfer has ended.
+     */
+    default void close() {
+    }
+}
@@ -21,10 +21,22 @@ public class BloodOffer {
      * @param amount The amount of blood being offered
      */
     public BloodOffer(UUID senderUuid, UUID targetUuid, double amount) {
+        this(senderUuid, targetUuid, amount, System.currentTimeMillis());
+    }
+
+    /**
+     * Creates a blood offer that was made at a known time, such as one loaded from the database.
+     * 
+     * @param senderUuid The UUID of the player offering blood
+     * @param targetUuid The UUID of the player being offered blood
+     * @param amount The amount of blood being offered
+     * @param timestamp The time the offer was made, in milliseconds since the epoch
+     */
+    public BloodOffer(UUID senderUuid, UUID targetUuid, double amount, long timestamp) {
         this.senderUuid = senderUuid;
         this.targetUuid = targetUuid;
         this.amount = amount;
-        this.timestamp = System.currentTimeMillis();
+        this.timestamp = timestamp;
         this.accepted = false;
         this.rejected = false;
     }
@@ -105,14 +117,4 @@ public class BloodOffer {
     public boolean isPending() {
         return !accepted && !rejected;
     }
-
-    /**
-     * Checks if the offer has expired based on the given timeout.
-     * 
-     * @param timeoutMillis The timeout in milliseconds
-     * @return true if expired, false otherwise
-     */
-    public boolean isExpired(long timeoutMillis) {
-        return System.currentTimeMillis() - timestamp > timeoutMillis;
-    }
 } 
\ No newline at end of file
@@ -1,19 +1,28 @@
 package org.clockworx.vampire.entity;
 
 import jakarta.persistence.*;
+import org.clockworx.vampire.database.HibernateConfig;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 import java.util.UUID;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = HibernateConfig.OFFER_REGION)
 @Table(name = "blood_offers")
 public class BloodOfferEntity {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
-    @Column(name = "sender_uuid", nullable = false)
+    @JdbcTypeCode(SqlTypes.CHAR)
+    @Column(name = "sender_uuid", nullable = false, length = 36)
     private UUID senderUuid;
     
-    @Column(name = "target_uuid", nullable = false)
+    @JdbcTypeCode(SqlTypes.CHAR)
+    @Column(name = "target_uuid", nullable = false, length = 36)
     private UUID targetUuid;
     
     @Column(nullable = false)
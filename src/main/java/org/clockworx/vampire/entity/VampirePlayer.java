@@ -9,6 +9,7 @@ import org.bukkit.permissions.PermissionAttachment;
 import org.clockworx.vampire.VampirePlugin;
 import org.clockworx.vampire.util.ResourceUtil;
 import org.clockworx.vampire.database.DatabaseManager;
+import org.clockworx.vampire.database.PlayerRecord;
 import org.clockworx.vampire.event.EventVampirePlayerBloodChange;
 import org.clockworx.vampire.event.EventVampirePlayerInfectionChange;
 import org.clockworx.vampire.event.EventVampirePlayerModeChange;
@@ -103,6 +104,27 @@ public class VampirePlayer {
         this.lastInfectionReason = null;
     }
     
+    /**
+     * Restores the persisted state of a player loaded from storage.
+     * Unlike the setters, this fires no events and does not touch permissions or potion
+     * effects; call {@link #updatePermissions()} and {@link #updatePotionEffects()} on the
+     * main thread once the player is online.
+     * 
+     * @param record The persisted state
+     */
+    public void restore(PlayerRecord record) {
+        this.isVampire = record.isVampire();
+        this.blood = Math.max(0.0, Math.min(10.0, record.getBloodLevel()));
+        this.infectionLevel = Math.max(0.0, Math.min(1.0, record.getInfectionLevel()));
+        this.infectionReason = record.getInfectionReason();
+        this.infectionTime = record.getInfectionTime();
+        this.lastShriekTime = record.getLastShriekTime();
+        this.lastBloodTradeTime = record.getLastBloodTradeTime();
+        this.lastBloodTradePartner = record.getLastBloodTradePartner();
+        this.lastBloodTradeAmount = record.getLastBloodTradeAmount();
+        this.lastBloodTradeType = record.getLastBloodTradeType();
+    }
+    
     /**
      * Gets the player's UUID.
      * 
@@ -158,6 +180,7 @@ public class VampirePlayer {
             this.isVampire = vampire;
         updatePermissions();
         updatePotionEffects();
+            refreshStatusIndex();
             
             // Fire event
             VampirePlugin.getInstance().getServer().getPluginManager()
@@ -165,6 +188,18 @@ public class VampirePlayer {
         }
     }
     
+    /**
+     * Publishes this player's status to the plugin's status index.
+     * Only the cached instance is authoritative; copies, such as players loaded for
+     * a listing, are ignored.
+     */
+    private void refreshStatusIndex() {
+        VampirePlugin plugin = VampirePlugin.getInstance();
+        if (plugin != null && plugin.getCachedVampirePlayer(uuid) == this) {
+            plugin.getStatusIndex().update(this);
+        }
+    }
+    
     /**
      * Checks if the player is a human (not a vampire and not infected).
      * 
@@ -202,6 +237,7 @@ public class VampirePlayer {
         double oldInfection = this.infectionLevel;
         this.infectionLevel = Math.max(0.0, Math.min(1.0, infection));
         updatePotionEffects();
+        refreshStatusIndex();
         
         // Fire event if infection changed significantly
         if (Math.abs(oldInfection - this.infectionLevel) > 0.01) {
@@ -755,7 +791,7 @@ public class VampirePlayer {
         
         double maxDistance = VampirePlugin.getInstance().getVampireConfig().getTradeOfferMaxDistance();
         
-        if (player.getLocation().distance(maker.getLocation()) > maxDistance) {
+        if (!VampirePlugin.getInstance().getSpatialIndex().isWithin(player, maker, maxDistance)) {
             player.sendMessage(VampirePlugin.getInstance().getLanguageConfig().getMessage(
                 "trade.distance", 
                 maker.getName()
@@ -810,7 +846,7 @@ public class VampirePlayer {
         // Check if the players are close enough
         double maxDistance = VampirePlugin.getInstance().getVampireConfig().getTradeOfferMaxDistance();
         
-        if (player.getLocation().distance(targetPlayer.getLocation()) > maxDistance) {
+        if (!VampirePlugin.getInstance().getSpatialIndex().isWithin(player, targetPlayer, maxDistance)) {
             player.sendMessage(VampirePlugin.getInstance().getLanguageConfig().getMessage(
                 "trade.distance", 
                 target.getName()
@@ -863,7 +899,7 @@ public class VampirePlayer {
             return false;
         }
         
-        return player.getLocation().distance(otherPlayer.getLocation()) <= maxDistance;
+        return VampirePlugin.getInstance().getSpatialIndex().isWithin(player, otherPlayer, maxDistance);
     }
     
     /**
@@ -1089,6 +1125,7 @@ public class VampirePlayer {
     public void setInfection(double infection) {
         double oldInfection = this.infectionLevel;
         this.infectionLevel = infection;
+        refreshStatusIndex();
         
         // Fire event if infection changed significantly
         if (Math.abs(oldInfection - this.infectionLevel) > 0.01) {
@@ -1,12 +1,21 @@
 package org.clockworx.vampire.entity;
 
 import jakarta.persistence.*;
+import org.clockworx.vampire.database.HibernateConfig;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
 import java.util.UUID;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = HibernateConfig.PLAYER_REGION)
 @Table(name = "vampire_players")
 public class VampirePlayerEntity {
     @Id
+    @JdbcTypeCode(SqlTypes.CHAR)
+    @Column(length = 36)
     private UUID uuid;
     
     @Column(nullable = false)
@@ -33,7 +42,8 @@ public class VampirePlayerEntity {
     @Column(name = "last_blood_trade_time")
     private long lastBloodTradeTime;
     
-    @Column(name = "last_blood_trade_partner")
+    @JdbcTypeCode(SqlTypes.CHAR)
+    @Column(name = "last_blood_trade_partner", length = 36)
     private UUID lastBloodTradePartner;
     
     @Column(name = "last_blood_trade_amount")
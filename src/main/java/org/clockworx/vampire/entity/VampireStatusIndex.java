@@ -0,0 +1,146 @@
+package org.clockworx.vampire.entity;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Which online players are vampires or infected, readable from any thread without locking.
+ * The statuses are published as an immutable open-addressing table keyed by UUID, so a
+ * lookup is a few array reads and allocates nothing; humans are not stored, so rejecting
+ * one usually ends at the first empty slot. Every change builds a new table, which is
+ * cheap because statuses change far less often than they are read.
+ */
+public class VampireStatusIndex {
+
+    private static final byte VAMPIRE = 1;
+    private static final byte INFECTED = 2;
+
+    // Guarded by this; the source the published table is built from
+    private final Map<UUID, Byte> statuses = new HashMap<>();
+    private volatile Table table = Table.build(statuses);
+
+    /**
+     * Checks whether a player is a vampire.
+     *
+     * @param uuid The player's UUID
+     * @return true if the player is an indexed vampire
+     */
+    public boolean isVampire(UUID uuid) {
+        return (table.get(uuid) & VAMPIRE) != 0;
+    }
+
+    /**
+     * Checks whether a player is infected.
+     *
+     * @param uuid The player's UUID
+     * @return true if the player is indexed as infected
+     */
+    public boolean isInfected(UUID uuid) {
+        return (table.get(uuid) & INFECTED) != 0;
+    }
+
+    /**
+     * Checks whether a player is neither a vampire nor infected.
+     *
+     * @param uuid The player's UUID
+     * @return true if the player is a human or not indexed
+     */
+    public boolean isHuman(UUID uuid) {
+        return table.get(uuid) == 0;
+    }
+
+    /**
+     * Records a player's current status. Only players in the plugin's cache of online
+     * players are indexed, so this makes no Bukkit calls and is safe on any thread.
+     *
+     * @param player The player
+     */
+    public void update(VampirePlayer player) {
+        set(player.getUuid(), (byte) ((player.isVampire() ? VAMPIRE : 0) | (player.isInfected() ? INFECTED : 0)));
+    }
+
+    /**
+     * Removes a player, for example when they quit.
+     *
+     * @param uuid The player's UUID
+     */
+    public void remove(UUID uuid) {
+        set(uuid, (byte) 0);
+    }
+
+    /**
+     * Gets the number of indexed vampires and infected players.
+     *
+     * @return The number of indexed players
+     */
+    public int size() {
+        return table.size;
+    }
+
+    private synchronized void set(UUID uuid, byte status) {
+        Byte previous = status == 0 ? statuses.remove(uuid) : statuses.put(uuid, status);
+        if (previous == null ? status == 0 : previous == status) {
+            return;
+        }
+        table = Table.build(statuses);
+    }
+
+    /**
+     * An immutable open-addressing table with linear probing, kept at most half full.
+     */
+    private static final class Table {
+
+        private final long[] most;
+        private final long[] least;
+        private final byte[] status;
+        private final int mask;
+        private final int size;
+
+        private Table(int capacity, int size) {
+            this.most = new long[capacity];
+            this.least = new long[capacity];
+            this.status = new byte[capacity];
+            this.mask = capacity - 1;
+            this.size = size;
+        }
+
+        private static Table build(Map<UUID, Byte> statuses) {
+            int capacity = 16;
+            while (capacity < statuses.size() * 2) {
+                capacity <<= 1;
+            }
+            Table table = new Table(capacity, statuses.size());
+            for (Map.Entry<UUID, Byte> entry : statuses.entrySet()) {
+                long most = entry.getKey().getMostSignificantBits();
+                long least = entry.getKey().getLeastSignificantBits();
+                int slot = slot(most, least) & table.mask;
+                while (table.status[slot] != 0) {
+                    slot = (slot + 1) & table.mask;
+                }
+                table.most[slot] = most;
+                table.least[slot] = least;
+                table.status[slot] = entry.getValue();
+            }
+            return table;
+        }
+
+        private byte get(UUID uuid) {
+            long most = uuid.getMostSignificantBits();
+            long least = uuid.getLeastSignificantBits();
+            int slot = slot(most, least) & mask;
+            while (true) {
+                byte found = status[slot];
+                if (found == 0 || (this.most[slot] == most && this.least[slot] == least)) {
+                    return found;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        private static int slot(long most, long least) {
+            long hash = (most ^ least) * 0x9E3779B97F4A7C15L;
+            return (int) (hash ^ (hash >>> 32));
+        }
+    }
+}
@@ -4,6 +4,8 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.Action;
 import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.inventory.EquipmentSlot;
 import org.clockworx.vampire.VampirePlugin;
 
 /**
@@ -37,8 +39,8 @@ public class AltarListener implements Listener {
      */
     @EventHandler
     public void onPlayerInteract(PlayerInteractEvent event) {
-        // Check if the player right-clicked a block
-        if (event.getAction() != Action.RIGHT_CLICK_BLOCK) return;
+        // Check if the player right-clicked a block; the off hand fires a second event
+        if (event.getAction() != Action.RIGHT_CLICK_BLOCK || event.getHand() != EquipmentSlot.HAND) return;
         
         // Check if the block is part of an altar
         if (VampirePlugin.getInstance().getAltarManager().handleBlockInteract(event.getClickedBlock(), event.getPlayer())) {
@@ -46,4 +48,14 @@ public class AltarListener implements Listener {
             event.setCancelled(true);
         }
     }
+    
+    /**
+     * Forgets the last altar a player clicked when they quit.
+     * 
+     * @param event The PlayerQuitEvent that triggered this handler
+     */
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        VampirePlugin.getInstance().getAltarManager().handleQuit(event.getPlayer().getUniqueId());
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,69 @@
+package org.clockworx.vampire.listener;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.clockworx.vampire.VampirePlugin;
+import org.clockworx.vampire.database.BootstrapDatabaseManager;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Holds logins until the database has finished starting up.
+ * Players joining while the database is still booting wait on the login thread
+ * for a bounded time. Once too many are waiting, further logins are refused
+ * straight away instead of piling up threads.
+ */
+public class DatabaseAdmissionListener implements Listener {
+    private final VampirePlugin plugin;
+    private final BootstrapDatabaseManager bootstrap;
+    private final Semaphore waitingLogins;
+
+    /**
+     * Creates a new database admission listener.
+     *
+     * @param plugin The plugin instance
+     * @param bootstrap The database manager being started
+     */
+    public DatabaseAdmissionListener(VampirePlugin plugin, BootstrapDatabaseManager bootstrap) {
+        this.plugin = plugin;
+        this.bootstrap = bootstrap;
+        this.waitingLogins = new Semaphore(plugin.getVampireConfig().getBootstrapMaxWaitingLogins());
+    }
+
+    /**
+     * Waits for the database before any other listener reads player data.
+     *
+     * @param event The AsyncPlayerPreLoginEvent that triggered this handler
+     */
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onAsyncPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (bootstrap.isReady()) {
+            return;
+        }
+
+        if (!waitingLogins.tryAcquire()) {
+            refuse(event);
+            return;
+        }
+        try {
+            bootstrap.getReady().get(plugin.getVampireConfig().getBootstrapLoginTimeout(), TimeUnit.SECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            refuse(event);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            refuse(event);
+        } finally {
+            waitingLogins.release();
+        }
+    }
+
+    private void refuse(AsyncPlayerPreLoginEvent event) {
+        event.disallow(AsyncPlayerPreLoginEvent.Result.KICK_OTHER,
+            plugin.getLanguageConfig().getMessage("general.starting"));
+    }
+}
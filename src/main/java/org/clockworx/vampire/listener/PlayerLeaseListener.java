@@ -0,0 +1,93 @@
+package org.clockworx.vampire.listener;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.clockworx.vampire.VampirePlugin;
+import org.clockworx.vampire.database.CachingDatabaseManager;
+import org.clockworx.vampire.database.LeaseDatabaseManager;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+
+/**
+ * Hands players over between servers that share one database.
+ * On login the player's lease is acquired before any data is read, which waits for
+ * the previous server's final save. Once the quit save has landed the lease is
+ * released, so the next server can take over without waiting for it to expire.
+ */
+public class PlayerLeaseListener implements Listener {
+    private final VampirePlugin plugin;
+    private final LeaseDatabaseManager leases;
+    
+    /**
+     * Creates a new lease listener.
+     * 
+     * @param plugin The plugin instance
+     * @param leases The lease manager in the plugin's database manager chain
+     */
+    public PlayerLeaseListener(VampirePlugin plugin, LeaseDatabaseManager leases) {
+        this.plugin = plugin;
+        this.leases = leases;
+    }
+    
+    /**
+     * Acquires the player's lease before they join. This runs off the main thread,
+     * so waiting for the previous owner does not stall the server.
+     * 
+     * @param event The AsyncPlayerPreLoginEvent that triggered this handler
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+        UUID uuid = event.getUniqueId();
+        
+        try {
+            leases.acquire(uuid).join();
+        } catch (RuntimeException e) {
+            // Let the player in; their writes are just not fenced this session
+            plugin.getLogger().log(Level.WARNING, "Failed to acquire the lease for " + event.getName(), e);
+        }
+        
+        // Drop anything cached from before the previous server's final save, without writing it back
+        try {
+            plugin.getDatabaseManager().unwrap(CachingDatabaseManager.class)
+                .ifPresent(cache -> cache.discard(uuid));
+            plugin.getServer().getScheduler().callSyncMethod(plugin, () -> {
+                plugin.removeFromCache(uuid);
+                return null;
+            }).get();
+        } catch (RuntimeException | ExecutionException e) {
+            plugin.getLogger().log(Level.WARNING, "Failed to refresh cached data for " + event.getName(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    /**
+     * Releases a player's lease once their quit save has landed. Called by the
+     * quit handler that saves the player, so the release is ordered after that save.
+     * Only this player's cached changes are written before the lease is released.
+     * 
+     * @param player The player who quit
+     * @param save The player's quit save
+     */
+    public void handOver(Player player, CompletableFuture<Void> save) {
+        UUID uuid = player.getUniqueId();
+        save.thenCompose(ignored -> plugin.getDatabaseManager().unwrap(CachingDatabaseManager.class)
+                .map(cache -> cache.invalidate(uuid))
+                .orElseGet(() -> CompletableFuture.completedFuture(null)))
+            .thenCompose(ignored -> leases.release(uuid))
+            .exceptionally(error -> {
+                plugin.getLogger().log(Level.WARNING, "Failed to hand over " + player.getName()
+                    + "; the next server takes over once the lease times out", error);
+                return null;
+            });
+    }
+}
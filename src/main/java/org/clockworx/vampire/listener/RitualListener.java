@@ -0,0 +1,51 @@
+package org.clockworx.vampire.listener;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+import org.clockworx.vampire.altar.RitualSessionManager;
+
+/**
+ * Interrupts altar rituals when the player performing one moves, is hurt or quits.
+ * Events are handled at MONITOR priority so only movement and damage that actually
+ * happen interrupt a ritual.
+ */
+public class RitualListener implements Listener {
+    private final RitualSessionManager sessions;
+
+    /**
+     * Creates a new ritual listener.
+     *
+     * @param sessions The rituals in progress
+     */
+    public RitualListener(RitualSessionManager sessions) {
+        this.sessions = sessions;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerMove(PlayerMoveEvent event) {
+        sessions.onMove(event.getPlayer(), event.getFrom(), event.getTo());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerTeleport(PlayerTeleportEvent event) {
+        sessions.onMove(event.getPlayer(), event.getFrom(), event.getTo());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityDamage(EntityDamageEvent event) {
+        if (event.getEntity() instanceof Player player) {
+            sessions.onDamage(player);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        sessions.cancel(event.getPlayer().getUniqueId());
+    }
+}
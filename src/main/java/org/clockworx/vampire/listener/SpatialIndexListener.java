@@ -0,0 +1,68 @@
+package org.clockworx.vampire.listener;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+import org.clockworx.vampire.spatial.PlayerSpatialIndex;
+
+/**
+ * Keeps the {@link PlayerSpatialIndex} in step with where online players are.
+ * Positions are recorded at MONITOR priority, once other plugins have had the chance
+ * to cancel or redirect the movement.
+ */
+public class SpatialIndexListener implements Listener {
+    private final PlayerSpatialIndex index;
+
+    /**
+     * Creates a new spatial index listener.
+     *
+     * @param index The index to keep up to date
+     */
+    public SpatialIndexListener(PlayerSpatialIndex index) {
+        this.index = index;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        index.update(event.getPlayer(), event.getPlayer().getLocation());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        index.remove(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerMove(PlayerMoveEvent event) {
+        Location to = event.getTo();
+        Location from = event.getFrom();
+        // Turning the head does not move the player
+        if (to.getX() != from.getX() || to.getY() != from.getY() || to.getZ() != from.getZ()) {
+            index.update(event.getPlayer(), to);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerTeleport(PlayerTeleportEvent event) {
+        index.update(event.getPlayer(), event.getTo());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        Player player = event.getPlayer();
+        index.update(player, player.getLocation());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerRespawn(PlayerRespawnEvent event) {
+        index.update(event.getPlayer(), event.getRespawnLocation());
+    }
+}
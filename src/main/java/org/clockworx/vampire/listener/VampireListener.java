@@ -10,6 +10,7 @@ import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.potion.PotionEffect;
 import org.bukkit.potion.PotionEffectType;
 import org.clockworx.vampire.VampirePlugin;
+import org.clockworx.vampire.combat.CombatService;
 import org.clockworx.vampire.event.EventVampirePlayerBloodChange;
 import org.clockworx.vampire.event.EventVampirePlayerInfectionChange;
 import org.clockworx.vampire.event.EventVampirePlayerModeChange;
@@ -17,6 +18,8 @@ import org.clockworx.vampire.event.EventVampirePlayerShriek;
 import org.clockworx.vampire.event.EventVampirePlayerVampireChange;
 import org.clockworx.vampire.entity.VampirePlayer;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * Main listener class for the Vampire plugin that handles all vampire-related events.
  * This class manages player state changes, effects, and interactions related to the vampire system.
@@ -27,15 +30,20 @@ import org.clockworx.vampire.entity.VampirePlayer;
  * - Status effect applications
  */
 public class VampireListener implements Listener {
+    private static final double SHRIEK_RADIUS = 10.0;
+    
     private final VampirePlugin plugin;
+    private final CombatService combat;
     
     /**
      * Constructs a new VampireListener with the specified plugin instance.
      * 
      * @param plugin The VampirePlugin instance that this listener belongs to
+     * @param combat The combat service that applies vampire damage modifiers
      */
-    public VampireListener(VampirePlugin plugin) {
+    public VampireListener(VampirePlugin plugin, CombatService combat) {
         this.plugin = plugin;
+        this.combat = combat;
     }
     
     /**
@@ -50,9 +58,15 @@ public class VampireListener implements Listener {
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
         
-        // Load player data from database
+        // Load player data from database; the future completes on the main thread
         plugin.getVampirePlayer(player.getUniqueId()).thenAccept(vampirePlayer -> {
-            if (vampirePlayer != null && vampirePlayer.isVampire()) {
+            if (vampirePlayer == null || !player.isOnline()) {
+                return;
+            }
+            // Loading restores the stored state without applying it to the online player
+            vampirePlayer.updatePermissions();
+            vampirePlayer.updatePotionEffects();
+            if (vampirePlayer.isVampire()) {
                 applyVampireEffects(player);
             }
         });
@@ -68,12 +82,19 @@ public class VampireListener implements Listener {
     public void onPlayerQuit(PlayerQuitEvent event) {
         Player player = event.getPlayer();
         
-        // Save player data to database
-        plugin.getVampirePlayer(player.getUniqueId()).thenAccept(vampirePlayer -> {
-            if (vampirePlayer != null) {
-                plugin.saveVampirePlayer(vampirePlayer);
-            }
-        });
+        // Save player data to database; a player that was never loaded has nothing to save
+        VampirePlayer vampirePlayer = plugin.getCachedVampirePlayer(player.getUniqueId());
+        CompletableFuture<Void> save = vampirePlayer != null
+            ? plugin.saveVampirePlayer(vampirePlayer)
+            : CompletableFuture.completedFuture(null);
+        // The save has its own copy, so the cache only needs to hold online players
+        plugin.removeFromCache(player.getUniqueId());
+        
+        // Another server may take the player over once the save has landed
+        PlayerLeaseListener leases = plugin.getLeaseListener();
+        if (leases != null) {
+            leases.handOver(player, save);
+        }
     }
     
     /**
@@ -95,11 +116,9 @@ public class VampireListener implements Listener {
         player.getWorld().spawnParticle(org.bukkit.Particle.SMOKE_LARGE, player.getLocation(), 50, 1, 1, 1, 0.1);
         
         // Apply effects to nearby players
-        for (Player nearby : player.getWorld().getPlayers()) {
-            if (nearby.getLocation().distance(player.getLocation()) <= 10) {
-                nearby.addPotionEffect(new PotionEffect(PotionEffectType.BLINDNESS, 60, 0));
-                nearby.addPotionEffect(new PotionEffect(PotionEffectType.SLOW, 100, 1));
-            }
+        for (Player nearby : plugin.getSpatialIndex().getNearby(player.getLocation(), SHRIEK_RADIUS)) {
+            nearby.addPotionEffect(new PotionEffect(PotionEffectType.BLINDNESS, 60, 0));
+            nearby.addPotionEffect(new PotionEffect(PotionEffectType.SLOW, 100, 1));
         }
     }
     
@@ -136,62 +155,37 @@ public class VampireListener implements Listener {
      * Handles entity damage events to modify damage dealt by vampire players.
      * Vampires deal increased damage based on their blood level:
      * - Higher blood levels result in more damage
-     * - Damage multiplier is calculated as: 1.0 + (bloodLevel * 0.1)
+     * - Damage multiplier is calculated as: 1.0 + (bloodLevel * combat.damage-per-blood)
+     * The damage is changed before the event returns, from cached player state.
      * 
      * @param event The EntityDamageByEntityEvent that triggered this handler
      */
-    @EventHandler
+    @EventHandler(ignoreCancelled = true)
     public void onEntityDamage(EntityDamageByEntityEvent event) {
         if (!(event.getDamager() instanceof Player)) {
             return;
         }
         
-        Player attacker = (Player) event.getDamager();
-        
-        // Check if attacker is a vampire
-        plugin.getVampirePlayer(attacker.getUniqueId()).thenAccept(vampirePlayer -> {
-            if (vampirePlayer != null && vampirePlayer.isVampire()) {
-                // Apply vampire damage modifiers
-                double damage = event.getDamage();
-                double bloodLevel = vampirePlayer.getBlood();
-                
-                // Increase damage based on blood level
-                double multiplier = 1.0 + (bloodLevel * 0.1);
-                event.setDamage(damage * multiplier);
-            }
-        });
+        event.setDamage(combat.modifyDealtDamage((Player) event.getDamager(), event.getDamage()));
     }
     
     /**
      * Handles entity damage events to modify damage received by vampire players.
      * Vampires receive reduced damage based on their blood level:
      * - Higher blood levels provide more damage resistance
-     * - Resistance is capped at 50%
-     * - Resistance is calculated as: 0.05 * bloodLevel
+     * - Resistance is capped at combat.max-resistance
+     * - Resistance is calculated as: bloodLevel * combat.resistance-per-blood
+     * The damage is changed before the event returns, from cached player state.
      * 
      * @param event The EntityDamageEvent that triggered this handler
      */
-    @EventHandler
+    @EventHandler(ignoreCancelled = true)
     public void onEntityDamageReceive(EntityDamageEvent event) {
         if (!(event.getEntity() instanceof Player)) {
             return;
         }
         
-        Player player = (Player) event.getEntity();
-        
-        // Check if player is a vampire
-        plugin.getVampirePlayer(player.getUniqueId()).thenAccept(vampirePlayer -> {
-            if (vampirePlayer != null && vampirePlayer.isVampire()) {
-                // Apply vampire damage resistance
-                double damage = event.getDamage();
-                double bloodLevel = vampirePlayer.getBlood();
-                
-                // Reduce damage based on blood level
-                double resistance = 0.05 * bloodLevel;
-                if (resistance > 0.5) resistance = 0.5; // Cap at 50% resistance
-                event.setDamage(damage * (1.0 - resistance));
-            }
-        });
+        event.setDamage(combat.modifyTakenDamage((Player) event.getEntity(), event.getDamage()));
     }
     
     /**
@@ -0,0 +1,264 @@
+package org.clockworx.vampire.spatial;
+
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Spatial hash of online players, one grid per world in chunk-sized columns.
+ * Proximity queries visit only the cells that overlap the search radius and compare
+ * squared distances, so their cost depends on how many players are nearby rather than
+ * on how many are in the world. Positions are kept current by
+ * {@link org.clockworx.vampire.listener.SpatialIndexListener}.
+ * <p>
+ * The index is not thread-safe; it is updated and queried on the main thread.
+ */
+public class PlayerSpatialIndex {
+
+    private static final int CELL_SHIFT = 4;
+    private static final int CELL_SIZE = 1 << CELL_SHIFT;
+
+    private final Map<UUID, Map<Long, List<Entry>>> worlds = new HashMap<>();
+    private final Map<UUID, Entry> entries = new HashMap<>();
+
+    /**
+     * Adds a player or moves them to a new position.
+     *
+     * @param player The player
+     * @param location The player's new position
+     */
+    public void update(Player player, Location location) {
+        UUID world = location.getWorld().getUID();
+        double x = location.getX();
+        double y = location.getY();
+        double z = location.getZ();
+        long cell = cellKey(floor(x) >> CELL_SHIFT, floor(z) >> CELL_SHIFT);
+
+        Entry entry = entries.get(player.getUniqueId());
+        if (entry == null) {
+            entry = new Entry(player);
+            entries.put(player.getUniqueId(), entry);
+        } else if (!entry.world.equals(world) || entry.cell != cell) {
+            unlink(entry);
+        } else {
+            entry.x = x;
+            entry.y = y;
+            entry.z = z;
+            return;
+        }
+        entry.world = world;
+        entry.cell = cell;
+        entry.x = x;
+        entry.y = y;
+        entry.z = z;
+        List<Entry> bucket = worlds.computeIfAbsent(world, id -> new HashMap<>())
+            .computeIfAbsent(cell, key -> new ArrayList<>());
+        entry.index = bucket.size();
+        bucket.add(entry);
+    }
+
+    /**
+     * Removes a player.
+     *
+     * @param uuid The player's UUID
+     */
+    public void remove(UUID uuid) {
+        Entry entry = entries.remove(uuid);
+        if (entry != null) {
+            unlink(entry);
+        }
+    }
+
+    /**
+     * Removes every player.
+     */
+    public void clear() {
+        worlds.clear();
+        entries.clear();
+    }
+
+    /**
+     * Gets the number of indexed players.
+     *
+     * @return The number of players
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Finds the players within a radius of a position.
+     *
+     * @param center The center of the search
+     * @param radius The search radius in blocks
+     * @return The players within the radius, in no particular order
+     */
+    public List<Player> getNearby(Location center, double radius) {
+        List<Player> result = new ArrayList<>();
+        Map<Long, List<Entry>> cells = worlds.get(center.getWorld().getUID());
+        if (cells == null) {
+            return result;
+        }
+        double x = center.getX();
+        double y = center.getY();
+        double z = center.getZ();
+        double radiusSquared = radius * radius;
+        int minX = floor(x - radius) >> CELL_SHIFT;
+        int maxX = floor(x + radius) >> CELL_SHIFT;
+        int minZ = floor(z - radius) >> CELL_SHIFT;
+        int maxZ = floor(z + radius) >> CELL_SHIFT;
+        for (int cellX = minX; cellX <= maxX; cellX++) {
+            for (int cellZ = minZ; cellZ <= maxZ; cellZ++) {
+                List<Entry> bucket = cells.get(cellKey(cellX, cellZ));
+                if (bucket == null) {
+                    continue;
+                }
+                for (Entry entry : bucket) {
+                    if (entry.distanceSquared(x, y, z) <= radiusSquared) {
+                        result.add(entry.player);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds the player nearest to a position. Cells are searched in rings around the
+     * center, stopping once no unsearched cell can hold a nearer player.
+     *
+     * @param center The center of the search
+     * @param radius The search radius in blocks
+     * @param filter Which players to consider, for example to skip the searching player
+     * @return The nearest matching player within the radius, or null if there is none
+     */
+    public Player getNearest(Location center, double radius, Predicate<Player> filter) {
+        Map<Long, List<Entry>> cells = worlds.get(center.getWorld().getUID());
+        if (cells == null) {
+            return null;
+        }
+        double x = center.getX();
+        double y = center.getY();
+        double z = center.getZ();
+        int centerX = floor(x) >> CELL_SHIFT;
+        int centerZ = floor(z) >> CELL_SHIFT;
+        int rings = (int) Math.ceil(radius / CELL_SIZE);
+        double bestSquared = radius * radius;
+        Player best = null;
+
+        for (int ring = 0; ring <= rings; ring++) {
+            for (int cellX = centerX - ring; cellX <= centerX + ring; cellX++) {
+                // Only the edge of the square is new in this ring
+                int step = cellX == centerX - ring || cellX == centerX + ring ? 1 : Math.max(1, 2 * ring);
+                for (int cellZ = centerZ - ring; cellZ <= centerZ + ring; cellZ += step) {
+                    List<Entry> bucket = cells.get(cellKey(cellX, cellZ));
+                    if (bucket == null) {
+                        continue;
+                    }
+                    for (Entry entry : bucket) {
+                        double distanceSquared = entry.distanceSquared(x, y, z);
+                        if (distanceSquared <= bestSquared && filter.test(entry.player)) {
+                            bestSquared = distanceSquared;
+                            best = entry.player;
+                        }
+                    }
+                }
+            }
+            // Every cell in the next ring is at least this far away horizontally
+            double nextRing = (double) ring * CELL_SIZE;
+            if (best != null && bestSquared <= nextRing * nextRing) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Checks whether two players are within a distance of each other, using their
+     * indexed positions. Players in different worlds are never within distance.
+     *
+     * @param first The first player
+     * @param second The second player
+     * @param radius The maximum distance in blocks
+     * @return true if the players are within the distance
+     */
+    public boolean isWithin(Player first, Player second, double radius) {
+        Entry a = entries.get(first.getUniqueId());
+        Entry b = entries.get(second.getUniqueId());
+        if (a == null || b == null) {
+            return isWithin(first.getLocation(), second.getLocation(), radius);
+        }
+        return a.world.equals(b.world) && a.distanceSquared(b.x, b.y, b.z) <= radius * radius;
+    }
+
+    /**
+     * Checks whether two positions are within a distance of each other without taking a
+     * square root. Positions in different worlds are never within distance.
+     *
+     * @param first The first position
+     * @param second The second position
+     * @param radius The maximum distance in blocks
+     * @return true if the positions are within the distance
+     */
+    public static boolean isWithin(Location first, Location second, double radius) {
+        return first.getWorld() != null && first.getWorld().equals(second.getWorld())
+            && first.distanceSquared(second) <= radius * radius;
+    }
+
+    private void unlink(Entry entry) {
+        Map<Long, List<Entry>> cells = worlds.get(entry.world);
+        List<Entry> bucket = cells.get(entry.cell);
+        // Swap the last entry into the gap so removal is constant time
+        Entry last = bucket.remove(bucket.size() - 1);
+        if (last != entry) {
+            bucket.set(entry.index, last);
+            last.index = entry.index;
+        }
+        if (bucket.isEmpty()) {
+            cells.remove(entry.cell);
+            if (cells.isEmpty()) {
+                worlds.remove(entry.world);
+            }
+        }
+    }
+
+    private static long cellKey(int cellX, int cellZ) {
+        return ((long) cellX << 32) | (cellZ & 0xFFFFFFFFL);
+    }
+
+    private static int floor(double value) {
+        int truncated = (int) value;
+        return value < truncated ? truncated - 1 : truncated;
+    }
+
+    /**
+     * An indexed player and the position they were last seen at.
+     */
+    private static final class Entry {
+
+        private final Player player;
+        private UUID world;
+        private long cell;
+        private int index;
+        private double x;
+        private double y;
+        private double z;
+
+        private Entry(Player player) {
+            this.player = player;
+        }
+
+        private double distanceSquared(double otherX, double otherY, double otherZ) {
+            double dx = x - otherX;
+            double dy = y - otherY;
+            double dz = z - otherZ;
+            return dx * dx + dy * dy + dz * dz;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.clockworx.vampire.task;
+
+import org.bukkit.scheduler.BukkitRunnable;
+import org.clockworx.vampire.VampirePlugin;
+import org.clockworx.vampire.config.VampireConfig;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Task that periodically deletes expired and resolved blood offers.
+ * Pending offers are removed once they pass the trade offer tolerance, after which
+ * they can no longer be accepted, and accepted or rejected offers once they pass the
+ * retention window, so the blood_offers table stays small. Deleted-row counts are kept as metrics.
+ */
+public class OfferReaperTask extends BukkitRunnable {
+    
+    private final VampirePlugin plugin;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong totalDeleted = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile int lastDeleted;
+    private volatile long lastRunTime;
+    private int taskId = -1;
+    
+    /**
+     * Creates a new OfferReaperTask.
+     * 
+     * @param plugin The plugin instance
+     */
+    public OfferReaperTask(VampirePlugin plugin) {
+        this.plugin = plugin;
+    }
+    
+    /**
+     * Starts the task.
+     */
+    public void start() {
+        if (taskId != -1) {
+            return;
+        }
+        
+        long interval = plugin.getVampireConfig().getOfferReaperInterval() * 20L;
+        taskId = runTaskTimerAsynchronously(plugin, interval, interval).getTaskId();
+        plugin.getLogger().info("Offer reaper started with interval of " + interval + " ticks");
+    }
+    
+    /**
+     * Shuts down the task.
+     */
+    public void shutdown() {
+        if (taskId != -1) {
+            cancel();
+            taskId = -1;
+        }
+    }
+    
+    @Override
+    public void run() {
+        // Skip this cycle if the previous delete is still running
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        
+        VampireConfig config = plugin.getVampireConfig();
+        plugin.getDatabaseManager().purgeOffers(
+                config.getTradeOfferTolerance(),
+                TimeUnit.SECONDS.toMillis(config.getOfferRetention()))
+            .whenComplete((deleted, error) -> {
+                running.set(false);
+                runs.incrementAndGet();
+                lastRunTime = System.currentTimeMillis();
+                if (error != null) {
+                    failures.incrementAndGet();
+                    plugin.error("Failed to purge blood offers", error);
+                    return;
+                }
+                lastDeleted = deleted;
+                totalDeleted.addAndGet(deleted);
+                plugin.debug("Purged " + deleted + " blood offers");
+            });
+    }
+    
+    // Metrics
+    public long getRuns() {
+        return runs.get();
+    }
+    
+    public long getTotalDeleted() {
+        return totalDeleted.get();
+    }
+    
+    public int getLastDeleted() {
+        return lastDeleted;
+    }
+    
+    public long getLastRunTime() {
+        return lastRunTime;
+    }
+    
+    public long getFailures() {
+        return failures.get();
+    }
+}
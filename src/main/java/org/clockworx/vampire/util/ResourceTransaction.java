@@ -0,0 +1,125 @@
+package org.clockworx.vampire.util;
+
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks and consumes a set of required items from a player's inventory as one unit.
+ * The inventory is read once into a histogram of amounts by material and durability,
+ * remembering which slots hold each required item, so every requirement is checked
+ * against it without scanning the inventory again. Committing takes all the items or
+ * none: nothing is changed unless every requirement is met, and if changing a slot
+ * fails the slots already changed are put back.
+ * <p>
+ * A transaction reflects the inventory when it was created and must be committed on the
+ * main thread in the same tick.
+ */
+public class ResourceTransaction {
+
+    private final PlayerInventory inventory;
+    private final Map<Long, Integer> required = new LinkedHashMap<>();
+    private final Map<Long, Integer> available = new HashMap<>();
+    private final Map<Long, List<Integer>> slots = new HashMap<>();
+    private final ItemStack[] contents;
+    private boolean committed;
+
+    private ResourceTransaction(Player player, Collection<? extends ItemStack> requirements) {
+        this.inventory = player.getInventory();
+        for (ItemStack stack : requirements) {
+            required.merge(key(stack), stack.getAmount(), Integer::sum);
+        }
+
+        // One pass over the inventory, keeping only what is required
+        this.contents = inventory.getContents();
+        for (int slot = 0; slot < contents.length; slot++) {
+            ItemStack stack = contents[slot];
+            if (stack == null) continue;
+            long key = key(stack);
+            if (!required.containsKey(key)) continue;
+            available.merge(key, stack.getAmount(), Integer::sum);
+            slots.computeIfAbsent(key, k -> new ArrayList<>()).add(slot);
+        }
+    }
+
+    /**
+     * Starts a transaction for a player's required items.
+     *
+     * @param player The player whose inventory to take from
+     * @param requirements The required items; several stacks of the same item add up
+     * @return The transaction
+     */
+    public static ResourceTransaction begin(Player player, Collection<? extends ItemStack> requirements) {
+        return new ResourceTransaction(player, requirements);
+    }
+
+    /**
+     * Checks whether the player has every required item.
+     *
+     * @return true if every requirement is met
+     */
+    public boolean isSatisfied() {
+        for (Map.Entry<Long, Integer> entry : required.entrySet()) {
+            if (available.getOrDefault(entry.getKey(), 0) < entry.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Takes every required item from the inventory, or nothing if any is missing.
+     *
+     * @return true if the items were taken
+     * @throws IllegalStateException if the transaction was already committed
+     */
+    public boolean commit() {
+        if (committed) {
+            throw new IllegalStateException("Resource transaction already committed");
+        }
+        if (!isSatisfied()) {
+            return false;
+        }
+
+        Map<Integer, ItemStack> originals = new HashMap<>();
+        try {
+            for (Map.Entry<Long, Integer> entry : required.entrySet()) {
+                int remaining = entry.getValue();
+                for (int slot : slots.getOrDefault(entry.getKey(), List.of())) {
+                    if (remaining <= 0) break;
+                    ItemStack stack = contents[slot];
+                    int taken = Math.min(remaining, stack.getAmount());
+                    originals.put(slot, stack.clone());
+                    if (taken == stack.getAmount()) {
+                        inventory.setItem(slot, null);
+                    } else {
+                        ItemStack rest = stack.clone();
+                        rest.setAmount(stack.getAmount() - taken);
+                        inventory.setItem(slot, rest);
+                    }
+                    remaining -= taken;
+                }
+            }
+        } catch (RuntimeException e) {
+            // Put back what was already taken
+            for (Map.Entry<Integer, ItemStack> original : originals.entrySet()) {
+                inventory.setItem(original.getKey(), original.getValue());
+            }
+            throw e;
+        }
+        committed = true;
+        return true;
+    }
+
+    // Material ordinal in the high bits, durability in the low 16
+    private static long key(ItemStack stack) {
+        return ((long) stack.getType().ordinal() << 16) | (stack.getDurability() & 0xFFFFL);
+    }
+}
@@ -4,7 +4,6 @@ import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.PlayerInventory;
 import org.bukkit.ChatColor;
 import org.bukkit.command.CommandSender;
 import org.clockworx.vampire.VampirePlugin;
@@ -79,11 +78,7 @@ public class ResourceUtil
 	 */
 	public static boolean playerHas(Player player, Collection<? extends ItemStack> stacks)
 	{
-		for (ItemStack stack : stacks)
-		{
-			if ( ! playerHas(player, stack)) return false;
-		}
-		return true;
+		return ResourceTransaction.begin(player, stacks).isSatisfied();
 	}
 	
 	/**
@@ -179,22 +174,11 @@ public class ResourceUtil
 	 */
 	public static boolean playerRemoveAttempt(Player player, List<ItemStack> resources, String successMessage, String failMessage)
 	{
-		PlayerInventory inventory = player.getInventory();
-		
-		// Check if player has all required items
-		for (ItemStack item : resources)
+		// Check and remove every item in one inventory pass
+		if (!ResourceTransaction.begin(player, resources).commit())
 		{
-			if (!hasItem(inventory, item))
-			{
-				sendMessage(player, failMessage);
-				return false;
-			}
-		}
-		
-		// Remove all items
-		for (ItemStack item : resources)
-		{
-			removeItem(inventory, item);
+			sendMessage(player, failMessage);
+			return false;
 		}
 		
 		player.updateInventory();
@@ -202,55 +186,6 @@ public class ResourceUtil
 		return true;
 	}
 	
-	/**
-	 * Checks if an inventory contains an item.
-	 * 
-	 * @param inventory The inventory to check
-	 * @param item The item to check for
-	 * @return true if the inventory contains the item, false otherwise
-	 */
-	private static boolean hasItem(PlayerInventory inventory, ItemStack item) {
-		Material requiredType = item.getType();
-		short requiredDamage = item.getDurability();
-		int requiredAmount = item.getAmount();
-		
-		int actualAmount = 0;
-		for (ItemStack pstack : inventory.getContents())
-		{
-			if (pstack == null) continue;
-			if (pstack.getType() != requiredType) continue;
-			if (pstack.getDurability() != requiredDamage) continue;
-			actualAmount += pstack.getAmount();
-		}
-		
-		return actualAmount >= requiredAmount;
-	}
-	
-	/**
-	 * Removes an item from an inventory.
-	 * 
-	 * @param inventory The inventory to remove the item from
-	 * @param item The item to remove
-	 */
-	private static void removeItem(PlayerInventory inventory, ItemStack item) {
-		Material requiredType = item.getType();
-		short requiredDamage = item.getDurability();
-		int requiredAmount = item.getAmount();
-		
-		int remaining = requiredAmount;
-		for (ItemStack pstack : inventory.getContents())
-		{
-			if (remaining <= 0) break;
-			if (pstack == null) continue;
-			if (pstack.getType() != requiredType) continue;
-			if (pstack.getDurability() != requiredDamage) continue;
-			
-			int toRemove = Math.min(remaining, pstack.getAmount());
-			pstack.setAmount(pstack.getAmount() - toRemove);
-			remaining -= toRemove;
-		}
-	}
-	
 	/**
 	 * Sends a message to a command sender.
 	 * 
@@ -0,0 +1,81 @@
+package org.clockworx.vampire.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Records how long each startup phase takes.
+ * Phases may be timed from any thread, including the background database bootstrap.
+ */
+public class StartupTimer {
+    
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    
+    /**
+     * Runs a phase and records its duration.
+     * 
+     * @param phase The phase name
+     * @param work The work to run
+     */
+    public void time(String phase, Runnable work) {
+        time(phase, () -> {
+            work.run();
+            return null;
+        });
+    }
+    
+    /**
+     * Runs a phase and records its duration, even if it fails.
+     * 
+     * @param phase The phase name
+     * @param work The work to run
+     * @param <T> The type of the result
+     * @return The result of the work
+     */
+    public <T> T time(String phase, Supplier<T> work) {
+        long start = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            record(phase, System.nanoTime() - start);
+        }
+    }
+    
+    /**
+     * Records the duration of a phase that was timed elsewhere.
+     * 
+     * @param phase The phase name
+     * @param nanos The duration in nanoseconds
+     */
+    public synchronized void record(String phase, long nanos) {
+        phases.merge(phase, nanos, Long::sum);
+    }
+    
+    /**
+     * Gets the recorded phases in the order they were first recorded.
+     * 
+     * @return The duration of each phase in milliseconds
+     */
+    public synchronized Map<String, Long> getPhaseMillis() {
+        Map<String, Long> millis = new LinkedHashMap<>();
+        phases.forEach((phase, nanos) -> millis.put(phase, TimeUnit.NANOSECONDS.toMillis(nanos)));
+        return millis;
+    }
+    
+    /**
+     * Logs the recorded phases on one line.
+     * 
+     * @param logger The logger to write to
+     * @param title What the phases belong to
+     */
+    public void log(Logger logger, String title) {
+        List<String> parts = new ArrayList<>();
+        getPhaseMillis().forEach((phase, millis) -> parts.add(phase + " " + millis + " ms"));
+        logger.info(title + ": " + String.join(", ", parts));
+    }
+}
@@ -0,0 +1,137 @@
+package org.clockworx.vampire.altar;
+
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Scanning the cube around an altar core and keeping the scan current as blocks change.
+ */
+class AltarPatternTest {
+
+    private final Map<List<Integer>, Material> blocks = new HashMap<>();
+    private World world;
+    private AltarPattern pattern;
+
+    @BeforeEach
+    void setUp() {
+        world = mock(World.class);
+        when(world.getMinHeight()).thenReturn(0);
+        when(world.getMaxHeight()).thenReturn(256);
+        when(world.getType(anyInt(), anyInt(), anyInt())).thenAnswer(invocation -> {
+            int y = invocation.getArgument(1);
+            if (y < 0 || y >= 256) {
+                throw new IllegalArgumentException("Outside the world: " + y);
+            }
+            return blocks.getOrDefault(List.of(invocation.getArgument(0), y, invocation.getArgument(2)), Material.AIR);
+        });
+
+        Map<Material, Integer> materials = new LinkedHashMap<>();
+        materials.put(Material.GOLD_BLOCK, 2);
+        materials.put(Material.OBSIDIAN, 1);
+        pattern = new AltarPattern(materials, 2);
+    }
+
+    @Test
+    void countsRequiredBlocksWithinTheRadius() {
+        place(Material.GOLD_BLOCK, 11, 64, 10);
+        place(Material.GOLD_BLOCK, 8, 62, 12);
+        place(Material.GOLD_BLOCK, 10, 65, 9);
+        place(Material.OBSIDIAN, 13, 64, 10);
+        place(Material.STONE, 10, 63, 10);
+
+        AltarScan scan = pattern.scan(core(10, 64, 10));
+
+        // Surplus gold does not make up for the obsidian outside the radius
+        assertEquals(2, scan.getFound());
+        assertEquals(0, scan.getMissing(pattern.getSlot(Material.GOLD_BLOCK)));
+        assertEquals(1, scan.getMissing(pattern.getSlot(Material.OBSIDIAN)));
+        assertEquals(1, scan.getMissingTotal());
+        assertFalse(scan.isComplete());
+        assertTrue(scan.isRecognizable(0.5));
+        assertFalse(scan.isRecognizable(1.0));
+    }
+
+    @Test
+    void skipsBlocksOutsideTheWorldHeight() {
+        place(Material.GOLD_BLOCK, 0, 0, 0);
+        place(Material.OBSIDIAN, 1, 1, 0);
+
+        AltarScan scan = pattern.scan(core(0, 0, 0));
+
+        assertEquals(1, scan.getMissingTotal());
+    }
+
+    @Test
+    void adjustTracksPlacedAndBrokenBlocks() {
+        place(Material.GOLD_BLOCK, 11, 64, 10);
+        place(Material.GOLD_BLOCK, 9, 64, 10);
+        place(Material.GOLD_BLOCK, 10, 64, 11);
+        AltarScan scan = pattern.scan(core(10, 64, 10));
+
+        scan.adjust(Material.AIR, Material.OBSIDIAN);
+        assertTrue(scan.isComplete());
+
+        scan.adjust(Material.GOLD_BLOCK, Material.AIR);
+        assertTrue(scan.isComplete());
+        scan.adjust(Material.GOLD_BLOCK, Material.STONE);
+        assertEquals(1, scan.getMissing(pattern.getSlot(Material.GOLD_BLOCK)));
+        assertEquals(2, scan.getFound());
+
+        scan.adjust(Material.OBSIDIAN, Material.AIR);
+        scan.adjust(Material.OBSIDIAN, Material.AIR);
+        assertEquals(2, scan.getMissingTotal());
+        scan.adjust(Material.AIR, Material.OBSIDIAN);
+        assertEquals(1, scan.getMissingTotal());
+    }
+
+    @Test
+    void fingerprintDependsOnTheRequirementsOnly() {
+        Map<Material, Integer> reversed = new LinkedHashMap<>();
+        reversed.put(Material.OBSIDIAN, 1);
+        reversed.put(Material.GOLD_BLOCK, 2);
+
+        assertEquals(pattern.getFingerprint(), new AltarPattern(reversed, 2).getFingerprint());
+        assertNotEquals(pattern.getFingerprint(), new AltarPattern(reversed, 3).getFingerprint());
+        reversed.put(Material.OBSIDIAN, 2);
+        assertNotEquals(pattern.getFingerprint(), new AltarPattern(reversed, 2).getFingerprint());
+    }
+
+    @Test
+    void describesItsSlots() {
+        assertEquals(2, pattern.getSlots());
+        assertEquals(3, pattern.getRequiredTotal());
+        assertEquals(-1, pattern.getSlot(Material.STONE));
+        int slot = pattern.getSlot(Material.OBSIDIAN);
+        assertEquals(Material.OBSIDIAN, pattern.getMaterial(slot));
+        assertEquals(1, pattern.getRequired(slot));
+    }
+
+    private void place(Material material, int x, int y, int z) {
+        blocks.put(List.of(x, y, z), material);
+    }
+
+    private Block core(int x, int y, int z) {
+        Block block = mock(Block.class);
+        when(block.getWorld()).thenReturn(world);
+        when(block.getX()).thenReturn(x);
+        when(block.getY()).thenReturn(y);
+        when(block.getZ()).thenReturn(z);
+        return block;
+    }
+}
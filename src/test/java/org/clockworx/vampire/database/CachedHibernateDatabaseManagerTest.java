@@ -0,0 +1,22 @@
+package org.clockworx.vampire.database;
+
+import org.clockworx.vampire.VampirePlugin;
+
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the DatabaseManager contract against the Hibernate backend on SQLite with the
+ * second-level and query caches enabled, so reads after a write must not see cached results.
+ */
+class CachedHibernateDatabaseManagerTest extends DatabaseManagerContractTest {
+
+    @Override
+    protected DatabaseManager createManager(VampirePlugin plugin) {
+        when(config.getDatabaseType()).thenReturn("sqlite");
+        when(config.isDatabaseCacheEnabled()).thenReturn(true);
+        when(config.isDatabaseQueryCacheEnabled()).thenReturn(true);
+        when(config.getDatabaseCacheMaxEntries()).thenReturn(1000);
+        when(config.getDatabaseCacheExpireSeconds()).thenReturn(300);
+        return new HibernateDatabaseManager(plugin);
+    }
+}
@@ -0,0 +1,92 @@
+package org.clockworx.vampire.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Dropping players another server changed, with and without a write of them in flight.
+ */
+class CachingDatabaseManagerTest {
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private DatabaseManager delegate;
+    private CachingDatabaseManager cache;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(DatabaseManager.class);
+        when(delegate.initialize()).thenReturn(CompletableFuture.completedFuture(null));
+        when(delegate.shutdown()).thenReturn(CompletableFuture.completedFuture(null));
+        // Flushed by the tests, not by the timer
+        cache = new CachingDatabaseManager(delegate, TimeUnit.HOURS.toMillis(1), 100, TimeUnit.HOURS.toMillis(1),
+            Logger.getLogger(getClass().getName()));
+        join(cache.initialize());
+    }
+
+    @AfterEach
+    void tearDown() {
+        when(delegate.savePlayerRecords(any())).thenReturn(CompletableFuture.completedFuture(null));
+        join(cache.shutdown());
+    }
+
+    @Test
+    void discardDropsUnwrittenChanges() {
+        UUID uuid = UUID.randomUUID();
+        join(cache.savePlayer(record(uuid, 1.0).toVampirePlayer()));
+
+        cache.discard(uuid);
+        join(cache.flush());
+
+        verify(delegate, never()).savePlayerRecords(any());
+        assertEquals(0, cache.getCachedPlayerCount());
+    }
+
+    @Test
+    void discardDuringAWriteDropsThePlayerOnceItLands() {
+        UUID uuid = UUID.randomUUID();
+        CompletableFuture<Void> write = new CompletableFuture<>();
+        when(delegate.savePlayerRecords(any())).thenReturn(write);
+        join(cache.savePlayer(record(uuid, 1.0).toVampirePlayer()));
+        CompletableFuture<Void> flush = cache.flush();
+
+        cache.discard(uuid);
+        // Dropping it now would let a load read the row from before the write and keep it
+        assertEquals(1, cache.getCachedPlayerCount());
+
+        write.complete(null);
+        join(flush);
+        assertEquals(0, cache.getCachedPlayerCount());
+
+        // The next read loads what the other server wrote
+        when(delegate.getPlayer(uuid)).thenReturn(CompletableFuture.completedFuture(record(uuid, 5.0).toVampirePlayer()));
+        assertEquals(5.0, join(cache.getBloodLevel(uuid)));
+    }
+
+    private static PlayerRecord record(UUID uuid, double blood) {
+        PlayerRecord record = new PlayerRecord(uuid, "Player");
+        record.setBloodLevel(blood);
+        return record;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+}
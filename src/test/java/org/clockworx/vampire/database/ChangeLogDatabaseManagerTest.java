@@ -0,0 +1,117 @@
+package org.clockworx.vampire.database;
+
+import org.clockworx.vampire.VampirePlugin;
+import org.clockworx.vampire.config.VampireConfig;
+import org.clockworx.vampire.entity.VampirePlayer;
+import org.clockworx.vampire.util.StartupTimer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Two servers sharing one SQLite database through their own change logs.
+ */
+class ChangeLogDatabaseManagerTest {
+
+    private static final long TIMEOUT_SECONDS = 30;
+
+    @TempDir
+    Path dataFolder;
+
+    private ChangeLogDatabaseManager first;
+    private ChangeLogDatabaseManager second;
+    private final BlockingQueue<UUID> seenByFirst = new LinkedBlockingQueue<>();
+    private final BlockingQueue<UUID> seenBySecond = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    void setUp() {
+        VampireConfig config = mock(VampireConfig.class);
+        when(config.getDatabaseType()).thenReturn("sqlite-jdbc");
+        when(config.getDatabaseUrl()).thenReturn("jdbc:sqlite:" + dataFolder.resolve("vampire.db"));
+        when(config.getSqliteReadPoolSize()).thenReturn(2);
+        when(config.getSqliteWriteBatchSize()).thenReturn(64);
+        when(config.getSqliteMmapSize()).thenReturn(0L);
+        when(config.getChangeLogPollInterval()).thenReturn(1);
+        when(config.getChangeLogRetention()).thenReturn(3600);
+
+        VampirePlugin plugin = mock(VampirePlugin.class);
+        when(plugin.getVampireConfig()).thenReturn(config);
+        when(plugin.getLogger()).thenReturn(Logger.getLogger(getClass().getName()));
+        when(plugin.getStartupTimer()).thenReturn(new StartupTimer());
+
+        first = new ChangeLogDatabaseManager(new JdbcDatabaseManager(plugin), config, plugin.getLogger());
+        first.addListener(seenByFirst::add);
+        join(first.initialize());
+        second = new ChangeLogDatabaseManager(new JdbcDatabaseManager(plugin), config, plugin.getLogger());
+        second.addListener(seenBySecond::add);
+        join(second.initialize());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (second != null) {
+            join(second.shutdown());
+        }
+        if (first != null) {
+            join(first.shutdown());
+        }
+    }
+
+    @Test
+    void changesReachOtherServersOnce() throws InterruptedException {
+        VampirePlayer player = new VampirePlayer(UUID.randomUUID(), "Carmilla");
+        join(first.savePlayer(player));
+
+        assertEquals(player.getUuid(), seenBySecond.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        // Later polls read the change again within the lookback window, but do not pass it on again
+        assertNull(seenBySecond.poll(3, TimeUnit.SECONDS));
+        assertNull(seenByFirst.poll(0, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void onlyWritesThatChangeAPlayerAreLogged() {
+        UUID unknown = UUID.randomUUID();
+        join(first.setBloodLevel(unknown, 3.0));
+        join(first.useBlood(unknown, 1.0));
+        assertEquals(0, countChanges());
+
+        VampirePlayer player = new VampirePlayer(UUID.randomUUID(), "Ruthven");
+        join(first.savePlayer(player));
+        join(first.setBloodLevel(player.getUuid(), 3.0));
+        assertEquals(2, countChanges());
+    }
+
+    private int countChanges() {
+        return join(first.getConnectionSource().read(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM vampire_player_changes");
+                 ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                return resultSet.getInt(1);
+            }
+        }));
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.clockworx.vampire.database;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * State transitions of the circuit breaker, including the half-open trial call.
+ */
+class CircuitBreakerTest {
+
+    @Test
+    void opensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 60000);
+
+        assertFalse(breaker.recordFailure());
+        assertFalse(breaker.recordFailure());
+        assertTrue(breaker.allowRequest());
+        assertTrue(breaker.recordFailure());
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+        assertEquals(1, breaker.getOpenCount());
+    }
+
+    @Test
+    void successResetsTheFailureCount() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 60000);
+        breaker.recordFailure();
+        breaker.recordFailure();
+
+        assertFalse(breaker.recordSuccess());
+        assertEquals(0, breaker.getFailures());
+        assertFalse(breaker.recordFailure());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void halfOpenAdmitsOneTrialAndClosesOnSuccess() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        assertTrue(breaker.recordFailure());
+
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        // Further calls wait for the trial call
+        assertFalse(breaker.allowRequest());
+
+        assertTrue(breaker.recordSuccess());
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.allowRequest());
+    }
+
+    @Test
+    void failedTrialOpensTheBreakerAgain() {
+        CircuitBreaker breaker = new CircuitBreaker(1, 0);
+        breaker.recordFailure();
+        assertTrue(breaker.allowRequest());
+
+        assertTrue(breaker.recordFailure());
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertEquals(2, breaker.getOpenCount());
+    }
+
+    @Test
+    void staysOpenUntilTheDurationHasPassed() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(1, 200);
+        breaker.recordFailure();
+        assertFalse(breaker.allowRequest());
+        // Failures reported by calls already in flight do not restart the open duration
+        assertFalse(breaker.recordFailure());
+
+        Thread.sleep(300);
+        assertTrue(breaker.allowRequest());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+    }
+}
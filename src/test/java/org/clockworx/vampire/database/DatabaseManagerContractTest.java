@@ -0,0 +1,415 @@
+package org.clockworx.vampire.database;
+
+import org.clockworx.vampire.VampirePlugin;
+import org.clockworx.vampire.config.VampireConfig;
+import org.clockworx.vampire.entity.BloodOffer;
+import org.clockworx.vampire.entity.VampirePlayer;
+import org.clockworx.vampire.util.StartupTimer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * The behaviour every DatabaseManager backend must share. Each backend runs these
+ * tests against a fresh database through a subclass that creates it.
+ */
+abstract class DatabaseManagerContractTest {
+
+    private static final long TIMEOUT_SECONDS = 30;
+
+    @TempDir
+    Path dataFolder;
+
+    protected VampirePlugin plugin;
+    protected VampireConfig config;
+    private DatabaseManager database;
+
+    /**
+     * Creates the backend under test. The plugin's config is a mock with the
+     * settings of a default installation, pointing at a database in a fresh folder.
+     *
+     * @param plugin The mocked plugin
+     * @return The database manager, not yet initialized
+     */
+    protected abstract DatabaseManager createManager(VampirePlugin plugin);
+
+    @BeforeEach
+    void setUp() {
+        config = mock(VampireConfig.class);
+        when(config.getDatabaseUrl()).thenReturn("jdbc:sqlite:" + dataFolder.resolve("vampire.db"));
+        when(config.getDatabaseUser()).thenReturn("");
+        when(config.getDatabasePassword()).thenReturn("");
+        when(config.getSqliteReadPoolSize()).thenReturn(2);
+        when(config.getSqliteWriteBatchSize()).thenReturn(64);
+        when(config.getSqliteMmapSize()).thenReturn(0L);
+        when(config.getFileStorePath()).thenReturn("players.dat");
+        when(config.getFileStoreCompactionRatio()).thenReturn(2.0);
+
+        plugin = mock(VampirePlugin.class);
+        when(plugin.getVampireConfig()).thenReturn(config);
+        when(plugin.getLogger()).thenReturn(Logger.getLogger(getClass().getName()));
+        when(plugin.getStartupTimer()).thenReturn(new StartupTimer());
+        when(plugin.getDataFolder()).thenReturn(dataFolder.toFile());
+
+        database = createManager(plugin);
+        join(database.initialize());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (database != null) {
+            join(database.shutdown());
+        }
+    }
+
+    @Test
+    void getPlayerReturnsNullForUnknownPlayer() {
+        assertNull(join(database.getPlayer(UUID.randomUUID())));
+    }
+
+    @Test
+    void savedPlayerIsReadBack() {
+        PlayerRecord record = newRecord("Carmilla");
+        record.setVampire(true);
+        record.setBloodLevel(8.5);
+        record.setInfectionLevel(0.25);
+        record.setInfectionReason("bite");
+        record.setInfectionTime(1000L);
+        record.setLastShriekTime(2000L);
+        record.setLastBloodTradeTime(3000L);
+        record.setLastBloodTradePartner(UUID.randomUUID());
+        record.setLastBloodTradeAmount(4.0);
+        record.setLastBloodTradeType("gift");
+        VampirePlayer player = record.toVampirePlayer();
+        join(database.savePlayer(player));
+
+        VampirePlayer loaded = join(database.getPlayer(player.getUuid()));
+        assertNotNull(loaded);
+        assertEquals(player.getName(), loaded.getName());
+        assertTrue(loaded.isVampire());
+        assertEquals(8.5, loaded.getBlood());
+        assertEquals(0.25, loaded.getInfectionLevel());
+        assertEquals("bite", loaded.getInfectionReason());
+        assertEquals(1000L, loaded.getInfectionTime());
+        assertEquals(2000L, loaded.getLastShriekTime());
+        assertEquals(3000L, loaded.getLastBloodTradeTime());
+        assertEquals(player.getLastBloodTradePartner(), loaded.getLastBloodTradePartner());
+        assertEquals(4.0, loaded.getLastBloodTradeAmount());
+        assertEquals("gift", loaded.getLastBloodTradeType());
+    }
+
+    @Test
+    void savingAgainReplacesThePlayer() {
+        PlayerRecord record = newRecord("Ruthven");
+        VampirePlayer player = record.toVampirePlayer();
+        join(database.savePlayer(player));
+        record.setBloodLevel(7.0);
+        player.restore(record);
+        join(database.savePlayer(player));
+
+        assertEquals(7.0, join(database.getBloodLevel(player.getUuid())));
+    }
+
+    @Test
+    void deletedPlayerIsGone() {
+        VampirePlayer player = newPlayer("Varney");
+        join(database.savePlayer(player));
+        join(database.deletePlayer(player.getUuid()));
+
+        assertNull(join(database.getPlayer(player.getUuid())));
+    }
+
+    @Test
+    void fieldSettersUpdateOnlyTheirField() {
+        VampirePlayer player = newPlayer("Orlok");
+        join(database.savePlayer(player));
+        UUID uuid = player.getUuid();
+        UUID partner = UUID.randomUUID();
+
+        join(database.setBloodLevel(uuid, 3.0));
+        join(database.setInfectionLevel(uuid, 0.5));
+        join(database.setInfectionReason(uuid, "trade"));
+        join(database.setInfectionTime(uuid, 11L));
+        join(database.setLastShriekTime(uuid, 12L));
+        join(database.setLastBloodTradeTime(uuid, 13L));
+        join(database.setLastBloodTradePartner(uuid, partner));
+        join(database.setLastBloodTradeAmount(uuid, 14.0));
+        join(database.setLastBloodTradeType(uuid, "sale"));
+
+        assertEquals(3.0, join(database.getBloodLevel(uuid)));
+        assertEquals(0.5, join(database.getInfectionLevel(uuid)));
+        assertTrue(join(database.isInfected(uuid)));
+        assertFalse(join(database.isVampire(uuid)));
+        assertEquals("trade", join(database.getInfectionReason(uuid)));
+        assertEquals(11L, join(database.getInfectionTime(uuid)));
+        assertEquals(12L, join(database.getLastShriekTime(uuid)));
+        assertEquals(13L, join(database.getLastBloodTradeTime(uuid)));
+        assertEquals(partner, join(database.getLastBloodTradePartner(uuid)));
+        assertEquals(14.0, join(database.getLastBloodTradeAmount(uuid)));
+        assertEquals("sale", join(database.getLastBloodTradeType(uuid)));
+        assertEquals("Orlok", join(database.getPlayer(uuid)).getName());
+    }
+
+    @Test
+    void fieldSettersIgnoreUnknownPlayers() {
+        UUID uuid = UUID.randomUUID();
+        join(database.setBloodLevel(uuid, 3.0));
+
+        assertNull(join(database.getPlayer(uuid)));
+        assertEquals(0.0, join(database.getBloodLevel(uuid)));
+        assertFalse(join(database.isVampire(uuid)));
+        assertNull(join(database.getInfectionReason(uuid)));
+    }
+
+    @Test
+    void useBloodDeductsOnlyWhenThereIsEnough() {
+        PlayerRecord record = newRecord("Lestat");
+        record.setBloodLevel(5.0);
+        VampirePlayer player = record.toVampirePlayer();
+        join(database.savePlayer(player));
+
+        assertTrue(join(database.useBlood(player.getUuid(), 2.0)));
+        assertEquals(3.0, join(database.getBloodLevel(player.getUuid())));
+        assertFalse(join(database.useBlood(player.getUuid(), 4.0)));
+        assertEquals(3.0, join(database.getBloodLevel(player.getUuid())));
+        assertFalse(join(database.useBlood(UUID.randomUUID(), 1.0)));
+    }
+
+    @Test
+    void addInfectionAccumulatesAndStampsTheTime() {
+        PlayerRecord record = newRecord("Mina");
+        record.setInfectionLevel(0.25);
+        VampirePlayer player = record.toVampirePlayer();
+        join(database.savePlayer(player));
+        long before = System.currentTimeMillis();
+
+        assertTrue(join(database.addInfection(player.getUuid(), 0.5, "bite")));
+        assertEquals(0.75, join(database.getInfectionLevel(player.getUuid())));
+        assertEquals("bite", join(database.getInfectionReason(player.getUuid())));
+        assertTrue(join(database.getInfectionTime(player.getUuid())) >= before);
+        assertFalse(join(database.addInfection(UUID.randomUUID(), 0.5, "bite")));
+    }
+
+    @Test
+    void setVampireChangesStatusAndStampsTheTimeOnTurning() {
+        VampirePlayer player = newPlayer("Lucy");
+        join(database.savePlayer(player));
+        long before = System.currentTimeMillis();
+
+        assertTrue(join(database.setVampire(player.getUuid(), true)));
+        assertTrue(join(database.isVampire(player.getUuid())));
+        assertTrue(join(database.getInfectionTime(player.getUuid())) >= before);
+        assertTrue(join(database.setVampire(player.getUuid(), false)));
+        assertFalse(join(database.isVampire(player.getUuid())));
+        assertFalse(join(database.setVampire(UUID.randomUUID(), true)));
+    }
+
+    @Test
+    void readsAfterAWriteSeeIt() {
+        VampirePlayer player = newPlayer("Dracula");
+        join(database.savePlayer(player));
+        assertTrue(join(database.getAllVampires()).isEmpty());
+        join(database.setVampire(player.getUuid(), true));
+        assertEquals(1, join(database.getAllVampires()).size());
+
+        UUID target = UUID.randomUUID();
+        join(database.createBloodOffer(UUID.randomUUID(), target, 1.0));
+        assertEquals(1.0, join(database.getBloodOffer(target)).getAmount());
+        join(database.acceptBloodOffer(target));
+        assertNull(join(database.getBloodOffer(target)));
+    }
+
+    @Test
+    void vampirePagesWalkEveryVampireInUuidOrder() {
+        List<UUID> vampires = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            PlayerRecord record = newRecord("Vampire" + i);
+            record.setVampire(true);
+            VampirePlayer player = record.toVampirePlayer();
+            join(database.savePlayer(player));
+            vampires.add(player.getUuid());
+        }
+        join(database.savePlayer(newPlayer("Human")));
+        vampires.sort(Comparator.comparing(UUID::toString));
+
+        List<UUID> walked = new ArrayList<>();
+        UUID after = null;
+        List<VampirePlayer> page;
+        do {
+            page = join(database.getVampirePage(after, 3));
+            for (VampirePlayer player : page) {
+                walked.add(player.getUuid());
+                after = player.getUuid();
+            }
+        } while (page.size() == 3);
+
+        assertEquals(vampires, walked);
+        assertEquals(7, join(database.getAllVampires()).size());
+    }
+
+    @Test
+    void recordPagesWalkEveryPlayerInUuidOrder() {
+        List<PlayerRecord> records = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            PlayerRecord record = new PlayerRecord(UUID.randomUUID(), "Player" + i);
+            record.setBloodLevel(i);
+            records.add(record);
+        }
+        join(database.savePlayerRecords(records));
+        List<UUID> expected = records.stream().map(PlayerRecord::getUuid)
+            .sorted(Comparator.comparing(UUID::toString))
+            .collect(Collectors.toList());
+
+        List<PlayerRecord> first = join(database.getPlayerRecordPage(null, 2));
+        List<PlayerRecord> rest = join(database.getPlayerRecordPage(first.get(1).getUuid(), 10));
+
+        List<UUID> walked = new ArrayList<>();
+        first.forEach(record -> walked.add(record.getUuid()));
+        rest.forEach(record -> walked.add(record.getUuid()));
+        assertEquals(expected, walked);
+    }
+
+    @Test
+    void offerPagesWalkPendingOffersInOrder() {
+        long now = System.currentTimeMillis();
+        List<BloodOffer> pending = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            // Pairs of offers share a time, so the UUIDs break the tie
+            pending.add(new BloodOffer(UUID.randomUUID(), UUID.randomUUID(), i, now - 1000 * (i / 2)));
+        }
+        BloodOffer accepted = new BloodOffer(UUID.randomUUID(), UUID.randomUUID(), 9.0, now);
+        accepted.setAccepted();
+        List<BloodOffer> all = new ArrayList<>(pending);
+        all.add(accepted);
+        join(database.saveBloodOffers(all));
+        pending.sort(DatabaseManager.OFFER_PAGE_ORDER);
+
+        List<BloodOffer> walked = new ArrayList<>();
+        BloodOffer after = null;
+        List<BloodOffer> page;
+        do {
+            page = join(database.getBloodOfferPage(after, 2));
+            walked.addAll(page);
+            after = page.isEmpty() ? after : page.get(page.size() - 1);
+        } while (page.size() == 2);
+
+        assertEquals(pending.stream().map(BloodOffer::getAmount).collect(Collectors.toList()),
+            walked.stream().map(BloodOffer::getAmount).collect(Collectors.toList()));
+    }
+
+    @Test
+    void latestPendingOfferIsTheOneReturned() {
+        UUID target = UUID.randomUUID();
+        long now = System.currentTimeMillis();
+        join(database.saveBloodOffers(List.of(
+            new BloodOffer(UUID.randomUUID(), target, 1.0, now - 2000),
+            new BloodOffer(UUID.randomUUID(), target, 2.0, now - 1000))));
+
+        BloodOffer offer = join(database.getBloodOffer(target));
+        assertNotNull(offer);
+        assertEquals(2.0, offer.getAmount());
+        assertNull(join(database.getBloodOffer(UUID.randomUUID())));
+    }
+
+    @Test
+    void acceptingResolvesOnlyTheLatestPendingOffer() {
+        UUID target = UUID.randomUUID();
+        long now = System.currentTimeMillis();
+        join(database.saveBloodOffers(List.of(
+            new BloodOffer(UUID.randomUUID(), target, 1.0, now - 2000),
+            new BloodOffer(UUID.randomUUID(), target, 2.0, now - 1000))));
+
+        assertTrue(join(database.acceptBloodOffer(target)));
+
+        List<BloodOffer> pending = join(database.getAllBloodOffers());
+        assertEquals(1, pending.size());
+        assertEquals(1.0, pending.get(0).getAmount());
+        assertEquals(1.0, join(database.getBloodOffer(target)).getAmount());
+    }
+
+    @Test
+    void rejectingResolvesOnlyTheLatestPendingOffer() {
+        UUID target = UUID.randomUUID();
+        long now = System.currentTimeMillis();
+        join(database.saveBloodOffers(List.of(
+            new BloodOffer(UUID.randomUUID(), target, 1.0, now - 2000),
+            new BloodOffer(UUID.randomUUID(), target, 2.0, now - 1000))));
+
+        assertTrue(join(database.rejectBloodOffer(target)));
+
+        List<BloodOffer> pending = join(database.getAllBloodOffers());
+        assertEquals(1, pending.size());
+        assertEquals(1.0, pending.get(0).getAmount());
+    }
+
+    @Test
+    void resolvingWithoutPendingOfferReturnsFalse() {
+        UUID target = UUID.randomUUID();
+        assertFalse(join(database.acceptBloodOffer(target)));
+        assertFalse(join(database.rejectBloodOffer(target)));
+
+        join(database.createBloodOffer(UUID.randomUUID(), target, 1.0));
+        assertTrue(join(database.acceptBloodOffer(target)));
+        assertFalse(join(database.acceptBloodOffer(target)));
+        assertFalse(join(database.rejectBloodOffer(target)));
+    }
+
+    @Test
+    void purgeRemovesExpiredPendingAndOldResolvedOffers() {
+        UUID target = UUID.randomUUID();
+        long now = System.currentTimeMillis();
+        BloodOffer oldResolved = new BloodOffer(UUID.randomUUID(), target, 1.0, now - 60_000);
+        oldResolved.setAccepted();
+        BloodOffer recentResolved = new BloodOffer(UUID.randomUUID(), target, 2.0, now - 1000);
+        recentResolved.setRejected();
+        join(database.saveBloodOffers(List.of(
+            new BloodOffer(UUID.randomUUID(), target, 3.0, now - 20_000),
+            new BloodOffer(UUID.randomUUID(), target, 4.0, now - 1000),
+            oldResolved,
+            recentResolved)));
+
+        assertEquals(2, join(database.purgeOffers(10_000, 30_000)));
+        List<BloodOffer> pending = join(database.getAllBloodOffers());
+        assertEquals(1, pending.size());
+        assertEquals(4.0, pending.get(0).getAmount());
+    }
+
+    private static VampirePlayer newPlayer(String name) {
+        return newRecord(name).toVampirePlayer();
+    }
+
+    /**
+     * Creates the stored state of a new player. Tests set fields on the record rather
+     * than the player, since the player's setters fire events that need a running server.
+     */
+    private static PlayerRecord newRecord(String name) {
+        return new PlayerRecord(UUID.randomUUID(), name);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package org.clockworx.vampire.database;
+
+import org.clockworx.vampire.VampirePlugin;
+
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the DatabaseManager contract against the append-only file store.
+ */
+class FileStoreDatabaseManagerTest extends DatabaseManagerContractTest {
+
+    @Override
+    protected DatabaseManager createManager(VampirePlugin plugin) {
+        when(config.getDatabaseType()).thenReturn("file");
+        return new FileStoreDatabaseManager(plugin);
+    }
+}
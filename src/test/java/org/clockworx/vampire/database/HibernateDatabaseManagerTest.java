@@ -0,0 +1,17 @@
+package org.clockworx.vampire.database;
+
+import org.clockworx.vampire.VampirePlugin;
+
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the DatabaseManager contract against the Hibernate backend on SQLite.
+ */
+class HibernateDatabaseManagerTest extends DatabaseManagerContractTest {
+
+    @Override
+    protected DatabaseManager createManager(VampirePlugin plugin) {
+        when(config.getDatabaseType()).thenReturn("sqlite");
+        return new HibernateDatabaseManager(plugin);
+    }
+}
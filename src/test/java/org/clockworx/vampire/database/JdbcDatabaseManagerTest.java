@@ -0,0 +1,17 @@
+package org.clockworx.vampire.database;
+
+import org.clockworx.vampire.VampirePlugin;
+
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs the DatabaseManager contract against the plain JDBC backend on SQLite.
+ */
+class JdbcDatabaseManagerTest extends DatabaseManagerContractTest {
+
+    @Override
+    protected DatabaseManager createManager(VampirePlugin plugin) {
+        when(config.getDatabaseType()).thenReturn("sqlite-jdbc");
+        return new JdbcDatabaseManager(plugin);
+    }
+}
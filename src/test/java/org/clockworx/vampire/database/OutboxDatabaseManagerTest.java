@@ -0,0 +1,104 @@
+package org.clockworx.vampire.database;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Write ordering of the outbox while earlier writes of the same player are still running.
+ */
+class OutboxDatabaseManagerTest {
+
+    private static final long TIMEOUT_SECONDS = 10;
+
+    @TempDir
+    Path dataFolder;
+
+    private DatabaseManager delegate;
+    private OutboxDatabaseManager outbox;
+
+    @BeforeEach
+    void setUp() {
+        delegate = mock(DatabaseManager.class);
+        when(delegate.initialize()).thenReturn(CompletableFuture.completedFuture(null));
+        when(delegate.shutdown()).thenReturn(CompletableFuture.completedFuture(null));
+        Logger logger = Logger.getLogger(getClass().getName());
+        outbox = new OutboxDatabaseManager(delegate, new PlayerJournal(dataFolder.resolve("outbox.journal"), logger),
+            new CircuitBreaker(5, 60000), 10000, TimeUnit.HOURS.toMillis(1), 100, logger);
+        join(outbox.initialize());
+    }
+
+    @AfterEach
+    void tearDown() {
+        join(outbox.shutdown());
+    }
+
+    @Test
+    void laterWriteWaitsAndStaysNewestWhenTheEarlierOneIsOutboxed() {
+        CompletableFuture<Void> firstWrite = new CompletableFuture<>();
+        when(delegate.savePlayerRecords(any())).thenReturn(firstWrite);
+        UUID uuid = UUID.randomUUID();
+
+        CompletableFuture<Void> older = outbox.savePlayerRecords(List.of(record(uuid, 1.0)));
+        CompletableFuture<Void> newer = outbox.savePlayerRecords(List.of(record(uuid, 2.0)));
+        assertFalse(newer.isDone());
+        verify(delegate, times(1)).savePlayerRecords(any());
+
+        firstWrite.completeExceptionally(new SQLTransientConnectionException("Connection refused"));
+        join(older);
+        join(newer);
+
+        // The newer write joined the outbox behind the older one instead of racing it
+        verify(delegate, times(1)).savePlayerRecords(any());
+        assertEquals(1, outbox.getPendingCount());
+        assertEquals(2.0, join(outbox.getBloodLevel(uuid)));
+    }
+
+    @Test
+    void deleteWaitsForAnEarlierWrite() {
+        CompletableFuture<Void> write = new CompletableFuture<>();
+        when(delegate.savePlayerRecords(any())).thenReturn(write);
+        UUID uuid = UUID.randomUUID();
+        when(delegate.deletePlayer(uuid)).thenReturn(CompletableFuture.completedFuture(null));
+
+        outbox.savePlayerRecords(List.of(record(uuid, 1.0)));
+        CompletableFuture<Void> delete = outbox.deletePlayer(uuid);
+        verify(delegate, never()).deletePlayer(uuid);
+
+        write.complete(null);
+        join(delete);
+        verify(delegate).deletePlayer(uuid);
+    }
+
+    private static PlayerRecord record(UUID uuid, double blood) {
+        PlayerRecord record = new PlayerRecord(uuid, "Player");
+        record.setBloodLevel(blood);
+        return record;
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+}
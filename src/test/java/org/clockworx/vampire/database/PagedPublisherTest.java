@@ -0,0 +1,152 @@
+package org.clockworx.vampire.database;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Flow;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Demand-driven paging, cancellation and failures of the paged publisher.
+ */
+class PagedPublisherTest {
+
+    private static final List<Integer> ROWS = IntStream.rangeClosed(1, 7).boxed().collect(Collectors.toList());
+
+    private final List<Integer> loadedAfter = new ArrayList<>();
+
+    @Test
+    void publishesEveryRowInOrderAndCompletes() {
+        RecordingSubscriber subscriber = subscribe(3);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        assertEquals(ROWS, subscriber.items);
+        assertTrue(subscriber.completed);
+        // The last page is short, so no empty page is fetched after it
+        assertEquals(List.of(0, 3, 6), loadedAfter);
+    }
+
+    @Test
+    void fetchesAPageOnlyWhenDemandExceedsTheBuffer() {
+        RecordingSubscriber subscriber = subscribe(3);
+        assertTrue(loadedAfter.isEmpty());
+
+        subscriber.subscription.request(2);
+        assertEquals(List.of(1, 2), subscriber.items);
+        assertEquals(1, loadedAfter.size());
+
+        subscriber.subscription.request(1);
+        assertEquals(List.of(1, 2, 3), subscriber.items);
+        assertEquals(1, loadedAfter.size());
+
+        subscriber.subscription.request(1);
+        assertEquals(List.of(1, 2, 3, 4), subscriber.items);
+        assertEquals(2, loadedAfter.size());
+        assertFalse(subscriber.completed);
+    }
+
+    @Test
+    void completesWhenAFullLastPageIsFollowedByAnEmptyOne() {
+        RecordingSubscriber subscriber = subscribe(7);
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        assertEquals(ROWS, subscriber.items);
+        assertTrue(subscriber.completed);
+        assertEquals(List.of(0, 7), loadedAfter);
+    }
+
+    @Test
+    void cancelStopsDeliveryAndFetching() {
+        RecordingSubscriber subscriber = subscribe(3);
+        subscriber.subscription.request(1);
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(10);
+
+        assertEquals(List.of(1), subscriber.items);
+        assertEquals(1, loadedAfter.size());
+        assertFalse(subscriber.completed);
+    }
+
+    @Test
+    void nonPositiveRequestIsAnError() {
+        RecordingSubscriber subscriber = subscribe(3);
+        subscriber.subscription.request(0);
+
+        assertInstanceOf(IllegalArgumentException.class, subscriber.error);
+        subscriber.subscription.request(1);
+        assertTrue(subscriber.items.isEmpty());
+    }
+
+    @Test
+    void failedPageIsAnError() {
+        IllegalStateException failure = new IllegalStateException("Database is down");
+        PagedPublisher<Integer, Integer> publisher = new PagedPublisher<>(
+            (after, limit) -> CompletableFuture.failedFuture(failure), Function.identity(), 3);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(1);
+
+        assertEquals(failure, subscriber.error);
+        assertFalse(subscriber.completed);
+    }
+
+    @Test
+    void pageSizeMustBePositive() {
+        assertThrows(IllegalArgumentException.class,
+            () -> new PagedPublisher<Integer, Integer>((after, limit) -> null, Function.identity(), 0));
+    }
+
+    private RecordingSubscriber subscribe(int pageSize) {
+        PagedPublisher<Integer, Integer> publisher = new PagedPublisher<>(this::loadPage, Function.identity(), pageSize);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        publisher.subscribe(subscriber);
+        return subscriber;
+    }
+
+    private CompletableFuture<List<Integer>> loadPage(Integer after, int limit) {
+        int from = after == null ? 0 : after;
+        loadedAfter.add(from);
+        return CompletableFuture.completedFuture(ROWS.stream()
+            .filter(row -> row > from)
+            .limit(limit)
+            .collect(Collectors.toList()));
+    }
+
+    private static final class RecordingSubscriber implements Flow.Subscriber<Integer> {
+
+        private final List<Integer> items = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private Throwable error;
+        private boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Integer item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.clockworx.vampire.database;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class StatementCacheTest {
+
+    private static final String SQL = "SELECT 1";
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void statementsAreReusedPerConnection() throws Exception {
+        StatementCache cache = new StatementCache();
+        try (Connection first = open(); Connection second = open()) {
+            PreparedStatement statement = cache.prepare(first, SQL);
+            assertSame(statement, cache.prepare(first, SQL));
+            assertNotSame(statement, cache.prepare(second, SQL));
+            assertEquals(2, cache.size());
+        }
+    }
+
+    @Test
+    void closedConnectionsAreDroppedWhenANewOneAppears() throws Exception {
+        StatementCache cache = new StatementCache();
+        for (int i = 0; i < 5; i++) {
+            try (Connection connection = open()) {
+                cache.prepare(connection, SQL);
+            }
+        }
+        try (Connection connection = open()) {
+            cache.prepare(connection, SQL);
+            assertEquals(1, cache.size());
+        }
+    }
+
+    private Connection open() throws Exception {
+        return DriverManager.getConnection("jdbc:sqlite:" + folder.resolve("cache.db"));
+    }
+}
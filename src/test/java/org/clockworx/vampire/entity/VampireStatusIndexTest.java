@@ -0,0 +1,94 @@
+package org.clockworx.vampire.entity;
+
+import org.clockworx.vampire.database.PlayerRecord;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Status lookups of the vampire status index as players change and leave.
+ */
+class VampireStatusIndexTest {
+
+    @Test
+    void unknownPlayersAreHuman() {
+        VampireStatusIndex index = new VampireStatusIndex();
+        UUID uuid = UUID.randomUUID();
+
+        assertTrue(index.isHuman(uuid));
+        assertFalse(index.isVampire(uuid));
+        assertFalse(index.isInfected(uuid));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void tracksStatusChanges() {
+        VampireStatusIndex index = new VampireStatusIndex();
+        UUID uuid = UUID.randomUUID();
+
+        index.update(player(uuid, false, 0.5));
+        assertTrue(index.isInfected(uuid));
+        assertFalse(index.isVampire(uuid));
+        assertFalse(index.isHuman(uuid));
+
+        index.update(player(uuid, true, 0.0));
+        assertTrue(index.isVampire(uuid));
+        assertFalse(index.isInfected(uuid));
+        assertEquals(1, index.size());
+
+        index.update(player(uuid, false, 0.0));
+        assertTrue(index.isHuman(uuid));
+        // Humans are not stored
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void removedPlayersAreHuman() {
+        VampireStatusIndex index = new VampireStatusIndex();
+        UUID uuid = UUID.randomUUID();
+        index.update(player(uuid, true, 0.0));
+
+        index.remove(uuid);
+
+        assertTrue(index.isHuman(uuid));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    void keepsEveryPlayerAsTheTableGrows() {
+        VampireStatusIndex index = new VampireStatusIndex();
+        List<UUID> vampires = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            UUID uuid = UUID.randomUUID();
+            vampires.add(uuid);
+            index.update(player(uuid, true, 0.0));
+        }
+
+        assertEquals(500, index.size());
+        for (UUID uuid : vampires) {
+            assertTrue(index.isVampire(uuid));
+        }
+        assertTrue(index.isHuman(UUID.randomUUID()));
+
+        for (int i = 0; i < 250; i++) {
+            index.remove(vampires.get(i));
+        }
+        assertEquals(250, index.size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i >= 250, index.isVampire(vampires.get(i)));
+        }
+    }
+
+    private static VampirePlayer player(UUID uuid, boolean vampire, double infection) {
+        PlayerRecord record = new PlayerRecord(uuid, "Player");
+        record.setVampire(vampire);
+        record.setInfectionLevel(infection);
+        return record.toVampirePlayer();
+    }
+}
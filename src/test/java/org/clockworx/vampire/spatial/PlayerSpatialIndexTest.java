@@ -0,0 +1,159 @@
+package org.clockworx.vampire.spatial;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Proximity queries of the player spatial index across cells, worlds and moves.
+ */
+class PlayerSpatialIndexTest {
+
+    private final World overworld = world();
+    private final World nether = world();
+    private final PlayerSpatialIndex index = new PlayerSpatialIndex();
+
+    @Test
+    void findsPlayersInNeighbouringCells() {
+        Player near = player();
+        Player across = player();
+        Player far = player();
+        Player elsewhere = player();
+        index.update(near, at(overworld, 10, 64, 10));
+        index.update(across, at(overworld, -0.5, 64, 10));
+        index.update(far, at(overworld, 40, 64, 10));
+        index.update(elsewhere, at(nether, 10, 64, 10));
+
+        assertEquals(Set.of(near, across), new HashSet<>(index.getNearby(at(overworld, 2, 64, 10), 10)));
+        assertTrue(index.getNearby(at(world(), 10, 64, 10), 10).isEmpty());
+    }
+
+    @Test
+    void followsPlayersAcrossCellsAndWorlds() {
+        Player player = player();
+        index.update(player, at(overworld, 0, 64, 0));
+        index.update(player, at(overworld, 100, 64, 100));
+
+        assertTrue(index.getNearby(at(overworld, 0, 64, 0), 5).isEmpty());
+        assertEquals(List.of(player), index.getNearby(at(overworld, 100, 64, 100), 5));
+
+        index.update(player, at(nether, 100, 64, 100));
+        assertTrue(index.getNearby(at(overworld, 100, 64, 100), 5).isEmpty());
+        assertEquals(List.of(player), index.getNearby(at(nether, 100, 64, 100), 5));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void removeKeepsTheOtherPlayersOfTheCell() {
+        Player first = player();
+        Player second = player();
+        Player third = player();
+        index.update(first, at(overworld, 1, 64, 1));
+        index.update(second, at(overworld, 2, 64, 2));
+        index.update(third, at(overworld, 3, 64, 3));
+
+        index.remove(first.getUniqueId());
+
+        assertEquals(Set.of(second, third), new HashSet<>(index.getNearby(at(overworld, 2, 64, 2), 5)));
+        assertEquals(2, index.size());
+        index.clear();
+        assertEquals(0, index.size());
+        assertTrue(index.getNearby(at(overworld, 2, 64, 2), 5).isEmpty());
+    }
+
+    @Test
+    void nearestLooksPastTheCenterCell() {
+        Player sameCell = player();
+        Player nextCell = player();
+        index.update(sameCell, at(overworld, 1, 64, 8));
+        index.update(nextCell, at(overworld, 17, 64, 8));
+
+        assertSame(nextCell, index.getNearest(at(overworld, 15.5, 64, 8), 32, candidate -> true));
+        assertSame(sameCell, index.getNearest(at(overworld, 15.5, 64, 8), 32, candidate -> candidate != nextCell));
+        assertNull(index.getNearest(at(overworld, 15.5, 64, 8), 1, candidate -> true));
+        assertNull(index.getNearest(at(nether, 15.5, 64, 8), 32, candidate -> true));
+    }
+
+    @Test
+    void matchesAFullScan() {
+        Random random = new Random(42);
+        List<Player> players = new ArrayList<>();
+        List<Location> locations = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Player player = player();
+            Location location = at(overworld, random.nextDouble() * 200 - 100, 64, random.nextDouble() * 200 - 100);
+            players.add(player);
+            locations.add(location);
+            index.update(player, location);
+        }
+
+        for (int query = 0; query < 100; query++) {
+            Location center = at(overworld, random.nextDouble() * 200 - 100, 64, random.nextDouble() * 200 - 100);
+            double radius = 1 + random.nextDouble() * 40;
+            Set<Player> expected = new HashSet<>();
+            double nearest = Double.MAX_VALUE;
+            for (int i = 0; i < players.size(); i++) {
+                double distanceSquared = locations.get(i).distanceSquared(center);
+                if (distanceSquared <= radius * radius) {
+                    expected.add(players.get(i));
+                    nearest = Math.min(nearest, distanceSquared);
+                }
+            }
+
+            assertEquals(expected, new HashSet<>(index.getNearby(center, radius)));
+            Player found = index.getNearest(center, radius, candidate -> true);
+            if (expected.isEmpty()) {
+                assertNull(found);
+            } else {
+                assertEquals(nearest, locations.get(players.indexOf(found)).distanceSquared(center));
+            }
+        }
+    }
+
+    @Test
+    void withinUsesIndexedPositions() {
+        Player first = player();
+        Player second = player();
+        index.update(first, at(overworld, 0, 64, 0));
+        index.update(second, at(overworld, 3, 64, 4));
+
+        assertTrue(index.isWithin(first, second, 5));
+        assertFalse(index.isWithin(first, second, 4.9));
+
+        index.update(second, at(nether, 3, 64, 4));
+        assertFalse(index.isWithin(first, second, 5));
+        assertFalse(PlayerSpatialIndex.isWithin(at(overworld, 0, 64, 0), at(nether, 0, 64, 0), 5));
+    }
+
+    private static World world() {
+        World world = mock(World.class);
+        when(world.getUID()).thenReturn(UUID.randomUUID());
+        return world;
+    }
+
+    private static Player player() {
+        Player player = mock(Player.class);
+        when(player.getUniqueId()).thenReturn(UUID.randomUUID());
+        return player;
+    }
+
+    private static Location at(World world, double x, double y, double z) {
+        return new Location(world, x, y, z);
+    }
+}
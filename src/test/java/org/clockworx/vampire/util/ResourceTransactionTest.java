@@ -0,0 +1,109 @@
+package org.clockworx.vampire.util;
+
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * All-or-nothing consumption of required items, including rollback when a slot cannot be changed.
+ */
+class ResourceTransactionTest {
+
+    private final ItemStack[] slots = new ItemStack[9];
+    private PlayerInventory inventory;
+    private Player player;
+    private int failOnWrite;
+    private int writes;
+
+    @BeforeEach
+    void setUp() {
+        inventory = mock(PlayerInventory.class);
+        when(inventory.getContents()).thenAnswer(invocation -> slots.clone());
+        doAnswer(invocation -> {
+            if (++writes == failOnWrite) {
+                throw new IllegalStateException("Inventory is locked");
+            }
+            slots[invocation.<Integer>getArgument(0)] = invocation.getArgument(1);
+            return null;
+        }).when(inventory).setItem(anyInt(), any());
+        player = mock(Player.class);
+        when(player.getInventory()).thenReturn(inventory);
+
+        slots[0] = new ItemStack(Material.BONE, 3);
+        slots[2] = new ItemStack(Material.BONE, 4);
+        slots[5] = new ItemStack(Material.SUGAR, 2);
+    }
+
+    @Test
+    void takesEveryRequiredItemAcrossStacks() {
+        ResourceTransaction transaction = ResourceTransaction.begin(player, List.of(
+            new ItemStack(Material.BONE, 2), new ItemStack(Material.BONE, 3), new ItemStack(Material.SUGAR, 1)));
+
+        assertTrue(transaction.isSatisfied());
+        assertTrue(transaction.commit());
+
+        assertNull(slots[0]);
+        assertEquals(2, slots[2].getAmount());
+        assertEquals(1, slots[5].getAmount());
+    }
+
+    @Test
+    void takesNothingWhenAnyItemIsMissing() {
+        ResourceTransaction transaction = ResourceTransaction.begin(player, List.of(
+            new ItemStack(Material.BONE, 1), new ItemStack(Material.SUGAR, 3)));
+
+        assertFalse(transaction.isSatisfied());
+        assertFalse(transaction.commit());
+        verify(inventory, never()).setItem(anyInt(), any());
+    }
+
+    @Test
+    void durabilityMustMatch() {
+        ItemStack dye = new ItemStack(Material.INK_SAC, 1);
+        dye.setDurability((short) 4);
+        slots[7] = dye;
+
+        assertFalse(ResourceTransaction.begin(player, List.of(new ItemStack(Material.INK_SAC, 1))).isSatisfied());
+        assertTrue(ResourceTransaction.begin(player, List.of(dye.clone())).isSatisfied());
+    }
+
+    @Test
+    void restoresTakenSlotsWhenASlotCannotBeChanged() {
+        failOnWrite = 3;
+        ResourceTransaction transaction = ResourceTransaction.begin(player, List.of(
+            new ItemStack(Material.BONE, 5), new ItemStack(Material.SUGAR, 1)));
+
+        assertThrows(IllegalStateException.class, transaction::commit);
+
+        assertEquals(3, slots[0].getAmount());
+        assertEquals(4, slots[2].getAmount());
+        assertEquals(2, slots[5].getAmount());
+    }
+
+    @Test
+    void commitsOnlyOnce() {
+        ResourceTransaction transaction = ResourceTransaction.begin(player, List.of(new ItemStack(Material.SUGAR, 1)));
+
+        assertTrue(transaction.commit());
+        assertThrows(IllegalStateException.class, transaction::commit);
+        assertEquals(1, slots[5].getAmount());
+    }
+}